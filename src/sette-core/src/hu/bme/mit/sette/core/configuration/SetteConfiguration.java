@@ -141,7 +141,8 @@ public final class SetteConfiguration {
                     Path toolDir = baseDir.resolve(t.getToolDirPath());
                     v.addErrorIfFalse("The tool directory does not exists: " + toolDir,
                             PathUtils.exists(toolDir));
-                    return new SetteToolConfiguration(t.getClassName(), t.getName(), toolDir);
+                    return new SetteToolConfiguration(t.getClassName(), t.getName(), toolDir,
+                            t.getResourceLimits());
                 });
         toolConfigurations = ImmutableSortedSet.copyOf(tmpToolConfigurations.iterator());
 
@@ -38,7 +38,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.CharMatcher;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
+import hu.bme.mit.sette.core.util.process.ProcessResourceLimits;
 import hu.bme.mit.sette.core.validator.ValidationException;
 import hu.bme.mit.sette.core.validator.Validator;
 import lombok.Getter;
@@ -60,11 +62,22 @@ public final class SetteConfigurationDescription {
     private static final String NODE_TOOL_CLASS_NAME = "className";
     private static final String NODE_TOOL_NAME = "name";
     private static final String NODE_TOOL_DIR = "toolDir";
+    private static final String NODE_TOOL_LIMITS = "limits";
+    private static final String NODE_LIMIT_ADDRESS_SPACE_IN_MB = "addressSpaceInMb";
+    private static final String NODE_LIMIT_MEMORY_IN_MB = "memoryInMb";
+    private static final String NODE_LIMIT_CPU_TIME_IN_SECONDS = "cpuTimeInSeconds";
+    private static final String NODE_LIMIT_MAX_PROCESSES = "maxProcesses";
+    private static final String NODE_LIMIT_MAX_OPEN_FILES = "maxOpenFiles";
     private static final ImmutableSet<String> TOP_FIELDS = ImmutableSet.of(NODE_BASEDIRS,
             NODE_OUTPUT_DIR, NODE_RUNNER_TIMEOUT_IN_MS, NODE_SNIPPET_PROJECT_DIRS,
             NODE_TOOLS);
     private static final ImmutableSet<String> TOOL_FIELDS = ImmutableSet.of(NODE_TOOL_CLASS_NAME,
             NODE_TOOL_NAME, NODE_TOOL_DIR);
+    private static final ImmutableSet<String> TOOL_OPTIONAL_FIELDS = ImmutableSet
+            .of(NODE_TOOL_LIMITS);
+    private static final ImmutableSet<String> LIMIT_OPTIONAL_FIELDS = ImmutableSet.of(
+            NODE_LIMIT_ADDRESS_SPACE_IN_MB, NODE_LIMIT_MEMORY_IN_MB,
+            NODE_LIMIT_CPU_TIME_IN_SECONDS, NODE_LIMIT_MAX_PROCESSES, NODE_LIMIT_MAX_OPEN_FILES);
 
     private transient final Validator<String> validator = Validator.of(getClass().getSimpleName());
 
@@ -93,7 +106,7 @@ public final class SetteConfigurationDescription {
         LOG.debug("Parsing configuration from JSON: {}", json);
         JsonNode rootNode = new ObjectMapper().readTree(json);
 
-        validateObjectFieldNames(rootNode, TOP_FIELDS);
+        validateObjectFieldNames(rootNode, TOP_FIELDS, ImmutableSet.of());
 
         baseDirPaths = parseStringArray(rootNode, NODE_BASEDIRS);
         outputDirPath = parseString(rootNode, NODE_OUTPUT_DIR);
@@ -106,12 +119,13 @@ public final class SetteConfigurationDescription {
 
         if (toolsNode.isArray()) {
             for (JsonNode toolNode : toolsNode) {
-                validateObjectFieldNames(toolNode, TOOL_FIELDS);
+                validateObjectFieldNames(toolNode, TOOL_FIELDS, TOOL_OPTIONAL_FIELDS);
 
                 SetteToolConfigurationDescription tc = new SetteToolConfigurationDescription(
                         parseString(toolNode, NODE_TOOL_CLASS_NAME),
                         parseString(toolNode, NODE_TOOL_NAME),
-                        parseString(toolNode, NODE_TOOL_DIR));
+                        parseString(toolNode, NODE_TOOL_DIR),
+                        parseLimits(toolNode, NODE_TOOL_LIMITS));
 
                 tmpToolConfs.add(tc);
             }
@@ -135,15 +149,16 @@ public final class SetteConfigurationDescription {
         LOG.debug("Parsed configuration: {}", this);
     }
 
-    private void validateObjectFieldNames(JsonNode node, Set<String> expectedFieldNames)
-            throws ValidationException {
+    private void validateObjectFieldNames(JsonNode node, Set<String> expectedFieldNames,
+            Set<String> optionalFieldNames) throws ValidationException {
         // call validate iff this method has added an error
         if (node.isObject()) {
             ImmutableSet<String> fieldNames = ImmutableSet.copyOf(node.fieldNames());
-            if (!expectedFieldNames.equals(fieldNames)) {
+            if (!fieldNames.containsAll(expectedFieldNames) || !Sets
+                    .union(expectedFieldNames, optionalFieldNames).containsAll(fieldNames)) {
                 String msg = format("The JSON object does not have the required fields"
-                        + " (expected: %s, actual: %s)", expectedFieldNames,
-                        fieldNames);
+                        + " (expected: %s, optional: %s, actual: %s)", expectedFieldNames,
+                        optionalFieldNames, fieldNames);
                 validator.addError(msg);
                 validator.validate();
             }
@@ -163,6 +178,31 @@ public final class SetteConfigurationDescription {
         }
     }
 
+    private int parseOptionalInt(JsonNode parentNode, String fieldName) {
+        return parentNode.has(fieldName) ? parseInt(parentNode, fieldName) : 0;
+    }
+
+    private ProcessResourceLimits parseLimits(JsonNode parentNode, String fieldName)
+            throws ValidationException {
+        JsonNode node = parentNode.get(fieldName);
+        if (node == null) {
+            return ProcessResourceLimits.NONE;
+        }
+
+        validateObjectFieldNames(node, ImmutableSet.of(), LIMIT_OPTIONAL_FIELDS);
+        try {
+            return new ProcessResourceLimits(
+                    parseOptionalInt(node, NODE_LIMIT_ADDRESS_SPACE_IN_MB),
+                    parseOptionalInt(node, NODE_LIMIT_MEMORY_IN_MB),
+                    parseOptionalInt(node, NODE_LIMIT_CPU_TIME_IN_SECONDS),
+                    parseOptionalInt(node, NODE_LIMIT_MAX_PROCESSES),
+                    parseOptionalInt(node, NODE_LIMIT_MAX_OPEN_FILES));
+        } catch (IllegalArgumentException ex) {
+            validator.addError(fieldName + ": " + ex.getMessage());
+            return ProcessResourceLimits.NONE;
+        }
+    }
+
     private String parseString(JsonNode parentNode, String fieldName) {
         JsonNode node = parentNode.get(fieldName);
         if (node.isTextual()) {
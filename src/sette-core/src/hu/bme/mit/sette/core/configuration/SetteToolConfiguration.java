@@ -24,6 +24,7 @@ package hu.bme.mit.sette.core.configuration;
 
 import java.nio.file.Path;
 
+import hu.bme.mit.sette.core.util.process.ProcessResourceLimits;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -43,6 +44,10 @@ public final class SetteToolConfiguration implements Comparable<SetteToolConfigu
     @Getter
     private final Path toolDir;
 
+    /** The resource limits of the tool processes */
+    @Getter
+    private final ProcessResourceLimits resourceLimits;
+
     /**
      * Instantiates a new SETTE tool configuration description.
      *
@@ -55,9 +60,27 @@ public final class SetteToolConfiguration implements Comparable<SetteToolConfigu
      */
     public SetteToolConfiguration(@NonNull String className, @NonNull String name,
             @NonNull Path toolDir) {
+        this(className, name, toolDir, ProcessResourceLimits.NONE);
+    }
+
+    /**
+     * Instantiates a new SETTE tool configuration description.
+     *
+     * @param className
+     *            the class name of the tool, e.g, <code>com.example.MyTool</code>
+     * @param name
+     *            the user-specified name of the tool
+     * @param toolDir
+     *            the tool directory
+     * @param resourceLimits
+     *            the resource limits of the tool processes
+     */
+    public SetteToolConfiguration(@NonNull String className, @NonNull String name,
+            @NonNull Path toolDir, @NonNull ProcessResourceLimits resourceLimits) {
         this.className = className;
         this.name = name.trim();
         this.toolDir = toolDir;
+        this.resourceLimits = resourceLimits;
     }
 
     @Override
@@ -68,6 +91,7 @@ public final class SetteToolConfiguration implements Comparable<SetteToolConfigu
     @Override
     public String toString() {
         return "SetteToolConfiguration [className=" + className + ", name=" + name + ", toolDir="
-                + toolDir + "]";
+                + toolDir
+                + (resourceLimits.isUnlimited() ? "" : ", resourceLimits=" + resourceLimits) + "]";
     }
 }
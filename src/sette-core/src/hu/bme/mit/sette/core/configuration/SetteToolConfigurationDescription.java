@@ -22,6 +22,7 @@
  */
 package hu.bme.mit.sette.core.configuration;
 
+import hu.bme.mit.sette.core.util.process.ProcessResourceLimits;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -41,6 +42,10 @@ public final class SetteToolConfigurationDescription {
     @Getter
     private final String toolDirPath;
 
+    /** The resource limits of the tool processes */
+    @Getter
+    private final ProcessResourceLimits resourceLimits;
+
     /**
      * Instantiates a new SETTE tool configuration description.
      *
@@ -53,14 +58,33 @@ public final class SetteToolConfigurationDescription {
      */
     SetteToolConfigurationDescription(@NonNull String className, @NonNull String name,
             @NonNull String toolDirPath) {
+        this(className, name, toolDirPath, ProcessResourceLimits.NONE);
+    }
+
+    /**
+     * Instantiates a new SETTE tool configuration description.
+     *
+     * @param className
+     *            the class name of the tool, e.g, <code>com.example.MyTool</code>
+     * @param name
+     *            the user-specified name of the tool
+     * @param toolDirPath
+     *            the tool directory path, relative to the base directory
+     * @param resourceLimits
+     *            the resource limits of the tool processes
+     */
+    SetteToolConfigurationDescription(@NonNull String className, @NonNull String name,
+            @NonNull String toolDirPath, @NonNull ProcessResourceLimits resourceLimits) {
         this.className = className;
         this.name = name.trim();
         this.toolDirPath = toolDirPath;
+        this.resourceLimits = resourceLimits;
     }
 
     @Override
     public String toString() {
         return "SetteToolConfigurationDescription [className=" + className + ", name=" + name
-                + ", toolDirPath=" + toolDirPath + "]";
+                + ", toolDirPath=" + toolDirPath
+                + (resourceLimits.isUnlimited() ? "" : ", resourceLimits=" + resourceLimits) + "]";
     }
 }
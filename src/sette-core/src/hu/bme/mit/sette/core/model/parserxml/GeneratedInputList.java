@@ -0,0 +1,490 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.parserxml;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import hu.bme.mit.sette.core.model.runner.ParameterType;
+import lombok.NonNull;
+
+/**
+ * Compact, column-oriented list of generated inputs. Tools may generate hundreds of thousands of
+ * inputs for a snippet, and keeping them as {@link InputElement} objects (with a string for every
+ * value) needs a lot of memory. This list stores the inputs in columns instead:
+ * <ul>
+ * <li>every parameter position has its own column, primitive values are stored in a primitive
+ * array (floating point values by their bits) and the other values are stored as string
+ * references,</li>
+ * <li>the heaps, the expected exceptions, the expressions and the array elements are interned into
+ * a shared string pool which stores the characters of all the strings in one array.</li>
+ * </ul>
+ * Primitive values are only stored as primitives if their canonical string representation is the
+ * same as the original one (e.g. <code>1.0</code> is, <code>1.0f</code> or <code>01</code> is
+ * not), thus {@link #get(int)} returns the same values which were added.
+ * <p>
+ * The list is append-only. {@link #add(InputElement)} copies the input into the columns, thus
+ * modifying an input after adding it does not affect the list. {@link #get(int)} creates a new
+ * {@link InputElement} for every call, modifying it does not affect the list either.
+ * <p>
+ * The list is not thread-safe.
+ */
+public final class GeneratedInputList extends AbstractList<InputElement> implements RandomAccess {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Kind of an absent parameter (the input has less parameters). */
+    private static final byte ABSENT = 0x00;
+    /** Kind of a primitive value stored in {@link ParameterColumn#values}. */
+    private static final byte PRIMITIVE = 0x10;
+    /** Kind of a value stored as a string reference in {@link ParameterColumn#refs}. */
+    private static final byte TEXT = 0x20;
+    /** Kind of an array stored as an offset of {@link #arrays} in {@link ParameterColumn#refs}. */
+    private static final byte ARRAY = 0x30;
+    private static final byte KIND_MASK = 0x30;
+    private static final byte TYPE_MASK = 0x0F;
+    private static final ParameterType[] TYPES = ParameterType.values();
+
+    private final StringPool strings = new StringPool();
+    private final List<ParameterColumn> columns = new ArrayList<>();
+    private int capacity;
+    private int size = 0;
+    private int[] heaps;
+    private int[] expecteds;
+    /** Array parameters: the length of the array followed by the string references. */
+    private int[] arrays = new int[DEFAULT_CAPACITY];
+    private int arraysLength = 0;
+
+    /**
+     * Creates an empty list.
+     */
+    public GeneratedInputList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list with the specified initial capacity.
+     *
+     * @param initialCapacity
+     *            the initial capacity
+     */
+    public GeneratedInputList(int initialCapacity) {
+        checkArgument(initialCapacity >= 0, "The initial capacity must not be negative: %s",
+                initialCapacity);
+        capacity = Math.max(initialCapacity, 1);
+        heaps = new int[capacity];
+        expecteds = new int[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends an input to the list by copying its heap, parameters and expected exception.
+     *
+     * @param input
+     *            the input (its parameter list must not contain <code>null</code>)
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean add(@NonNull InputElement input) {
+        List<AbstractParameterElement> parameters = input.getParameters();
+        checkArgument(parameters != null && !parameters.contains(null),
+                "The list of parameters must not be null and must not contain null");
+
+        if (size == capacity) {
+            grow();
+        }
+        while (columns.size() < parameters.size()) {
+            columns.add(new ParameterColumn(capacity));
+        }
+
+        int index = size;
+        heaps[index] = strings.intern(input.getHeap());
+        expecteds[index] = strings.intern(input.getExpected());
+        for (int i = 0; i < parameters.size(); i++) {
+            columns.get(i).set(index, parameters.get(i));
+        }
+
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Creates a new {@link InputElement} containing the input at the specified position.
+     *
+     * @param index
+     *            the index of the input
+     * @return the input
+     */
+    @Override
+    public InputElement get(int index) {
+        checkElementIndex(index, size);
+
+        InputElement input = new InputElement();
+        input.setHeap(strings.get(heaps[index]));
+        for (ParameterColumn column : columns) {
+            AbstractParameterElement parameter = column.get(index);
+            if (parameter == null) {
+                break;
+            }
+            input.getParameters().add(parameter);
+        }
+        input.setExpected(strings.get(expecteds[index]));
+        return input;
+    }
+
+    /**
+     * Gets the heap of the specified input without creating an {@link InputElement}.
+     *
+     * @param index
+     *            the index of the input
+     * @return the heap or <code>null</code>
+     */
+    public String getHeap(int index) {
+        checkElementIndex(index, size);
+        return strings.get(heaps[index]);
+    }
+
+    /**
+     * Gets the expected exception of the specified input without creating an {@link InputElement}.
+     *
+     * @param index
+     *            the index of the input
+     * @return the name of the expected exception or <code>null</code>
+     */
+    public String getExpected(int index) {
+        checkElementIndex(index, size);
+        return strings.get(expecteds[index]);
+    }
+
+    /**
+     * Gets the number of parameters of the specified input without creating an
+     * {@link InputElement}.
+     *
+     * @param index
+     *            the index of the input
+     * @return the number of parameters
+     */
+    public int getParameterCount(int index) {
+        checkElementIndex(index, size);
+        int count = 0;
+        while (count < columns.size() && columns.get(count).kinds[index] != ABSENT) {
+            count++;
+        }
+        return count;
+    }
+
+    private void grow() {
+        capacity = newCapacity(capacity, capacity + 1);
+        heaps = Arrays.copyOf(heaps, capacity);
+        expecteds = Arrays.copyOf(expecteds, capacity);
+        for (ParameterColumn column : columns) {
+            column.grow(capacity);
+        }
+    }
+
+    private int addArray(List<String> elements) {
+        int needed = arraysLength + 1 + elements.size();
+        if (needed > arrays.length) {
+            arrays = Arrays.copyOf(arrays, newCapacity(arrays.length, needed));
+        }
+
+        int offset = arraysLength;
+        arrays[arraysLength++] = elements.size();
+        for (String element : elements) {
+            arrays[arraysLength++] = strings.intern(element);
+        }
+        return offset;
+    }
+
+    private static int newCapacity(int current, int needed) {
+        if (needed < 0) {
+            throw new OutOfMemoryError("Too many generated inputs");
+        }
+        int doubled = current * 2;
+        return doubled < needed || doubled < 0 ? needed : doubled;
+    }
+
+    private static int typeCode(ParameterType type) {
+        return type == null ? 0 : type.ordinal() + 1;
+    }
+
+    private static ParameterType typeOf(byte kind) {
+        int code = kind & TYPE_MASK;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    /**
+     * Encodes a primitive value if its string representation is canonical.
+     *
+     * @return the encoded value or <code>null</code> if it cannot be stored as a primitive
+     */
+    private static Long encodePrimitive(ParameterType type, String value) {
+        if (type == null || value == null) {
+            return null;
+        }
+
+        try {
+            long encoded;
+            switch (type) {
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    encoded = Long.parseLong(value);
+                    break;
+
+                case FLOAT:
+                    encoded = Float.floatToRawIntBits(Float.parseFloat(value));
+                    break;
+
+                case DOUBLE:
+                    encoded = Double.doubleToRawLongBits(Double.parseDouble(value));
+                    break;
+
+                case BOOLEAN:
+                    if (!value.equals("true") && !value.equals("false")) {
+                        return null;
+                    }
+                    encoded = value.equals("true") ? 1 : 0;
+                    break;
+
+                case CHAR:
+                    if (value.length() != 1) {
+                        return null;
+                    }
+                    encoded = value.charAt(0);
+                    break;
+
+                default:
+                    return null;
+            }
+
+            return decodePrimitive(type, encoded).equals(value) ? encoded : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static String decodePrimitive(ParameterType type, long encoded) {
+        switch (type) {
+            case FLOAT:
+                return String.valueOf(Float.intBitsToFloat((int) encoded));
+
+            case DOUBLE:
+                return String.valueOf(Double.longBitsToDouble(encoded));
+
+            case BOOLEAN:
+                return String.valueOf(encoded != 0);
+
+            case CHAR:
+                return String.valueOf((char) encoded);
+
+            default:
+                return String.valueOf(encoded);
+        }
+    }
+
+    /**
+     * The values of one parameter position.
+     */
+    private final class ParameterColumn {
+        private byte[] kinds;
+        /** Allocated when the first primitive value is stored. */
+        private long[] values;
+        /** Allocated when the first non-primitive value is stored. */
+        private int[] refs;
+
+        ParameterColumn(int capacity) {
+            kinds = new byte[capacity];
+        }
+
+        void grow(int capacity) {
+            kinds = Arrays.copyOf(kinds, capacity);
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (refs != null) {
+                refs = Arrays.copyOf(refs, capacity);
+            }
+        }
+
+        void set(int index, AbstractParameterElement parameter) {
+            int typeCode = typeCode(parameter.getType());
+
+            if (parameter instanceof ArrayParameterElement) {
+                List<String> elements = ((ArrayParameterElement) parameter).getElements();
+                checkArgument(elements != null, "The elements of an array must not be null");
+                setRef(index, (byte) (ARRAY | typeCode), addArray(elements));
+            } else {
+                String value = ((ParameterElement) parameter).getValue();
+                Long encoded = encodePrimitive(parameter.getType(), value);
+
+                if (encoded != null) {
+                    if (values == null) {
+                        values = new long[kinds.length];
+                    }
+                    kinds[index] = (byte) (PRIMITIVE | typeCode);
+                    values[index] = encoded;
+                } else {
+                    setRef(index, (byte) (TEXT | typeCode), strings.intern(value));
+                }
+            }
+        }
+
+        private void setRef(int index, byte kind, int ref) {
+            if (refs == null) {
+                refs = new int[kinds.length];
+            }
+            kinds[index] = kind;
+            refs[index] = ref;
+        }
+
+        AbstractParameterElement get(int index) {
+            byte kind = kinds[index];
+            ParameterType type = typeOf(kind);
+
+            switch (kind & KIND_MASK) {
+                case PRIMITIVE:
+                    return new ParameterElement(type, decodePrimitive(type, values[index]));
+
+                case TEXT:
+                    return new ParameterElement(type, strings.get(refs[index]));
+
+                case ARRAY:
+                    ArrayParameterElement array = new ArrayParameterElement(type);
+                    int offset = refs[index];
+                    int length = arrays[offset];
+                    for (int i = 1; i <= length; i++) {
+                        array.getElements().add(strings.get(arrays[offset + i]));
+                    }
+                    return array;
+
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Pool of distinct strings. The characters of the strings are stored in one array, a string is
+     * referenced by its index (<code>-1</code> for <code>null</code>).
+     */
+    private static final class StringPool {
+        private char[] chars = new char[256];
+        private int charsLength = 0;
+        /** String <code>i</code> is <code>chars[offsets[i]..offsets[i+1])</code>. */
+        private int[] offsets = new int[DEFAULT_CAPACITY + 1];
+        private int[] hashes = new int[DEFAULT_CAPACITY];
+        private int count = 0;
+        /** Open addressing hash table of string indices + 1 (0 means empty slot). */
+        private int[] table = new int[DEFAULT_CAPACITY * 2];
+
+        int intern(String str) {
+            if (str == null) {
+                return -1;
+            }
+
+            int hash = str.hashCode();
+            int mask = table.length - 1;
+            int slot = spread(hash) & mask;
+            while (table[slot] != 0) {
+                int id = table[slot] - 1;
+                if (hashes[id] == hash && equalsAt(id, str)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int id = append(str, hash);
+            if (count * 2 > table.length) {
+                rehash();
+            } else {
+                table[slot] = id + 1;
+            }
+            return id;
+        }
+
+        String get(int id) {
+            if (id < 0) {
+                return null;
+            }
+            return new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+        }
+
+        private boolean equalsAt(int id, String str) {
+            int offset = offsets[id];
+            if (offsets[id + 1] - offset != str.length()) {
+                return false;
+            }
+            for (int i = 0; i < str.length(); i++) {
+                if (chars[offset + i] != str.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int append(String str, int hash) {
+            int needed = charsLength + str.length();
+            if (needed > chars.length) {
+                chars = Arrays.copyOf(chars, newCapacity(chars.length, needed));
+            }
+            if (count + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, newCapacity(offsets.length, count + 2));
+                hashes = Arrays.copyOf(hashes, offsets.length - 1);
+            }
+
+            str.getChars(0, str.length(), chars, charsLength);
+            charsLength = needed;
+            hashes[count] = hash;
+            offsets[count + 1] = charsLength;
+            return count++;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int id = 0; id < count; id++) {
+                int slot = spread(hashes[id]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id + 1;
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
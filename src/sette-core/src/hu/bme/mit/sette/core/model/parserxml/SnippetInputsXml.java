@@ -41,6 +41,13 @@ import hu.bme.mit.sette.core.validator.Validator;
  */
 @Root(name = "setteSnippetInputs")
 public final class SnippetInputsXml extends SnippetBaseXml {
+    /**
+     * The number of the generated inputs which were dropped because of the maximum input count
+     * (omitted if none).
+     */
+    @Element(name = "droppedInputCount", required = false)
+    private Integer droppedInputCount = null;
+
     /** The generated inputs. */
     @ElementList(name = "generatedInputs", entry = "input", type = InputElement.class,
             required = false)
@@ -104,6 +111,29 @@ public final class SnippetInputsXml extends SnippetBaseXml {
         this.generatedInputCount = generatedInputCount;
     }
 
+    /**
+     * Gets the number of the generated inputs which were dropped because of the maximum input
+     * count (they are not included in the generated input count).
+     *
+     * @return the dropped input count
+     */
+    public int getDroppedInputCount() {
+        return MoreObjects.firstNonNull(droppedInputCount, 0);
+    }
+
+    /**
+     * Sets the number of the generated inputs which were dropped because of the maximum input
+     * count.
+     *
+     * @param droppedInputCount
+     *            the new dropped input count (must not be negative)
+     */
+    public void setDroppedInputCount(int droppedInputCount) {
+        Validate.isTrue(droppedInputCount >= 0, "The dropped input count must not be negative: %d",
+                droppedInputCount);
+        this.droppedInputCount = droppedInputCount > 0 ? droppedInputCount : null;
+    }
+
     @Override
     protected void validate2(Validator<?> validator) {
         if (getResultType() == ResultType.NC || getResultType() == ResultType.C) {
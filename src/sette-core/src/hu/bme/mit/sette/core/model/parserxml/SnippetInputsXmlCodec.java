@@ -0,0 +1,582 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.parserxml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import hu.bme.mit.sette.core.model.runner.ParameterType;
+import hu.bme.mit.sette.core.model.runner.ResultType;
+import lombok.NonNull;
+
+/**
+ * Streaming reader and writer of {@link SnippetInputsXml} documents (the format is the same as the
+ * one of the Simple XML mapping, thus the documents are interchangeable). The header fields (tool,
+ * snippet project, snippet, result type, dropped input count and input count) precede the generated inputs in the
+ * document, thus they can be read without materializing the inputs, and the inputs can be read and
+ * written one by one.
+ */
+public final class SnippetInputsXmlCodec {
+    private static final XMLInputFactory INPUT_FACTORY;
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        INPUT_FACTORY = XMLInputFactory.newInstance();
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private static final String ROOT = "setteSnippetInputs";
+    private static final String TOOL = "tool";
+    private static final String SNIPPET_PROJECT = "snippetProject";
+    private static final String BASE_DIR = "baseDir";
+    private static final String SNIPPET = "snippet";
+    private static final String CONTAINER = "container";
+    private static final String NAME = "name";
+    private static final String RESULT = "result";
+    private static final String GENERATED_INPUTS = "generatedInputs";
+    private static final String GENERATED_INPUT_COUNT = "generatedInputCount";
+    private static final String DROPPED_INPUT_COUNT = "droppedInputCount";
+    private static final String INPUT = "input";
+    private static final String HEAP = "heap";
+    private static final String PARAMETER = "parameter";
+    private static final String ARRAY_PARAMETER = "arrayParameter";
+    private static final String TYPE = "type";
+    private static final String VALUE = "value";
+    private static final String ELEMENT = "element";
+    private static final String EXPECTED = "expected";
+
+    /** Static class. */
+    private SnippetInputsXmlCodec() {
+        throw new UnsupportedOperationException("Static class");
+    }
+
+    /**
+     * Reads the header of a document. The returned object does not contain the generated inputs,
+     * only their number (i.e. {@link SnippetInputsXml#getGeneratedInputs()} is <code>null</code>).
+     * The inputs are counted without being materialized.
+     *
+     * @param reader
+     *            the reader of the document (not closed by this method)
+     * @return the header
+     * @throws IOException
+     *             if the document cannot be read or it is malformed
+     */
+    public static SnippetInputsXml readHeader(@NonNull Reader reader) throws IOException {
+        return readHeader(reader, null);
+    }
+
+    /**
+     * Reads the header of a document. The returned object does not contain the generated inputs,
+     * only their number (i.e. {@link SnippetInputsXml#getGeneratedInputs()} is <code>null</code>).
+     * If the number of the inputs is known (e.g. it has been stored elsewhere), the reading stops
+     * at the beginning of the inputs.
+     *
+     * @param reader
+     *            the reader of the document (not closed by this method)
+     * @param knownInputCount
+     *            the number of the generated inputs or <code>null</code> if unknown (then the
+     *            inputs are counted)
+     * @return the header
+     * @throws IOException
+     *             if the document cannot be read or it is malformed
+     */
+    public static SnippetInputsXml readHeader(@NonNull Reader reader, Integer knownInputCount)
+            throws IOException {
+        XMLStreamReader xml = null;
+        try {
+            xml = INPUT_FACTORY.createXMLStreamReader(reader);
+            SnippetInputsXml header = new SnippetInputsXml();
+            String next = readHeaderFields(xml, header);
+
+            if (GENERATED_INPUTS.equals(next)) {
+                if (knownInputCount != null) {
+                    header.setGeneratedInputCount(knownInputCount);
+                } else {
+                    int count = 0;
+                    while (nextChild(xml) != null) {
+                        requireName(xml, INPUT);
+                        skipElement(xml);
+                        count++;
+                    }
+                    header.setGeneratedInputCount(count);
+                }
+            } else if (GENERATED_INPUT_COUNT.equals(next)) {
+                header.setGeneratedInputCount(Integer.valueOf(xml.getElementText().trim()));
+            }
+
+            return header;
+        } catch (XMLStreamException | RuntimeException ex) {
+            throw new IOException("Malformed snippet inputs XML: " + ex.getMessage(), ex);
+        } finally {
+            closeQuietly(xml);
+        }
+    }
+
+    /**
+     * Reads a whole document. The inputs are stored in a {@link GeneratedInputList}.
+     *
+     * @param reader
+     *            the reader of the document (not closed by this method)
+     * @return the snippet inputs XML
+     * @throws IOException
+     *             if the document cannot be read or it is malformed
+     */
+    public static SnippetInputsXml read(@NonNull Reader reader) throws IOException {
+        InputIterator it = new InputIterator(reader);
+        try {
+            SnippetInputsXml inputsXml = it.getHeader();
+
+            if (it.hasInputList) {
+                List<InputElement> inputs = new GeneratedInputList();
+                it.forEachRemaining(inputs::add);
+                inputsXml.setGeneratedInputs(inputs);
+            }
+            return inputsXml;
+        } catch (IllegalStateException ex) {
+            throw new IOException(ex.getMessage(), ex.getCause());
+        } finally {
+            closeQuietly(it.xml);
+        }
+    }
+
+    /**
+     * Opens an iterator over the generated inputs of a document. The inputs are parsed one by one
+     * as the iterator advances. The header (without the inputs) is available with
+     * {@link InputIterator#getHeader()}.
+     *
+     * @param reader
+     *            the reader of the document (closed when the iterator is closed)
+     * @return the iterator of the inputs
+     * @throws IOException
+     *             if the document cannot be read or its header is malformed
+     */
+    public static InputIterator openInputs(@NonNull Reader reader) throws IOException {
+        return new InputIterator(reader);
+    }
+
+    /**
+     * Writes a document. The inputs are written one by one, thus they can be produced lazily.
+     *
+     * @param header
+     *            the header (tool, snippet project, snippet, result type and the dropped input
+     *            count of a {@link SnippetInputsXml})
+     * @param inputs
+     *            the generated inputs or <code>null</code> if the tool does not generate input
+     *            values (then the generated input count of the header is written)
+     * @param writer
+     *            the writer (not closed by this method)
+     * @throws IOException
+     *             if the document cannot be written
+     */
+    public static void write(@NonNull SnippetBaseXml header, Iterator<InputElement> inputs,
+            @NonNull Writer writer) throws IOException {
+        try {
+            XMLStreamWriter xml = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+            xml.writeStartDocument("UTF-8", "1.0");
+            newLine(xml, 0);
+            xml.writeStartElement(ROOT);
+
+            newLine(xml, 1);
+            writeTextElement(xml, TOOL, header.getToolName(), false);
+
+            newLine(xml, 1);
+            xml.writeStartElement(SNIPPET_PROJECT);
+            newLine(xml, 2);
+            writeTextElement(xml, BASE_DIR, header.getSnippetProjectElement().getBaseDirPath(),
+                    true);
+            newLine(xml, 1);
+            xml.writeEndElement();
+
+            newLine(xml, 1);
+            xml.writeStartElement(SNIPPET);
+            newLine(xml, 2);
+            writeTextElement(xml, CONTAINER, header.getSnippetElement().getContainerName(), true);
+            newLine(xml, 2);
+            writeTextElement(xml, NAME, header.getSnippetElement().getName(), true);
+            newLine(xml, 1);
+            xml.writeEndElement();
+
+            newLine(xml, 1);
+            writeTextElement(xml, RESULT, header.getResultType().toString(), false);
+
+            if (header instanceof SnippetInputsXml
+                    && ((SnippetInputsXml) header).getDroppedInputCount() > 0) {
+                newLine(xml, 1);
+                writeTextElement(xml, DROPPED_INPUT_COUNT,
+                        String.valueOf(((SnippetInputsXml) header).getDroppedInputCount()),
+                        false);
+            }
+
+            if (inputs != null) {
+                newLine(xml, 1);
+                xml.writeStartElement(GENERATED_INPUTS);
+                xml.writeAttribute("class", "java.util.ArrayList");
+                while (inputs.hasNext()) {
+                    newLine(xml, 2);
+                    writeInput(xml, inputs.next());
+                }
+                newLine(xml, 1);
+                xml.writeEndElement();
+            } else if (header instanceof SnippetInputsXml) {
+                newLine(xml, 1);
+                writeTextElement(xml, GENERATED_INPUT_COUNT,
+                        String.valueOf(((SnippetInputsXml) header).getGeneratedInputCount()),
+                        false);
+            }
+
+            newLine(xml, 0);
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot write snippet inputs XML: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Writes a document.
+     *
+     * @param inputsXml
+     *            the snippet inputs XML
+     * @param writer
+     *            the writer (not closed by this method)
+     * @throws IOException
+     *             if the document cannot be written
+     */
+    public static void write(@NonNull SnippetInputsXml inputsXml, @NonNull Writer writer)
+            throws IOException {
+        List<InputElement> inputs = inputsXml.getGeneratedInputs();
+        write(inputsXml, inputs == null ? null : inputs.iterator(), writer);
+    }
+
+    /**
+     * Iterator over the generated inputs of a document, see {@link #openInputs(Reader)}.
+     */
+    public static final class InputIterator implements Iterator<InputElement>, Closeable {
+        private final Reader reader;
+        private final XMLStreamReader xml;
+        private final SnippetInputsXml header;
+        private final boolean hasInputList;
+        private boolean finished;
+        private InputElement next;
+
+        private InputIterator(Reader reader) throws IOException {
+            this.reader = reader;
+            try {
+                xml = INPUT_FACTORY.createXMLStreamReader(reader);
+                header = new SnippetInputsXml();
+                String nextName = readHeaderFields(xml, header);
+
+                hasInputList = GENERATED_INPUTS.equals(nextName);
+                if (GENERATED_INPUT_COUNT.equals(nextName)) {
+                    header.setGeneratedInputCount(Integer.valueOf(xml.getElementText().trim()));
+                }
+                finished = !hasInputList;
+            } catch (XMLStreamException | RuntimeException ex) {
+                throw new IOException("Malformed snippet inputs XML: " + ex.getMessage(), ex);
+            }
+        }
+
+        /**
+         * Gets the header of the document (the generated input count is only set if the document
+         * does not contain the inputs).
+         *
+         * @return the header
+         */
+        public SnippetInputsXml getHeader() {
+            return header;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    if (nextChild(xml) == null) {
+                        finished = true;
+                    } else {
+                        requireName(xml, INPUT);
+                        next = readInput(xml);
+                    }
+                } catch (XMLStreamException | RuntimeException ex) {
+                    throw new IllegalStateException(
+                            "Malformed snippet inputs XML: " + ex.getMessage(), ex);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public InputElement next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            InputElement ret = next;
+            next = null;
+            return ret;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeQuietly(xml);
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the header fields and positions the reader on the start of the next child of the root
+     * (if any).
+     *
+     * @return the name of the next child of the root or <code>null</code> if there is none
+     */
+    private static String readHeaderFields(XMLStreamReader xml, SnippetInputsXml header)
+            throws XMLStreamException {
+        xml.nextTag();
+        requireName(xml, ROOT);
+
+        String name;
+        while ((name = nextChild(xml)) != null) {
+            switch (name) {
+                case TOOL:
+                    header.setToolName(xml.getElementText());
+                    break;
+
+                case SNIPPET_PROJECT:
+                    SnippetProjectElement snippetProject = new SnippetProjectElement();
+                    while (nextChild(xml) != null) {
+                        requireName(xml, BASE_DIR);
+                        snippetProject.setBaseDirPath(xml.getElementText());
+                    }
+                    header.setSnippetProjectElement(snippetProject);
+                    break;
+
+                case SNIPPET:
+                    SnippetElement snippet = new SnippetElement();
+                    String childName;
+                    while ((childName = nextChild(xml)) != null) {
+                        if (CONTAINER.equals(childName)) {
+                            snippet.setContainerName(xml.getElementText());
+                        } else {
+                            requireName(xml, NAME);
+                            snippet.setName(xml.getElementText());
+                        }
+                    }
+                    header.setSnippetElement(snippet);
+                    break;
+
+                case RESULT:
+                    header.setResultType(ResultType.fromString(xml.getElementText().trim()));
+                    break;
+
+                case DROPPED_INPUT_COUNT:
+                    header.setDroppedInputCount(Integer.parseInt(xml.getElementText().trim()));
+                    break;
+
+                case GENERATED_INPUTS:
+                case GENERATED_INPUT_COUNT:
+                    return name;
+
+                default:
+                    throw new XMLStreamException("Unexpected element: " + name,
+                            xml.getLocation());
+            }
+        }
+
+        return null;
+    }
+
+    private static InputElement readInput(XMLStreamReader xml) throws XMLStreamException {
+        InputElement input = new InputElement();
+
+        String name;
+        while ((name = nextChild(xml)) != null) {
+            switch (name) {
+                case HEAP:
+                    input.setHeap(xml.getElementText());
+                    break;
+
+                case PARAMETER:
+                    ParameterElement parameter = new ParameterElement();
+                    while ((name = nextChild(xml)) != null) {
+                        if (TYPE.equals(name)) {
+                            parameter.setType(ParameterType.fromString(xml.getElementText().trim()));
+                        } else {
+                            requireName(xml, VALUE);
+                            parameter.setValue(xml.getElementText());
+                        }
+                    }
+                    input.getParameters().add(parameter);
+                    break;
+
+                case ARRAY_PARAMETER:
+                    ArrayParameterElement arrayParameter = new ArrayParameterElement();
+                    while ((name = nextChild(xml)) != null) {
+                        if (TYPE.equals(name)) {
+                            arrayParameter
+                                    .setType(ParameterType.fromString(xml.getElementText().trim()));
+                        } else {
+                            requireName(xml, ELEMENT);
+                            arrayParameter.getElements().add(xml.getElementText());
+                        }
+                    }
+                    input.getParameters().add(arrayParameter);
+                    break;
+
+                case EXPECTED:
+                    input.setExpected(xml.getElementText());
+                    break;
+
+                default:
+                    throw new XMLStreamException("Unexpected element: " + name,
+                            xml.getLocation());
+            }
+        }
+
+        return input;
+    }
+
+    private static void writeInput(XMLStreamWriter xml, InputElement input)
+            throws XMLStreamException {
+        if (input.getHeap() == null && input.getParameters().isEmpty()
+                && input.getExpected() == null) {
+            xml.writeEmptyElement(INPUT);
+            return;
+        }
+
+        xml.writeStartElement(INPUT);
+
+        if (input.getHeap() != null) {
+            newLine(xml, 3);
+            writeTextElement(xml, HEAP, input.getHeap(), true);
+        }
+
+        for (AbstractParameterElement parameter : input.getParameters()) {
+            newLine(xml, 3);
+            if (parameter instanceof ArrayParameterElement) {
+                xml.writeStartElement(ARRAY_PARAMETER);
+                newLine(xml, 4);
+                writeTextElement(xml, TYPE, parameter.getType().toString(), false);
+                for (String element : ((ArrayParameterElement) parameter).getElements()) {
+                    newLine(xml, 4);
+                    writeTextElement(xml, ELEMENT, element, true);
+                }
+            } else {
+                xml.writeStartElement(PARAMETER);
+                newLine(xml, 4);
+                writeTextElement(xml, TYPE, parameter.getType().toString(), false);
+                newLine(xml, 4);
+                writeTextElement(xml, VALUE, ((ParameterElement) parameter).getValue(), true);
+            }
+            newLine(xml, 3);
+            xml.writeEndElement();
+        }
+
+        if (input.getExpected() != null) {
+            newLine(xml, 3);
+            writeTextElement(xml, EXPECTED, input.getExpected(), true);
+        }
+
+        newLine(xml, 2);
+        xml.writeEndElement();
+    }
+
+    private static void writeTextElement(XMLStreamWriter xml, String name, String value,
+            boolean data) throws XMLStreamException {
+        if (value == null) {
+            throw new XMLStreamException("The value of element must not be null: " + name);
+        }
+
+        xml.writeStartElement(name);
+        if (data) {
+            // "]]>" cannot be in a CDATA section, split it
+            xml.writeCData(value.replace("]]>", "]]]]><![CDATA[>"));
+        } else {
+            xml.writeCharacters(value);
+        }
+        xml.writeEndElement();
+    }
+
+    private static void newLine(XMLStreamWriter xml, int depth) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder(1 + depth * 3).append('\n');
+        for (int i = 0; i < depth; i++) {
+            sb.append("   ");
+        }
+        xml.writeCharacters(sb.toString());
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return the name of the child or <code>null</code> if the end of the current element has
+     *         been reached
+     */
+    private static String nextChild(XMLStreamReader xml) throws XMLStreamException {
+        int event = xml.nextTag();
+        return event == XMLStreamConstants.START_ELEMENT ? xml.getLocalName() : null;
+    }
+
+    private static void requireName(XMLStreamReader xml, String name) throws XMLStreamException {
+        if (!name.equals(xml.getLocalName())) {
+            throw new XMLStreamException(
+                    String.format("Expected element %s, found %s", name, xml.getLocalName()),
+                    xml.getLocation());
+        }
+    }
+
+    /** Skips the current element (the reader is positioned on its end). */
+    private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static void closeQuietly(XMLStreamReader xml) {
+        if (xml != null) {
+            try {
+                xml.close();
+            } catch (XMLStreamException ex) {
+                // ignore
+            }
+        }
+    }
+}
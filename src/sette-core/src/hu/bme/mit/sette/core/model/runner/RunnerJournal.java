@@ -0,0 +1,176 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.runner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Append-only journal of the runner which records the outcome of the tool execution for each
+ * snippet. One line is appended when a snippet is finished, thus the journal survives the crash of
+ * the runner and it can be used to resume the run. The line format is the following (separated by
+ * tabs): snippet ID, status, exit value (or <code>-</code> if unknown), elapsed time in ms.
+ */
+public final class RunnerJournal {
+    private static final Logger log = LoggerFactory.getLogger(RunnerJournal.class);
+
+    /** The separator of the fields in a journal line. */
+    private static final String SEPARATOR = "\t";
+
+    /** The value written if the exit value is unknown. */
+    private static final String UNKNOWN_EXIT_VALUE = "-";
+
+    /** The status of a snippet in the journal. */
+    public enum Status {
+        /** The tool has finished on the snippet (regardless of its exit value). */
+        COMPLETED,
+        /** An exception occurred while running the tool on the snippet. */
+        FAILED;
+    }
+
+    /** An entry of the journal. */
+    @Data
+    public static final class Entry {
+        /** The ID of the snippet. */
+        @NonNull
+        private final String snippetId;
+
+        /** The status of the snippet. */
+        @NonNull
+        private final Status status;
+
+        /** The exit value of the tool process or <code>null</code> if unknown. */
+        private final Integer exitValue;
+
+        /** The elapsed time in milliseconds. */
+        private final long elapsedTimeInMs;
+
+        /**
+         * Creates the journal line for the entry.
+         *
+         * @return the journal line
+         */
+        public String toLine() {
+            return String.join(SEPARATOR, snippetId, status.name(),
+                    exitValue == null ? UNKNOWN_EXIT_VALUE : exitValue.toString(),
+                    String.valueOf(elapsedTimeInMs));
+        }
+
+        /**
+         * Parses a journal line.
+         *
+         * @param line
+         *            the journal line
+         * @return the entry
+         * @throws IllegalArgumentException
+         *             if the line is malformed
+         */
+        public static Entry parse(@NonNull String line) {
+            String[] parts = line.split(SEPARATOR);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed journal line: " + line);
+            }
+
+            Integer exitValue = UNKNOWN_EXIT_VALUE.equals(parts[2]) ? null
+                    : Integer.valueOf(parts[2]);
+            return new Entry(parts[0], Status.valueOf(parts[1]), exitValue,
+                    Long.parseLong(parts[3]));
+        }
+    }
+
+    /** The journal file. */
+    @Getter
+    private final Path file;
+
+    /**
+     * Creates a journal which uses the specified file.
+     *
+     * @param file
+     *            the journal file (it is created when the first entry is appended)
+     */
+    public RunnerJournal(@NonNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates the journal of the runner project.
+     *
+     * @param settings
+     *            the settings of the runner project
+     * @return the journal of the runner project
+     */
+    public static RunnerJournal of(@NonNull RunnerProjectSettings<?> settings) {
+        return new RunnerJournal(RunnerProjectUtils.getRunnerJournalFile(settings).toPath());
+    }
+
+    /**
+     * Appends an entry to the journal. This method is thread-safe.
+     *
+     * @param entry
+     *            the entry
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public synchronized void append(@NonNull Entry entry) throws IOException {
+        PathUtils.append(file, Collections.singletonList(entry.toLine()));
+    }
+
+    /**
+     * Reads the journal. If a snippet is present several times, the last entry is kept. Malformed
+     * lines (e.g. a partially written line if the runner has crashed) are skipped.
+     *
+     * @return the entries by the snippet IDs in the order of their first appearance (empty if the
+     *         journal file does not exist)
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public synchronized Map<String, Entry> read() throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+
+        for (String line : PathUtils.readAllLinesOrEmpty(file)) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            try {
+                Entry entry = Entry.parse(line);
+                entries.put(entry.getSnippetId(), entry);
+            } catch (IllegalArgumentException ex) {
+                log.warn("Skipping malformed journal line in {}: {}", file, line);
+            }
+        }
+
+        return entries;
+    }
+}
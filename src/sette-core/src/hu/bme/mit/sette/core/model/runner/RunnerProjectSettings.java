@@ -51,9 +51,15 @@ public final class RunnerProjectSettings<T extends Tool> {
     /** Name of the directory containing the generated files by the runner. */
     public static final String GENERATED_DIRNAME = "gen";
 
+    /** Name of the directory containing the classes instrumented by the test suite runner. */
+    public static final String INSTRUMENTED_CLASSES_DIRNAME = "instrumented-classes";
+
     /** Name of the directory containing the runner's output. */
     public static final String RUNNER_OUTPUT_DIRNAME = "runner-out";
 
+    /** Name of the directory containing the per-snippet working directories of the runner. */
+    public static final String RUNNER_WORK_DIRNAME = "runner-work";
+
     /** Name of the directory containing the tests. */
     public static final String TEST_DIRNAME = "test";
 
@@ -160,6 +166,15 @@ public final class RunnerProjectSettings<T extends Tool> {
         return new File(this.baseDir, RunnerProjectSettings.GENERATED_DIRNAME);
     }
 
+    /**
+     * Returns the directory containing the classes instrumented by the test suite runner.
+     *
+     * @return The directory containing the instrumented classes.
+     */
+    public File getInstrumentedClassesDirectory() {
+        return new File(this.baseDir, RunnerProjectSettings.INSTRUMENTED_CLASSES_DIRNAME);
+    }
+
     /**
      * Returns the runner output directory.
      *
@@ -169,6 +184,15 @@ public final class RunnerProjectSettings<T extends Tool> {
         return new File(this.baseDir, RunnerProjectSettings.RUNNER_OUTPUT_DIRNAME);
     }
 
+    /**
+     * Returns the directory containing the per-snippet working directories of the runner.
+     *
+     * @return The runner working directory.
+     */
+    public File getRunnerWorkDirectory() {
+        return new File(this.baseDir, RunnerProjectSettings.RUNNER_WORK_DIRNAME);
+    }
+
     /**
      * Returns the directory containing the tests.
      *
@@ -38,6 +38,8 @@ import lombok.NonNull;
 public final class RunnerProjectUtils {
     /** The relative path of the runner log file. */
     public static final String RUNNER_LOG_FILE = "runner.log";
+    /** The relative path of the runner journal file. */
+    public static final String RUNNER_JOURNAL_FILE = "runner.journal";
     /** The extension for info files. */
     public static final String INFO_EXTENSION = "info";
     /** The extension for output files. */
@@ -50,6 +52,12 @@ public final class RunnerProjectUtils {
     public static final String RESULT_EXTENSION = "result.xml";
     /** The extension for coverage XML files. */
     public static final String COVERAGE_EXTENSION = "coverage.xml";
+    /** The extension for coverage HTML files. */
+    public static final String HTML_EXTENSION = "html";
+    /** The relative path of the coverage index HTML file. */
+    public static final String COVERAGE_INDEX_FILE = "coverage-index.html";
+    /** The relative path of the result store file. */
+    public static final String RESULT_STORE_FILE = "results.store";
 
     /** Static class. */
     private RunnerProjectUtils() {
@@ -69,6 +77,45 @@ public final class RunnerProjectUtils {
         return new File(settings.getRunnerOutputDirectory(), RUNNER_LOG_FILE);
     }
 
+    /**
+     * Gets the runner journal file.
+     *
+     * @param settings
+     *            the settings of the runner project.
+     * @return the runner journal file
+     */
+    public static File getRunnerJournalFile(RunnerProjectSettings<?> settings) {
+        Validate.notNull(settings, "The settings must not be null");
+
+        return new File(settings.getRunnerOutputDirectory(), RUNNER_JOURNAL_FILE);
+    }
+
+    /**
+     * Gets the coverage index HTML file.
+     *
+     * @param settings
+     *            the settings of the runner project.
+     * @return the coverage index HTML file
+     */
+    public static File getCoverageIndexFile(RunnerProjectSettings<?> settings) {
+        Validate.notNull(settings, "The settings must not be null");
+
+        return new File(settings.getRunnerOutputDirectory(), COVERAGE_INDEX_FILE);
+    }
+
+    /**
+     * Gets the result store file (see {@link RunnerResultStore}).
+     *
+     * @param settings
+     *            the settings of the runner project.
+     * @return the result store file
+     */
+    public static File getResultStoreFile(RunnerProjectSettings<?> settings) {
+        Validate.notNull(settings, "The settings must not be null");
+
+        return new File(settings.getRunnerOutputDirectory(), RESULT_STORE_FILE);
+    }
+
     /**
      * Gets the base filename for the output files for a snippet.
      *
@@ -207,6 +254,46 @@ public final class RunnerProjectUtils {
         return getSnippetFile(settings, snippet, COVERAGE_EXTENSION);
     }
 
+    /**
+     * Gets the exported XML file of a result store record for the snippet.
+     *
+     * @param settings
+     *            the settings of the runner project.
+     * @param snippet
+     *            the snippet (e.g. hu.bme.mit.sette.MyContainer.MySnippet)
+     * @param type
+     *            the type of the record
+     * @return the output file for the snippet (e.g. RUNNER_OUTPUT_DIR/hu/bme/mit
+     *         /sette/MyContainer_MySnippet.inputs.xml).
+     */
+    public static File getSnippetXmlFile(RunnerProjectSettings<?> settings, Snippet snippet,
+            RunnerResultStore.RecordType type) {
+        Validate.notNull(settings, "The settings must not be null");
+        Validate.notNull(snippet, "The snippet must not be null");
+        Validate.notNull(type, "The record type must not be null");
+
+        return getSnippetFile(settings, snippet, type.getXmlExtension());
+    }
+
+    /**
+     * Gets the working directory of the tool for the snippet (only used when several snippets are
+     * run at the same time).
+     *
+     * @param settings
+     *            the settings of the runner project.
+     * @param snippet
+     *            the snippet (e.g. hu.bme.mit.sette.MyContainer.MySnippet)
+     * @return the working directory for the snippet (e.g.
+     *         RUNNER_WORK_DIR/hu/bme/mit/sette/MyContainer_MySnippet).
+     */
+    public static File getSnippetWorkingDirectory(RunnerProjectSettings<?> settings,
+            Snippet snippet) {
+        Validate.notNull(settings, "The settings must not be null");
+        Validate.notNull(snippet, "The snippet must not be null");
+
+        return new File(settings.getRunnerWorkDirectory(), getSnippetBaseFilename(snippet));
+    }
+
     /**
      * Gets the HTML file for the snippet.
      *
@@ -215,13 +302,13 @@ public final class RunnerProjectUtils {
      * @param snippet
      *            the snippet (e.g. hu.bme.mit.sette.MyContainer.MySnippet)
      * @return the output file for the snippet (e.g. RUNNER_OUTPUT_DIR/hu/bme/mit
-     *         /sette/MyContainer_MySnippet.coverage.xml).
+     *         /sette/MyContainer_MySnippet.html).
      */
     public static File getSnippetHtmlFile(RunnerProjectSettings<?> settings, Snippet snippet) {
         Validate.notNull(settings, "The settings must not be null");
         Validate.notNull(snippet, "The snippet must not be null");
 
-        // TODO extract HTML as constant and rethink location!
-        return getSnippetFile(settings, snippet, "html");
+        // TODO rethink location!
+        return getSnippetFile(settings, snippet, HTML_EXTENSION);
     }
 }
@@ -0,0 +1,632 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.simpleframework.xml.Serializer;
+import org.simpleframework.xml.convert.AnnotationStrategy;
+import org.simpleframework.xml.core.Persister;
+import org.simpleframework.xml.stream.Format;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+import hu.bme.mit.sette.core.model.parserxml.SnippetBaseXml;
+import hu.bme.mit.sette.core.model.parserxml.SnippetCoverageXml;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec.InputIterator;
+import hu.bme.mit.sette.core.model.parserxml.SnippetResultXml;
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Append-only store of the inputs, result and coverage records of the snippets of a runner
+ * project. The store is a single file, each phase appends one record per snippet and the records
+ * are read with random access. If a record is appended several times for a snippet, the last one
+ * is kept (e.g. if a phase is re-run).
+ * <p>
+ * The file starts with a magic number and the format version, then the records follow:
+ * <ul>
+ * <li>record length (<code>int</code>, the number of the following bytes of the record)</li>
+ * <li>record type code (<code>byte</code>)</li>
+ * <li>snippet ID (modified UTF-8)</li>
+ * <li>result type ordinal (<code>byte</code>, -1 if unknown)</li>
+ * <li>generated input count (<code>int</code>, -1 if not an inputs record)</li>
+ * <li>dropped input count (<code>int</code>, -1 if not an inputs record, since version 2)</li>
+ * <li>achieved coverage (modified UTF-8, empty if not set)</li>
+ * <li>payload length (<code>int</code>) and the payload (the UTF-8 encoded XML, the inputs are
+ * written with {@link SnippetInputsXmlCodec})</li>
+ * </ul>
+ * The header of the records is indexed when the store is opened, thus the result type, the
+ * generated and dropped input counts and the achieved coverage can be queried without parsing the
+ * XML. The records appended to a store of an older version are written in its format. A
+ * partially written record at the end of the file (e.g. if SETTE has crashed) is discarded.
+ * <p>
+ * The store instances are shared in the JVM per file (see {@link #open(Path)}) and they are
+ * thread-safe.
+ */
+public final class RunnerResultStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(RunnerResultStore.class);
+
+    /** The magic number at the beginning of the file. */
+    private static final int MAGIC = 0x53525331;
+
+    /** The version of the file format (the version of the new files). */
+    private static final int VERSION = 2;
+
+    /** The first version which is still supported. */
+    private static final int MIN_VERSION = 1;
+
+    /** The length of the file header (magic number and version). */
+    private static final int HEADER_LENGTH = 8;
+
+    /** The open stores by their absolute path. */
+    private static final Map<Path, RunnerResultStore> OPEN_STORES = new HashMap<>();
+
+    /** The serializer of the payloads (one per thread). */
+    private static final ThreadLocal<Serializer> SERIALIZER = ThreadLocal
+            .withInitial(() -> new Persister(new AnnotationStrategy(),
+                    new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>")));
+
+    /** The type of a record. */
+    public enum RecordType {
+        /** The generated inputs (written by the run result parser). */
+        INPUTS(1, SnippetInputsXml.class, RunnerProjectUtils.INPUTS_EXTENSION),
+        /** The result (written by the test suite runner). */
+        RESULT(2, SnippetResultXml.class, RunnerProjectUtils.RESULT_EXTENSION),
+        /** The coverage (written by the test suite runner). */
+        COVERAGE(3, SnippetCoverageXml.class, RunnerProjectUtils.COVERAGE_EXTENSION);
+
+        private final byte code;
+
+        /** The XML class of the payload. */
+        @Getter
+        private final Class<? extends SnippetBaseXml> xmlClass;
+
+        /** The extension of the exported XML file. */
+        @Getter
+        private final String xmlExtension;
+
+        private RecordType(int code, Class<? extends SnippetBaseXml> xmlClass,
+                String xmlExtension) {
+            this.code = (byte) code;
+            this.xmlClass = xmlClass;
+            this.xmlExtension = xmlExtension;
+        }
+
+        /**
+         * Gets the record type of the specified XML class.
+         *
+         * @param xmlClass
+         *            the XML class
+         * @return the record type
+         * @throws IllegalArgumentException
+         *             if the class has no record type
+         */
+        public static RecordType of(@NonNull Class<? extends SnippetBaseXml> xmlClass) {
+            for (RecordType type : values()) {
+                if (type.xmlClass.equals(xmlClass)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("No record type for: " + xmlClass);
+        }
+
+        private static RecordType of(byte code) throws IOException {
+            for (RecordType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown record type code: " + code);
+        }
+    }
+
+    /** The indexed header of a record. */
+    public static final class Record {
+        /** The ID of the snippet. */
+        @Getter
+        private final String snippetId;
+
+        /** The type of the record. */
+        @Getter
+        private final RecordType type;
+
+        /** The result type or <code>null</code> if unknown. */
+        @Getter
+        private final ResultType resultType;
+
+        /** The generated input count or <code>null</code> if this is not an inputs record. */
+        @Getter
+        private final Integer generatedInputCount;
+
+        /**
+         * The dropped input count or <code>null</code> if this is not an inputs record or it is
+         * not indexed (in a store of version 1).
+         */
+        @Getter
+        private final Integer droppedInputCount;
+
+        /** The achieved coverage (e.g. 50.62%) or <code>null</code> if not set. */
+        @Getter
+        private final String achievedCoverage;
+
+        private final long payloadOffset;
+        private final int payloadLength;
+
+        private Record(String snippetId, RecordType type, ResultType resultType,
+                Integer generatedInputCount, Integer droppedInputCount, String achievedCoverage,
+                long payloadOffset, int payloadLength) {
+            this.snippetId = snippetId;
+            this.type = type;
+            this.resultType = resultType;
+            this.generatedInputCount = generatedInputCount;
+            this.droppedInputCount = droppedInputCount;
+            this.achievedCoverage = achievedCoverage;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+        }
+    }
+
+    /** The store file. */
+    @Getter
+    private final Path file;
+
+    private final FileChannel channel;
+    private final Object fileKey;
+
+    /** The format version of the file. */
+    private int version;
+    private final Map<RecordType, ConcurrentMap<String, Record>> index = new EnumMap<>(
+            RecordType.class);
+
+    /** The end of the last complete record (new records are appended here). */
+    private long end;
+
+    private RunnerResultStore(Path file) throws IOException {
+        this.file = file;
+
+        for (RecordType type : RecordType.values()) {
+            index.put(type, new ConcurrentHashMap<>());
+        }
+
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(header, 0);
+                version = VERSION;
+                end = HEADER_LENGTH;
+            } else {
+                end = readIndex();
+                if (end < channel.size()) {
+                    log.warn("Discarding the partially written record at the end of {}", file);
+                    channel.truncate(end);
+                }
+            }
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Opens the result store of the runner project.
+     *
+     * @param settings
+     *            the settings of the runner project
+     * @return the result store
+     * @throws IOException
+     *             if the store cannot be opened
+     */
+    public static RunnerResultStore of(@NonNull RunnerProjectSettings<?> settings)
+            throws IOException {
+        return open(RunnerProjectUtils.getResultStoreFile(settings).toPath());
+    }
+
+    /**
+     * Opens the result store in the specified file (the file is created if it does not exist). The
+     * instance is shared in the JVM until it is closed. If the file has been deleted or modified
+     * by another process since the store was opened, it is opened again.
+     *
+     * @param file
+     *            the store file
+     * @return the result store
+     * @throws IOException
+     *             if the store cannot be opened
+     */
+    public static RunnerResultStore open(@NonNull Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+
+        synchronized (OPEN_STORES) {
+            RunnerResultStore store = OPEN_STORES.get(key);
+            if (store != null && !store.isUpToDate()) {
+                log.debug("Reopening result store: {}", key);
+                store.close();
+                store = null;
+            }
+
+            if (store == null) {
+                store = new RunnerResultStore(key);
+                OPEN_STORES.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    private synchronized boolean isUpToDate() {
+        try {
+            return channel.isOpen() && Files.exists(file) && Files.size(file) == end
+                    && Objects.equals(fileKey,
+                            Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private long readIndex() throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a SETTE result store: " + file);
+            }
+            version = in.readInt();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new IOException(
+                        String.format("Unsupported result store version %d: %s", version, file));
+            }
+        } catch (EOFException ex) {
+            throw new IOException("Not a SETTE result store: " + file, ex);
+        }
+
+        long size = channel.size();
+        long position = HEADER_LENGTH;
+        ResultType[] resultTypes = ResultType.values();
+
+        while (position + 4 <= size) {
+            int recordLength = in.readInt();
+            long recordEnd = position + 4 + recordLength;
+            if (recordLength <= 0 || recordEnd > size) {
+                break;
+            }
+
+            RecordType type = RecordType.of(in.readByte());
+            String snippetId = in.readUTF();
+            byte resultTypeOrdinal = in.readByte();
+            int generatedInputCount = in.readInt();
+            int droppedInputCount = version >= 2 ? in.readInt() : -1;
+            String achievedCoverage = in.readUTF();
+            int payloadLength = in.readInt();
+            ByteStreams.skipFully(in, payloadLength);
+
+            index.get(type).put(snippetId, new Record(snippetId, type,
+                    resultTypeOrdinal < 0 ? null : resultTypes[resultTypeOrdinal],
+                    generatedInputCount < 0 ? null : generatedInputCount,
+                    droppedInputCount < 0 ? null : droppedInputCount,
+                    achievedCoverage.isEmpty() ? null : achievedCoverage,
+                    recordEnd - payloadLength, payloadLength));
+            position = recordEnd;
+        }
+
+        return position;
+    }
+
+    /**
+     * Appends a record for the snippet.
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @param xml
+     *            the XML object (its type determines the record type)
+     * @return the header of the appended record
+     * @throws IOException
+     *             if the XML cannot be serialized or the record cannot be written
+     */
+    public Record put(@NonNull String snippetId, @NonNull SnippetBaseXml xml) throws IOException {
+        RecordType type = RecordType.of(xml.getClass());
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(payload, StandardCharsets.UTF_8))) {
+            if (xml instanceof SnippetInputsXml) {
+                // streaming writer, faster than the reflection-based serializer for many inputs
+                SnippetInputsXmlCodec.write((SnippetInputsXml) xml, writer);
+            } else {
+                SERIALIZER.get().write(xml, writer);
+            }
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Cannot serialize the " + type + " record of " + snippetId, ex);
+        }
+
+        Integer generatedInputCount = null;
+        Integer droppedInputCount = null;
+        String achievedCoverage = null;
+        if (xml instanceof SnippetInputsXml) {
+            generatedInputCount = ((SnippetInputsXml) xml).getGeneratedInputCount();
+            droppedInputCount = ((SnippetInputsXml) xml).getDroppedInputCount();
+        } else if (xml instanceof SnippetResultXml) {
+            achievedCoverage = ((SnippetResultXml) xml).getAchievedCoverage();
+        } else if (xml instanceof SnippetCoverageXml) {
+            achievedCoverage = ((SnippetCoverageXml) xml).getAchievedCoverage();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.size() + 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // record length, set below
+        out.writeByte(type.code);
+        out.writeUTF(snippetId);
+        out.writeByte(xml.getResultType() == null ? -1 : xml.getResultType().ordinal());
+        out.writeInt(generatedInputCount == null ? -1 : generatedInputCount);
+        if (version >= 2) {
+            out.writeInt(droppedInputCount == null ? -1 : droppedInputCount);
+        } else {
+            droppedInputCount = null;
+        }
+        out.writeUTF(achievedCoverage == null ? "" : achievedCoverage);
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+        out.flush();
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.limit() - 4);
+
+        synchronized (this) {
+            long recordOffset = end;
+            writeFully(buffer, recordOffset);
+            end = recordOffset + buffer.limit();
+
+            Record record = new Record(snippetId, type, xml.getResultType(), generatedInputCount,
+                    droppedInputCount, achievedCoverage, end - payload.size(), payload.size());
+            index.get(type).put(snippetId, record);
+            return record;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+    /**
+     * Gets the header of the last record of the snippet.
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @param type
+     *            the type of the record
+     * @return the header of the record or <code>null</code> if there is no such record
+     */
+    public Record getRecord(@NonNull String snippetId, @NonNull RecordType type) {
+        return index.get(type).get(snippetId);
+    }
+
+    /**
+     * Determines whether the store contains a record for the snippet.
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @param type
+     *            the type of the record
+     * @return <code>true</code> if there is such a record, otherwise <code>false</code>
+     */
+    public boolean contains(@NonNull String snippetId, @NonNull RecordType type) {
+        return index.get(type).containsKey(snippetId);
+    }
+
+    /**
+     * Reads the last record of the snippet.
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @param xmlClass
+     *            the XML class of the record
+     * @return the XML object or <code>null</code> if there is no such record
+     * @throws IOException
+     *             if the record cannot be read or deserialized
+     */
+    public <T extends SnippetBaseXml> T get(@NonNull String snippetId, @NonNull Class<T> xmlClass)
+            throws IOException {
+        Record record = getRecord(snippetId, RecordType.of(xmlClass));
+        if (record == null) {
+            return null;
+        }
+
+        try (Reader reader = openPayload(record)) {
+            if (xmlClass == SnippetInputsXml.class) {
+                return xmlClass.cast(SnippetInputsXmlCodec.read(reader));
+            } else {
+                return SERIALIZER.get().read(xmlClass, reader);
+            }
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Cannot deserialize the " + record.type + " record of "
+                    + snippetId + " in " + file, ex);
+        }
+    }
+
+    /**
+     * Reads the header of the last inputs record of the snippet, i.e. the generated inputs are
+     * neither read nor materialized (see {@link SnippetInputsXmlCodec#readHeader(Reader)}).
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @return the header or <code>null</code> if there is no such record
+     * @throws IOException
+     *             if the record cannot be read or deserialized
+     */
+    public SnippetInputsXml getInputsHeader(@NonNull String snippetId) throws IOException {
+        Record record = getRecord(snippetId, RecordType.INPUTS);
+        if (record == null) {
+            return null;
+        }
+
+        try (Reader reader = openPayload(record)) {
+            return SnippetInputsXmlCodec.readHeader(reader, record.generatedInputCount);
+        }
+    }
+
+    /**
+     * Opens an iterator over the generated inputs of the last inputs record of the snippet. The
+     * inputs are parsed one by one (see {@link SnippetInputsXmlCodec#openInputs(Reader)}).
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @return the iterator (must be closed) or <code>null</code> if there is no such record
+     * @throws IOException
+     *             if the record cannot be read
+     */
+    public InputIterator openInputs(@NonNull String snippetId) throws IOException {
+        Record record = getRecord(snippetId, RecordType.INPUTS);
+        if (record == null) {
+            return null;
+        }
+
+        return SnippetInputsXmlCodec.openInputs(openPayload(record));
+    }
+
+    /**
+     * Writes the XML of the last record of the snippet into a file.
+     *
+     * @param snippetId
+     *            the ID of the snippet
+     * @param type
+     *            the type of the record
+     * @param xmlFile
+     *            the XML file
+     * @return <code>true</code> if the file has been written, <code>false</code> if there is no
+     *         such record
+     * @throws IOException
+     *             if the record cannot be read or the file cannot be written
+     */
+    public boolean exportXml(@NonNull String snippetId, @NonNull RecordType type,
+            @NonNull Path xmlFile) throws IOException {
+        Record record = getRecord(snippetId, type);
+        if (record == null) {
+            return false;
+        }
+
+        PathUtils.write(xmlFile, readPayload(record));
+        return true;
+    }
+
+    private Reader openPayload(Record record) {
+        InputStream in = new InputStream() {
+            private long position = record.payloadOffset;
+            private final long end = record.payloadOffset + record.payloadLength;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : (b[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= end) {
+                    return -1;
+                }
+
+                int toRead = (int) Math.min(len, end - position);
+                int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of the result store: " + file);
+                }
+                position += read;
+                return read;
+            }
+        };
+
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 8192);
+    }
+
+    private byte[] readPayload(Record record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(record.payloadLength);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, record.payloadOffset + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of the result store: " + file);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Closes the store. The next {@link #open(Path)} call will read the file again.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN_STORES) {
+            OPEN_STORES.remove(file, this);
+        }
+
+        synchronized (this) {
+            channel.close();
+        }
+    }
+}
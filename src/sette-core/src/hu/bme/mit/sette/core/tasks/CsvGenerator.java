@@ -24,22 +24,26 @@
 package hu.bme.mit.sette.core.tasks;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.convert.AnnotationStrategy;
-import org.simpleframework.xml.core.Persister;
 
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
 import hu.bme.mit.sette.core.model.parserxml.SnippetResultXml;
+import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.Record;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
@@ -55,6 +59,20 @@ public final class CsvGenerator extends EvaluationTask<Tool> {
     }
 
     public void generate() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (Snippet snippet : getSortedSnippets()) {
+            rows.add(createRow(snippet));
+        }
+
+        write(rows);
+    }
+
+    /**
+     * Gets the snippets in the order of the CSV rows.
+     *
+     * @return the sorted snippets
+     */
+    public List<Snippet> getSortedSnippets() {
         // sort snippets
         SortedMap<String, Snippet> sortedSnippets = new TreeMap<>();
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
@@ -74,12 +92,22 @@ public final class CsvGenerator extends EvaluationTask<Tool> {
             }
         }
 
+        return new ArrayList<>(sortedSnippets.values());
+    }
+
+    /**
+     * Writes the CSV file with the header and the specified rows.
+     *
+     * @param rows
+     *            the rows (see {@link #createRow(Snippet)})
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void write(List<String> rows) throws IOException {
         // create file data
         List<String> lines = new ArrayList<>();
         lines.add(createHeader());
-        for (Entry<String, Snippet> entry : sortedSnippets.entrySet()) {
-            lines.add(createRow(entry.getValue()));
-        }
+        lines.addAll(rows);
 
         PathUtils.write(getCsvFile().toPath(), lines);
     }
@@ -96,8 +124,17 @@ public final class CsvGenerator extends EvaluationTask<Tool> {
     // Size = TestCaseCount
     // Run = TAG
     // Duration: 43243 ms
+    // UserCpuTime: 40120 ms
+    // SystemCpuTime: 1230 ms
+    // PeakRss: 524288 kB
+    // ReadBytes: 10485760
+    // WrittenBytes: 1048576
+    // PeakThreads: 24
+    // (the resource usage columns are empty if it was not sampled)
+    // DroppedInputs: 1500 (the inputs dropped because of the maximum input count)
     private static final String[] HEADER_COLUMNS = new String[] { "Category", "Snippet", "Tool",
-            "Coverage", "Status", "Size", "Run", "Duration" };
+            "Coverage", "Status", "Size", "Run", "Duration", "UserCpuTime", "SystemCpuTime",
+            "PeakRss", "ReadBytes", "WrittenBytes", "PeakThreads", "DroppedInputs" };
 
     private String createHeader() {
         String header = String.join(FIELD_SEP, HEADER_COLUMNS);
@@ -107,38 +144,78 @@ public final class CsvGenerator extends EvaluationTask<Tool> {
         return header;
     }
 
-    private String createRow(Snippet snippet) throws Exception {
+    /**
+     * Creates the CSV row for the snippet from its info file and the inputs and result records of
+     * the result store (only the indexed record headers are used, the XML is not parsed). If the
+     * store does not contain the records, the inputs and result XML files are read.
+     *
+     * @param snippet
+     *            the snippet
+     * @return the CSV row
+     * @throws Exception
+     *             if the records or files cannot be read
+     */
+    public String createRow(Snippet snippet) throws Exception {
         // parse data
         File infoFile = RunnerProjectUtils.getSnippetInfoFile(getRunnerProjectSettings(), snippet);
-        File inputsXmlFile = RunnerProjectUtils.getSnippetInputsFile(getRunnerProjectSettings(),
-                snippet);
-        File resultXmlFile = RunnerProjectUtils.getSnippetResultFile(getRunnerProjectSettings(),
-                snippet);
 
-        Serializer serializer = new Persister(new AnnotationStrategy());
-        SnippetInputsXml inputsXml = serializer.read(SnippetInputsXml.class, inputsXmlFile);
-        inputsXml.validate();
+        RunnerResultStore store = null;
+        Record inputsRecord = null;
+        Record resultRecord = null;
+        if (RunnerProjectUtils.getResultStoreFile(getRunnerProjectSettings()).exists()) {
+            store = getResultStore();
+            inputsRecord = store.getRecord(snippet.getId(), RecordType.INPUTS);
+            resultRecord = store.getRecord(snippet.getId(), RecordType.RESULT);
+        }
+
+        int generatedInputCount;
+        int droppedInputCount;
+        ResultType resultType;
+        String achievedCoverage;
+        if (inputsRecord != null && resultRecord != null) {
+            generatedInputCount = inputsRecord.getGeneratedInputCount();
+            if (inputsRecord.getDroppedInputCount() != null) {
+                droppedInputCount = inputsRecord.getDroppedInputCount();
+            } else {
+                // not indexed in the stores of the old format
+                droppedInputCount = store.getInputsHeader(snippet.getId()).getDroppedInputCount();
+            }
+            resultType = resultRecord.getResultType();
+            achievedCoverage = resultRecord.getAchievedCoverage();
+        } else {
+            SnippetInputsXml inputsXml = readSnippetXml(snippet, SnippetInputsXml.class);
+            SnippetResultXml resultXml = readSnippetXml(snippet, SnippetResultXml.class);
+            if (inputsXml == null || resultXml == null) {
+                throw new FileNotFoundException(
+                        "Missing inputs or result: " + RunnerProjectUtils
+                                .getSnippetResultFile(getRunnerProjectSettings(), snippet));
+            }
+
+            inputsXml.validate();
+            resultXml.validate();
 
-        SnippetResultXml resultXml = serializer.read(SnippetResultXml.class, resultXmlFile);
-        resultXml.validate();
+            generatedInputCount = inputsXml.getGeneratedInputCount();
+            droppedInputCount = inputsXml.getDroppedInputCount();
+            resultType = resultXml.getResultType();
+            achievedCoverage = resultXml.getAchievedCoverage();
+        }
 
         // example: Elapsed time: 2002 ms
+        List<String> infoLines;
         String elapsedTime;
         if (infoFile.exists()) {
-            elapsedTime = PathUtils.lines(infoFile.toPath())
-                    .filter(line -> !StringUtils.isBlank(line)
-                            && line.trim().startsWith("Elapsed time:"))
-                    .map(line -> line.replaceAll("Elapsed time:", "").trim()).findAny().get()
-                    .replaceAll("ms", "").trim();
+            infoLines = PathUtils.readAllLines(infoFile.toPath());
+            elapsedTime = findInfoValue(infoLines, "Elapsed time:").get();
         } else {
+            infoLines = Collections.emptyList();
             elapsedTime = "";
         }
 
         String testCaseCount;
-        switch (resultXml.getResultType()) {
+        switch (resultType) {
             case NC:
             case C:
-                testCaseCount = String.valueOf(inputsXml.getGeneratedInputCount());
+                testCaseCount = String.valueOf(generatedInputCount);
                 break;
 
             default:
@@ -153,12 +230,19 @@ public final class CsvGenerator extends EvaluationTask<Tool> {
         fields.add(snippetShortName.split("_")[0]); // category
         fields.add(snippetShortName); // snippet
         fields.add(getTool().getName()); // tool
-        fields.add(StringUtils.defaultIfEmpty(resultXml.getAchievedCoverage(), "").replace('%', ' ')
+        fields.add(StringUtils.defaultIfEmpty(achievedCoverage, "").replace('%', ' ')
                 .trim()); // coverage
-        fields.add(resultXml.getResultType().toString()); // Status = ResultType
+        fields.add(resultType.toString()); // Status = ResultType
         fields.add(testCaseCount); // Size = TestCaseCount
         fields.add(getRunnerProjectSettings().getTag()); // Run = TAG
         fields.add(elapsedTime); // Duration: 43243 ms
+        fields.add(findInfoValue(infoLines, "User CPU time:").orElse("")); // UserCpuTime
+        fields.add(findInfoValue(infoLines, "System CPU time:").orElse("")); // SystemCpuTime
+        fields.add(findInfoValue(infoLines, "Peak RSS:").orElse("")); // PeakRss
+        fields.add(findInfoValue(infoLines, "Read bytes:").orElse("")); // ReadBytes
+        fields.add(findInfoValue(infoLines, "Written bytes:").orElse("")); // WrittenBytes
+        fields.add(findInfoValue(infoLines, "Peak thread count:").orElse("")); // PeakThreads
+        fields.add(String.valueOf(droppedInputCount)); // DroppedInputs
 
         if (getTool().getName().startsWith("SnippetInputChecker")) {
             fields.add(String.format("%.2f", snippet.getRequiredStatementCoverage())); // coverage
@@ -171,6 +255,23 @@ public final class CsvGenerator extends EvaluationTask<Tool> {
         return String.join(FIELD_SEP, fields);
     }
 
+    /**
+     * Finds a value in the lines of an info file (e.g. <code>Peak RSS: 1024 kB</code>), the unit is
+     * removed.
+     *
+     * @param infoLines
+     *            the lines of the info file
+     * @param prefix
+     *            the prefix of the line (e.g. <code>Peak RSS:</code>)
+     * @return the value without the unit (e.g. <code>1024</code>) or an empty {@link Optional} if
+     *         the line is missing
+     */
+    private static Optional<String> findInfoValue(List<String> infoLines, String prefix) {
+        return infoLines.stream().map(String::trim).filter(line -> line.startsWith(prefix))
+                .map(line -> line.substring(prefix.length()).trim().split("\\s+")[0])
+                .findFirst();
+    }
+
     private static String getShortSnippetName(Snippet snippet) {
         String className = snippet.getContainer().getName();
 
@@ -0,0 +1,235 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import hu.bme.mit.sette.core.model.snippet.Snippet;
+import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
+import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.tasks.testsuiterunner.TestSuiteRunner;
+import hu.bme.mit.sette.core.tool.Tool;
+import hu.bme.mit.sette.core.tool.ToolOutputType;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A SETTE task which evaluates a tool on a runner project in one JVM. The tool is run on the
+ * snippets and as soon as it has finished on a snippet, the snippet is post-processed on a separate
+ * thread: its run result is parsed, its test suite is generated, compiled and run, and its CSV row
+ * is created. Thus the post-processing overlaps with the tool runs of the following snippets.
+ * <p>
+ * If the outputs of the tool for a snippet might not be complete or isolated when the run returns
+ * (i.e. the tool does not generate input values and it cannot use separate working directories),
+ * the snippets are post-processed after the run.
+ */
+public final class EvaluationPipeline extends EvaluationTask<Tool> {
+    /** The runner of the tool. */
+    @Getter
+    private final RunnerProjectRunner<?> runner;
+
+    /** The parser of the run results. */
+    @Getter
+    private final RunResultParser<?> runResultParser;
+
+    private final TestSuiteGenerator testSuiteGenerator;
+
+    private final RunnerProjectCompiler compiler;
+
+    /** The test suite runner (measures the coverage). */
+    @Getter
+    private final TestSuiteRunner testSuiteRunner;
+
+    private final CsvGenerator csvGenerator;
+
+    @Getter
+    @Setter
+    private Pattern snippetSelector = null;
+
+    /**
+     * Instantiates a new evaluation pipeline.
+     *
+     * @param snippetProject
+     *            the snippet project
+     * @param outputDir
+     *            the output directory
+     * @param tool
+     *            the tool
+     * @param runnerProjectTag
+     *            the tag of the runner project
+     */
+    public EvaluationPipeline(SnippetProject snippetProject, Path outputDir, Tool tool,
+            String runnerProjectTag) {
+        super(snippetProject, outputDir, tool, runnerProjectTag);
+        runner = tool.createRunnerProjectRunner(snippetProject, outputDir, runnerProjectTag);
+        runResultParser = tool.createRunResultParser(snippetProject, outputDir, runnerProjectTag);
+        testSuiteGenerator = new TestSuiteGenerator(snippetProject, outputDir, tool,
+                runnerProjectTag);
+        compiler = new RunnerProjectCompiler(getRunnerProjectSettings());
+        testSuiteRunner = new TestSuiteRunner(snippetProject, outputDir, tool, runnerProjectTag);
+        csvGenerator = new CsvGenerator(snippetProject, outputDir, tool, runnerProjectTag);
+    }
+
+    /**
+     * Runs the tool on the snippets and evaluates the results (the runner can be configured with
+     * {@link #getRunner()}).
+     *
+     * @param loggerStream
+     *            the logger stream of the runner
+     * @throws Exception
+     *             if the evaluation fails
+     */
+    public void evaluate(PrintStream loggerStream) throws Exception {
+        getRunnerProjectSettings().validateExists();
+
+        runner.setSnippetSelector(snippetSelector);
+        testSuiteRunner.setSnippetSelector(snippetSelector);
+        runResultParser.setXmlExport(isXmlExport());
+        testSuiteRunner.setXmlExport(isXmlExport());
+        testSuiteGenerator.prepare();
+
+        // NOTE the post-processing thread is the only one which modifies the test directory and
+        // compiles the tests
+        ExecutorService postProcessor = Executors.newSingleThreadExecutor();
+        Set<String> submittedSnippetIds = ConcurrentHashMap.newKeySet();
+        Map<String, String> csvRows = new ConcurrentHashMap<>();
+        AtomicInteger failedSnippetCount = new AtomicInteger();
+
+        RunnerProjectRunner.SnippetRunListener listener = (snippet, status) -> {
+            if (submittedSnippetIds.add(snippet.getId())) {
+                postProcessor.submit(() -> postProcess(snippet, csvRows, failedSnippetCount));
+            }
+        };
+
+        if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES
+                || runner.supportsParallelExecution()) {
+            runner.setSnippetRunListener(listener);
+        } else {
+            log.warn("{} does not support pipelined evaluation, the snippets will be "
+                    + "post-processed after the run", getTool().getName());
+        }
+
+        try {
+            // the parser hooks are called around the parsing of all the snippets (like by parse())
+            runResultParser.beforeParse();
+            // the runner closes its logger stream, but the stream is still used after the run
+            runner.run(loggerStream == null ? null : new PrintStream(
+                    new FilterOutputStream(loggerStream) {
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            out.write(b, off, len);
+                        }
+
+                        @Override
+                        public void close() throws IOException {
+                            flush();
+                        }
+                    }, true));
+
+            // the snippets on which the tool was not run (e.g. not supported by the tool)
+            for (Snippet snippet : getSelectedSnippets()) {
+                listener.onSnippetFinished(snippet, null);
+            }
+
+            postProcessor.shutdown();
+            postProcessor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            runResultParser.afterParse();
+
+            testSuiteRunner.generateHtmlIndex();
+        } finally {
+            runner.setSnippetRunListener(null);
+            postProcessor.shutdownNow();
+            testSuiteRunner.close();
+        }
+
+        // write the CSV in the same order as the export-csv task
+        csvGenerator.write(csvGenerator.getSortedSnippets().stream()
+                .filter(snippet -> csvRows.containsKey(snippet.getId()))
+                .map(snippet -> csvRows.get(snippet.getId()))
+                .collect(Collectors.toList()));
+
+        if (failedSnippetCount.get() > 0) {
+            String msg = String.format("The evaluation has failed for %d snippet(s)",
+                    failedSnippetCount.get());
+            if (loggerStream != null) {
+                loggerStream.println(msg);
+            }
+            log.error(msg);
+        }
+    }
+
+    /**
+     * Parses the run result, generates, compiles and runs the test suite and creates the CSV row for
+     * one snippet. Exceptions are logged and counted, the other snippets are still processed.
+     *
+     * @param snippet
+     *            the snippet
+     * @param csvRows
+     *            the CSV rows by snippet IDs
+     * @param failedSnippetCount
+     *            the number of failed snippets
+     */
+    private void postProcess(Snippet snippet, Map<String, String> csvRows,
+            AtomicInteger failedSnippetCount) {
+        try {
+            log.info("Post-processing snippet: {}", snippet.getId());
+            runner.mergeWorkingDirectory(snippet);
+            runResultParser.parseOne(snippet);
+            testSuiteGenerator.generateOne(snippet);
+
+            // only the tests of the snippet (if they have changed), the errors of the other tests
+            // must not fail the snippet
+            compiler.compileTests(getRunnerProjectSettings().getTestDirectory().toPath(),
+                    getRunnerProjectSettings().getBaseDir().toPath().resolve("junit.jar"),
+                    snippet);
+
+            testSuiteRunner.handleSnippet(snippet);
+            csvRows.put(snippet.getId(), csvGenerator.createRow(snippet));
+        } catch (Exception ex) {
+            log.error("The evaluation has failed for snippet: " + snippet.getId(), ex);
+            failedSnippetCount.incrementAndGet();
+        }
+    }
+
+    private List<Snippet> getSelectedSnippets() {
+        return getSnippetProject().getSnippetContainers().stream()
+                .map(SnippetContainer::getSnippets)
+                .flatMap(snippets -> snippets.values().stream())
+                .filter(snippet -> snippetSelector == null
+                        || snippetSelector.matcher(snippet.getId()).matches())
+                .collect(Collectors.toList());
+    }
+}
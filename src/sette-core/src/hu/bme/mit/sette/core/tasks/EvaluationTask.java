@@ -23,16 +23,33 @@
 // NOTE revise this file
 package hu.bme.mit.sette.core.tasks;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.simpleframework.xml.convert.AnnotationStrategy;
+import org.simpleframework.xml.core.Persister;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import hu.bme.mit.sette.core.model.parserxml.SnippetBaseXml;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec.InputIterator;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings;
+import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType;
+import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
 import hu.bme.mit.sette.core.tool.Tool;
+import hu.bme.mit.sette.core.util.io.PathUtils;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 /**
  * Base class for SETTE evaluation tasks, i.e. steps of the whole workflow.
@@ -51,6 +68,14 @@ public abstract class EvaluationTask<T extends Tool> {
     @Getter
     private final RunnerProjectSettings<T> runnerProjectSettings;
 
+    /**
+     * Whether the inputs, result and coverage XML files of the snippets are also written besides
+     * the result store.
+     */
+    @Getter
+    @Setter
+    private volatile boolean xmlExport = false;
+
     /**
      * Instantiates a new SETTE task.
      *
@@ -84,4 +109,139 @@ public abstract class EvaluationTask<T extends Tool> {
     public final T getTool() {
         return this.runnerProjectSettings.getTool();
     }
+
+    /**
+     * Gets the result store of the runner project.
+     *
+     * @return the result store
+     * @throws IOException
+     *             if the store cannot be opened
+     */
+    public final RunnerResultStore getResultStore() throws IOException {
+        return RunnerResultStore.of(runnerProjectSettings);
+    }
+
+    /**
+     * Reads an inputs, result or coverage record of the snippet from the result store. If the store
+     * does not contain the record, the XML file is read (runner projects evaluated before the
+     * result store was introduced). The XML is deserialized with the class loader of the snippet
+     * project.
+     *
+     * @param snippet
+     *            the snippet
+     * @param xmlClass
+     *            the XML class of the record
+     * @return the XML object or <code>null</code> if there is neither a record nor an XML file
+     * @throws Exception
+     *             if the record cannot be read
+     */
+    protected final <X extends SnippetBaseXml> X readSnippetXml(@NonNull Snippet snippet,
+            @NonNull Class<X> xmlClass) throws Exception {
+        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(snippetProject.getClassLoader());
+
+        try {
+            X xml = null;
+            if (RunnerProjectUtils.getResultStoreFile(runnerProjectSettings).exists()) {
+                xml = getResultStore().get(snippet.getId(), xmlClass);
+            }
+
+            if (xml == null) {
+                File xmlFile = RunnerProjectUtils.getSnippetXmlFile(runnerProjectSettings, snippet,
+                        RecordType.of(xmlClass));
+                if (xmlFile.exists()) {
+                    xml = new Persister(new AnnotationStrategy()).read(xmlClass, xmlFile);
+                }
+            }
+            return xml;
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
+        }
+    }
+
+    /**
+     * Reads the header of the inputs record of the snippet without materializing the generated
+     * inputs (see {@link SnippetInputsXmlCodec#readHeader(java.io.Reader)}). If the store does not
+     * contain the record, the inputs XML file is read.
+     *
+     * @param snippet
+     *            the snippet
+     * @return the header or <code>null</code> if there is neither a record nor an XML file
+     * @throws IOException
+     *             if the record cannot be read
+     */
+    protected final SnippetInputsXml readSnippetInputsHeader(@NonNull Snippet snippet)
+            throws IOException {
+        if (RunnerProjectUtils.getResultStoreFile(runnerProjectSettings).exists()) {
+            SnippetInputsXml header = getResultStore().getInputsHeader(snippet.getId());
+            if (header != null) {
+                return header;
+            }
+        }
+
+        Path xmlFile = RunnerProjectUtils
+                .getSnippetXmlFile(runnerProjectSettings, snippet, RecordType.INPUTS).toPath();
+        if (!Files.exists(xmlFile)) {
+            return null;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(xmlFile, StandardCharsets.UTF_8)) {
+            return SnippetInputsXmlCodec.readHeader(reader);
+        }
+    }
+
+    /**
+     * Opens an iterator over the generated inputs of the snippet which parses the inputs one by
+     * one. If the store does not contain the inputs record, the inputs XML file is read.
+     *
+     * @param snippet
+     *            the snippet
+     * @return the iterator (must be closed) or <code>null</code> if there is neither a record nor
+     *         an XML file
+     * @throws IOException
+     *             if the record cannot be read
+     */
+    protected final InputIterator openSnippetInputs(@NonNull Snippet snippet) throws IOException {
+        if (RunnerProjectUtils.getResultStoreFile(runnerProjectSettings).exists()) {
+            InputIterator inputs = getResultStore().openInputs(snippet.getId());
+            if (inputs != null) {
+                return inputs;
+            }
+        }
+
+        Path xmlFile = RunnerProjectUtils
+                .getSnippetXmlFile(runnerProjectSettings, snippet, RecordType.INPUTS).toPath();
+        if (!Files.exists(xmlFile)) {
+            return null;
+        }
+
+        return SnippetInputsXmlCodec
+                .openInputs(Files.newBufferedReader(xmlFile, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends an inputs, result or coverage record of the snippet to the result store. If
+     * {@link #isXmlExport()} is set, the XML file is also written, otherwise the stale XML file is
+     * deleted (if any).
+     *
+     * @param snippet
+     *            the snippet
+     * @param xml
+     *            the XML object
+     * @throws IOException
+     *             if the record cannot be written
+     */
+    protected final void writeSnippetXml(@NonNull Snippet snippet, @NonNull SnippetBaseXml xml)
+            throws IOException {
+        RunnerResultStore store = getResultStore();
+        RecordType type = store.put(snippet.getId(), xml).getType();
+
+        Path xmlFile = RunnerProjectUtils.getSnippetXmlFile(runnerProjectSettings, snippet, type)
+                .toPath();
+        if (xmlExport) {
+            store.exportXml(snippet.getId(), type, xmlFile);
+        } else {
+            PathUtils.deleteIfExists(xmlFile);
+        }
+    }
 }
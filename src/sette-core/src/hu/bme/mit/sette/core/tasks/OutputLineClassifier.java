@@ -0,0 +1,540 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.io.Resources;
+
+import hu.bme.mit.sette.core.model.runner.ResultType;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Classifies the lines of the output of a tool (usually the error output) according to a list of
+ * rules. The rules are compiled once: the literal rules into Aho-Corasick automata and the regular
+ * expressions into one combined pattern, thus a line is classified in one pass regardless of the
+ * number of rules. The classifier is thread-safe and counts how many times each rule has matched.
+ * <p>
+ * The rules are usually loaded from a resource file. Each non-empty line which does not start with
+ * <code>#</code> is a rule with three fields separated by whitespace: the category (see
+ * {@link Category}, case-insensitive), the kind of the match and the text to match. The kinds are:
+ * <ul>
+ * <li><code>contains</code>: the line contains the text,</li>
+ * <li><code>prefix</code>: the line starts with the text,</li>
+ * <li><code>regex</code>: the regular expression matches a part of the line (use <code>^</code>
+ * and <code>$</code> to match the whole line; numbered back references are not supported).</li>
+ * </ul>
+ * The lines are trimmed before they are classified. If more rules match a line, the rule which is
+ * defined first wins.
+ */
+public final class OutputLineClassifier {
+    /** The categories of the rules. */
+    public enum Category {
+        /** The line is known and does not affect the result. */
+        SKIP(null),
+        /** The line indicates a problem which must be investigated manually. */
+        FAIL(null),
+        /** The line indicates that the tool does not support the snippet. */
+        NA(ResultType.NA),
+        /** The line indicates that the tool has failed with an exception. */
+        EX(ResultType.EX),
+        /** The line indicates a timeout or that the tool has run out of memory. */
+        TM(ResultType.TM);
+
+        /** The result type which is implied by the category or <code>null</code> if none. */
+        @Getter
+        private final ResultType resultType;
+
+        private Category(ResultType resultType) {
+            this.resultType = resultType;
+        }
+    }
+
+    /** The kinds of the matches. */
+    public enum MatchKind {
+        CONTAINS,
+        PREFIX,
+        REGEX;
+    }
+
+    /** A classification rule. */
+    public static final class Rule {
+        /** The index of the rule (rules with lower indices take precedence). */
+        @Getter
+        private final int index;
+
+        /** The category. */
+        @Getter
+        private final Category category;
+
+        /** The kind of the match. */
+        @Getter
+        private final MatchKind matchKind;
+
+        /** The literal text or the regular expression. */
+        @Getter
+        private final String text;
+
+        /** The location of the definition of the rule (for messages). */
+        @Getter
+        private final String location;
+
+        private Rule(int index, Category category, MatchKind matchKind, String text,
+                String location) {
+            this.index = index;
+            this.category = category;
+            this.matchKind = matchKind;
+            this.text = text;
+            this.location = location;
+        }
+
+        @Override
+        public String toString() {
+            return location + ": " + category + " " + matchKind.name().toLowerCase() + " " + text;
+        }
+    }
+
+    private static final Pattern RULE_LINE_PATTERN = Pattern.compile("(\\S+)\\s+(\\S+)\\s+(.+)");
+
+    /** The name of the rule source (for messages). */
+    @Getter
+    private final String sourceName;
+
+    private final List<Rule> rules;
+    private final LiteralAutomaton containsAutomaton;
+    private final LiteralAutomaton prefixAutomaton;
+    private final int[] regexRuleIndices;
+    private final Pattern[] regexPatterns;
+    private final Pattern combinedRegexPattern;
+    private final AtomicLongArray hitCounts;
+    private final AtomicLong unmatchedCount = new AtomicLong();
+
+    private OutputLineClassifier(String sourceName, List<Rule> rules) {
+        this.sourceName = sourceName;
+        this.rules = Collections.unmodifiableList(rules);
+        this.hitCounts = new AtomicLongArray(rules.size());
+
+        List<Rule> containsRules = new ArrayList<>();
+        List<Rule> prefixRules = new ArrayList<>();
+        List<Rule> regexRules = new ArrayList<>();
+        for (Rule rule : rules) {
+            switch (rule.matchKind) {
+                case CONTAINS:
+                    containsRules.add(rule);
+                    break;
+                case PREFIX:
+                    prefixRules.add(rule);
+                    break;
+                case REGEX:
+                    regexRules.add(rule);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown match kind: " + rule.matchKind);
+            }
+        }
+
+        containsAutomaton = LiteralAutomaton.build(containsRules);
+        prefixAutomaton = LiteralAutomaton.build(prefixRules);
+
+        regexRuleIndices = new int[regexRules.size()];
+        regexPatterns = new Pattern[regexRules.size()];
+        StringBuilder combined = new StringBuilder();
+        for (int i = 0; i < regexRules.size(); i++) {
+            Rule rule = regexRules.get(i);
+            regexRuleIndices[i] = rule.index;
+            regexPatterns[i] = Pattern.compile(rule.text);
+
+            if (i > 0) {
+                combined.append('|');
+            }
+            combined.append("(?<r").append(i).append('>').append(rule.text).append(')');
+        }
+        combinedRegexPattern = regexRules.isEmpty() ? null : Pattern.compile(combined.toString());
+    }
+
+    /**
+     * Loads the rules from a resource on the classpath.
+     *
+     * @param resourceName
+     *            the name of the resource
+     * @return the classifier
+     * @throws IllegalArgumentException
+     *             if the resource is not found or it contains an invalid rule
+     * @throws UncheckedIOException
+     *             if the resource cannot be read
+     */
+    public static OutputLineClassifier fromResource(@NonNull String resourceName) {
+        URL url = Resources.getResource(resourceName);
+
+        try (Reader reader = Resources.asCharSource(url, StandardCharsets.UTF_8).openStream()) {
+            return parse(resourceName, reader);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the rules: " + resourceName, ex);
+        }
+    }
+
+    /**
+     * Parses the rules from a string.
+     *
+     * @param sourceName
+     *            the name of the rule source (for messages)
+     * @param rules
+     *            the rule definitions
+     * @return the classifier
+     * @throws IllegalArgumentException
+     *             if a rule is invalid
+     */
+    public static OutputLineClassifier parse(@NonNull String sourceName, @NonNull String rules) {
+        try {
+            return parse(sourceName, new StringReader(rules));
+        } catch (IOException ex) {
+            // cannot happen with a string reader
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static OutputLineClassifier parse(String sourceName, Reader reader)
+            throws IOException {
+        List<Rule> rules = new ArrayList<>();
+        BufferedReader br = new BufferedReader(reader);
+        int lineNumber = 0;
+        String line;
+
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String location = sourceName + ":" + lineNumber;
+            Matcher m = RULE_LINE_PATTERN.matcher(line);
+            checkArgument(m.matches(), "Invalid rule (%s): %s", location, line);
+
+            Category category = parseEnum(Category.class, m.group(1), location);
+            MatchKind matchKind = parseEnum(MatchKind.class, m.group(2), location);
+            String text = m.group(3).trim();
+
+            if (matchKind == MatchKind.REGEX) {
+                try {
+                    Pattern.compile(text);
+                } catch (PatternSyntaxException ex) {
+                    throw new IllegalArgumentException(
+                            "Invalid regular expression (" + location + "): " + text, ex);
+                }
+            }
+
+            rules.add(new Rule(rules.size(), category, matchKind, text, location));
+        }
+
+        return new OutputLineClassifier(sourceName, rules);
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> enumClass, String value,
+            String location) {
+        for (E constant : enumClass.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Invalid %s (%s): %s",
+                enumClass.getSimpleName(), location, value));
+    }
+
+    /**
+     * Classifies a line.
+     *
+     * @param line
+     *            the line
+     * @return the first matching rule or <code>null</code> if no rule matches
+     */
+    public Rule classify(@NonNull String line) {
+        String trimmed = line.trim();
+
+        int best = Math.min(containsAutomaton.findFirst(trimmed),
+                prefixAutomaton.matchPrefix(trimmed));
+        if (combinedRegexPattern != null) {
+            best = Math.min(best, findFirstRegexRule(trimmed, best));
+        }
+
+        if (best == Integer.MAX_VALUE) {
+            unmatchedCount.incrementAndGet();
+            return null;
+        } else {
+            hitCounts.incrementAndGet(best);
+            return rules.get(best);
+        }
+    }
+
+    /**
+     * Returns the first matching regex rule with an index less than the limit.
+     */
+    private int findFirstRegexRule(String line, int limit) {
+        if (regexRuleIndices[0] >= limit) {
+            return Integer.MAX_VALUE;
+        }
+
+        // the combined pattern finds a match if and only if any of the patterns matches
+        Matcher m = combinedRegexPattern.matcher(line);
+        if (!m.find()) {
+            return Integer.MAX_VALUE;
+        }
+
+        int matched = 0;
+        while (m.group("r" + matched) == null) {
+            matched++;
+        }
+
+        // the patterns before the one found by the combined pattern may match later in the line
+        for (int i = 0; i < matched && regexRuleIndices[i] < limit; i++) {
+            if (regexPatterns[i].matcher(line).find()) {
+                return regexRuleIndices[i];
+            }
+        }
+
+        return regexRuleIndices[matched];
+    }
+
+    /**
+     * Gets the rules in the order of their definition.
+     *
+     * @return the rules
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Gets how many times the rule has been chosen by {@link #classify(String)}.
+     *
+     * @param rule
+     *            the rule
+     * @return the hit count
+     */
+    public long getHitCount(@NonNull Rule rule) {
+        checkArgument(rules.get(rule.index) == rule, "The rule does not belong to this classifier");
+        return hitCounts.get(rule.index);
+    }
+
+    /**
+     * Gets the hit counts of the rules in the order of their definition.
+     *
+     * @return the hit counts by rules
+     */
+    public Map<Rule, Long> getHitCounts() {
+        Map<Rule, Long> ret = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            ret.put(rule, hitCounts.get(rule.index));
+        }
+        return ret;
+    }
+
+    /**
+     * Gets how many lines have not matched any rule.
+     *
+     * @return the number of unmatched lines
+     */
+    public long getUnmatchedCount() {
+        return unmatchedCount.get();
+    }
+
+    /**
+     * Creates a human-readable summary of the hit counts (one line per rule).
+     *
+     * @return the summary
+     */
+    public String formatHitCounts() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Rule hits for ").append(sourceName).append(':');
+        for (Rule rule : rules) {
+            sb.append("\n  ").append(String.format("%8d", hitCounts.get(rule.index))).append("  ")
+                    .append(rule);
+        }
+        sb.append("\n  ").append(String.format("%8d", unmatchedCount.get()))
+                .append("  (unmatched)");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "OutputLineClassifier [sourceName=" + sourceName + ", rules=" + rules.size() + "]";
+    }
+
+    /**
+     * Aho-Corasick automaton over the characters of the literal rules. The transitions of each
+     * state are stored in sorted arrays, and each state stores the lowest rule index which is
+     * matched when the state is reached (including the rules reachable by suffix links).
+     */
+    private static final class LiteralAutomaton {
+        private final char[][] keys;
+        private final int[][] targets;
+        private final int[] failures;
+        /** The lowest rule index ending in the state (including suffixes). */
+        private final int[] outputs;
+        /** The rule index of the literal which is equal to the path of the state. */
+        private final int[] exactOutputs;
+
+        private LiteralAutomaton(char[][] keys, int[][] targets, int[] failures, int[] outputs,
+                int[] exactOutputs) {
+            this.keys = keys;
+            this.targets = targets;
+            this.failures = failures;
+            this.outputs = outputs;
+            this.exactOutputs = exactOutputs;
+        }
+
+        static LiteralAutomaton build(List<Rule> rules) {
+            // build the trie
+            List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+            List<Integer> exact = new ArrayList<>();
+            trie.add(new TreeMap<>());
+            exact.add(Integer.MAX_VALUE);
+
+            for (Rule rule : rules) {
+                int state = 0;
+                for (char ch : rule.text.toCharArray()) {
+                    Integer next = trie.get(state).get(ch);
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new TreeMap<>());
+                        exact.add(Integer.MAX_VALUE);
+                        trie.get(state).put(ch, next);
+                    }
+                    state = next;
+                }
+                exact.set(state, Math.min(exact.get(state), rule.index));
+            }
+
+            int size = trie.size();
+            char[][] keys = new char[size][];
+            int[][] targets = new int[size][];
+            int[] exactOutputs = new int[size];
+            for (int s = 0; s < size; s++) {
+                TreeMap<Character, Integer> transitions = trie.get(s);
+                keys[s] = new char[transitions.size()];
+                targets[s] = new int[transitions.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> entry : transitions.entrySet()) {
+                    keys[s][i] = entry.getKey();
+                    targets[s][i] = entry.getValue();
+                    i++;
+                }
+                exactOutputs[s] = exact.get(s);
+            }
+
+            // failure links and outputs in BFS order
+            int[] failures = new int[size];
+            int[] outputs = Arrays.copyOf(exactOutputs, size);
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                queue.add(child);
+            }
+
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                for (int i = 0; i < keys[s].length; i++) {
+                    char ch = keys[s][i];
+                    int child = targets[s][i];
+
+                    int f = failures[s];
+                    int next;
+                    while ((next = transition(keys, targets, f, ch)) < 0 && f != 0) {
+                        f = failures[f];
+                    }
+                    failures[child] = next >= 0 ? next : 0;
+                    outputs[child] = Math.min(outputs[child], outputs[failures[child]]);
+                    queue.add(child);
+                }
+            }
+
+            return new LiteralAutomaton(keys, targets, failures, outputs, exactOutputs);
+        }
+
+        private static int transition(char[][] keys, int[][] targets, int state, char ch) {
+            int i = Arrays.binarySearch(keys[state], ch);
+            return i >= 0 ? targets[state][i] : -1;
+        }
+
+        /**
+         * Returns the lowest index of the rules whose text occurs in the line.
+         */
+        int findFirst(String line) {
+            if (keys[0].length == 0) {
+                return Integer.MAX_VALUE;
+            }
+
+            int best = Integer.MAX_VALUE;
+            int state = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char ch = line.charAt(i);
+                int next;
+                while ((next = transition(keys, targets, state, ch)) < 0 && state != 0) {
+                    state = failures[state];
+                }
+                state = next >= 0 ? next : 0;
+                best = Math.min(best, outputs[state]);
+            }
+            return best;
+        }
+
+        /**
+         * Returns the lowest index of the rules whose text is a prefix of the line.
+         */
+        int matchPrefix(String line) {
+            int best = exactOutputs[0];
+            int state = 0;
+            for (int i = 0; i < line.length(); i++) {
+                state = transition(keys, targets, state, line.charAt(i));
+                if (state < 0) {
+                    break;
+                }
+                best = Math.min(best, exactOutputs[state]);
+            }
+            return best;
+        }
+    }
+}
@@ -23,22 +23,30 @@
 // NOTE revise this file
 package hu.bme.mit.sette.core.tasks;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Parameter;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.Validate;
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.convert.AnnotationStrategy;
-import org.simpleframework.xml.core.Persister;
-import org.simpleframework.xml.stream.Format;
 
 import com.google.common.primitives.Primitives;
 
 import hu.bme.mit.sette.core.exceptions.RunResultParserException;
+import hu.bme.mit.sette.core.model.parserxml.GeneratedInputList;
 import hu.bme.mit.sette.core.model.parserxml.InputElement;
 import hu.bme.mit.sette.core.model.parserxml.ParameterElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetElement;
@@ -48,21 +56,95 @@ import hu.bme.mit.sette.core.model.runner.ParameterType;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.Record;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
 import hu.bme.mit.sette.core.tool.Tool;
 import hu.bme.mit.sette.core.tool.ToolOutputType;
+import hu.bme.mit.sette.core.util.io.LineSource;
 import hu.bme.mit.sette.core.util.io.PathUtils;
-import hu.bme.mit.sette.core.validator.PathType;
-import hu.bme.mit.sette.core.validator.PathValidator;
 
 public abstract class RunResultParser<T extends Tool> extends EvaluationTask<T> {
+    /** The number of snippets which are parsed in parallel. */
+    private int parallelism = 1;
+
+    /** The maximum number of generated inputs kept for a snippet (0 means no limit). */
+    private int maxInputCount = 0;
+
     public RunResultParser(SnippetProject snippetProject, Path outputDir, T tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
+    /**
+     * Gets the number of snippets which are parsed in parallel.
+     *
+     * @return the number of snippets which are parsed in parallel
+     */
+    public final int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of snippets which are parsed in parallel. The results are written in the
+     * order of the snippets regardless of the parallelism. If the parser does not support parallel
+     * parsing (see {@link #supportsParallelParsing()}), the snippets are parsed sequentially.
+     *
+     * @param parallelism
+     *            the number of snippets to parse in parallel, must be positive
+     */
+    public final void setParallelism(int parallelism) {
+        checkArgument(parallelism >= 1, "The parallelism must be positive: %s", parallelism);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the maximum number of generated inputs kept for a snippet.
+     *
+     * @return the maximum number of generated inputs kept for a snippet (0 means no limit)
+     */
+    public final int getMaxInputCount() {
+        return maxInputCount;
+    }
+
+    /**
+     * Sets the maximum number of generated inputs kept for a snippet. Parsers which stream the
+     * inputs of the tool (e.g. the parser of jPET) drop and count the further inputs, the other
+     * parsers ignore it.
+     *
+     * @param maxInputCount
+     *            the maximum number of generated inputs kept for a snippet (0 means no limit)
+     */
+    public final void setMaxInputCount(int maxInputCount) {
+        checkArgument(maxInputCount >= 0, "The maximum input count must not be negative: %s",
+                maxInputCount);
+        this.maxInputCount = maxInputCount;
+    }
+
+    /**
+     * Returns whether the snippets can be parsed in parallel, i.e. {@link #parseSnippet},
+     * {@link #beforeParseSnippet(Snippet)} and {@link #afterParseSnippet(Snippet)} may be called
+     * concurrently for different snippets. A parser which supports it must not modify shared state
+     * or files which do not belong to the snippet being parsed.
+     *
+     * @return <code>true</code> if the snippets can be parsed in parallel, otherwise
+     *         <code>false</code> (default)
+     */
+    protected boolean supportsParallelParsing() {
+        return false;
+    }
+
+    /**
+     * Parses the run results of all the snippets. The failure of a snippet does not stop the
+     * parsing of the others, the failures are reported together after all the snippets have been
+     * processed.
+     *
+     * @throws Exception
+     *             if the runner project has not been run or the parsing of any snippet has failed
+     */
     public final void parse() throws Exception {
         if (!RunnerProjectUtils.getRunnerLogFile(getRunnerProjectSettings()).exists()) {
             throw new RunResultParserException("Run the tool on the runner project first", this);
@@ -70,93 +152,168 @@ public abstract class RunResultParser<T extends Tool> extends EvaluationTask<T>
 
         beforeParse();
 
-        // foreach containers
+        List<Snippet> snippets = new ArrayList<>();
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
-            // foreach snippets
-            for (Snippet snippet : container.getSnippets().values()) {
-                // skip container with higher java version than supported
-                if (container.getRequiredJavaVersion()
-                        .compareTo(getTool().getSupportedJavaVersion()) > 0) {
-                    // TODO error/warning handling
-                    System.err.println("Skipping container: " + container.getJavaClass().getName()
-                            + " (required Java version: " + container.getRequiredJavaVersion()
-                            + ")");
-                    SnippetInputsXml inputsXml = new SnippetInputsXml();
-                    if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
-                        inputsXml.setGeneratedInputs(new ArrayList<>());
-                    } else {
-                        inputsXml.setGeneratedInputCount(0);
-                    }
-                    inputsXml.setToolName(getTool().getName());
-                    inputsXml.setSnippetProjectElement(new SnippetProjectElement(
-                            getSnippetProject().getBaseDir().toFile().getCanonicalPath()));
-
-                    inputsXml.setSnippetElement(
-                            new SnippetElement(snippet.getContainer().getJavaClass().getName(),
-                                    snippet.getMethod().getName()));
-                    inputsXml.setResultType(ResultType.NA);
-                    inputsXml.validate();
-
-                    File inputsXmlFile = RunnerProjectUtils
-                            .getSnippetInputsFile(getRunnerProjectSettings(), snippet);
-
-                    PathUtils.createDir(inputsXmlFile.getParentFile().toPath());
-
-                    PathUtils.deleteIfExists(inputsXmlFile.toPath());
-
-                    Serializer serializer = new Persister(new AnnotationStrategy(),
-                            new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-                    serializer.write(inputsXml, inputsXmlFile);
-                    continue;
-                }
-
-                SnippetInputsXml inputsXml = parseSnippet(snippet);
-                // TODO further validation
-                inputsXml.validate();
-
-                File inputsXmlFile = RunnerProjectUtils
-                        .getSnippetInputsFile(getRunnerProjectSettings(), snippet);
-
-                PathUtils.createDir(inputsXmlFile.getParentFile().toPath());
-
-                PathUtils.deleteIfExists(inputsXmlFile.toPath());
+            snippets.addAll(container.getSnippets().values());
+        }
 
-                Serializer serializer = new Persister(new AnnotationStrategy(),
-                        new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-                serializer.write(inputsXml, inputsXmlFile);
+        // NOTE keyed by the id, since the hash code of a snippet is computed from its container
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        if (parallelism > 1 && snippets.size() > 1 && supportsParallelParsing()) {
+            parseInParallel(snippets, failures);
+        } else {
+            for (Snippet snippet : snippets) {
+                try {
+                    parseOne(snippet);
+                } catch (Exception ex) {
+                    addFailure(failures, snippet, ex);
+                }
             }
         }
 
         afterParse();
 
-        // NOTE check whether all inputs and info files are created
+        if (!failures.isEmpty()) {
+            throw createFailure(failures);
+        }
+
+        // NOTE check whether all inputs records and info files are created
+        RunnerResultStore store = getResultStore();
         // foreach containers
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
             // foreach snippets
             for (Snippet snippet : container.getSnippets().values()) {
-                File inputsXmlFile = RunnerProjectUtils
-                        .getSnippetInputsFile(getRunnerProjectSettings(), snippet);
+                Record inputsRecord = store.getRecord(snippet.getId(), RecordType.INPUTS);
                 File infoFile = RunnerProjectUtils.getSnippetInfoFile(getRunnerProjectSettings(),
                         snippet);
 
-                new PathValidator(inputsXmlFile.toPath()).type(PathType.REGULAR_FILE).validate();
+                Validate.notNull(inputsRecord, "Missing inputs record: " + snippet.getId());
                 if (!infoFile.exists()) {
-                    SnippetInputsXml inputsXml = new Persister(new AnnotationStrategy())
-                            .read(SnippetInputsXml.class, inputsXmlFile);
+                    Validate.isTrue(inputsRecord.getResultType() == ResultType.NA,
+                            "If there is no .info file, the result must be N/A: "
+                                    + snippet.getId());
+                }
+            }
+        }
+    }
 
-                    Validate.isTrue(inputsXml.getResultType() == ResultType.NA,
-                            "If there is no .info file, the result must be N/A: " + inputsXmlFile);
+    /**
+     * Parses the run result of one snippet and writes its inputs record into the result store.
+     * Snippets in containers with higher Java version than the tool supports are written as N/A.
+     * This method does not call {@link #beforeParse()} and {@link #afterParse()}, thus it can be
+     * used to process the snippets one by one right after the tool has finished on them (the
+     * caller has to call the hooks before the first and after the last snippet).
+     *
+     * @param snippet
+     *            the snippet
+     * @throws Exception
+     *             if parsing fails
+     */
+    public final void parseOne(Snippet snippet) throws Exception {
+        writeSnippetXml(snippet, parseInputs(snippet));
+    }
 
+    /**
+     * Parses the snippets on {@link #getParallelism()} threads. The parsed inputs are written in
+     * the order of the snippets by the calling thread, and only a limited number of parsed results
+     * wait for being written (thus the memory usage does not depend on the number of snippets).
+     *
+     * @param snippets
+     *            the snippets to parse
+     * @param failures
+     *            the map to which the failures are added
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    private void parseInParallel(List<Snippet> snippets, Map<String, Exception> failures)
+            throws InterruptedException {
+        log.info("Parsing {} snippets on {} threads", snippets.size(), parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            int maxPending = 2 * parallelism;
+            Deque<Future<SnippetInputsXml>> pending = new ArrayDeque<>(maxPending);
+            int submitted = 0;
+
+            for (Snippet snippet : snippets) {
+                while (submitted < snippets.size() && pending.size() < maxPending) {
+                    Snippet next = snippets.get(submitted++);
+                    pending.add(executor.submit(() -> parseInputs(next)));
                 }
+
+                try {
+                    writeSnippetXml(snippet, pending.remove().get());
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (ExecutionException ex) {
+                    addFailure(failures, snippet, ex.getCause() instanceof Exception
+                            ? (Exception) ex.getCause() : ex);
+                } catch (Exception ex) {
+                    addFailure(failures, snippet, ex);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void addFailure(Map<String, Exception> failures, Snippet snippet, Exception ex) {
+        log.error("Parsing failed: " + snippet.getId(), ex);
+        failures.put(snippet.getId(), ex);
+    }
+
+    private RunResultParserException createFailure(Map<String, Exception> failures) {
+        String ids = String.join(", ", failures.keySet());
+        Iterator<Exception> it = failures.values().iterator();
+
+        RunResultParserException ex = new RunResultParserException(String.format(
+                "Parsing failed for %d snippet(s): %s", failures.size(), ids), this, it.next());
+        it.forEachRemaining(ex::addSuppressed);
+        return ex;
+    }
+
+    private SnippetInputsXml parseInputs(Snippet snippet) throws Exception {
+        SnippetContainer container = snippet.getContainer();
+        SnippetInputsXml inputsXml;
+
+        // skip container with higher java version than supported
+        if (container.getRequiredJavaVersion()
+                .compareTo(getTool().getSupportedJavaVersion()) > 0) {
+            // TODO error/warning handling
+            System.err.println("Skipping container: " + container.getJavaClass().getName()
+                    + " (required Java version: " + container.getRequiredJavaVersion()
+                    + ")");
+            inputsXml = new SnippetInputsXml();
+            if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
+                inputsXml.setGeneratedInputs(new GeneratedInputList());
+            } else {
+                inputsXml.setGeneratedInputCount(0);
             }
+            inputsXml.setToolName(getTool().getName());
+            inputsXml.setSnippetProjectElement(new SnippetProjectElement(
+                    getSnippetProject().getBaseDir().toFile().getCanonicalPath()));
+
+            inputsXml.setSnippetElement(
+                    new SnippetElement(snippet.getContainer().getJavaClass().getName(),
+                            snippet.getMethod().getName()));
+            inputsXml.setResultType(ResultType.NA);
+            inputsXml.validate();
+        } else {
+            beforeParseSnippet(snippet);
+            inputsXml = parseSnippet(snippet);
+            afterParseSnippet(snippet);
+            // TODO further validation
+            inputsXml.validate();
         }
+
+        return inputsXml;
     }
 
     private SnippetInputsXml parseSnippet(Snippet snippet) throws Exception {
         // TODO validation?
         SnippetInputsXml inputsXml = new SnippetInputsXml();
         if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
-            inputsXml.setGeneratedInputs(new ArrayList<>());
+            inputsXml.setGeneratedInputs(new GeneratedInputList());
         }
         inputsXml.setToolName(getTool().getName());
         inputsXml.setSnippetProjectElement(new SnippetProjectElement(
@@ -171,8 +328,12 @@ public abstract class RunResultParser<T extends Tool> extends EvaluationTask<T>
         if (!PathUtils.exists(outFiles.infoFile)) {
             inputsXml.setResultType(ResultType.NA);
         } else {
-            if (PathUtils.lines(outFiles.infoFile).anyMatch(s -> s.startsWith("Destroyed: yes"))) {
-                inputsXml.setResultType(ResultType.TM);
+            // destroyed because of timeout or terminated because of exceeding a resource limit
+            try (LineSource infoLines = outFiles.openInfo()) {
+                if (infoLines.lines().anyMatch(s -> s.startsWith("Destroyed: yes")
+                        || s.startsWith(RunnerProjectRunner.LIMIT_EXCEEDED_INFO_PREFIX))) {
+                    inputsXml.setResultType(ResultType.TM);
+                }
             }
         }
 
@@ -189,15 +350,16 @@ public abstract class RunResultParser<T extends Tool> extends EvaluationTask<T>
                 || inputsXml.getResultType() == ResultType.C)
                 && inputsXml.getGeneratedInputCount() == 0
                 && inputsXml.getGeneratedInputs() != null) {
-            // no inputs but S, add an empty one
+            // no inputs but S, add an empty one (the list copies the input, thus it is added
+            // when it is complete)
             InputElement ie = new InputElement();
-            inputsXml.getGeneratedInputs().add(ie);
 
             for (Parameter param : snippet.getMethod().getParameters()) {
                 ie.getParameters().add(new ParameterElement(getParameterType(param.getType()),
                         getDefaultParameterValueString(param.getType())));
             }
             ie.validate();
+            inputsXml.getGeneratedInputs().add(ie);
         }
         // NOTE generated parameter count MUST match method parameter count
         if (inputsXml.getGeneratedInputs() != null) {
@@ -229,16 +391,40 @@ public abstract class RunResultParser<T extends Tool> extends EvaluationTask<T>
                     snippet).toPath();
         }
 
-        public List<String> readInfoLines() throws IOException {
-            return PathUtils.readAllLinesOrEmpty(infoFile);
+        /**
+         * Opens the .info file (the source is empty if the file does not exist). The source must be
+         * closed by the caller.
+         *
+         * @return the lines of the .info file
+         * @throws IOException
+         *             if an I/O error occurs
+         */
+        public LineSource openInfo() throws IOException {
+            return LineSource.open(infoFile);
         }
 
-        public List<String> readOutputLines() throws IOException {
-            return PathUtils.readAllLinesOrEmpty(outputFile);
+        /**
+         * Opens the .out file (the source is empty if the file does not exist). The source must be
+         * closed by the caller.
+         *
+         * @return the lines of the .out file
+         * @throws IOException
+         *             if an I/O error occurs
+         */
+        public LineSource openOutput() throws IOException {
+            return LineSource.open(outputFile);
         }
 
-        public List<String> readErrorOutputLines() throws IOException {
-            return PathUtils.readAllLinesOrEmpty(errorOutputFile);
+        /**
+         * Opens the .err file (the source is empty if the file does not exist). The source must be
+         * closed by the caller.
+         *
+         * @return the lines of the .err file
+         * @throws IOException
+         *             if an I/O error occurs
+         */
+        public LineSource openErrorOutput() throws IOException {
+            return LineSource.open(errorOutputFile);
         }
     }
 
@@ -331,4 +517,30 @@ public abstract class RunResultParser<T extends Tool> extends EvaluationTask<T>
     protected void afterParse() {
         // can be overridden by the children
     }
+
+    /**
+     * This method is called before parsing the run result of a snippet (not called for snippets
+     * which are not supported by the tool).
+     *
+     * @param snippet
+     *            the snippet
+     * @throws Exception
+     *             if an error occurs
+     */
+    protected void beforeParseSnippet(Snippet snippet) throws Exception {
+        // can be overridden by the children
+    }
+
+    /**
+     * This method is called after parsing the run result of a snippet (not called for snippets
+     * which are not supported by the tool).
+     *
+     * @param snippet
+     *            the snippet
+     * @throws Exception
+     *             if an error occurs
+     */
+    protected void afterParseSnippet(Snippet snippet) throws Exception {
+        // can be overridden by the children
+    }
 }
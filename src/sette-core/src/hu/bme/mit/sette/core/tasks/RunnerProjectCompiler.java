@@ -0,0 +1,285 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.bme.mit.sette.common.snippets.JavaVersion;
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings;
+import hu.bme.mit.sette.core.model.snippet.Snippet;
+import hu.bme.mit.sette.core.util.compiler.CompilationDiagnostic;
+import hu.bme.mit.sette.core.util.compiler.CompilationResult;
+import hu.bme.mit.sette.core.util.compiler.JavaCompilationService;
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.NonNull;
+
+/**
+ * Compiles the snippets and the tests of a runner project in-process into its binary directory (the
+ * generated ant build files are kept for manual use). The compilation is incremental, its state is
+ * stored in the {@value #STATE_FILENAME} file of the runner project.
+ */
+public final class RunnerProjectCompiler {
+    private static final Logger LOG = LoggerFactory.getLogger(RunnerProjectCompiler.class);
+
+    /** The name of the file which stores the state of the incremental compilation. */
+    public static final String STATE_FILENAME = ".sette-compilation";
+
+    /** The name of the directory of the snippet inputs (only for the snippet input checker). */
+    private static final String SNIPPET_INPUT_SOURCE_DIRNAME = "snippet-input-src";
+
+    private final RunnerProjectSettings<?> runnerProjectSettings;
+    private final JavaCompilationService compilationService;
+
+    /**
+     * Creates a compiler for a runner project.
+     *
+     * @param runnerProjectSettings
+     *            the settings of the runner project
+     */
+    public RunnerProjectCompiler(@NonNull RunnerProjectSettings<?> runnerProjectSettings) {
+        this.runnerProjectSettings = runnerProjectSettings;
+        this.compilationService = new JavaCompilationService(
+                runnerProjectSettings.getBinaryDirectory().toPath(),
+                runnerProjectSettings.getBaseDir().toPath().resolve(STATE_FILENAME));
+    }
+
+    /**
+     * Sets the maximum number of test batches compiled in parallel.
+     *
+     * @param parallelism
+     *            the parallelism (must be positive)
+     */
+    public void setParallelism(int parallelism) {
+        compilationService.setParallelism(parallelism);
+    }
+
+    /**
+     * Compiles the snippet sources (like the <code>compile</code> target of the ant build file of
+     * the runner project).
+     *
+     * @return the result of the compilation
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws RuntimeException
+     *             if the compilation has failed
+     */
+    public CompilationResult compileSnippets() throws IOException {
+        return compileSnippets(Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Compiles the snippet sources with other sources (like the <code>compile</code> target of the
+     * ant build file of the runner project).
+     *
+     * @param extraSourceDirs
+     *            the other source directories to compile with the snippets (e.g. the generated
+     *            sources)
+     * @param extraClasspath
+     *            the classpath entries besides the snippet libraries
+     * @return the result of the compilation
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws RuntimeException
+     *             if the compilation has failed
+     */
+    public CompilationResult compileSnippets(@NonNull List<Path> extraSourceDirs,
+            @NonNull List<Path> extraClasspath) throws IOException {
+        List<Path> sourceDirs = new ArrayList<>();
+        sourceDirs.add(runnerProjectSettings.getSnippetSourceDirectory().toPath());
+        sourceDirs.addAll(extraSourceDirs);
+
+        List<Path> classpath = new ArrayList<>(extraClasspath);
+        classpath.addAll(getSnippetLibraries());
+
+        return check(compilationService.compile(sourceDirs, classpath, Collections.emptyList(),
+                Collections.emptyList(), true));
+    }
+
+    /**
+     * Compiles the snippet sources and the tests (like the ant build file of the tests). The
+     * snippet sources are compiled with the same classpath as by {@link #compileSnippets()}, thus
+     * they are not recompiled while the tool might be using them. The snippet inputs (with
+     * <code>sette-common</code>) are also compiled for the snippet input checker. The tests are
+     * compiled in parallel batches.
+     *
+     * @param testDir
+     *            the directory of the test sources
+     * @param testLibrary
+     *            the library of the tests (e.g. <code>junit.jar</code>)
+     * @return the result of the compilation
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws RuntimeException
+     *             if the compilation has failed
+     */
+    public CompilationResult compileTests(@NonNull Path testDir, @NonNull Path testLibrary)
+            throws IOException {
+        return compileTests(testDir, Arrays.asList(testDir), testLibrary);
+    }
+
+    /**
+     * Compiles the snippet sources and the tests of one snippet (see
+     * {@link #compileTests(Path, Path)} and {@link #getSnippetTestSources(Path, Snippet)}). The
+     * other tests are only on the source path, thus their errors (e.g. the tests of a previous
+     * snippet which have failed to compile) do not fail the compilation unless the tests of the
+     * snippet use them.
+     *
+     * @param testDir
+     *            the directory of the test sources
+     * @param testLibrary
+     *            the library of the tests (e.g. <code>junit.jar</code>)
+     * @param snippet
+     *            the snippet
+     * @return the result of the compilation
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws RuntimeException
+     *             if the compilation has failed
+     */
+    public CompilationResult compileTests(@NonNull Path testDir, @NonNull Path testLibrary,
+            @NonNull Snippet snippet) throws IOException {
+        return compileTests(testDir, getSnippetTestSources(testDir, snippet), testLibrary);
+    }
+
+    private CompilationResult compileTests(Path testDir, List<Path> testSources,
+            Path testLibrary) throws IOException {
+        List<Path> sourceDirs = new ArrayList<>();
+        sourceDirs.add(runnerProjectSettings.getSnippetSourceDirectory().toPath());
+        List<Path> classpath = new ArrayList<>();
+
+        Path inputSourceDir = runnerProjectSettings.getBaseDir().toPath()
+                .resolve(SNIPPET_INPUT_SOURCE_DIRNAME);
+        if (Files.isDirectory(inputSourceDir)) {
+            sourceDirs.add(inputSourceDir);
+            classpath.add(getSetteCommonLocation());
+        }
+        classpath.addAll(getSnippetLibraries());
+
+        return check(compilationService.compile(sourceDirs, classpath, Arrays.asList(testDir),
+                testSources, Arrays.asList(testLibrary), false));
+    }
+
+    /**
+     * Gets the test sources of a snippet: the files and directories in the package of the snippet
+     * container whose name starts with <code>[container]_[snippet]_</code> (e.g. the test class or
+     * package <code>[container]_[snippet]_Test</code> and the other classes generated by the tool
+     * for the snippet), except the ones of the other snippets whose name has the same prefix.
+     *
+     * @param testDir
+     *            the directory of the test sources
+     * @param snippet
+     *            the snippet
+     * @return the test source files and directories of the snippet
+     * @throws IOException
+     *             if the package directory cannot be listed
+     */
+    public static List<Path> getSnippetTestSources(@NonNull Path testDir,
+            @NonNull Snippet snippet) throws IOException {
+        Class<?> javaClass = snippet.getContainer().getJavaClass();
+        Path packageDir = testDir.resolve(javaClass.getName().replace('.', '/')).getParent();
+        if (!Files.isDirectory(packageDir)) {
+            return Collections.emptyList();
+        }
+
+        String prefix = javaClass.getSimpleName() + '_' + snippet.getName() + '_';
+        List<String> otherPrefixes = snippet.getContainer().getSnippets().values().stream()
+                .map(other -> javaClass.getSimpleName() + '_' + other.getName() + '_')
+                .filter(other -> other.length() > prefix.length() && other.startsWith(prefix))
+                .collect(Collectors.toList());
+
+        try (Stream<Path> files = Files.list(packageDir)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(prefix)
+                        && otherPrefixes.stream().noneMatch(name::startsWith);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the location (JAR or directory) of the <code>sette-common</code> classes.
+     *
+     * @return the location of <code>sette-common</code>
+     */
+    public static Path getSetteCommonLocation() {
+        try {
+            return Paths.get(JavaVersion.class.getProtectionDomain().getCodeSource().getLocation()
+                    .toURI());
+        } catch (URISyntaxException ex) {
+            throw new RuntimeException("Cannot locate sette-common", ex);
+        }
+    }
+
+    private List<Path> getSnippetLibraries() throws IOException {
+        Path libDir = runnerProjectSettings.getSnippetLibraryDirectory().toPath();
+        if (!Files.isDirectory(libDir)) {
+            return Collections.emptyList();
+        }
+
+        try (Stream<Path> files = PathUtils.walk(libDir)) {
+            return files.filter(file -> file.toString().endsWith(".jar")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private CompilationResult check(CompilationResult result) {
+        LOG.info("Compiled {} source(s) in {} ms ({} up-to-date): {}",
+                result.getCompiledSourceCount(), result.getElapsedTimeInMs(),
+                result.getUpToDateSourceCount(), runnerProjectSettings.getProjectName());
+
+        for (CompilationDiagnostic diagnostic : result.getDiagnostics()) {
+            if (!diagnostic.isError()) {
+                LOG.debug(diagnostic.format());
+            }
+        }
+
+        if (!result.isSuccess()) {
+            List<String> messages = result.getErrors().stream()
+                    .map(CompilationDiagnostic::format).collect(Collectors.toList());
+            result.getFailedSources().stream()
+                    .filter(source -> result.getErrors().stream()
+                            .noneMatch(error -> source.equals(error.getSourceFile())))
+                    .forEach(source -> messages.add(source + ": unchanged since it has failed"));
+            String errors = String.join("\n", messages);
+            LOG.error("The compilation has failed: {}\n{}",
+                    runnerProjectSettings.getProjectName(), errors);
+            throw new RuntimeException("The compilation has failed: "
+                    + runnerProjectSettings.getProjectName() + "\n" + errors);
+        }
+
+        return result;
+    }
+}
@@ -23,19 +23,35 @@
 // NOTE revise this file
 package hu.bme.mit.sette.core.tasks;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
+import com.google.common.base.Preconditions;
+
 import hu.bme.mit.sette.core.SetteException;
 import hu.bme.mit.sette.core.configuration.SetteConfigurationException;
 import hu.bme.mit.sette.core.exceptions.RunnerProjectRunnerException;
+import hu.bme.mit.sette.core.model.runner.RunnerJournal;
+import hu.bme.mit.sette.core.model.runner.RunnerJournal.Entry;
+import hu.bme.mit.sette.core.model.runner.RunnerJournal.Status;
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
@@ -46,6 +62,7 @@ import hu.bme.mit.sette.core.util.io.PathUtils;
 import hu.bme.mit.sette.core.util.process.ProcessExecutionResult;
 import hu.bme.mit.sette.core.util.process.ProcessExecutor;
 import hu.bme.mit.sette.core.util.process.ProcessExecutorListener;
+import hu.bme.mit.sette.core.util.process.ProcessResourceUsage;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -60,16 +77,50 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
     /** The poll interval for {@link ProcessExecutor} objects. */
     public static final int POLL_INTERVAL = 100;
 
+    /**
+     * The prefix of the line in the info file which contains the resource limit exceeded by the
+     * tool (the line is missing if no limit was exceeded).
+     */
+    public static final String LIMIT_EXCEEDED_INFO_PREFIX = "Limit exceeded: ";
+
     /** The default timeout for called processes. */
     private static final int DEFAULT_TIMEOUT = 30000;
 
     /** The timeout in ms for the called processes. */
     private int timeoutInMs;
 
+    /** The maximum number of snippets on which the tool is run at the same time. */
+    private int parallelism = 1;
+
+    /** The interval of sampling the resource usage of the tool processes. */
+    private int resourceSamplingIntervalInMs = 500;
+
     @Getter
     @Setter
     private Pattern snippetSelector = null;
 
+    /**
+     * <code>true</code> if the previous run should be continued, i.e. the previous outputs are
+     * kept and the snippets which have already been completed are skipped.
+     */
+    @Getter
+    @Setter
+    private boolean resume = false;
+
+    /**
+     * The listener which is notified when the tool has finished on a snippet (<code>null</code> if
+     * none). If it is set, the working directories of the snippets are not merged by the runner.
+     */
+    @Getter
+    @Setter
+    private SnippetRunListener snippetRunListener = null;
+
+    /** The journal of the current run. */
+    private RunnerJournal journal;
+
+    /** The number of snippets on which the run has failed with an exception. */
+    private final AtomicInteger failedSnippetCount = new AtomicInteger();
+
     /**
      * Instantiates a new runner project runner.
      *
@@ -105,6 +156,73 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
         this.timeoutInMs = timeoutInMs;
     }
 
+    /**
+     * Gets the maximum number of snippets on which the tool is run at the same time.
+     *
+     * @return the maximum number of snippets on which the tool is run at the same time
+     */
+    public final int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the maximum number of snippets on which the tool is run at the same time. If the tool
+     * does not support parallel execution, the snippets will be processed sequentially.
+     *
+     * @param parallelism
+     *            the maximum number of snippets on which the tool is run at the same time (1 means
+     *            sequential execution)
+     */
+    public final void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1, "The parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the interval of sampling the resource usage (CPU time, memory, I/O, threads) of the tool
+     * processes.
+     *
+     * @return the sampling interval in milliseconds
+     */
+    public final int getResourceSamplingIntervalInMs() {
+        return this.resourceSamplingIntervalInMs;
+    }
+
+    /**
+     * Sets the interval of sampling the resource usage (CPU time, memory, I/O, threads) of the tool
+     * processes.
+     *
+     * @param resourceSamplingIntervalInMs
+     *            the sampling interval in milliseconds
+     */
+    public final void setResourceSamplingIntervalInMs(int resourceSamplingIntervalInMs) {
+        Preconditions.checkArgument(resourceSamplingIntervalInMs >= 1,
+                "The resource sampling interval must be positive");
+        this.resourceSamplingIntervalInMs = resourceSamplingIntervalInMs;
+    }
+
+    /**
+     * Returns whether the snippets are run in parallel, i.e. the parallelism is greater than one
+     * and the tool supports it.
+     *
+     * @return <code>true</code> if the snippets are run in parallel, otherwise <code>false</code>
+     */
+    protected final boolean isParallel() {
+        return parallelism > 1 && supportsParallelExecution();
+    }
+
+    /**
+     * Returns whether the tool uses a separate working directory for each snippet, i.e. the tool
+     * supports it and the snippets are run in parallel or processed by a
+     * {@link SnippetRunListener} while the runner is still running.
+     *
+     * @return <code>true</code> if each snippet has its own working directory, otherwise
+     *         <code>false</code>
+     */
+    protected final boolean usesSnippetWorkingDirectories() {
+        return supportsParallelExecution() && (parallelism > 1 || snippetRunListener != null);
+    }
+
     /**
      * Runs the runner project.
      *
@@ -144,11 +262,10 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
 
             if (loggerStream != null) {
                 loggerStream.println("Log file: " + runnerLogFile.getCanonicalPath());
-                runnerLogger = new PrintStream(
-                        new SplitterOutputStream(new FileOutputStream(runnerLogFile), loggerStream),
-                        true);
+                runnerLogger = new PrintStream(new SplitterOutputStream(
+                        new FileOutputStream(runnerLogFile, resume), loggerStream), true);
             } else {
-                runnerLogger = new PrintStream(new FileOutputStream(runnerLogFile), true);
+                runnerLogger = new PrintStream(new FileOutputStream(runnerLogFile, resume), true);
             }
 
             // run all
@@ -192,17 +309,23 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
 
     /**
      * Prepares the running of the runner project, i.e. make everything ready for the execution.
+     * The previous outputs are only kept if the run is resumed.
      *
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      */
     private void prepare() throws IOException {
         // delete previous outputs
-        if (getRunnerProjectSettings().getRunnerOutputDirectory().exists()) {
+        if (!resume && getRunnerProjectSettings().getRunnerOutputDirectory().exists()) {
             Path dir = getRunnerProjectSettings().getRunnerOutputDirectory().toPath();
             PathUtils.delete(dir);
         }
 
+        // delete previous working directories (they might contain unmerged tests if resumed)
+        if (!resume) {
+            PathUtils.deleteIfExists(getRunnerProjectSettings().getRunnerWorkDirectory().toPath());
+        }
+
         // create output directory
         PathUtils.createDir(getRunnerProjectSettings().getRunnerOutputDirectory().toPath());
     }
@@ -213,7 +336,28 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
     }
 
     /**
-     * Runs the tool on all the snippets.
+     * Listener which is notified when the tool has finished on a snippet.
+     */
+    @FunctionalInterface
+    public static interface SnippetRunListener {
+        /**
+         * Called when the tool has finished on a snippet (it may be called from several threads if
+         * the snippets are run in parallel). It is also called for the snippets which are skipped
+         * because they have been completed by the resumed run. If the snippets have their own
+         * working directories, the listener must call
+         * {@link RunnerProjectRunner#mergeWorkingDirectory(Snippet)}.
+         *
+         * @param snippet
+         *            the snippet
+         * @param status
+         *            the status of the snippet as recorded in the journal
+         */
+        void onSnippetFinished(Snippet snippet, Status status);
+    }
+
+    /**
+     * Runs the tool on all the snippets. If the run is resumed, the snippets which have already
+     * been completed are skipped. The failure of a snippet does not stop the run.
      *
      * @param runnerLoggerOut
      *            the {@link PrintStream} of the logger
@@ -221,7 +365,19 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
      *             Signals that an I/O exception has occurred.
      */
     private void runAll(PrintStream runnerLoggerOut) throws IOException {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        if (parallelism > 1 && !supportsParallelExecution()) {
+            String msg = String.format("%s does not support parallel execution, "
+                    + "running the snippets sequentially", getTool().getName());
+            runnerLoggerOut.println(msg);
+            log.warn(msg);
+        }
+
+        journal = RunnerJournal.of(getRunnerProjectSettings());
+        failedSnippetCount.set(0);
+        Map<String, Entry> journalEntries = resume ? journal.read()
+                : Collections.emptyMap();
+
+        List<Snippet> snippets = new ArrayList<>();
 
         // foreach containers
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
@@ -247,29 +403,219 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
                     continue;
                 }
 
-                String filenameBase = getFilenameBase(snippet);
-
-                File infoFile = RunnerProjectUtils.getSnippetInfoFile(getRunnerProjectSettings(),
-                        snippet);
-                File outputFile = RunnerProjectUtils
-                        .getSnippetOutputFile(getRunnerProjectSettings(), snippet);
-                File errorFile = RunnerProjectUtils.getSnippetErrorFile(getRunnerProjectSettings(),
-                        snippet);
-
-                try {
-                    String timestamp = dateFormat.format(new Date());
-                    runnerLoggerOut
-                            .println("[" + timestamp + "] Running for snippet: " + filenameBase);
-                    this.runOne(snippet, infoFile, outputFile, errorFile);
-                    this.cleanUp();
-                } catch (Exception ex) {
-                    runnerLoggerOut.println("Exception: " + ex.getMessage());
-                    runnerLoggerOut.println("==========");
-                    ex.printStackTrace(runnerLoggerOut);
-                    runnerLoggerOut.println("==========");
-                    throw new RuntimeException(ex);
+                if (resume && isCompleted(snippet, journalEntries.get(snippet.getId()))) {
+                    String msg = String.format("Skipping %s (already completed)", snippet.getId());
+                    runnerLoggerOut.println(msg);
+                    log.info(msg);
+
+                    if (snippetRunListener != null) {
+                        snippetRunListener.onSnippetFinished(snippet, Status.COMPLETED);
+                    }
+                    continue;
+                }
+
+                snippets.add(snippet);
+            }
+        }
+
+        if (isParallel()) {
+            runAllInParallel(snippets, runnerLoggerOut);
+        } else {
+            for (Snippet snippet : snippets) {
+                runSnippet(snippet, runnerLoggerOut);
+            }
+        }
+
+        if (failedSnippetCount.get() > 0) {
+            String msg = String.format("The run has failed for %d snippet(s), see the runner log "
+                    + "and the journal for details", failedSnippetCount.get());
+            runnerLoggerOut.println(msg);
+            log.error(msg);
+        }
+    }
+
+    /**
+     * Decides whether the tool has already been run on the snippet, i.e. its info, output and error
+     * files exist and the journal does not record a failure for it.
+     *
+     * @param snippet
+     *            the snippet
+     * @param journalEntry
+     *            the last journal entry of the snippet or <code>null</code> if there is none
+     * @return <code>true</code> if the snippet can be skipped, otherwise <code>false</code>
+     */
+    private boolean isCompleted(Snippet snippet, Entry journalEntry) {
+        if (journalEntry != null && journalEntry.getStatus() != Status.COMPLETED) {
+            return false;
+        }
+
+        // the info file is written after the process has finished
+        return RunnerProjectUtils.getSnippetInfoFile(getRunnerProjectSettings(), snippet).exists()
+                && RunnerProjectUtils.getSnippetOutputFile(getRunnerProjectSettings(), snippet)
+                        .exists()
+                && RunnerProjectUtils.getSnippetErrorFile(getRunnerProjectSettings(), snippet)
+                        .exists();
+    }
+
+    /**
+     * Runs the tool on the snippets using a pool of {@link #parallelism} threads. The log lines of
+     * each snippet are buffered and written to the runner log together when the snippet is done.
+     * The processes are only cleaned up after all the snippets since the clean up might kill the
+     * processes of the other snippets.
+     *
+     * @param snippets
+     *            the snippets to run the tool on
+     * @param runnerLoggerOut
+     *            the {@link PrintStream} of the logger
+     */
+    private void runAllInParallel(List<Snippet> snippets, PrintStream runnerLoggerOut) {
+        log.info("Running {} snippets on {} threads", snippets.size(), parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Snippet snippet : snippets) {
+                futures.add(executor.submit(() -> {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    try (PrintStream snippetLoggerOut = new PrintStream(buffer, true)) {
+                        runSnippet(snippet, snippetLoggerOut);
+                    } finally {
+                        synchronized (runnerLoggerOut) {
+                            runnerLoggerOut.print(buffer.toString());
+                            runnerLoggerOut.flush();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            // wait for all the snippets (or the first failure)
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException("The parallel run was interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the tool on one snippet, logs it and records the outcome in the journal. After the run,
+     * the processes are cleaned up in case of sequential execution, otherwise the working directory
+     * of the snippet is merged. If the run fails, the exception is logged and it is not propagated.
+     *
+     * @param snippet
+     *            the snippet
+     * @param runnerLoggerOut
+     *            the {@link PrintStream} of the logger
+     */
+    private void runSnippet(Snippet snippet, PrintStream runnerLoggerOut) {
+        String filenameBase = getFilenameBase(snippet);
+
+        File infoFile = RunnerProjectUtils.getSnippetInfoFile(getRunnerProjectSettings(),
+                snippet);
+        File outputFile = RunnerProjectUtils
+                .getSnippetOutputFile(getRunnerProjectSettings(), snippet);
+        File errorFile = RunnerProjectUtils.getSnippetErrorFile(getRunnerProjectSettings(),
+                snippet);
+
+        long startTime = System.nanoTime();
+        Status status;
+        try {
+            // NOTE SimpleDateFormat is not thread-safe
+            String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+            runnerLoggerOut.println("[" + timestamp + "] Running for snippet: " + filenameBase);
+
+            // remove the outputs of an interrupted previous run
+            if (resume) {
+                PathUtils.deleteIfExists(infoFile.toPath());
+                PathUtils.deleteIfExists(outputFile.toPath());
+                PathUtils.deleteIfExists(errorFile.toPath());
+
+                if (usesSnippetWorkingDirectories()) {
+                    PathUtils.deleteIfExists(getWorkingDirectory(snippet).toPath());
                 }
             }
+
+            this.runOne(snippet, infoFile, outputFile, errorFile);
+
+            if (usesSnippetWorkingDirectories() && snippetRunListener == null) {
+                mergeWorkingDirectory(snippet);
+            }
+            if (!isParallel()) {
+                this.cleanUp();
+            }
+            status = Status.COMPLETED;
+        } catch (Exception ex) {
+            runnerLoggerOut.println("Exception: " + ex.getMessage());
+            runnerLoggerOut.println("==========");
+            ex.printStackTrace(runnerLoggerOut);
+            runnerLoggerOut.println("==========");
+            log.error("The run has failed for snippet: " + snippet.getId(), ex);
+            failedSnippetCount.incrementAndGet();
+            status = Status.FAILED;
+        }
+
+        long elapsedTimeInMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        try {
+            journal.append(new Entry(snippet.getId(), status, readExitValue(infoFile),
+                    elapsedTimeInMs));
+        } catch (IOException ex) {
+            // the journal is essential for resuming, so do not continue without it
+            throw new RuntimeException("Cannot write the runner journal", ex);
+        }
+
+        if (snippetRunListener != null) {
+            snippetRunListener.onSnippetFinished(snippet, status);
+        }
+    }
+
+    /**
+     * Reads the exit value of the tool process from the info file.
+     *
+     * @param infoFile
+     *            the info file
+     * @return the exit value or <code>null</code> if the info file does not exist or does not
+     *         contain it
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static Integer readExitValue(File infoFile) throws IOException {
+        // example: Exit value: 0
+        for (String line : PathUtils.readAllLinesOrEmpty(infoFile.toPath())) {
+            if (line.startsWith("Exit value:")) {
+                return Integer.valueOf(line.substring("Exit value:".length()).trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies the tests generated into the working directory of the snippet to the test directory
+     * of the runner project. The rest of the working directory is kept for further inspection. If
+     * the snippets do not have their own working directories, this method does nothing.
+     *
+     * @param snippet
+     *            the snippet
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public final void mergeWorkingDirectory(Snippet snippet) throws IOException {
+        if (!usesSnippetWorkingDirectories()) {
+            return;
+        }
+
+        File workingDirectory = getWorkingDirectory(snippet);
+        Path workingTestDir = new File(workingDirectory, RunnerProjectSettings.TEST_DIRNAME)
+                .toPath();
+
+        if (PathUtils.exists(workingTestDir)) {
+            PathUtils.copy(workingTestDir,
+                    getRunnerProjectSettings().getTestDirectory().toPath());
+            PathUtils.delete(workingTestDir);
         }
     }
 
@@ -325,25 +671,64 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
             throws IOException, SetteException;
 
     /**
-     * Cleans up the processes, i.e. kills undesired and stuck processes.
+     * Cleans up after the runs. The process tree of the tool is terminated by the
+     * {@link ProcessExecutor} after each run, thus by default there is nothing to do.
      *
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      * @throws SetteException
      *             if a SETTE problem occurred
      */
-    public abstract void cleanUp() throws IOException, SetteException;
+    public void cleanUp() throws IOException, SetteException {
+        // nothing to do
+    }
 
     protected static final String getFilenameBase(Snippet snippet) {
         return snippet.getContainer().getJavaClass().getName().replace('.', '/') + "_"
                 + snippet.getMethod().getName();
     }
 
+    /**
+     * Returns whether the tool can be run on several snippets at the same time. If a tool supports
+     * it, it must only write into the working directory of the snippet (see
+     * {@link #getWorkingDirectory(Snippet)}) besides the snippet-specific files and it must not
+     * rely on {@link #cleanUp()} being called after each snippet.
+     *
+     * @return <code>true</code> if the tool can be run in parallel, otherwise <code>false</code>
+     */
+    public boolean supportsParallelExecution() {
+        return false;
+    }
+
+    /**
+     * Gets the working directory of the tool process for the snippet. It is a separate directory
+     * for each snippet if {@link #usesSnippetWorkingDirectories()} (the generated tests in its
+     * <code>test</code> subdirectory are copied to the runner project after the tool has
+     * finished), otherwise the runner project directory.
+     *
+     * @param snippet
+     *            the snippet
+     * @return the working directory for the snippet
+     */
+    protected final File getWorkingDirectory(Snippet snippet) {
+        if (usesSnippetWorkingDirectories()) {
+            return RunnerProjectUtils.getSnippetWorkingDirectory(getRunnerProjectSettings(),
+                    snippet);
+        } else {
+            return getRunnerProjectSettings().getBaseDir();
+        }
+    }
+
     protected final void executeToolProcess(List<String> command, File infoFile, File outputFile,
             File errorFile) {
-        infoFile.getParentFile().mkdirs();
+        executeToolProcess(command, getRunnerProjectSettings().getBaseDir(), infoFile, outputFile,
+                errorFile);
+    }
 
-        File workingDirectory = getRunnerProjectSettings().getBaseDir();
+    protected final void executeToolProcess(List<String> command, File workingDirectory,
+            File infoFile, File outputFile, File errorFile) {
+        infoFile.getParentFile().mkdirs();
+        workingDirectory.mkdirs();
 
         ProcessBuilder pb = new ProcessBuilder(command).directory(workingDirectory);
         pb.redirectOutput(outputFile);
@@ -352,6 +737,8 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
         try {
             ProcessExecutor pe = new ProcessExecutor(pb,
                     shouldKillAfterTimeout() ? getTimeoutInMs() : 0);
+            pe.setSamplingIntervalInMs(resourceSamplingIntervalInMs);
+            pe.setResourceLimits(getTool().getResourceLimits());
             pe.execute(new ProcessExecutorListener() {
                 @Override
                 public void onComplete(ProcessExecutionResult result) {
@@ -369,8 +756,28 @@ public abstract class RunnerProjectRunner<T extends Tool> extends EvaluationTask
                     }
                     infoData.append('\n');
 
+                    if (result.getExceededLimit() != null) {
+                        infoData.append(LIMIT_EXCEEDED_INFO_PREFIX)
+                                .append(result.getExceededLimit()).append('\n');
+                    }
+
                     infoData.append("Elapsed time: ").append(result.getElapsedTimeInMs())
                             .append(" ms\n");
+
+                    ProcessResourceUsage usage = result.getResourceUsage();
+                    if (usage != null) {
+                        infoData.append("User CPU time: ").append(usage.getUserCpuTimeInMs())
+                                .append(" ms\n");
+                        infoData.append("System CPU time: ").append(usage.getSystemCpuTimeInMs())
+                                .append(" ms\n");
+                        infoData.append("Peak RSS: ").append(usage.getPeakRssInKb())
+                                .append(" kB\n");
+                        infoData.append("Read bytes: ").append(usage.getReadBytes()).append('\n');
+                        infoData.append("Written bytes: ").append(usage.getWrittenBytes())
+                                .append('\n');
+                        infoData.append("Peak thread count: ").append(usage.getPeakThreadCount())
+                                .append('\n');
+                    }
                     try {
                         PathUtils.write(infoFile.toPath(), infoData.toString().getBytes());
                     } catch (IOException ex) {
@@ -35,9 +35,6 @@ import java.util.List;
 
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.convert.AnnotationStrategy;
-import org.simpleframework.xml.core.Persister;
 
 import com.google.common.io.Resources;
 import com.google.common.primitives.Primitives;
@@ -47,6 +44,7 @@ import hu.bme.mit.sette.core.model.parserxml.AbstractParameterElement;
 import hu.bme.mit.sette.core.model.parserxml.InputElement;
 import hu.bme.mit.sette.core.model.parserxml.ParameterElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec.InputIterator;
 import hu.bme.mit.sette.core.model.runner.ParameterType;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
@@ -104,19 +102,7 @@ public final class TestSuiteGenerator extends EvaluationTask<Tool> {
                     "Run the tool on the runner project first (and then parse)", this);
         }
 
-        File testDir = getRunnerProjectSettings().getTestDirectory();
-
-        // FIXME
-        if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
-            if (testDir.exists()) {
-                System.out.println("Removing test dir");
-                PathUtils.delete(testDir.toPath());
-            }
-        }
-
-        PathUtils.createDir(testDir.toPath());
-
-        Serializer serializer = new Persister(new AnnotationStrategy());
+        prepare();
 
         //
         // Generate test classes
@@ -124,115 +110,33 @@ public final class TestSuiteGenerator extends EvaluationTask<Tool> {
 
         // foreach containers
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
-            // skip container with higher java version than supported
-            if (container.getRequiredJavaVersion()
-                    .compareTo(getTool().getSupportedJavaVersion()) > 0) {
-                // TODO error handling
-                System.err.println("Skipping container: " + container.getJavaClass().getName()
-                        + " (required Java version: " + container.getRequiredJavaVersion() + ")");
-                continue;
-            }
-
             // foreach snippets
             for (Snippet snippet : container.getSnippets().values()) {
-                File inputsXmlFile = RunnerProjectUtils
-                        .getSnippetInputsFile(getRunnerProjectSettings(), snippet);
-
-                if (!inputsXmlFile.exists()) {
-                    System.err.println("Missing: " + inputsXmlFile);
-                    continue;
-                }
-
-                // save current class loader
-                ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-
-                // set snippet project class loader
-                Thread.currentThread().setContextClassLoader(getSnippetProject().getClassLoader());
-
-                // read data
-                SnippetInputsXml inputsXml = serializer.read(SnippetInputsXml.class, inputsXmlFile);
-
-                // set back the original class loader
-                Thread.currentThread().setContextClassLoader(originalClassLoader);
-
-                // fail if NC
-                if (inputsXml.getResultType() == ResultType.NC) {
-                    throw new RuntimeException(
-                            "Parsed result should be never NC! Snipept: " + snippet.getId());
-                }
-                // skip N/A, EX, T/M and C
-                if (inputsXml.getResultType() != ResultType.S) {
-                    System.err.println("Skipping " + inputsXml.getResultType() + " file: "
-                            + inputsXmlFile.getName());
-                    continue;
-                }
-
-                if (inputsXml.getGeneratedInputCount() == 0
-                        && getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
-                    System.err.println("No inputs: " + inputsXmlFile.getName());
-                }
-
-                Class<?> javaClass = container.getJavaClass();
-                Package pkg = javaClass.getPackage();
-                Method method = snippet.getMethod();
-
-                // FIXME
-                if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
-                    StringBuilder java = new StringBuilder();
-
-                    String classSimpleName = javaClass.getSimpleName() + '_' + method.getName()
-                            + "_Test";
-                    String className = pkg.getName() + "." + classSimpleName;
-
-                    java.append("package ").append(pkg.getName()).append(";\n");
-                    java.append("\n");
-                    java.append("import junit.framework.TestCase;\n");
-                    java.append("import ").append(container.getJavaClass().getName()).append(";\n");
-                    java.append("\n");
-                    java.append("public final class ").append(classSimpleName)
-                            .append(" extends TestCase {\n");
-
-                    int i = 0;
-                    for (InputElement inputElement : inputsXml.getGeneratedInputs()) {
-                        i++;
-
-                        CharSequence javaMethod = generateTestCaseMethod(snippet, i, inputElement);
-                        if (javaMethod != null) {
-                            java.append(javaMethod);
-                        }
-                    }
-
-                    java.append("}\n");
+                generateOne(snippet);
+            }
+        }
+    }
 
-                    File testFile = new File(testDir, className.replace('.', '/') + ".java");
-                    PathUtils.write(testFile.toPath(), java.toString().getBytes());
+    /**
+     * Prepares the test directory and generates the ant build file for the tests (and copies
+     * junit.jar) if they do not exist.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void prepare() throws IOException {
+        File testDir = getRunnerProjectSettings().getTestDirectory();
 
-                    // import junit.framework.TestCase;
-                    // import
-                    // hu.bme.mit.sette.snippets._1_basic.B2_conditionals.B2a_IfElse;
-                    //
-                    // public final class B2a_IfElse_oneParamInt_Test extends
-                    // TestCase {
-                    // public void test_1() {
-                    // B2a_IfElse.oneParamInt(1);
-                    // }
-                    //
-                    // public void test_2() {
-                    // B2a_IfElse.oneParamInt(0);
-                    // }
-                    //
-                    // public void test_3() {
-                    // B2a_IfElse.oneParamInt(-1);
-                    // }
-                    //
-                    // public void test_4() {
-                    // B2a_IfElse.oneParamInt(12345);
-                    // }
-                    // }
-                }
+        // FIXME
+        if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
+            if (testDir.exists()) {
+                System.out.println("Removing test dir");
+                PathUtils.delete(testDir.toPath());
             }
         }
 
+        PathUtils.createDir(testDir.toPath());
+
         //
         // Generate ant build file and copy junit.jar
         //
@@ -248,6 +152,101 @@ public final class TestSuiteGenerator extends EvaluationTask<Tool> {
         }
     }
 
+    /**
+     * Generates the test class for one snippet from its inputs XML (only if the tool generates
+     * input values and the result is S). {@link #prepare()} must be called before.
+     *
+     * @param snippet
+     *            the snippet
+     * @throws Exception
+     *             if the generation fails
+     */
+    public void generateOne(Snippet snippet) throws Exception {
+        SnippetContainer container = snippet.getContainer();
+
+        // skip container with higher java version than supported
+        if (container.getRequiredJavaVersion()
+                .compareTo(getTool().getSupportedJavaVersion()) > 0) {
+            // TODO error handling
+            System.err.println("Skipping container: " + container.getJavaClass().getName()
+                    + " (required Java version: " + container.getRequiredJavaVersion() + ")");
+            return;
+        }
+
+        File testDir = getRunnerProjectSettings().getTestDirectory();
+        // the inputs are only read (one by one) if the test suite is generated
+        SnippetInputsXml inputsXml = readSnippetInputsHeader(snippet);
+        if (inputsXml == null) {
+            System.err.println("Missing inputs: " + snippet.getId());
+            return;
+        }
+
+        // fail if NC
+        if (inputsXml.getResultType() == ResultType.NC) {
+            throw new RuntimeException(
+                    "Parsed result should be never NC! Snipept: " + snippet.getId());
+        }
+        // skip N/A, EX, T/M and C
+        if (inputsXml.getResultType() != ResultType.S) {
+            System.err.println("Skipping " + inputsXml.getResultType() + " snippet: "
+                    + snippet.getId());
+            return;
+        }
+
+        if (inputsXml.getGeneratedInputCount() == 0
+                && getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
+            System.err.println("No inputs: " + snippet.getId());
+        }
+
+        Class<?> javaClass = container.getJavaClass();
+        Package pkg = javaClass.getPackage();
+        Method method = snippet.getMethod();
+
+        // FIXME
+        if (getTool().getOutputType() == ToolOutputType.INPUT_VALUES) {
+            StringBuilder java = new StringBuilder();
+
+            String classSimpleName = javaClass.getSimpleName() + '_' + method.getName()
+                    + "_Test";
+            String className = pkg.getName() + "." + classSimpleName;
+
+            java.append("package ").append(pkg.getName()).append(";\n");
+            java.append("\n");
+            java.append("import junit.framework.TestCase;\n");
+            java.append("import ").append(container.getJavaClass().getName()).append(";\n");
+            java.append("\n");
+            java.append("public final class ").append(classSimpleName)
+                    .append(" extends TestCase {\n");
+
+            try (InputIterator inputs = openSnippetInputs(snippet)) {
+                int i = 0;
+                while (inputs.hasNext()) {
+                    i++;
+
+                    CharSequence javaMethod = generateTestCaseMethod(snippet, i, inputs.next());
+                    if (javaMethod != null) {
+                        java.append(javaMethod);
+                    }
+                }
+            }
+
+            java.append("}\n");
+
+            File testFile = new File(testDir, className.replace('.', '/') + ".java");
+            PathUtils.write(testFile.toPath(), java.toString().getBytes());
+
+            // import junit.framework.TestCase;
+            // import
+            // hu.bme.mit.sette.snippets._1_basic.B2_conditionals.B2a_IfElse;
+            //
+            // public final class B2a_IfElse_oneParamInt_Test extends
+            // TestCase {
+            // public void test_1() {
+            // B2a_IfElse.oneParamInt(1);
+            // }
+        }
+    }
+
     private static CharSequence generateTestCaseMethod(Snippet snippet, int i,
             InputElement inputElement) {
         Class<?> javaClass = snippet.getContainer().getJavaClass();
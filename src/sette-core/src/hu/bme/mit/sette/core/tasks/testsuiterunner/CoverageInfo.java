@@ -1,82 +1,80 @@
 package hu.bme.mit.sette.core.tasks.testsuiterunner;
 
-import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
-import org.apache.commons.lang3.tuple.Triple;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jacoco.core.analysis.IClassCoverage;
 
 import lombok.NonNull;
 
+/**
+ * Line coverage of source files.
+ */
 public final class CoverageInfo {
-    // FIXME insane data structure
-    // key: source file
-    // value: tuple of FULLY, PARTLY and NOT covered line numbers sets (green, yellow, red)
-    public final Map<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> data;
+    // key: source file (e.g. hu/bme/mit/sette/snippets/_1_basic/B3_loops/B3c_DoWhile.java)
+    private final SortedMap<String, LineCoverage> files = new TreeMap<>();
+
+    /**
+     * Gets the line coverage of the files.
+     *
+     * @return an unmodifiable map, the key is the file name
+     */
+    public SortedMap<String, LineCoverage> getFiles() {
+        return Collections.unmodifiableSortedMap(files);
+    }
 
-    public CoverageInfo() {
-        this.data = new HashMap<>();
+    /**
+     * Gets the line coverage of the specified file.
+     *
+     * @param file
+     *            the name of the file
+     * @return the line coverage or <code>null</code> if the file is not present
+     */
+    public LineCoverage get(@NonNull String file) {
+        return files.get(file);
     }
 
-    public CoverageInfo(
-            @NonNull Map<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> data) {
-        this.data = data;
+    /**
+     * Gets the line coverage of the specified file, creates an empty one if it is not present.
+     *
+     * @param file
+     *            the name of the file
+     * @return the line coverage
+     */
+    public LineCoverage getOrCreate(@NonNull String file) {
+        return files.computeIfAbsent(file, f -> new LineCoverage());
     }
 
-    public String toJsonString() {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, List<SortedSet<Integer>>> jsonData = new HashMap<>();
+    /**
+     * Adds the line coverage of a class which was analyzed by JaCoCo.
+     *
+     * @param classCoverage
+     *            the coverage of the class
+     */
+    public void add(@NonNull IClassCoverage classCoverage) {
+        String file = classCoverage.getPackageName() + '/' + classCoverage.getSourceFileName();
+        file = file.replace('\\', '/');
 
-            for (String filename : data.keySet()) {
-                Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>> tuple = data
-                        .get(filename);
-                List<SortedSet<Integer>> tupleList = Arrays.asList(tuple.getLeft(),
-                        tuple.getMiddle(),
-                        tuple.getRight());
-                jsonData.put(filename, tupleList);
-            }
+        LineCoverage lineCoverage = getOrCreate(file);
 
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonData);
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException("Cannot convert to JSON: " + this, ex);
+        for (int l = classCoverage.getFirstLine(); l <= classCoverage.getLastLine(); l++) {
+            lineCoverage.add(l, LineStatus.fromJaCoCo(classCoverage.getLine(l).getStatus()));
         }
     }
 
-    public static CoverageInfo fromJsonString(String jsonString) throws IOException {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-
-            Map<String, List<SortedSet<Integer>>> jsonData = mapper.readValue(jsonString,
-                    new TypeReference<Map<String, List<SortedSet<Integer>>>>() {
-                        // type reference for jackson
-                    });
-
-            Map<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> data = new HashMap<>();
-
-            for (String filename : jsonData.keySet()) {
-                List<SortedSet<Integer>> tupleList = jsonData.get(filename);
-
-                if (tupleList.size() != 3) {
-                    throw new RuntimeException(
-                            "A tuple list was found with != 3 elements: " + jsonString);
-                }
-
-                Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>> tuple = Triple
-                        .of(tupleList.get(0), tupleList.get(1), tupleList.get(2));
-                data.put(filename, tuple);
-            }
+    /**
+     * Merges the specified coverage info into this one.
+     *
+     * @param other
+     *            the other coverage info
+     */
+    public void merge(@NonNull CoverageInfo other) {
+        other.files.forEach((file, lineCoverage) -> getOrCreate(file).merge(lineCoverage));
+    }
 
-            return new CoverageInfo(data);
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException("Cannot parse JSON: " + jsonString);
-        }
+    @Override
+    public String toString() {
+        return "CoverageInfo " + files;
     }
 }
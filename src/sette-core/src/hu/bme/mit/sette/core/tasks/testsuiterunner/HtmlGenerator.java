@@ -2,20 +2,102 @@ package hu.bme.mit.sette.core.tasks.testsuiterunner;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringEscapeUtils;
 
 import hu.bme.mit.sette.core.model.parserxml.FileCoverageElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetCoverageXml;
+import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.tasks.EvaluationTask;
 import hu.bme.mit.sette.core.tool.Tool;
 import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
 
+/**
+ * Generates the HTML coverage report of a runner project: one page per snippet (the source files
+ * with the coloured lines) and an index page of all the snippets. The source files are read only
+ * once and the pages are written directly into the files.
+ * <p>
+ * The class is thread-safe, the pages of the snippets may be generated in parallel.
+ */
 public final class HtmlGenerator {
+    private static final String STYLE = String.join("\n",
+            "       <style type=\"text/css\">",
+            "               .code { font-family: 'Consolas', monospace; }",
+            "               .code .line { border-bottom: 1px dotted #aaa; white-space: pre; }",
+            "               .code .green { background-color: #CCFFCC; }",
+            "               .code .yellow { background-color: #FFFF99; }",
+            "               .code .red { background-color: #FFCCCC; }",
+            "               .code .line .number {",
+            "                       display: inline-block;",
+            "                       width:50px;",
+            "                       text-align:right;",
+            "                       margin-right:5px;",
+            "               }",
+            "               table.index { border-collapse: collapse; }",
+            "               table.index th { cursor: pointer; background-color: #eee; }",
+            "               table.index th, table.index td { border: 1px solid #aaa; "
+                    + "padding: 2px 5px; }",
+            "               table.index .C { background-color: #CCFFCC; }",
+            "               table.index .NC { background-color: #FFCCCC; }",
+            "       </style>",
+            "");
+
+    // sorts the index table by the clicked column (numerically if possible)
+    private static final String SORT_SCRIPT = String.join("\n",
+            "       <script type=\"text/javascript\">",
+            "               function sortTable(col) {",
+            "                       var tbody = document.getElementById('snippets');",
+            "                       var rows = Array.prototype.slice.call(tbody.rows);",
+            "                       var asc = tbody.getAttribute('data-col') != col"
+                    + " || tbody.getAttribute('data-order') != 'asc';",
+            "                       rows.sort(function(a, b) {",
+            "                               var x = a.cells[col].getAttribute('data-value');",
+            "                               var y = b.cells[col].getAttribute('data-value');",
+            "                               var cmp = (isNaN(x) || isNaN(y) || x === '' || y === '')"
+                    + " ? x.localeCompare(y) : x - y;",
+            "                               return asc ? cmp : -cmp;",
+            "                       });",
+            "                       rows.forEach(function(row) { tbody.appendChild(row); });",
+            "                       tbody.setAttribute('data-col', col);",
+            "                       tbody.setAttribute('data-order', asc ? 'asc' : 'desc');",
+            "               }",
+            "       </script>",
+            "");
+
+    private static final String[] INDEX_COLUMNS = { "Category", "Container", "Snippet", "Result",
+            "Coverage", "Required" };
+
     private final EvaluationTask<Tool> testSuiteRunner;
 
+    /** Which pages are generated. */
+    @Getter
+    @Setter
+    @NonNull
+    private volatile HtmlReportMode mode = HtmlReportMode.ALL;
+
+    // key: source file relative to the source directory
+    private final ConcurrentMap<String, List<String>> sourceLines = new ConcurrentHashMap<>();
+
+    // key: snippet id
+    private final ConcurrentMap<String, IndexEntry> indexEntries = new ConcurrentHashMap<>();
+
     /**
      * @param testSuiteRunner
      */
@@ -23,77 +105,242 @@ public final class HtmlGenerator {
         this.testSuiteRunner = testSuiteRunner;
     }
 
+    /**
+     * Generates the page of the snippet (if required by the mode) and adds the snippet to the
+     * index. Nothing is done if the mode is {@link HtmlReportMode#NONE}.
+     *
+     * @param snippet
+     *            the snippet
+     * @param coverageXml
+     *            the coverage of the snippet
+     * @throws IOException
+     *             if a source file cannot be read or the page cannot be written
+     */
     public void generate(Snippet snippet, SnippetCoverageXml coverageXml) throws IOException {
+        if (mode == HtmlReportMode.NONE) {
+            return;
+        }
+
         File htmlFile = RunnerProjectUtils.getSnippetHtmlFile(
                 this.testSuiteRunner.getRunnerProjectSettings(),
                 snippet);
 
-        String htmlTitle = this.testSuiteRunner.getTool().getName() + " - "
+        boolean generatePage = mode == HtmlReportMode.ALL
+                || (mode == HtmlReportMode.NC && coverageXml.getResultType() == ResultType.NC);
+
+        if (generatePage) {
+            writePage(snippet, coverageXml, htmlFile.toPath());
+        } else {
+            // do not leave a page of a previous evaluation behind
+            Files.deleteIfExists(htmlFile.toPath());
+        }
+
+        indexEntries.put(snippet.getId(), new IndexEntry(snippet, coverageXml.getResultType(),
+                coverageXml.getAchievedCoverage(), generatePage ? htmlFile : null));
+    }
+
+    /**
+     * Adds a snippet to the index for which the coverage was not measured (e.g. N/A, EX or T/M).
+     *
+     * @param snippet
+     *            the snippet
+     * @param resultType
+     *            the result type of the snippet
+     */
+    public void addToIndex(Snippet snippet, ResultType resultType) {
+        indexEntries.put(snippet.getId(), new IndexEntry(snippet, resultType, null, null));
+    }
+
+    /**
+     * Writes the index page (see {@link RunnerProjectUtils#getCoverageIndexFile}) with the
+     * snippets which have been added since the creation of the generator. Nothing is written if
+     * the mode is {@link HtmlReportMode#NONE}.
+     *
+     * @throws IOException
+     *             if the index page cannot be written
+     */
+    public void generateIndex() throws IOException {
+        if (mode == HtmlReportMode.NONE) {
+            return;
+        }
+
+        File indexFile = RunnerProjectUtils
+                .getCoverageIndexFile(this.testSuiteRunner.getRunnerProjectSettings());
+        Path baseDir = indexFile.getParentFile().toPath();
+
+        List<IndexEntry> entries = new ArrayList<>(indexEntries.values());
+        entries.sort(Comparator.comparing((IndexEntry e) -> e.snippet.getContainer())
+                .thenComparing(e -> e.snippet));
+
+        Map<ResultType, Integer> counts = new EnumMap<>(ResultType.class);
+        for (IndexEntry entry : entries) {
+            counts.merge(entry.resultType, 1, Integer::sum);
+        }
+
+        String htmlTitle = escape(this.testSuiteRunner.getTool().getName() + " - "
+                + this.testSuiteRunner.getRunnerProjectSettings().getProjectName());
+
+        PathUtils.createDir(baseDir);
+        try (Writer out = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            writeHead(out, htmlTitle, true);
+
+            out.write("       <p>");
+            for (ResultType resultType : ResultType.values()) {
+                out.write(escape(resultType.toString()) + ": "
+                        + counts.getOrDefault(resultType, 0) + "; ");
+            }
+            out.write("total: " + entries.size() + "</p>\n");
+
+            out.write("       <table class=\"index\">\n");
+            out.write("               <thead><tr>");
+            for (int i = 0; i < INDEX_COLUMNS.length; i++) {
+                out.write("<th onclick=\"sortTable(" + i + ")\">" + INDEX_COLUMNS[i] + "</th>");
+            }
+            out.write("</tr></thead>\n");
+            out.write("               <tbody id=\"snippets\">\n");
+
+            for (IndexEntry entry : entries) {
+                Snippet snippet = entry.snippet;
+                String snippetCell = escape(snippet.getName());
+                if (entry.htmlFile != null) {
+                    String href = baseDir.relativize(entry.htmlFile.toPath()).toString()
+                            .replace('\\', '/');
+                    snippetCell = "<a href=\"" + escape(href) + "\">" + snippetCell + "</a>";
+                }
+
+                out.write("                       <tr class=\"" + entry.resultType.name() + "\">");
+                writeCell(out, snippet.getContainer().getCategory(),
+                        escape(snippet.getContainer().getCategory()));
+                writeCell(out, snippet.getContainer().getName(),
+                        escape(snippet.getContainer().getName()));
+                writeCell(out, snippet.getName(), snippetCell);
+                writeCell(out, entry.resultType.toString(), escape(entry.resultType.toString()));
+                if (entry.coverage == null) {
+                    writeCell(out, "", "");
+                } else {
+                    // e.g. 50.62%
+                    writeCell(out, entry.coverage.replace("%", ""), escape(entry.coverage));
+                }
+                String required = String.format("%.2f", snippet.getRequiredStatementCoverage());
+                writeCell(out, required, required + "%");
+                out.write("</tr>\n");
+            }
+
+            out.write("               </tbody>\n");
+            out.write("       </table>\n");
+            out.write("</body>\n");
+            out.write("</html>\n");
+        }
+    }
+
+    private void writePage(Snippet snippet, SnippetCoverageXml coverageXml, Path htmlFile)
+            throws IOException {
+        String htmlTitle = escape(this.testSuiteRunner.getTool().getName() + " - "
                 + snippet.getContainer().getJavaClass().getName() + '.'
-                + snippet.getMethod().getName() + "()";
-        StringBuilder htmlData = new StringBuilder();
-        htmlData.append("<!DOCTYPE html>\n");
-        htmlData.append("<html lang=\"hu\">\n");
-        htmlData.append("<head>\n");
-        htmlData.append("       <meta charset=\"utf-8\" />\n");
-        htmlData.append("       <title>" + htmlTitle + "</title>\n");
-        htmlData.append("       <style type=\"text/css\">\n");
-        htmlData.append("               .code { font-family: 'Consolas', monospace; }\n");
-        htmlData.append(
-                "               .code .line { border-bottom: 1px dotted #aaa; white-space: pre; }\n");
-        htmlData.append("               .code .green { background-color: #CCFFCC; }\n");
-        htmlData.append("               .code .yellow { background-color: #FFFF99; }\n");
-        htmlData.append("               .code .red { background-color: #FFCCCC; }\n");
-        htmlData.append("               .code .line .number {\n");
-        htmlData.append("                       display: inline-block;\n");
-        htmlData.append("                       width:50px;\n");
-        htmlData.append("                       text-align:right;\n");
-        htmlData.append("                       margin-right:5px;\n");
-        htmlData.append("               }\n");
-        htmlData.append("       </style>\n");
-        htmlData.append("</head>\n");
-        htmlData.append("\n");
-        htmlData.append("<body>\n");
-        htmlData.append("       <h1>" + htmlTitle + "</h1>\n");
-
-        for (FileCoverageElement fce : coverageXml.getCoverage()) {
-            htmlData.append("       <h2>" + fce.getName() + "</h2>\n");
-            htmlData.append("       \n");
-
-            File src = new File(this.testSuiteRunner.getSnippetProject().getSourceDir().toFile(),
-                    fce.getName());
-            List<String> srcLines = PathUtils.readAllLines(src.toPath());
-
-            int[] full = TestSuiteRunnerHelper.linesToArray(fce.getFullyCoveredLines());
-            int[] partial = TestSuiteRunnerHelper.linesToArray(fce.getPartiallyCoveredLines());
-            int[] not = TestSuiteRunnerHelper.linesToArray(fce.getNotCoveredLines());
-
-            htmlData.append("       <div class=\"code\">\n");
-            int i = 1;
-            for (String srcLine : srcLines) {
-                String divClass = getLineDivClass(i, full, partial, not);
-                htmlData.append("               <div class=\"" + divClass
-                        + "\"><div class=\"number\">" + i + "</div> " + srcLine + "</div>\n");
-                i++;
+                + snippet.getMethod().getName() + "()");
+
+        Files.createDirectories(htmlFile.getParent());
+        try (Writer out = Files.newBufferedWriter(htmlFile, StandardCharsets.UTF_8)) {
+            writeHead(out, htmlTitle, false);
+
+            for (FileCoverageElement fce : coverageXml.getCoverage()) {
+                out.write("       <h2>" + escape(fce.getName()) + "</h2>\n");
+                out.write("       \n");
+
+                LineCoverage lineCoverage = new LineCoverage(
+                        TestSuiteRunnerHelper.linesToArray(fce.getFullyCoveredLines()),
+                        TestSuiteRunnerHelper.linesToArray(fce.getPartiallyCoveredLines()),
+                        TestSuiteRunnerHelper.linesToArray(fce.getNotCoveredLines()));
+
+                out.write("       <div class=\"code\">\n");
+                int i = 1;
+                for (String srcLine : getSourceLines(fce.getName())) {
+                    out.write("               <div class=\"" + getLineDivClass(lineCoverage, i)
+                            + "\"><div class=\"number\">" + i + "</div> " + srcLine
+                            + "</div>\n");
+                    i++;
+                }
+                out.write("       </div>\n\n");
             }
-            htmlData.append("       </div>\n\n");
+
+            out.write("</body>\n");
+            out.write("</html>\n");
         }
+    }
 
-        htmlData.append("</body>\n");
-        htmlData.append("</html>\n");
+    private static void writeHead(Writer out, String htmlTitle, boolean withSortScript)
+            throws IOException {
+        out.write("<!DOCTYPE html>\n");
+        out.write("<html lang=\"hu\">\n");
+        out.write("<head>\n");
+        out.write("       <meta charset=\"utf-8\" />\n");
+        out.write("       <title>" + htmlTitle + "</title>\n");
+        out.write(STYLE);
+        if (withSortScript) {
+            out.write(SORT_SCRIPT);
+        }
+        out.write("</head>\n");
+        out.write("\n");
+        out.write("<body>\n");
+        out.write("       <h1>" + htmlTitle + "</h1>\n");
+    }
 
-        PathUtils.write(htmlFile.toPath(), htmlData.toString().getBytes());
+    private static void writeCell(Writer out, String value, String html) throws IOException {
+        out.write("<td data-value=\"" + escape(value) + "\">" + html + "</td>");
     }
 
-    private static String getLineDivClass(int lineNumber, int[] full, int[] partial, int[] not) {
-        if (Arrays.binarySearch(full, lineNumber) >= 0) {
-            return "line green";
-        } else if (Arrays.binarySearch(partial, lineNumber) >= 0) {
-            return "line yellow";
-        } else if (Arrays.binarySearch(not, lineNumber) >= 0) {
-            return "line red";
-        } else {
-            return "line";
+    /**
+     * Gets the escaped lines of the source file, reads the file only for the first time.
+     */
+    private List<String> getSourceLines(String relJavaFile) throws IOException {
+        try {
+            return sourceLines.computeIfAbsent(relJavaFile, f -> {
+                File src = new File(
+                        this.testSuiteRunner.getSnippetProject().getSourceDir().toFile(), f);
+                try {
+                    List<String> lines = new ArrayList<>();
+                    for (String line : PathUtils.readAllLines(src.toPath())) {
+                        lines.add(escape(line));
+                    }
+                    return lines;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static String escape(String text) {
+        return StringEscapeUtils.escapeHtml4(text);
+    }
+
+    private static String getLineDivClass(LineCoverage lineCoverage, int lineNumber) {
+        switch (lineCoverage.getStatus(lineNumber)) {
+            case FULLY_COVERED:
+                return "line green";
+            case PARTLY_COVERED:
+                return "line yellow";
+            case NOT_COVERED:
+                return "line red";
+            default:
+                return "line";
+        }
+    }
+
+    private static final class IndexEntry {
+        private final Snippet snippet;
+        private final ResultType resultType;
+        private final String coverage;
+        private final File htmlFile;
+
+        private IndexEntry(Snippet snippet, ResultType resultType, String coverage,
+                File htmlFile) {
+            this.snippet = snippet;
+            this.resultType = resultType;
+            this.coverage = coverage;
+            this.htmlFile = htmlFile;
         }
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Content-addressed cache of instrumented class bytes. The key is the SHA-256 hash of the original
+ * class bytes, thus the cache can be shared by any number of {@link JaCoCoClassLoader}s and a class
+ * is instrumented only once even if it is loaded by many class loaders.
+ * <p>
+ * The instrumented bytes also depend on the runtime of the instrumenter (e.g. the
+ * {@link org.jacoco.core.runtime.LoggerRuntime} embeds its key into the classes), therefore one
+ * cache must only be used with one instrumenter and persisted caches must only be used with
+ * runtimes which always generate the same code.
+ * <p>
+ * The class is thread-safe.
+ */
+public final class InstrumentedClassCache {
+    private static final String FILE_EXTENSION = ".class";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /** The instrumenter used on cache miss. */
+    @Getter
+    private final Instrumenter instrumenter;
+
+    /** The directory where the instrumented classes are persisted (<code>null</code> if none). */
+    @Getter
+    private final Path persistenceDirectory;
+
+    private final ConcurrentMap<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param instrumenter
+     *            the instrumenter to use on cache miss
+     */
+    public InstrumentedClassCache(@NonNull Instrumenter instrumenter) {
+        this(instrumenter, null);
+    }
+
+    /**
+     * Creates a cache which also persists the instrumented classes into the specified directory
+     * (and reads them from there on in-memory cache miss).
+     *
+     * @param instrumenter
+     *            the instrumenter to use on cache miss
+     * @param persistenceDirectory
+     *            the directory for the instrumented classes or <code>null</code> if they should not
+     *            be persisted
+     */
+    public InstrumentedClassCache(@NonNull Instrumenter instrumenter, Path persistenceDirectory) {
+        this.instrumenter = instrumenter;
+        this.persistenceDirectory = persistenceDirectory;
+    }
+
+    /**
+     * Gets the instrumented bytes for the specified class from the cache or instruments it if it
+     * is not in the cache.
+     *
+     * @param bytes
+     *            the original bytes of the class
+     * @param className
+     *            the name of the class (only used for diagnostics)
+     * @return the instrumented bytes (must not be modified)
+     * @throws IOException
+     *             if the class cannot be instrumented or the persisted file cannot be read
+     */
+    public byte[] instrument(@NonNull byte[] bytes, @NonNull String className)
+            throws IOException {
+        String key = Hashing.sha256().hashBytes(bytes).toString();
+
+        byte[] instrumentedBytes = entries.get(key);
+        if (instrumentedBytes != null) {
+            hitCount.incrementAndGet();
+            return instrumentedBytes;
+        }
+
+        Path file = persistenceDirectory != null
+                ? persistenceDirectory.resolve(key + FILE_EXTENSION) : null;
+
+        if (file != null && PathUtils.exists(file)) {
+            log.debug("{}: reading instrumented class from {}", className, file);
+            instrumentedBytes = PathUtils.readAllBytes(file);
+            hitCount.incrementAndGet();
+        } else {
+            instrumentedBytes = instrumenter.instrument(bytes, className);
+            missCount.incrementAndGet();
+
+            if (file != null) {
+                persist(file, instrumentedBytes);
+            }
+        }
+
+        // if another thread has been faster, use its bytes
+        byte[] previous = entries.putIfAbsent(key, instrumentedBytes);
+        return previous != null ? previous : instrumentedBytes;
+    }
+
+    private void persist(Path file, byte[] instrumentedBytes) throws IOException {
+        // write into a temporary file and move it to be safe when more processes use the same
+        // directory
+        PathUtils.createDir(persistenceDirectory);
+        Path tmpFile = Files.createTempFile(persistenceDirectory, "tmp", FILE_EXTENSION);
+        try {
+            Files.write(tmpFile, instrumentedBytes);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * Gets the number of classes which were served from the cache (from the memory or from the
+     * persistence directory).
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of classes which had to be instrumented.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of classes in the in-memory cache.
+     *
+     * @return the number of classes in the memory
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InstrumentedClassCache [size=%d, hitCount=%d, missCount=%d]",
+                size(), getHitCount(), getMissCount());
+    }
+}
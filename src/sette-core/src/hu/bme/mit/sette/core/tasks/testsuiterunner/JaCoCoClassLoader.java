@@ -29,10 +29,12 @@ import java.util.Arrays;
 
 import org.apache.commons.lang3.Validate;
 import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.RuntimeData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
 import lombok.NonNull;
 
 /**
@@ -42,20 +44,39 @@ public final class JaCoCoClassLoader extends ClassLoader {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final File[] binaryDirectories;
-    private final Instrumenter instrumenter;
+    private final InstrumentedClassCache instrumentedClassCache;
+
+    /** The probe store of the classes which were instrumented with {@link SetteRuntime}. */
+    @Getter
+    private final RuntimeData runtimeData = new RuntimeData();
 
     public JaCoCoClassLoader(@NonNull File[] binaryDirectories, @NonNull Instrumenter instrumenter,
             @NonNull ClassLoader parent) {
+        this(binaryDirectories, new InstrumentedClassCache(instrumenter), parent);
+    }
+
+    /**
+     * Creates a class loader which uses the specified cache to instrument the classes. The cache
+     * may be shared between class loaders.
+     *
+     * @param binaryDirectories
+     *            the directories containing the classes to instrument
+     * @param instrumentedClassCache
+     *            the cache for the instrumented classes
+     * @param parent
+     *            the parent class loader
+     */
+    public JaCoCoClassLoader(@NonNull File[] binaryDirectories,
+            @NonNull InstrumentedClassCache instrumentedClassCache, @NonNull ClassLoader parent) {
         super(parent);
 
         Validate.notEmpty(binaryDirectories,
                 "The array of binary directories must not be empty or null");
         Validate.noNullElements(binaryDirectories,
                 "The array of binary directories must not contain null elements");
-        Validate.notNull(instrumenter, "The instrumenter must not be null");
 
         this.binaryDirectories = Arrays.copyOf(binaryDirectories, binaryDirectories.length);
-        this.instrumenter = instrumenter;
+        this.instrumentedClassCache = instrumentedClassCache;
 
         log.debug("JaCoCoClassLoader has been created");
     }
@@ -79,8 +100,8 @@ public final class JaCoCoClassLoader extends ClassLoader {
             if (bytes != null) {
                 log.debug("{}: instrumenting and defining class", className);
 
-                // instrument
-                byte[] instrumentedBytes = instrumenter.instrument(bytes, className);
+                // instrument (or get from the cache)
+                byte[] instrumentedBytes = instrumentedClassCache.instrument(bytes, className);
                 log.debug("{}: instrumented class", className);
 
                 // define class
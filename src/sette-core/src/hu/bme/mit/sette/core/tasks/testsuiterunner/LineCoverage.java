@@ -0,0 +1,220 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.Collectors;
+
+import hu.bme.mit.sette.core.model.parserxml.FileCoverageElement;
+import lombok.NonNull;
+
+/**
+ * Line coverage of one source file. The fully, partially and not covered lines are stored in
+ * bitsets indexed by the line number. A line has at most one status, the precedence is fully
+ * covered, partially covered, not covered (e.g. a line which is fully covered by one test case and
+ * not covered by another one is fully covered).
+ */
+public final class LineCoverage {
+    private final BitSet full = new BitSet();
+    private final BitSet partial = new BitSet();
+    private final BitSet not = new BitSet();
+
+    /**
+     * Creates an empty line coverage.
+     */
+    public LineCoverage() {
+        // empty
+    }
+
+    /**
+     * Creates a line coverage from the specified line numbers. The precedence of the statuses is
+     * resolved, thus the arrays may intersect.
+     *
+     * @param full
+     *            the fully covered lines
+     * @param partial
+     *            the partially covered lines
+     * @param not
+     *            the not covered lines
+     */
+    public LineCoverage(@NonNull int[] full, @NonNull int[] partial, @NonNull int[] not) {
+        Arrays.stream(full).forEach(this.full::set);
+        Arrays.stream(partial).forEach(this.partial::set);
+        Arrays.stream(not).forEach(this.not::set);
+        resolvePrecedence();
+    }
+
+    /**
+     * Adds the status of a line. {@link LineStatus#EMPTY} is ignored.
+     *
+     * @param lineNumber
+     *            the line number, must be positive
+     * @param status
+     *            the status of the line
+     */
+    public void add(int lineNumber, @NonNull LineStatus status) {
+        checkArgument(lineNumber >= 1, "The line number must be positive: %s", lineNumber);
+
+        switch (status) {
+            case FULLY_COVERED:
+                full.set(lineNumber);
+                partial.clear(lineNumber);
+                not.clear(lineNumber);
+                break;
+
+            case PARTLY_COVERED:
+                if (!full.get(lineNumber)) {
+                    partial.set(lineNumber);
+                    not.clear(lineNumber);
+                }
+                break;
+
+            case NOT_COVERED:
+                if (!full.get(lineNumber) && !partial.get(lineNumber)) {
+                    not.set(lineNumber);
+                }
+                break;
+
+            case EMPTY:
+            default:
+                // nothing to do
+                break;
+        }
+    }
+
+    /**
+     * Merges the specified line coverage into this one.
+     *
+     * @param other
+     *            the other line coverage
+     */
+    public void merge(@NonNull LineCoverage other) {
+        full.or(other.full);
+        partial.or(other.partial);
+        not.or(other.not);
+        resolvePrecedence();
+    }
+
+    private void resolvePrecedence() {
+        partial.andNot(full);
+        not.andNot(full);
+        not.andNot(partial);
+    }
+
+    /**
+     * Gets the status of the specified line.
+     *
+     * @param lineNumber
+     *            the line number
+     * @return the status of the line ({@link LineStatus#EMPTY} if the line has no status)
+     */
+    public LineStatus getStatus(int lineNumber) {
+        if (lineNumber < 0) {
+            return LineStatus.EMPTY;
+        } else if (full.get(lineNumber)) {
+            return LineStatus.FULLY_COVERED;
+        } else if (partial.get(lineNumber)) {
+            return LineStatus.PARTLY_COVERED;
+        } else if (not.get(lineNumber)) {
+            return LineStatus.NOT_COVERED;
+        } else {
+            return LineStatus.EMPTY;
+        }
+    }
+
+    public int[] getFullyCoveredLines() {
+        return full.stream().toArray();
+    }
+
+    public int[] getPartiallyCoveredLines() {
+        return partial.stream().toArray();
+    }
+
+    public int[] getNotCoveredLines() {
+        return not.stream().toArray();
+    }
+
+    /**
+     * Converts the line coverage to {@link LineStatuses} for the specified line range.
+     *
+     * @param beginLine
+     *            the first line
+     * @param endLine
+     *            the last line
+     * @return the line statuses
+     * @throws IllegalArgumentException
+     *             if a line with status is not in the range
+     */
+    public LineStatuses toLineStatuses(int beginLine, int endLine) {
+        LineStatuses lineStatuses = new LineStatuses(beginLine, endLine);
+        lineStatuses.setStatus(getNotCoveredLines(), LineStatus.NOT_COVERED);
+        lineStatuses.setStatus(getPartiallyCoveredLines(), LineStatus.PARTLY_COVERED);
+        lineStatuses.setStatus(getFullyCoveredLines(), LineStatus.FULLY_COVERED);
+        return lineStatuses;
+    }
+
+    /**
+     * Converts the line coverage to a {@link FileCoverageElement}.
+     *
+     * @param name
+     *            the name of the file
+     * @return the file coverage element
+     */
+    public FileCoverageElement toFileCoverageElement(@NonNull String name) {
+        FileCoverageElement fce = new FileCoverageElement();
+        fce.setName(name);
+        fce.setFullyCoveredLines(join(full));
+        fce.setPartiallyCoveredLines(join(partial));
+        fce.setNotCoveredLines(join(not));
+        return fce;
+    }
+
+    private static String join(BitSet lines) {
+        return lines.stream().mapToObj(String::valueOf).collect(Collectors.joining(" "));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof LineCoverage)) {
+            return false;
+        }
+
+        LineCoverage other = (LineCoverage) obj;
+        return full.equals(other.full) && partial.equals(other.partial) && not.equals(other.not);
+    }
+
+    @Override
+    public int hashCode() {
+        return (full.hashCode() * 31 + partial.hashCode()) * 31 + not.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LineCoverage [full=%s, partial=%s, not=%s]", full, partial, not);
+    }
+}
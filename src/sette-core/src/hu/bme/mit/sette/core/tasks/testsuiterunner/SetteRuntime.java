@@ -0,0 +1,109 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner;
+
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * JaCoCo runtime which stores the probes of the instrumented classes in the
+ * {@link JaCoCoClassLoader} which has defined them (see {@link JaCoCoClassLoader#getRuntimeData()}).
+ * The instrumented classes get their probes through a static hook which looks up the class loader
+ * of the class, thus the probe data of the class loaders cannot mix and many coverage sessions can
+ * run in the same JVM at the same time.
+ * <p>
+ * Unlike the {@link org.jacoco.core.runtime.LoggerRuntime}, the generated code does not depend on
+ * the runtime instance, so the instrumented classes can be shared between class loaders (and
+ * processes) with an {@link InstrumentedClassCache}. Since the runtime has no state, the
+ * {@link #startup(RuntimeData)} and {@link #shutdown()} methods do nothing.
+ */
+public final class SetteRuntime implements IRuntime {
+    /**
+     * The version of the generated code, must be changed if the generated code is changed (it is
+     * used to separate persisted instrumented classes).
+     */
+    public static final String VERSION = "1";
+
+    private static final String HOOK_OWNER = Type.getInternalName(SetteRuntime.class);
+    private static final String HOOK_NAME = "getProbes";
+    private static final String HOOK_DESC = "(Ljava/lang/Class;JLjava/lang/String;I)[Z";
+
+    @Override
+    public int generateDataAccessor(long classId, String className, int probeCount,
+            MethodVisitor mv) {
+        // boolean[] probes = SetteRuntime.getProbes(Class.forName(className), classId,
+        // className, probeCount);
+        // NOTE Class.forName() uses the class loader of the caller (i.e. the instrumented class)
+        // and does not need class literal (which would require at least Java 5 class files)
+        mv.visitLdcInsn(className.replace('/', '.'));
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Class", "forName",
+                "(Ljava/lang/String;)Ljava/lang/Class;", false);
+        mv.visitLdcInsn(Long.valueOf(classId));
+        mv.visitLdcInsn(className);
+        mv.visitLdcInsn(Integer.valueOf(probeCount));
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, HOOK_OWNER, HOOK_NAME, HOOK_DESC, false);
+
+        // Class, long (2), String, int
+        return 5;
+    }
+
+    /**
+     * Hook for the instrumented classes to get their probe array. This method is called once
+     * during the initialization of every instrumented class.
+     *
+     * @param javaClass
+     *            the instrumented class
+     * @param classId
+     *            the id of the class
+     * @param className
+     *            the VM name of the class
+     * @param probeCount
+     *            the number of probes in the class
+     * @return the probe array of the class
+     */
+    public static boolean[] getProbes(Class<?> javaClass, long classId, String className,
+            int probeCount) {
+        ClassLoader classLoader = javaClass.getClassLoader();
+
+        if (classLoader instanceof JaCoCoClassLoader) {
+            return ((JaCoCoClassLoader) classLoader).getRuntimeData()
+                    .getExecutionData(classId, className, probeCount).getProbes();
+        } else {
+            // the class was not loaded by SETTE, its coverage is not collected
+            return new boolean[probeCount];
+        }
+    }
+
+    @Override
+    public void startup(RuntimeData data) {
+        // nothing to do, the probes are stored in the class loaders
+    }
+
+    @Override
+    public void shutdown() {
+        // nothing to do, the probes are stored in the class loaders
+    }
+}
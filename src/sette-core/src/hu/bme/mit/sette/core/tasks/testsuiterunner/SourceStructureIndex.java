@@ -0,0 +1,461 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Index of the structure of the source files of a snippet project: the line range of the
+ * compilation units and the line ranges of the methods and constructors of their first type. The
+ * index is built once (the files are parsed in parallel) and persisted next to the build directory
+ * of the snippet project, thus the source files are not parsed again for every snippet. Files which
+ * have been modified since they were indexed are parsed again.
+ * <p>
+ * The class is thread-safe.
+ */
+public final class SourceStructureIndex {
+    /** The name of the index file (in the base directory of the snippet project). */
+    public static final String INDEX_FILENAME = "build-source-index.json";
+
+    /** The version of the index file format, must be changed if the format is changed. */
+    private static final int VERSION = 1;
+
+    private static final Logger log = LoggerFactory.getLogger(SourceStructureIndex.class);
+
+    /** The source directory of the snippet project. */
+    @Getter
+    private final Path sourceDirectory;
+
+    /** The index file (<code>null</code> if the index is not persisted). */
+    @Getter
+    private final Path indexFile;
+
+    // key: source file relative to the source directory (e.g. hu/bme/.../B3c_DoWhile.java)
+    private final ConcurrentMap<String, FileStructure> files = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty index, the source files are parsed on demand.
+     *
+     * @param sourceDirectory
+     *            the source directory
+     * @param indexFile
+     *            the index file or <code>null</code> if the index should not be persisted
+     */
+    public SourceStructureIndex(@NonNull Path sourceDirectory, Path indexFile) {
+        this.sourceDirectory = sourceDirectory;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index of the specified snippet project and updates it: the snippet source files
+     * which are not present in the index or have been modified are parsed (in parallel). If the
+     * index has changed, it is persisted.
+     *
+     * @param snippetProject
+     *            the snippet project
+     * @param parallelism
+     *            the number of files to parse in parallel, must be positive
+     * @return the index
+     * @throws IOException
+     *             if a source file cannot be parsed or the index file cannot be written
+     */
+    public static SourceStructureIndex load(@NonNull SnippetProject snippetProject,
+            int parallelism) throws IOException {
+        return load(snippetProject.getSourceDir(),
+                snippetProject.getBuildDir().resolveSibling(INDEX_FILENAME),
+                snippetProject.getSnippetFiles(), parallelism);
+    }
+
+    static SourceStructureIndex load(@NonNull Path sourceDirectory, Path indexFile,
+            @NonNull Collection<Path> sourceFiles, int parallelism) throws IOException {
+        checkArgument(parallelism >= 1, "The parallelism must be positive: %s", parallelism);
+
+        SourceStructureIndex index = new SourceStructureIndex(sourceDirectory, indexFile);
+        index.read();
+
+        List<String> toParse = new ArrayList<>();
+        for (Path file : sourceFiles) {
+            String relFile = toRelativeName(index.sourceDirectory.relativize(file));
+            FileStructure fs = index.files.get(relFile);
+
+            if (fs == null || !fs.isUpToDate(file)) {
+                toParse.add(relFile);
+            }
+        }
+
+        log.debug("Source structure index of {}: {} file(s) were indexed, {} to parse",
+                sourceDirectory, index.files.size(), toParse.size());
+
+        if (!toParse.isEmpty()) {
+            index.parseAll(toParse, parallelism);
+            index.write();
+        }
+
+        return index;
+    }
+
+    private static String toRelativeName(Path relPath) {
+        return relPath.toString().replace('\\', '/');
+    }
+
+    /**
+     * Gets the structure of the specified source file (parses it if it is not in the index).
+     *
+     * @param relJavaFile
+     *            the source file relative to the source directory
+     * @return the structure of the file
+     * @throws IOException
+     *             if the file cannot be read or parsed
+     */
+    public FileStructure get(@NonNull String relJavaFile) throws IOException {
+        FileStructure fs = files.get(relJavaFile);
+
+        if (fs == null) {
+            fs = parse(relJavaFile);
+            FileStructure previous = files.putIfAbsent(relJavaFile, fs);
+            return previous != null ? previous : fs;
+        } else {
+            return fs;
+        }
+    }
+
+    /**
+     * Gets the number of files in the index.
+     *
+     * @return the number of files
+     */
+    public int size() {
+        return files.size();
+    }
+
+    private void parseAll(List<String> relJavaFiles, int parallelism) throws IOException {
+        if (parallelism == 1 || relJavaFiles.size() == 1) {
+            for (String relJavaFile : relJavaFiles) {
+                files.put(relJavaFile, parse(relJavaFile));
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<FileStructure>> futures = new ArrayList<>();
+            for (String relJavaFile : relJavaFiles) {
+                futures.add(executor.submit(() -> parse(relJavaFile)));
+            }
+
+            for (int i = 0; i < relJavaFiles.size(); i++) {
+                files.put(relJavaFiles.get(i), futures.get(i).get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing source files", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            } else {
+                throw new RuntimeException(ex.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FileStructure parse(String relJavaFile) throws IOException {
+        Path file = sourceDirectory.resolve(relJavaFile);
+
+        log.debug("Parsing with JavaParser: {}", file);
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        CompilationUnit compilationUnit;
+        try {
+            compilationUnit = JavaParser.parse(file.toFile());
+        } catch (com.github.javaparser.ParseException ex) {
+            throw new IOException("Cannot parse: " + file, ex);
+        }
+
+        String typeName = null;
+        List<MemberRange> methods = new ArrayList<>();
+        List<MemberRange> constructors = new ArrayList<>();
+
+        // NOTE only the first type is indexed
+        if (compilationUnit.getTypes() != null && !compilationUnit.getTypes().isEmpty()) {
+            TypeDeclaration type = compilationUnit.getTypes().get(0);
+            typeName = type.getName();
+
+            for (BodyDeclaration bd : type.getMembers()) {
+                if (bd instanceof MethodDeclaration) {
+                    methods.add(new MemberRange(((MethodDeclaration) bd).getName(),
+                            bd.getBeginLine(), bd.getEndLine()));
+                } else if (bd instanceof ConstructorDeclaration) {
+                    constructors.add(new MemberRange(((ConstructorDeclaration) bd).getName(),
+                            bd.getBeginLine(), bd.getEndLine()));
+                }
+            }
+        }
+
+        return new FileStructure(size, lastModified, compilationUnit.getBeginLine(),
+                compilationUnit.getEndLine(), typeName, methods, constructors);
+    }
+
+    private void read() {
+        if (indexFile == null || !PathUtils.exists(indexFile)) {
+            return;
+        }
+
+        try {
+            JsonNode root = new ObjectMapper().readTree(indexFile.toFile());
+
+            if (root.path("version").asInt() != VERSION) {
+                log.info("Ignoring source structure index with other version: {}", indexFile);
+                return;
+            }
+
+            root.path("files").fields().forEachRemaining(entry -> {
+                files.put(entry.getKey(), FileStructure.fromJson(entry.getValue()));
+            });
+        } catch (IOException | RuntimeException ex) {
+            // the index will be rebuilt
+            log.warn("Cannot read the source structure index: " + indexFile, ex);
+            files.clear();
+        }
+    }
+
+    private void write() throws IOException {
+        if (indexFile == null) {
+            return;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", VERSION);
+
+        ObjectNode filesNode = root.putObject("files");
+        new TreeMap<>(files).forEach((file, fs) -> filesNode.set(file, fs.toJson(mapper)));
+
+        // write into a temporary file and move it since more processes may use the same project
+        Path tmpFile = Files.createTempFile(indexFile.getParent(), "tmp", ".json");
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(tmpFile.toFile(), root);
+            Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SourceStructureIndex [sourceDirectory=%s, size=%d]", sourceDirectory,
+                size());
+    }
+
+    /**
+     * Structure of a source file.
+     */
+    public static final class FileStructure {
+        /** The size of the file when it was indexed. */
+        private final long size;
+
+        /** The last modification time of the file when it was indexed (ms). */
+        private final long lastModified;
+
+        /** The first line of the compilation unit. */
+        @Getter
+        private final int beginLine;
+
+        /** The last line of the compilation unit. */
+        @Getter
+        private final int endLine;
+
+        /** The name of the first type in the file (<code>null</code> if there is no type). */
+        @Getter
+        private final String typeName;
+
+        /** The methods of the first type in declaration order. */
+        @Getter
+        private final List<MemberRange> methods;
+
+        /** The constructors of the first type in declaration order. */
+        @Getter
+        private final List<MemberRange> constructors;
+
+        private FileStructure(long size, long lastModified, int beginLine, int endLine,
+                String typeName, List<MemberRange> methods, List<MemberRange> constructors) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.beginLine = beginLine;
+            this.endLine = endLine;
+            this.typeName = typeName;
+            this.methods = Collections.unmodifiableList(methods);
+            this.constructors = Collections.unmodifiableList(constructors);
+        }
+
+        private boolean isUpToDate(Path file) throws IOException {
+            return Files.size(file) == size
+                    && Files.getLastModifiedTime(file).toMillis() == lastModified;
+        }
+
+        /**
+         * Finds the first method with the specified name.
+         *
+         * @param name
+         *            the name of the method
+         * @return the method or <code>null</code> if not found (e.g. it is in the superclass)
+         */
+        public MemberRange findMethod(@NonNull String name) {
+            return methods.stream().filter(m -> m.getName().equals(name)).findFirst()
+                    .orElse(null);
+        }
+
+        /**
+         * Finds the constructor with the specified name.
+         *
+         * @param name
+         *            the name of the constructor
+         * @return the constructor or <code>null</code> if the type has no explicit constructor
+         * @throws RuntimeException
+         *             if the first constructor of the type has a different name
+         */
+        public MemberRange findConstructor(@NonNull String name) {
+            // maybe default ctor not present in source
+            if (constructors.isEmpty()) {
+                return null;
+            }
+
+            // FIXME test this part
+            if (constructors.get(0).getName().equals(name)) {
+                return constructors.get(0);
+            } else {
+                throw new RuntimeException("SETTE RUNTIME ERROR");
+            }
+        }
+
+        private JsonNode toJson(ObjectMapper mapper) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("size", size);
+            node.put("lastModified", lastModified);
+            node.put("beginLine", beginLine);
+            node.put("endLine", endLine);
+            node.put("typeName", typeName);
+            toJson(node.putArray("methods"), methods);
+            toJson(node.putArray("constructors"), constructors);
+            return node;
+        }
+
+        private static void toJson(ArrayNode node, List<MemberRange> members) {
+            for (MemberRange member : members) {
+                node.addArray().add(member.getName()).add(member.getBeginLine())
+                        .add(member.getEndLine());
+            }
+        }
+
+        private static FileStructure fromJson(JsonNode node) {
+            return new FileStructure(node.get("size").asLong(), node.get("lastModified").asLong(),
+                    node.get("beginLine").asInt(), node.get("endLine").asInt(),
+                    node.get("typeName").isNull() ? null : node.get("typeName").asText(),
+                    membersFromJson(node.get("methods")),
+                    membersFromJson(node.get("constructors")));
+        }
+
+        private static List<MemberRange> membersFromJson(JsonNode node) {
+            List<MemberRange> members = new ArrayList<>();
+            for (JsonNode member : node) {
+                members.add(new MemberRange(member.get(0).asText(), member.get(1).asInt(),
+                        member.get(2).asInt()));
+            }
+            return members;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "FileStructure [beginLine=%d, endLine=%d, typeName=%s, methods=%s, "
+                            + "constructors=%s]",
+                    beginLine, endLine, typeName, methods, constructors);
+        }
+    }
+
+    /**
+     * Line range of a method or constructor.
+     */
+    public static final class MemberRange {
+        /** The name of the member. */
+        @Getter
+        private final String name;
+
+        /** The first line of the member. */
+        @Getter
+        private final int beginLine;
+
+        /** The last line of the member. */
+        @Getter
+        private final int endLine;
+
+        private MemberRange(String name, int beginLine, int endLine) {
+            this.name = name;
+            this.beginLine = beginLine;
+            this.endLine = endLine;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%d-%d]", name, beginLine, endLine);
+        }
+    }
+}
@@ -23,13 +23,16 @@
 // NOTE revise this file
 package hu.bme.mit.sette.core.tasks.testsuiterunner;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static hu.bme.mit.sette.core.tasks.testsuiterunner.TestSuiteRunnerHelper.analyzeCoverage;
 import static hu.bme.mit.sette.core.tasks.testsuiterunner.TestSuiteRunnerHelper.decideResultType;
 import static hu.bme.mit.sette.core.tasks.testsuiterunner.TestSuiteRunnerHelper.invokeMethod;
 import static hu.bme.mit.sette.core.tasks.testsuiterunner.TestSuiteRunnerHelper.loadTestClasses;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
@@ -39,40 +42,24 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.lang3.tuple.Triple;
-import org.jacoco.core.analysis.Analyzer;
-import org.jacoco.core.analysis.CoverageBuilder;
-import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.SessionInfoStore;
-import org.jacoco.core.instr.Instrumenter;
-import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.LoggerRuntime;
-import org.jacoco.core.runtime.RuntimeData;
 import org.junit.Before;
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.convert.AnnotationStrategy;
-import org.simpleframework.xml.core.Persister;
-import org.simpleframework.xml.stream.Format;
 
 import com.google.common.collect.Lists;
 
 import hu.bme.mit.sette.core.exceptions.TestSuiteRunnerException;
-import hu.bme.mit.sette.core.model.parserxml.FileCoverageElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetCoverageXml;
 import hu.bme.mit.sette.core.model.parserxml.SnippetElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
@@ -80,36 +67,92 @@ import hu.bme.mit.sette.core.model.parserxml.SnippetProjectElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetResultXml;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
 import hu.bme.mit.sette.core.tasks.EvaluationTask;
-import hu.bme.mit.sette.core.tasks.TestSuiteGenerator;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tool.Tool;
 import hu.bme.mit.sette.core.util.io.PathUtils;
-import hu.bme.mit.sette.core.util.process.ProcessExecutionResult;
-import hu.bme.mit.sette.core.util.process.ProcessExecutor;
-import hu.bme.mit.sette.core.util.process.SimpleProcessExecutorListener;
-import hu.bme.mit.sette.core.validator.PathType;
-import hu.bme.mit.sette.core.validator.PathValidator;
 import hu.bme.mit.sette.core.validator.ValidationException;
 import junit.framework.AssertionFailedError;
 import lombok.Getter;
 import lombok.Setter;
 
-public final class TestSuiteRunner extends EvaluationTask<Tool> {
+public final class TestSuiteRunner extends EvaluationTask<Tool> implements AutoCloseable {
     public static final int TEST_CASE_TIMEOUT_IN_MS = 30000;
 
     @Getter
     @Setter
     private Pattern snippetSelector = null;
 
+    /**
+     * The number of snippets which are analyzed in parallel (and the maximum number of agents
+     * which run the tests of forked snippet containers).
+     */
+    @Getter
+    private int parallelism = 1;
+
+    private TestSuiteRunnerAgentPool agentPool = null;
+
+    private InstrumentedClassCache instrumentedClassCache = null;
+
+    private SourceStructureIndex sourceStructureIndex = null;
+
+    private final HtmlGenerator htmlGenerator = new HtmlGenerator(this);
+
     public TestSuiteRunner(SnippetProject snippetProject, Path outputDir, Tool tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
+    /**
+     * Sets the number of snippets which are analyzed in parallel. Every snippet is analyzed with
+     * its own class loader which stores the probes of its classes (see {@link SetteRuntime}), thus
+     * the coverage data of the snippets cannot mix.
+     *
+     * @param parallelism
+     *            the number of snippets to analyze in parallel, must be positive
+     */
+    public synchronized void setParallelism(int parallelism) {
+        checkArgument(parallelism >= 1, "The parallelism must be positive: %s", parallelism);
+        checkState(agentPool == null, "The agent pool has already been started");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets which HTML coverage pages are generated.
+     *
+     * @return the HTML report mode
+     */
+    public HtmlReportMode getHtmlReportMode() {
+        return htmlGenerator.getMode();
+    }
+
+    /**
+     * Sets which HTML coverage pages are generated (e.g. {@link HtmlReportMode#NC} when the
+     * evaluation should finish fast).
+     *
+     * @param htmlReportMode
+     *            the HTML report mode
+     */
+    public void setHtmlReportMode(HtmlReportMode htmlReportMode) {
+        htmlGenerator.setMode(htmlReportMode);
+    }
+
+    /**
+     * Writes the HTML coverage index page of the snippets which have been analyzed by this
+     * instance.
+     *
+     * @throws IOException
+     *             if the index page cannot be written
+     */
+    public void generateHtmlIndex() throws IOException {
+        htmlGenerator.generateIndex();
+    }
+
     public final void analyze() throws Exception {
         if (!RunnerProjectUtils.getRunnerLogFile(getRunnerProjectSettings()).exists()) {
             throw new TestSuiteRunnerException(
@@ -117,18 +160,16 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
                     this);
         }
 
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(),
-                TestSuiteGenerator.ANT_BUILD_TEST_FILENAME);
+        // compile the tests
+        RunnerProjectCompiler compiler = new RunnerProjectCompiler(getRunnerProjectSettings());
+        compiler.setParallelism(parallelism);
+        compiler.compileTests(getRunnerProjectSettings().getTestDirectory().toPath(),
+                getRunnerProjectSettings().getBaseDir().toPath().resolve("junit.jar"));
 
         //
-        Serializer serializer = new Persister(new AnnotationStrategy());
+        File[] binaryDirectories = getBinaryDirectories();
 
-        // binary directories for the JaCoCoClassLoader
-        File[] binaryDirectories = new File[2];
-        binaryDirectories[0] = getSnippetProject().getBuildDir().toFile();
-        binaryDirectories[1] = getRunnerProjectSettings().getBinaryDirectory();
-        log.debug("Binary directories: {}", (Object) binaryDirectories);
+        List<Snippet> snippets = new ArrayList<>();
 
         // foreach containers
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
@@ -142,11 +183,26 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
                     continue;
                 }
 
-                handleSnippet(snippet, serializer, binaryDirectories);
+                snippets.add(snippet);
             }
         }
 
-        // NOTE check whether all inputs and info files are created
+        try {
+            if (parallelism > 1) {
+                analyzeInParallel(snippets, binaryDirectories);
+            } else {
+                for (Snippet snippet : snippets) {
+                    handleSnippet(snippet, binaryDirectories);
+                }
+            }
+
+            htmlGenerator.generateIndex();
+        } finally {
+            close();
+        }
+
+        // NOTE check whether all result records are created
+        RunnerResultStore store = getResultStore();
         // foreach containers
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
             // foreach snippets
@@ -160,10 +216,8 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
                     continue;
                 }
 
-                File resultXmlFile = RunnerProjectUtils
-                        .getSnippetResultFile(getRunnerProjectSettings(), snippet);
-
-                new PathValidator(resultXmlFile.toPath()).type(PathType.REGULAR_FILE).validate();
+                Validate.isTrue(store.contains(snippet.getId(), RecordType.RESULT),
+                        "Missing result record: " + snippet.getId());
             }
         }
 
@@ -171,31 +225,88 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
         System.err.println("=> ANALYZE ENDED");
     }
 
-    private void handleSnippet(Snippet snippet, Serializer serializer, File[] binaryDirectories)
+    /**
+     * Analyzes the snippets on {@link #getParallelism()} threads. The method waits for all the
+     * snippets even if some of them have failed and then throws the failure of the first failed
+     * snippet (in the order of the list).
+     *
+     * @param snippets
+     *            the snippets to analyze
+     * @param binaryDirectories
+     *            the binary directories for the {@link JaCoCoClassLoader}
+     * @throws Exception
+     *             if the analysis of a snippet has failed
+     */
+    private void analyzeInParallel(List<Snippet> snippets, File[] binaryDirectories)
             throws Exception {
-        File inputsXmlFile = RunnerProjectUtils
-                .getSnippetInputsFile(getRunnerProjectSettings(), snippet);
+        log.info("Analyzing {} snippets on {} threads", snippets.size(), parallelism);
 
-        if (!inputsXmlFile.exists()) {
-            throw new RuntimeException("Missing inputsXML: " + inputsXmlFile);
-        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Snippet snippet : snippets) {
+                futures.add(executor.submit(() -> {
+                    handleSnippet(snippet, binaryDirectories);
+                    return null;
+                }));
+            }
 
-        // it is now tricky, classloader hell
-        SnippetInputsXml inputsXml;
-        {
-            // save current class loader
-            ClassLoader originalClassLoader = Thread.currentThread()
-                    .getContextClassLoader();
+            Exception firstFailure = null;
+            for (int i = 0; i < snippets.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    log.error("Analysis failed: " + snippets.get(i).getId(), ex.getCause());
+
+                    Exception failure = ex.getCause() instanceof Exception
+                            ? (Exception) ex.getCause() : ex;
+                    if (firstFailure == null) {
+                        firstFailure = failure;
+                    } else {
+                        firstFailure.addSuppressed(failure);
+                    }
+                }
+            }
 
-            // set snippet project class loader
-            Thread.currentThread()
-                    .setContextClassLoader(getSnippetProject().getClassLoader());
+            if (firstFailure != null) {
+                throw firstFailure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            // read data
-            inputsXml = serializer.read(SnippetInputsXml.class, inputsXmlFile);
+    /**
+     * Runs the test suite of one snippet, measures its coverage and writes the result XML. The
+     * tests must have already been compiled into the binary directory of the runner project.
+     *
+     * @param snippet
+     *            the snippet
+     * @throws Exception
+     *             if the test suite cannot be run or analyzed
+     */
+    public void handleSnippet(Snippet snippet) throws Exception {
+        handleSnippet(snippet, getBinaryDirectories());
+    }
 
-            // set back the original class loader
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
+    /**
+     * Gets the binary directories for the {@link JaCoCoClassLoader}.
+     *
+     * @return the binary directories of the snippet project and the runner project
+     */
+    private File[] getBinaryDirectories() {
+        File[] binaryDirectories = new File[2];
+        binaryDirectories[0] = getSnippetProject().getBuildDir().toFile();
+        binaryDirectories[1] = getRunnerProjectSettings().getBinaryDirectory();
+        log.debug("Binary directories: {}", (Object) binaryDirectories);
+        return binaryDirectories;
+    }
+
+    private void handleSnippet(Snippet snippet, File[] binaryDirectories) throws Exception {
+        // only the header is needed, the inputs are not materialized
+        SnippetInputsXml inputsXml = readSnippetInputsHeader(snippet);
+        if (inputsXml == null) {
+            throw new RuntimeException("Missing inputs: " + snippet.getId());
         }
 
         // skip N/A, EX, T/M and already done
@@ -216,20 +327,14 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
                     inputsXml.getResultType(), reqCov);
             resultXml.validate();
 
-            // TODO needs more documentation
-            File resultFile = RunnerProjectUtils
-                    .getSnippetResultFile(getRunnerProjectSettings(), snippet);
-
-            Serializer serializerWrite = new Persister(new AnnotationStrategy(),
-                    new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-
-            serializerWrite.write(resultXml, resultFile);
+            writeSnippetXml(snippet, resultXml);
+            htmlGenerator.addToIndex(snippet, resultXml.getResultType());
 
             return;
         }
 
         if (inputsXml.getGeneratedInputCount() == 0) {
-            // throw new RuntimeException("No inputs: " + inputsXmlFile);
+            // throw new RuntimeException("No inputs: " + snippet.getId());
         }
 
         // NOTE remove try-catch
@@ -242,14 +347,7 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
                     coverageXml.getResultType(), coverageXml.getAchievedCoverage());
             resultXml.validate();
 
-            // TODO needs more documentation
-            File resultFile = RunnerProjectUtils
-                    .getSnippetResultFile(getRunnerProjectSettings(), snippet);
-
-            Serializer serializerWrite = new Persister(new AnnotationStrategy(),
-                    new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-
-            serializerWrite.write(resultXml, resultFile);
+            writeSnippetXml(snippet, resultXml);
         } catch (ValidationException ex) {
             System.err.println(ex.getMessage());
             throw new RuntimeException("Validation failed");
@@ -293,17 +391,9 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
         log.debug("Snippet: {}#{}()", snippetClassName, snippetMethodName);
         log.debug("Test: {}", testClassName);
 
-        // create JaCoCo runtime and instrumenter
-        IRuntime runtime = new LoggerRuntime();
-        Instrumenter instrumenter = new Instrumenter(runtime);
-
-        // start runtime
-        RuntimeData data = new RuntimeData();
-        runtime.startup(data);
-
-        // create class loader
+        // create class loader (it stores the probes of the classes loaded by it)
         JaCoCoClassLoader testClassLoader = new JaCoCoClassLoader(binaryDirectories,
-                instrumenter, getSnippetProject().getClassLoader());
+                getInstrumentedClassCache(), getSnippetProject().getClassLoader());
         // load test class
         // snippet class and other dependencies will be loaded and instrumented
         // on the fly
@@ -378,100 +468,16 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
         //
         ExecutionDataStore executionData = new ExecutionDataStore();
         SessionInfoStore sessionInfos = new SessionInfoStore();
-        data.collect(executionData, sessionInfos, false);
-        runtime.shutdown();
-
-        // get classes to analyse
-        // store string to avoid the mess up between the different class loaders
-        Set<String> javaClasses = new HashSet<>();
-        javaClasses.add(snippetClassName);
-
-        for (Constructor<?> inclConstructor : snippet.getIncludedConstructors()) {
-            javaClasses.add(inclConstructor.getDeclaringClass().getName());
-        }
-
-        for (Method inclMethod : snippet.getIncludedMethods()) {
-            javaClasses.add(inclMethod.getDeclaringClass().getName());
-        }
-
-        // TODO inner classes are not handled well enough
-
-        // TODO anonymous classes can also have anonymous classes -> recursion
-
-        Set<String> toAdd = new HashSet<>();
-        for (String javaClass : javaClasses) {
-            int i = 1;
-            while (true) {
-                // guess anonymous classes, like ClassName$1, ClassName$2 etc.
-                try {
-                    testClassLoader.loadClass(javaClass + "$" + i);
-                    toAdd.add(javaClass + "$" + i);
-                    i++;
-                } catch (ClassNotFoundException ex) {
-                    // bad guess, no more anonymous classes on this level
-                    break;
-                }
-            }
-        }
-        javaClasses.addAll(toAdd);
-
-        // analyse classes
-        CoverageBuilder coverageBuilder = new CoverageBuilder();
-        Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
-
-        for (String javaClassName : javaClasses) {
-            log.trace("Analysing: {}", javaClassName);
-            analyzer.analyzeClass(testClassLoader.readBytes(javaClassName), javaClassName);
-        }
+        testClassLoader.getRuntimeData().collect(executionData, sessionInfos, false);
 
         // TODO remove debug
         // new File("D:/SETTE/!DUMP/" + getTool().getName()).mkdirs();
         // PrintStream out = new PrintStream("D:/SETTE/!DUMP/"
         // + getTool().getName() + "/" + testClassName + ".out");
 
-        Map<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> coverageInfo = new HashMap<>();
+        CoverageInfo coverageInfo = analyzeCoverage(snippet, testClassLoader, executionData);
 
-        for (IClassCoverage cc : coverageBuilder.getClasses()) {
-            String file = cc.getPackageName() + '/' + cc.getSourceFileName();
-            file = file.replace('\\', '/');
-
-            if (!coverageInfo.containsKey(file)) {
-                coverageInfo.put(file, Triple.of(new TreeSet<Integer>(), new TreeSet<Integer>(),
-                        new TreeSet<Integer>()));
-            }
-
-            // out.printf("Coverage of class %s%n", cc.getName());
-            //
-            // printCounter(out, "instructions",
-            // cc.getInstructionCounter());
-            // printCounter(out, "branches", cc.getBranchCounter());
-            // printCounter(out, "lines", cc.getLineCounter());
-            // printCounter(out, "methods", cc.getMethodCounter());
-            // printCounter(out, "complexity", cc.getComplexityCounter());
-
-            for (int l = cc.getFirstLine(); l <= cc.getLastLine(); l++) {
-                switch (LineStatus.fromJaCoCo(cc.getLine(l).getStatus())) {
-                    case FULLY_COVERED:
-                        coverageInfo.get(file).getLeft().add(l);
-                        break;
-
-                    case PARTLY_COVERED:
-                        coverageInfo.get(file).getMiddle().add(l);
-                        break;
-
-                    case NOT_COVERED:
-                        coverageInfo.get(file).getRight().add(l);
-                        break;
-
-                    default:
-                        // empty
-                        break;
-                }
-            }
-        }
-
-        SnippetCoverageXml coverageXml = createAndWriteCoverageXmlAndHtml(snippet,
-                new CoverageInfo(coverageInfo));
+        SnippetCoverageXml coverageXml = createAndWriteCoverageXmlAndHtml(snippet, coverageInfo);
 
         return coverageXml;
     }
@@ -489,17 +495,9 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
         log.debug("Snippet: {}#{}()", snippetClassName, snippetMethodName);
         log.debug("Test: {}", testClassName);
 
-        // create JaCoCo runtime and instrumenter
-        IRuntime runtime = new LoggerRuntime();
-        Instrumenter instrumenter = new Instrumenter(runtime);
-
-        // start runtime
-        RuntimeData data = new RuntimeData();
-        runtime.startup(data);
-
-        // create class loader
+        // create class loader (it stores the probes of the classes loaded by it)
         JaCoCoClassLoader testClassLoader = new JaCoCoClassLoader(binaryDirectories,
-                instrumenter, getSnippetProject().getClassLoader());
+                getInstrumentedClassCache(), getSnippetProject().getClassLoader());
         // load test class
         // snippet class and other dependencies will be loaded and instrumented
         // on the fly
@@ -543,124 +541,129 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
             }
         });
 
-        // Invoke test methods in each test class
-        CoverageInfo mergedCoverageInfo = new CoverageInfo();
+        // Invoke test methods in each test class, the execution data of the test cases is
+        // merged and analyzed once
+        ExecutionDataStore executionData = new ExecutionDataStore();
         for (Method method : testMethods) {
-            CoverageInfo coverageInfo = executeOneTestCaseWithAgent(snippet, method);
-            coverageInfo.data.forEach((filename, tuple) -> {
-                if (!mergedCoverageInfo.data.containsKey(filename)) {
-                    mergedCoverageInfo.data.put(filename, tuple);
-                } else {
-                    Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>> mergedTuple;
-                    mergedTuple = mergedCoverageInfo.data.get(filename);
-
-                    mergedTuple.getLeft().addAll(tuple.getLeft());
-                    mergedTuple.getMiddle().addAll(tuple.getMiddle());
-                    mergedTuple.getRight().addAll(tuple.getRight());
-                }
-            });
-
+            executeOneTestCaseWithAgent(snippet, method, executionData);
         }
 
-        // clean merged coverage info
-        mergedCoverageInfo.data.forEach((filename, tuple) -> {
-            // remove green and yellow from red
-            tuple.getRight().removeAll(tuple.getLeft());
-            tuple.getRight().removeAll(tuple.getMiddle());
-
-            // remove green from yellow
-            tuple.getMiddle().removeAll(tuple.getLeft());
-
-            // condition "no intersections" will be checked during xml creation
-        });
-
-        return createAndWriteCoverageXmlAndHtml(snippet, mergedCoverageInfo);
+        CoverageInfo coverageInfo = analyzeCoverage(snippet, testClassLoader, executionData);
+        return createAndWriteCoverageXmlAndHtml(snippet, coverageInfo);
     }
 
-    private CoverageInfo executeOneTestCaseWithAgent(Snippet snippet, Method testMethod)
-            throws Exception {
-        // NOTE absolute/real paths because workdir will be the runner project dir for the agent
-
-        List<String> command = Lists.newArrayList("java", "-cp");
-
-        String classpath;
-        Path setteJar = Paths.get("sette-all.jar");
-        if (PathUtils.exists(setteJar)) {
-            // normal run (alljar)
-            classpath = setteJar.toRealPath().toString();
-        } else {
-            // run with current classpath (maybe Eclipse)
-            URL[] urls = ((URLClassLoader) ClassLoader.getSystemClassLoader()).getURLs();
-            classpath = Stream.of(urls).map(url -> url.getFile())
-                    .collect((Collectors.joining(File.pathSeparator)));
-        }
-
-        command.add(classpath);
-        command.add(TestSuiteRunnerForkAgent.class.getName());
-
-        // parameters for the agent
-        command.add(getSnippetProject().getBaseDir().toString());
-        // sette-results dir
-        command.add(getRunnerProjectSettings().getBaseDir().getParent().toString());
-        String toolArg = String.format("%s|%s|%s", getTool().getClass().getName(),
-                getTool().getName(), getTool().getToolDir());
-        command.add(toolArg);
-        command.add(getRunnerProjectSettings().getTag());
-        command.add(snippet.getId());
-        command.add(testMethod.getDeclaringClass().getName());
-        command.add(testMethod.getName());
-
-        // create process
+    private void executeOneTestCaseWithAgent(Snippet snippet, Method testMethod,
+            ExecutionDataStore executionData) throws Exception {
         log.info("Agent for {} {} {}", snippet.getName(), testMethod.getDeclaringClass().getName(),
                 testMethod.getName());
-        log.trace("Agent command: " + command);
 
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.directory(getRunnerProjectSettings().getBaseDir());
+        getAgentPool().execute(snippet.getId(), testMethod.getDeclaringClass().getName(),
+                testMethod.getName(), executionData);
+    }
 
-        // test case timeout + (10% but at least 5 sec)
-        int processTimeout = TEST_CASE_TIMEOUT_IN_MS
-                + (int) Math.max(5000, TEST_CASE_TIMEOUT_IN_MS * 0.1);
-        ProcessExecutor exec = new ProcessExecutor(pb, processTimeout);
+    /**
+     * Gets the cache of the instrumented classes (shared by all the snippets), creates it if
+     * needed.
+     *
+     * @return the cache of the instrumented classes
+     */
+    private synchronized InstrumentedClassCache getInstrumentedClassCache() {
+        if (instrumentedClassCache == null) {
+            instrumentedClassCache = TestSuiteRunnerHelper
+                    .createInstrumentedClassCache(getRunnerProjectSettings());
+        }
 
-        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener();
-        ProcessExecutionResult execResult = exec.execute(listener);
+        return instrumentedClassCache;
+    }
 
-        if (execResult.isDestroyed()) {
-            System.err.println("TIMEOUT for agent: " + String.join(" ", command));
-            System.err.println("Exit code: " + execResult);
-            System.err.println("== STDOUT ==============================");
-            System.err.println(listener.getStdoutData());
+    /**
+     * Gets the source structure index of the snippet project, loads (and updates) it if needed.
+     *
+     * @return the source structure index
+     * @throws IOException
+     *             if the index cannot be loaded
+     */
+    private synchronized SourceStructureIndex getSourceStructureIndex() throws IOException {
+        if (sourceStructureIndex == null) {
+            sourceStructureIndex = SourceStructureIndex.load(getSnippetProject(), parallelism);
+        }
 
-            System.err.println("== STDERR ==============================");
-            System.err.println(listener.getStderrData());
-            System.err.println("========================================");
+        return sourceStructureIndex;
+    }
 
-            throw new RuntimeException("TIMEOUT for agent: " + String.join(" ", command));
-        } else if (execResult.getExitValue() != 0) {
-            System.err.println("FAILURE for agent: " + String.join(" ", command));
-            System.err.println("Result: " + execResult);
-            System.err.println("== STDOUT ==============================");
-            System.err.println(listener.getStdoutData());
+    /**
+     * Gets the agent pool, creates it if needed.
+     *
+     * @return the agent pool
+     */
+    private synchronized TestSuiteRunnerAgentPool getAgentPool() {
+        if (agentPool == null) {
+            // NOTE absolute/real paths because workdir will be the runner project dir for the
+            // agent
+            List<String> command = Lists.newArrayList("java", "-cp");
+
+            String classpath;
+            Path setteJar = Paths.get("sette-all.jar");
+            if (PathUtils.exists(setteJar)) {
+                // normal run (alljar)
+                try {
+                    classpath = setteJar.toRealPath().toString();
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            } else {
+                // run with current classpath (maybe Eclipse)
+                URL[] urls = ((URLClassLoader) ClassLoader.getSystemClassLoader()).getURLs();
+                classpath = Stream.of(urls).map(url -> url.getFile())
+                        .collect((Collectors.joining(File.pathSeparator)));
+            }
 
-            System.err.println("== STDERR ==============================");
-            System.err.println(listener.getStderrData());
-            System.err.println("========================================");
+            command.add(classpath);
+            command.add(TestSuiteRunnerForkAgent.class.getName());
+            command.add(TestSuiteRunnerForkAgent.SERVE_ARG);
+
+            // parameters for the agent
+            command.add(getSnippetProject().getBaseDir().toString());
+            // sette-results dir
+            command.add(getRunnerProjectSettings().getBaseDir().getParent().toString());
+            String toolArg = String.format("%s|%s|%s", getTool().getClass().getName(),
+                    getTool().getName(), getTool().getToolDir());
+            command.add(toolArg);
+            command.add(getRunnerProjectSettings().getTag());
+
+            log.debug("Agent command: {}", command);
+
+            // test case timeout + (10% but at least 5 sec)
+            int timeout = TEST_CASE_TIMEOUT_IN_MS
+                    + (int) Math.max(5000, TEST_CASE_TIMEOUT_IN_MS * 0.1);
+            agentPool = new TestSuiteRunnerAgentPool(command,
+                    getRunnerProjectSettings().getBaseDir(), parallelism, timeout);
+        }
 
-            throw new RuntimeException("FAILURE for agent: " + String.join(" ", command));
+        return agentPool;
+    }
+
+    /**
+     * Stops the agents which were started to run the tests of forked snippet containers. The test
+     * suite runner can still be used after calling this method (new agents will be started).
+     */
+    @Override
+    public synchronized void close() {
+        if (agentPool != null) {
+            agentPool.close();
+            agentPool = null;
         }
 
-        String output = listener.getStdoutData().toString();
-        int jsonIdx = output.lastIndexOf(TestSuiteRunnerForkAgent.AGENT_JSON_INDICATOR);
-        String jsonString = output
-                .substring(jsonIdx + TestSuiteRunnerForkAgent.AGENT_JSON_INDICATOR.length());
-        return CoverageInfo.fromJsonString(jsonString);
+        if (instrumentedClassCache != null) {
+            log.info("Instrumented classes: {}", instrumentedClassCache);
+        }
     }
 
     private SnippetCoverageXml createAndWriteCoverageXmlAndHtml(Snippet snippet,
             CoverageInfo coverageInfo) throws Exception {
         // decide result type
-        Pair<ResultType, Double> resultTypeAndCoverage = decideResultType(snippet, coverageInfo);
+        Pair<ResultType, Double> resultTypeAndCoverage = decideResultType(snippet, coverageInfo,
+                getSourceStructureIndex());
         ResultType resultType = resultTypeAndCoverage.getLeft();
         double coverage = resultTypeAndCoverage.getRight();
 
@@ -684,34 +687,16 @@ public final class TestSuiteRunner extends EvaluationTask<Tool> {
         coverageXml.setResultType(resultType);
         coverageXml.setAchievedCoverage(coverage);
 
-        for (Entry<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> entry : coverageInfo.data
-                .entrySet()) {
-            SortedSet<Integer> full = entry.getValue().getLeft();
-            SortedSet<Integer> partial = entry.getValue().getMiddle();
-            SortedSet<Integer> not = entry.getValue().getRight();
-
-            FileCoverageElement fce = new FileCoverageElement();
-            fce.setName(entry.getKey());
-            fce.setFullyCoveredLines(StringUtils.join(full, ' '));
-            fce.setPartiallyCoveredLines(StringUtils.join(partial, ' '));
-            fce.setNotCoveredLines(StringUtils.join(not, ' '));
-
-            coverageXml.getCoverage().add(fce);
-        }
+        coverageInfo.getFiles().forEach((file, lineCoverage) -> {
+            coverageXml.getCoverage().add(lineCoverage.toFileCoverageElement(file));
+        });
 
         coverageXml.validate();
 
-        // TODO needs more documentation
-        File coverageFile = RunnerProjectUtils.getSnippetCoverageFile(getRunnerProjectSettings(),
-                snippet);
-
-        Serializer serializer = new Persister(new AnnotationStrategy(),
-                new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-
-        serializer.write(coverageXml, coverageFile);
+        writeSnippetXml(snippet, coverageXml);
 
         // generate html
-        new HtmlGenerator(this).generate(snippet, coverageXml);
+        htmlGenerator.generate(snippet, coverageXml);
 
         return coverageXml;
     }
@@ -0,0 +1,410 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+
+/**
+ * Pool of long-lived {@link TestSuiteRunnerForkAgent} processes (started in serve mode). The
+ * agents parse the snippet project only once and then run the requested test cases one after the
+ * other, thus the JVM startup and the project parsing is not paid for every test case.
+ * <p>
+ * The agents return the execution data of the test cases in JaCoCo exec format through temporary
+ * files (the stdout of the agents only carries the protocol), the execution data is merged and
+ * analyzed by the caller.
+ * <p>
+ * An agent is discarded (and a new one is started when needed) if it times out, dies or reports
+ * that a test case has left running threads behind. The class is thread-safe, at most
+ * {@link #getMaxSize()} agents are running at the same time.
+ */
+public final class TestSuiteRunnerAgentPool implements AutoCloseable {
+    /** Timeout for the agent startup (JVM start and snippet project parsing). */
+    public static final int AGENT_STARTUP_TIMEOUT_IN_MS = 60000;
+
+    /** The number of stderr lines kept for diagnostics. */
+    private static final int STDERR_TAIL_LINE_COUNT = 200;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /** The command to start an agent in serve mode. */
+    private final List<String> command;
+
+    /** The working directory of the agents. */
+    private final File workingDirectory;
+
+    /** The maximum number of agents. */
+    private final int maxSize;
+
+    /** The timeout for one test case in ms. */
+    private final int timeoutInMs;
+
+    /** Limits the number of running agents. */
+    private final Semaphore permits;
+
+    /** The idle agents. */
+    private final Deque<Agent> idleAgents = new ArrayDeque<>();
+
+    /** The number of started agents. */
+    private final AtomicInteger startedAgentCount = new AtomicInteger();
+
+    /** The number of executed test cases. */
+    private final AtomicInteger executedTestCaseCount = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new agent pool. The agents are started lazily.
+     *
+     * @param command
+     *            the command to start an agent in serve mode
+     * @param workingDirectory
+     *            the working directory of the agents
+     * @param maxSize
+     *            the maximum number of agents, must be positive
+     * @param timeoutInMs
+     *            the timeout for one test case in ms, must be positive
+     */
+    public TestSuiteRunnerAgentPool(@NonNull List<String> command, @NonNull File workingDirectory,
+            int maxSize, int timeoutInMs) {
+        checkArgument(maxSize >= 1, "The max size must be positive: %s", maxSize);
+        checkArgument(timeoutInMs >= 1, "The timeout must be positive: %s", timeoutInMs);
+
+        this.command = new ArrayList<>(command);
+        this.workingDirectory = workingDirectory;
+        this.maxSize = maxSize;
+        this.timeoutInMs = timeoutInMs;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getStartedAgentCount() {
+        return startedAgentCount.get();
+    }
+
+    public int getExecutedTestCaseCount() {
+        return executedTestCaseCount.get();
+    }
+
+    /**
+     * Runs one test case in an agent and merges its execution data into the specified store. The
+     * caller thread is blocked until an agent is available and the test case has finished.
+     *
+     * @param snippetId
+     *            the id of the snippet
+     * @param testClassName
+     *            the name of the test class
+     * @param testMethodName
+     *            the name of the test method
+     * @param executionData
+     *            the store to merge the execution data of the test case into
+     * @throws Exception
+     *             if the agent has failed or timed out or the pool is closed
+     */
+    public void execute(@NonNull String snippetId, @NonNull String testClassName,
+            @NonNull String testMethodName, @NonNull ExecutionDataStore executionData)
+                    throws Exception {
+        checkState(!closed, "The agent pool is closed");
+        permits.acquire();
+
+        Agent agent = null;
+        boolean reusable = false;
+        Path execFile = null;
+        try {
+            synchronized (idleAgents) {
+                agent = idleAgents.pollFirst();
+            }
+
+            if (agent == null || !agent.isAlive()) {
+                if (agent != null) {
+                    agent.destroy();
+                }
+                agent = startAgent();
+            }
+
+            execFile = Files.createTempFile("sette-agent-", ".exec");
+            String request = String.join("\t", snippetId, testClassName, testMethodName,
+                    execFile.toString());
+            AgentResponse response = agent.execute(request);
+            executedTestCaseCount.incrementAndGet();
+
+            reusable = !response.recycle;
+
+            if (response.error != null) {
+                System.err.println("FAILURE for agent: " + request);
+                System.err.println("Error: " + response.error);
+                agent.dumpStderr();
+                throw new RuntimeException("FAILURE for agent: " + request);
+            }
+
+            readExecFile(execFile, executionData);
+        } finally {
+            if (execFile != null) {
+                Files.deleteIfExists(execFile);
+            }
+
+            if (agent != null) {
+                synchronized (idleAgents) {
+                    if (reusable && !closed) {
+                        idleAgents.addFirst(agent);
+                        agent = null;
+                    }
+                }
+
+                if (agent != null) {
+                    agent.destroy();
+                }
+            }
+
+            permits.release();
+        }
+    }
+
+    /**
+     * Stops all the idle agents and disables the pool. Agents which are in use are stopped when
+     * their test case has finished.
+     */
+    @Override
+    public void close() {
+        synchronized (idleAgents) {
+            closed = true;
+            idleAgents.forEach(Agent::close);
+            idleAgents.clear();
+        }
+
+        log.info("Agent pool closed: {} agent(s) were started for {} test case(s)",
+                startedAgentCount.get(), executedTestCaseCount.get());
+    }
+
+    private static void readExecFile(Path execFile, ExecutionDataStore executionData)
+            throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(execFile))) {
+            ExecutionDataReader reader = new ExecutionDataReader(in);
+            // ExecutionDataStore merges the probes of the same class
+            reader.setExecutionDataVisitor(executionData);
+            reader.setSessionInfoVisitor(new SessionInfoStore());
+            reader.read();
+        }
+    }
+
+    private Agent startAgent() throws IOException {
+        log.debug("Starting agent: {}", command);
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workingDirectory);
+
+        Agent agent = new Agent(pb.start());
+        startedAgentCount.incrementAndGet();
+
+        agent.awaitReady();
+        return agent;
+    }
+
+    private static final class AgentResponse {
+        private boolean exec = false;
+        private String error;
+        private boolean recycle = false;
+    }
+
+    /**
+     * One agent process. Its stdout and stderr are read by daemon threads to be able to wait for
+     * the responses with timeout.
+     */
+    private final class Agent {
+        private final Process process;
+        private final Writer stdin;
+        /** The lines of stdout, the end of the stream is marked by an empty element. */
+        private final BlockingQueue<Optional<String>> stdoutLines = new LinkedBlockingQueue<>();
+        private final Deque<String> stderrTail = new ArrayDeque<>();
+
+        private Agent(Process process) {
+            this.process = process;
+            this.stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+
+            startPump(process.getInputStream(), "stdout", line -> stdoutLines.add(Optional.of(line)));
+            startPump(process.getErrorStream(), "stderr", line -> {
+                synchronized (stderrTail) {
+                    if (stderrTail.size() >= STDERR_TAIL_LINE_COUNT) {
+                        stderrTail.removeFirst();
+                    }
+                    stderrTail.addLast(line);
+                }
+            });
+        }
+
+        private void startPump(InputStream stream, String name, Consumer<String> consumer) {
+            Thread pump = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        consumer.accept(line);
+                    }
+                } catch (IOException ex) {
+                    // the process has been destroyed
+                } finally {
+                    if (stream == process.getInputStream()) {
+                        stdoutLines.add(Optional.empty());
+                    }
+                }
+            }, "AGENT-" + name + "-" + startedAgentCount.get());
+            pump.setDaemon(true);
+            pump.start();
+        }
+
+        private boolean isAlive() {
+            return process.isAlive();
+        }
+
+        private void awaitReady() {
+            long deadline = System.currentTimeMillis() + AGENT_STARTUP_TIMEOUT_IN_MS;
+
+            while (true) {
+                String line = nextLine(deadline, "startup");
+                if (line.equals(TestSuiteRunnerForkAgent.AGENT_READY_INDICATOR)) {
+                    return;
+                }
+            }
+        }
+
+        private AgentResponse execute(String request) throws IOException {
+            stdin.write(request);
+            stdin.write('\n');
+            stdin.flush();
+
+            long deadline = System.currentTimeMillis() + timeoutInMs;
+            AgentResponse response = new AgentResponse();
+
+            while (true) {
+                String line = nextLine(deadline, request);
+
+                if (line.equals(TestSuiteRunnerForkAgent.AGENT_END_INDICATOR)) {
+                    break;
+                } else if (line.equals(TestSuiteRunnerForkAgent.AGENT_EXEC_INDICATOR)) {
+                    response.exec = true;
+                } else if (line.equals(TestSuiteRunnerForkAgent.AGENT_ERROR_INDICATOR)) {
+                    response.exec = false;
+                    response.error = nextLine(deadline, request);
+                } else if (line.equals(TestSuiteRunnerForkAgent.AGENT_RECYCLE_INDICATOR)) {
+                    response.recycle = true;
+                }
+            }
+
+            if (!response.exec && response.error == null) {
+                response.error = "No result from agent";
+            }
+
+            return response;
+        }
+
+        private String nextLine(long deadline, String request) {
+            Optional<String> line;
+            try {
+                line = stdoutLines.poll(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                destroy();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for agent: " + request, ex);
+            }
+
+            if (line == null) {
+                System.err.println("TIMEOUT for agent: " + request);
+                destroy();
+                dumpStderr();
+                throw new RuntimeException("TIMEOUT for agent: " + request);
+            } else if (!line.isPresent()) {
+                System.err.println("FAILURE for agent: " + request);
+                destroy();
+                dumpStderr();
+                throw new RuntimeException("FAILURE for agent (terminated): " + request);
+            } else {
+                return line.get();
+            }
+        }
+
+        private void dumpStderr() {
+            System.err.println("== STDERR (tail) =======================");
+            synchronized (stderrTail) {
+                stderrTail.forEach(System.err::println);
+            }
+            System.err.println("========================================");
+        }
+
+        /** Closes stdin so that the agent exits by itself. */
+        private void close() {
+            try {
+                stdin.close();
+            } catch (IOException ex) {
+                // the process has already died
+            }
+
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    destroy();
+                }
+            } catch (InterruptedException ex) {
+                destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
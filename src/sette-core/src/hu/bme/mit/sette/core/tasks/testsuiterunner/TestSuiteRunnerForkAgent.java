@@ -23,37 +23,34 @@
 // NOTE revise this file
 package hu.bme.mit.sette.core.tasks.testsuiterunner;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.tuple.Triple;
-import org.jacoco.core.analysis.Analyzer;
-import org.jacoco.core.analysis.CoverageBuilder;
-import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.data.SessionInfoStore;
-import org.jacoco.core.instr.Instrumenter;
-import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.LoggerRuntime;
-import org.jacoco.core.runtime.RuntimeData;
 import org.junit.Before;
 
 import com.google.common.base.Splitter;
@@ -67,36 +64,76 @@ import hu.bme.mit.sette.core.tool.Tool;
 import junit.framework.AssertionFailedError;
 
 /**
- * Agent to run one test case (as a separate JVM process). Output:
+ * Agent to run test cases (as a separate JVM process). It has two modes:
  * <ul>
- * <li>log on syserr (and possible output on syserr and sysout from the test case
- * <li>{@link #AGENT_JSON_INDICATOR} on sysout
- * <li>coverage result as a JSON on sysout
+ * <li>single mode: runs one test case which is specified by the arguments and exits
+ * <li>serve mode ({@link #SERVE_ARG}): loads the snippet project once, then reads test case
+ * requests from stdin (one per line,
+ * {@code snippetId TAB testClassName TAB testMethodName TAB execFile}) until EOF</li>
+ * </ul>
+ * The execution data (the probes of the classes loaded by the test case) is written in JaCoCo exec
+ * format into the exec file specified by the request, the coverage is analyzed by the host.
+ * Output:
+ * <ul>
+ * <li>log on syserr (and possible output on syserr and sysout from the test case; in serve mode
+ * the output of the test case is redirected to syserr)
+ * <li>{@link #AGENT_READY_INDICATOR} on sysout when the agent is ready to serve (serve mode only)
+ * <li>{@link #AGENT_EXEC_INDICATOR} on sysout when the exec file has been written (or
+ * {@link #AGENT_ERROR_INDICATOR} and the error message in serve mode)
+ * <li>{@link #AGENT_RECYCLE_INDICATOR} if the agent will exit because the test case has left
+ * running threads behind (serve mode only)
+ * <li>{@link #AGENT_END_INDICATOR} at the end of the response (serve mode only)
  * </ul>
  */
 public final class TestSuiteRunnerForkAgent {
-    public static final String AGENT_JSON_INDICATOR = "== TEST RESULT JSON ==";
+    public static final String SERVE_ARG = "--serve";
+    public static final String AGENT_READY_INDICATOR = "== AGENT READY ==";
+    public static final String AGENT_EXEC_INDICATOR = "== TEST RESULT EXEC ==";
+    public static final String AGENT_ERROR_INDICATOR = "== TEST RESULT ERROR ==";
+    public static final String AGENT_RECYCLE_INDICATOR = "== AGENT RECYCLE ==";
+    public static final String AGENT_END_INDICATOR = "== TEST RESULT END ==";
     private static final AgentLogger log = new AgentLogger(System.err);
 
     public static void main(String[] args) {
         try {
             Thread.currentThread().setName("AGENT-MAIN");
 
-            List<String> argsList = Arrays.asList(args);
+            Queue<String> argsQueue = Queues.newArrayDeque(Arrays.asList(args));
+            log.info("Args: " + argsQueue);
+
+            boolean serve = SERVE_ARG.equals(argsQueue.peek());
+            if (serve) {
+                argsQueue.remove();
+            }
+
+            TestSuiteRunnerForkAgent agent = new TestSuiteRunnerForkAgent(argsQueue);
+
+            if (serve) {
+                if (!argsQueue.isEmpty()) {
+                    throw new RuntimeException("Too many arguments: " + argsQueue);
+                }
+
+                agent.serve();
+            } else {
+                String snippetId = argsQueue.remove();
+                String testClassName = argsQueue.remove();
+                String testMethodName = argsQueue.remove();
+                Path execFile = Paths.get(argsQueue.remove());
 
-            log.info("Args: " + argsList);
-            TestSuiteRunnerForkAgent agent = new TestSuiteRunnerForkAgent(
-                    Queues.newArrayDeque(argsList));
+                if (!argsQueue.isEmpty()) {
+                    throw new RuntimeException("Too many arguments: " + argsQueue);
+                }
 
-            log.info(String.format("Agent created for %s: %s_%s (project: %s)",
-                    agent.snippet.getId(), agent.testClassName, agent.testMethodName,
-                    agent.runnerProjectSettings.getProjectName()));
+                log.info(String.format("Agent created for %s: %s_%s (project: %s)", snippetId,
+                        testClassName, testMethodName,
+                        agent.runnerProjectSettings.getProjectName()));
 
-            CoverageInfo result = agent.analyze();
-            String json = result.toJsonString();
+                ExecutionDataStore result = agent.run(agent.getSnippet(snippetId),
+                        testClassName, testMethodName);
+                writeExecFile(result, execFile);
 
-            System.out.println(AGENT_JSON_INDICATOR);
-            System.out.println(json);
+                System.out.println(AGENT_EXEC_INDICATOR);
+            }
 
             // make sure that no thread will keep the JVM running
             System.exit(0);
@@ -109,9 +146,8 @@ public final class TestSuiteRunnerForkAgent {
     private final SnippetProject snippetProject;
     private final Tool tool;
     private final RunnerProjectSettings<Tool> runnerProjectSettings;
-    private final Snippet snippet;
-    private final String testClassName;
-    private final String testMethodName;
+    private final Map<String, Snippet> snippets;
+    private final InstrumentedClassCache instrumentedClassCache;
 
     public TestSuiteRunnerForkAgent(Queue<String> args) throws Exception {
         // parse args
@@ -119,13 +155,6 @@ public final class TestSuiteRunnerForkAgent {
         Path outputDir = Paths.get(args.remove());
         List<String> toolConfig = Splitter.on('|').limit(3).splitToList(args.remove());
         String runnerProjectTag = args.remove();
-        String snippetId = args.remove();
-        testClassName = args.remove();
-        testMethodName = args.remove();
-
-        if (!args.isEmpty()) {
-            throw new RuntimeException("Too many arguments: " + args);
-        }
 
         // create context
         snippetProject = SnippetProject.parse(snippetProjectDir);
@@ -134,12 +163,121 @@ public final class TestSuiteRunnerForkAgent {
         runnerProjectSettings = new RunnerProjectSettings<>(snippetProject, outputDir, tool,
                 runnerProjectTag);
 
-        snippet = snippetProject.getSnippetContainers().stream()
+        snippets = snippetProject.getSnippetContainers().stream()
                 .flatMap(sc -> sc.getSnippets().values().stream())
-                .filter(s -> s.getId().equals(snippetId)).findAny().get();
+                .collect(Collectors.toMap(s -> s.getId(), s -> s));
+
+        instrumentedClassCache = TestSuiteRunnerHelper
+                .createInstrumentedClassCache(runnerProjectSettings);
+    }
+
+    private Snippet getSnippet(String snippetId) {
+        Snippet snippet = snippets.get(snippetId);
+        if (snippet == null) {
+            throw new RuntimeException("Unknown snippet: " + snippetId);
+        }
+        return snippet;
     }
 
-    private CoverageInfo analyze()
+    /**
+     * Serves test case requests from stdin until EOF. Every test case is run on a new thread with
+     * a new {@link JaCoCoClassLoader}. If a test case leaves running threads behind, the agent
+     * stops serving after the response since the state of the JVM cannot be trusted anymore.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void serve() throws IOException {
+        // the test cases must not write into the protocol
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+
+        BufferedReader requests = new BufferedReader(
+                new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        log.info("Agent is ready to serve (project: " + runnerProjectSettings.getProjectName()
+                + ")");
+        protocol.println(AGENT_READY_INDICATOR);
+        protocol.flush();
+
+        String request;
+        while ((request = requests.readLine()) != null) {
+            if (request.trim().isEmpty()) {
+                continue;
+            }
+
+            List<String> parts = Splitter.on('\t').splitToList(request);
+            Set<Thread> threadsBefore = new HashSet<>(Thread.getAllStackTraces().keySet());
+
+            boolean done = false;
+            String error = null;
+            try {
+                if (parts.size() != 4) {
+                    throw new RuntimeException("Invalid request: " + request);
+                }
+
+                log.info("Request: " + parts);
+                ExecutionDataStore result = runOnTestThread(getSnippet(parts.get(0)),
+                        parts.get(1), parts.get(2));
+                writeExecFile(result, Paths.get(parts.get(3)));
+                done = true;
+            } catch (Throwable ex) {
+                ex.printStackTrace();
+                error = ex.toString().replace('\n', ' ');
+            }
+
+            Set<Thread> leakedThreads = new HashSet<>(Thread.getAllStackTraces().keySet());
+            leakedThreads.removeAll(threadsBefore);
+            leakedThreads.removeIf(t -> t.isDaemon() || !t.isAlive());
+
+            if (done) {
+                protocol.println(AGENT_EXEC_INDICATOR);
+            } else {
+                protocol.println(AGENT_ERROR_INDICATOR);
+                protocol.println(error);
+            }
+
+            if (!leakedThreads.isEmpty()) {
+                log.warn("The test case has left running threads behind, recycling agent: "
+                        + leakedThreads);
+                protocol.println(AGENT_RECYCLE_INDICATOR);
+            }
+
+            protocol.println(AGENT_END_INDICATOR);
+            protocol.flush();
+
+            if (!leakedThreads.isEmpty()) {
+                return;
+            }
+        }
+
+        log.info("End of requests, " + instrumentedClassCache);
+    }
+
+    private ExecutionDataStore runOnTestThread(Snippet snippet, String testClassName,
+            String testMethodName) throws Throwable {
+        ExecutionDataStore[] result = new ExecutionDataStore[1];
+        Throwable[] error = new Throwable[1];
+
+        // NOTE the timeout is enforced by the host which kills the agent
+        Thread testThread = new Thread(() -> {
+            try {
+                result[0] = run(snippet, testClassName, testMethodName);
+            } catch (Throwable ex) {
+                error[0] = ex;
+            }
+        }, "AGENT-TEST");
+        testThread.start();
+        testThread.join();
+
+        if (error[0] != null) {
+            throw error[0];
+        } else {
+            return result[0];
+        }
+    }
+
+    private ExecutionDataStore run(Snippet snippet, String testClassName, String testMethodName)
             throws Throwable {
         //
         // Initialize
@@ -150,23 +288,15 @@ public final class TestSuiteRunnerForkAgent {
         log.info("Snippet: " + snippetClassName + "#" + snippetMethodName + "()");
         log.info("Test: " + testClassName);
 
-        // create JaCoCo runtime and instrumenter
-        IRuntime runtime = new LoggerRuntime();
-        Instrumenter instrumenter = new Instrumenter(runtime);
-
-        // start runtime
-        RuntimeData data = new RuntimeData();
-        runtime.startup(data);
-
         // binary directories for the JaCoCoClassLoader
         File[] binaryDirectories = new File[2];
         binaryDirectories[0] = snippetProject.getBuildDir().toFile();
         binaryDirectories[1] = runnerProjectSettings.getBinaryDirectory();
         log.debug("Binary directories: " + Arrays.asList(binaryDirectories));
 
-        // create class loader
+        // create class loader (it stores the probes of the classes loaded by it)
         JaCoCoClassLoader testClassLoader = new JaCoCoClassLoader(binaryDirectories,
-                instrumenter, snippetProject.getClassLoader());
+                instrumentedClassCache, snippetProject.getClassLoader());
 
         // load test class
         // snippet class and other dependencies will be loaded and instrumented on the fly
@@ -226,97 +356,17 @@ public final class TestSuiteRunnerForkAgent {
         //
         ExecutionDataStore executionData = new ExecutionDataStore();
         SessionInfoStore sessionInfos = new SessionInfoStore();
-        data.collect(executionData, sessionInfos, false);
-        runtime.shutdown();
-
-        // get classes to analyse
-        // store string to avoid the mess up between the different class loaders
-        Set<String> javaClasses = new HashSet<>();
-        javaClasses.add(snippetClassName);
-
-        for (Constructor<?> inclConstructor : snippet.getIncludedConstructors()) {
-            javaClasses.add(inclConstructor.getDeclaringClass().getName());
-        }
-
-        for (Method inclMethod : snippet.getIncludedMethods()) {
-            javaClasses.add(inclMethod.getDeclaringClass().getName());
-        }
-
-        // TODO inner classes are not handled well enough
-
-        // TODO anonymous classes can also have anonymous classes -> recursion
-
-        Set<String> toAdd = new HashSet<>();
-        for (String javaClass : javaClasses) {
-            int i = 1;
-            while (true) {
-                // guess anonymous classes, like ClassName$1, ClassName$2 etc.
-                try {
-                    testClassLoader.loadClass(javaClass + "$" + i);
-                    toAdd.add(javaClass + "$" + i);
-                    i++;
-                } catch (ClassNotFoundException ex) {
-                    // bad guess, no more anonymous classes on this level
-                    break;
-                }
-            }
-        }
-        javaClasses.addAll(toAdd);
-
-        // analyse classes
-        CoverageBuilder coverageBuilder = new CoverageBuilder();
-        Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
-
-        for (String javaClassName : javaClasses) {
-            log.trace("Analysing: " + javaClassName);
-            analyzer.analyzeClass(testClassLoader.readBytes(javaClassName), javaClassName);
-        }
-
-        // FIXME insane data structure
-        // key: source file
-        // value: tuple of FULLY, PARTLY and NOT covered line numbers sets (green, yellow, red)
-        Map<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> coverageInfo = new HashMap<>();
-
-        for (IClassCoverage cc : coverageBuilder.getClasses()) {
-            String file = cc.getPackageName() + '/' + cc.getSourceFileName();
-            file = file.replace('\\', '/');
-
-            if (!coverageInfo.containsKey(file)) {
-                coverageInfo.put(file, Triple.of(new TreeSet<Integer>(), new TreeSet<Integer>(),
-                        new TreeSet<Integer>()));
-            }
+        testClassLoader.getRuntimeData().collect(executionData, sessionInfos, false);
+        return executionData;
+    }
 
-            // out.printf("Coverage of class %s%n", cc.getName());
-            //
-            // printCounter(out, "instructions",
-            // cc.getInstructionCounter());
-            // printCounter(out, "branches", cc.getBranchCounter());
-            // printCounter(out, "lines", cc.getLineCounter());
-            // printCounter(out, "methods", cc.getMethodCounter());
-            // printCounter(out, "complexity", cc.getComplexityCounter());
-
-            for (int l = cc.getFirstLine(); l <= cc.getLastLine(); l++) {
-                switch (LineStatus.fromJaCoCo(cc.getLine(l).getStatus())) {
-                    case FULLY_COVERED:
-                        coverageInfo.get(file).getLeft().add(l);
-                        break;
-
-                    case PARTLY_COVERED:
-                        coverageInfo.get(file).getMiddle().add(l);
-                        break;
-
-                    case NOT_COVERED:
-                        coverageInfo.get(file).getRight().add(l);
-                        break;
-
-                    default:
-                        // empty
-                        break;
-                }
-            }
+    private static void writeExecFile(ExecutionDataStore executionData, Path execFile)
+            throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(execFile))) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            executionData.accept(writer);
+            writer.flush();
         }
-
-        return new CoverageInfo(coverageInfo);
     }
 
     // simple logger for the agent
@@ -349,7 +399,7 @@ public final class TestSuiteRunnerForkAgent {
             log("TRACE", message);
         }
 
-        private void log(String level, String message) {
+        private synchronized void log(String level, String message) {
             String timestampStr = DATE_FORMAT.format(new Date());
             String line = String.format("%s\t[%s]\t%s\t%s", timestampStr,
                     Thread.currentThread().getName(), level, message);
@@ -9,46 +9,53 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketImpl;
 import java.net.SocketImplFactory;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.instr.Instrumenter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.BodyDeclaration;
-import com.github.javaparser.ast.body.ConstructorDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
 import com.google.common.base.Preconditions;
 
 import hu.bme.mit.sette.core.model.runner.ResultType;
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
+import hu.bme.mit.sette.core.tasks.testsuiterunner.SourceStructureIndex.FileStructure;
+import hu.bme.mit.sette.core.tasks.testsuiterunner.SourceStructureIndex.MemberRange;
 
 final class TestSuiteRunnerHelper {
     private static Logger log = LoggerFactory.getLogger(TestSuiteRunnerHelper.class);
-    private static Set<SocketImpl> jvmSockets;
+    // key: socket, value: the thread group of the thread which has created the socket
+    private static Map<SocketImpl, ThreadGroup> jvmSockets;
 
     private TestSuiteRunnerHelper() {
         throw new UnsupportedOperationException("Static class");
     }
 
     static {
-        jvmSockets = Collections
-                .synchronizedSet(new HashSet<SocketImpl>());
+        jvmSockets = new ConcurrentHashMap<>();
         try {
             ServerSocket.setSocketFactory(new SocketImplFactory() {
                 @Override
                 public SocketImpl createSocketImpl() {
                     SocketImpl socket = newSocketImpl();
-                    jvmSockets.add(socket);
+                    ThreadGroup group = Thread.currentThread().getThreadGroup();
+                    if (group != null) {
+                        jvmSockets.put(socket, group);
+                    }
                     return socket;
                 }
             });
@@ -124,13 +131,54 @@ final class TestSuiteRunnerHelper {
         }
     }
 
+    /**
+     * Gets the sockets which were created by the threads of the specified thread group (or its
+     * subgroups).
+     */
+    private static Set<SocketImpl> getSockets(ThreadGroup group) {
+        Set<SocketImpl> socks = new HashSet<>();
+        jvmSockets.forEach((sock, sockGroup) -> {
+            if (group.parentOf(sockGroup)) {
+                socks.add(sock);
+            }
+        });
+        return socks;
+    }
+
+    /**
+     * Gets the threads of the specified thread group (or its subgroups).
+     */
+    private static Set<Thread> getThreads(ThreadGroup group) {
+        Set<Thread> threads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        threads.removeIf(t -> t.getThreadGroup() == null || !group.parentOf(t.getThreadGroup()));
+        return threads;
+    }
+
+    /**
+     * Creates a cache for the classes instrumented with {@link SetteRuntime}. The instrumented
+     * classes are persisted in the runner project.
+     *
+     * @param runnerProjectSettings
+     *            the settings of the runner project
+     * @return the cache
+     */
+    static InstrumentedClassCache createInstrumentedClassCache(
+            RunnerProjectSettings<?> runnerProjectSettings) {
+        Path dir = runnerProjectSettings.getInstrumentedClassesDirectory().toPath()
+                .resolve("v" + SetteRuntime.VERSION);
+        return new InstrumentedClassCache(new Instrumenter(new SetteRuntime()), dir);
+    }
+
     @SuppressWarnings("deprecation")
     static void invokeMethod(Object testClassInstance, Method method, boolean checkThreads)
             throws Throwable {
-        Set<Thread> threadsBeforeTest = Thread.getAllStackTraces().keySet();
-        Set<SocketImpl> socketsBeforeTest = new HashSet<>(jvmSockets);
+        // NOTE the test case runs in its own thread group: the threads started and the sockets
+        // opened by the test case can be identified even if other tests are running in parallel
+        ThreadGroup testGroup = new ThreadGroup(
+                testClassInstance.getClass().getSimpleName() + "_" + method.getName());
 
-        InvokeMethodThread testCaseThread = new InvokeMethodThread(testClassInstance, method);
+        InvokeMethodThread testCaseThread = new InvokeMethodThread(testGroup, testClassInstance,
+                method);
         testCaseThread.start();
         // FIXME no more than XX sec per test case
         testCaseThread.join(TestSuiteRunner.TEST_CASE_TIMEOUT_IN_MS);
@@ -143,19 +191,16 @@ final class TestSuiteRunnerHelper {
                 testCaseThread.stop();
 
                 // close sockets
-                Set<SocketImpl> socketsAfterTest = new HashSet<>(jvmSockets);
-                socketsAfterTest.removeAll(socketsBeforeTest);
+                Set<SocketImpl> socketsAfterTest = getSockets(testGroup);
 
                 while (!socketsAfterTest.isEmpty()) {
                     log.warn("Have to close {} sockets", socketsAfterTest.size());
                     closeSockets(socketsAfterTest);
 
-                    socketsAfterTest = new HashSet<>(jvmSockets);
-                    socketsAfterTest.removeAll(socketsBeforeTest);
+                    socketsAfterTest = getSockets(testGroup);
                 }
 
-                Set<Thread> threadsAfterTest = Thread.getAllStackTraces().keySet();
-                threadsAfterTest.removeAll(threadsBeforeTest);
+                Set<Thread> threadsAfterTest = getThreads(testGroup);
 
                 if (!threadsAfterTest.isEmpty() && checkThreads) {
                     int cnt = 0;
@@ -204,7 +249,8 @@ final class TestSuiteRunnerHelper {
         private final Method method;
         private volatile Throwable invokeException;
 
-        public InvokeMethodThread(Object testClassInstance, Method method) {
+        public InvokeMethodThread(ThreadGroup group, Object testClassInstance, Method method) {
+            super(group, (Runnable) null);
             this.testClassInstance = testClassInstance;
             this.method = method;
         }
@@ -222,114 +268,68 @@ final class TestSuiteRunnerHelper {
         }
     }
 
-    static Pair<ResultType, Double> decideResultType(Snippet snippet, CoverageInfo coverageInfo)
-            throws Exception {
+    static Pair<ResultType, Double> decideResultType(Snippet snippet, CoverageInfo coverageInfo,
+            SourceStructureIndex sourceStructureIndex) throws Exception {
         int linesToCover = 0;
         int linesCovered = 0;
 
         // iterate through files
-        for (String relJavaFile : coverageInfo.data.keySet()) {
+        for (String relJavaFile : coverageInfo.getFiles().keySet()) {
             // relJavaFile: hu/bme/mit/sette/snippets/_1_basic/B3_loops/B3c_DoWhile.java
-            File javaFile = new File(
-                    snippet.getContainer().getSnippetProject().getSourceDir().toFile(),
-                    relJavaFile);
-
-            // parse file
-            log.debug("Parsing with JavaParser: {}", javaFile);
-            CompilationUnit compilationUnit = JavaParser.parse(javaFile);
-            log.debug("Parsed with JavaParser: {}", javaFile);
-            int beginLine = compilationUnit.getBeginLine();
-            int endLine = compilationUnit.getEndLine();
-
-            // get "line colours" to variables
-            int[] full = coverageInfo.data.get(relJavaFile).getLeft().stream().sorted()
-                    .mapToInt(i -> (int) i).sorted().toArray();
-            int[] partial = coverageInfo.data.get(relJavaFile).getMiddle().stream().sorted()
-                    .mapToInt(i -> (int) i).sorted().toArray();
-            int[] not = coverageInfo.data.get(relJavaFile).getRight().stream().sorted()
-                    .mapToInt(i -> (int) i).sorted().toArray();
+            FileStructure fileStructure = sourceStructureIndex.get(relJavaFile);
+            int beginLine = fileStructure.getBeginLine();
+            int endLine = fileStructure.getEndLine();
 
             // validations
             Preconditions.checkState(beginLine >= 1, relJavaFile + " begin line: " + beginLine);
             Preconditions.checkState(endLine > beginLine, relJavaFile + " end line: " + endLine);
 
-            // lines store, set order is very important!
-            LineStatuses lines = new LineStatuses(beginLine, endLine);
-            lines.setStatus(not, LineStatus.NOT_COVERED);
-            lines.setStatus(partial, LineStatus.PARTLY_COVERED);
-            lines.setStatus(full, LineStatus.FULLY_COVERED);
+            // line statuses
+            LineStatuses lines = coverageInfo.get(relJavaFile).toLineStatuses(beginLine, endLine);
 
-            // extract method
-            try {
-                // if does not fail, it is the source file corresponding to the snippet
-                MethodDeclaration methodDecl = getCuMethodDecl(compilationUnit,
-                        snippet.getMethod().getName());
-                if (methodDecl == null) {
-                    throw new NoSuchElementException();
-                }
-
-                for (int lineNumber = methodDecl.getBeginLine(); lineNumber <= methodDecl
-                        .getEndLine(); lineNumber++) {
-                    LineStatus s = lines.getStatus(lineNumber);
-
-                    if (s != LineStatus.EMPTY) {
-                        linesToCover++;
-                        if (s.countsForStatementCoverage()) {
-                            linesCovered++;
-                        }
-                    }
-                }
-            } catch (NoSuchElementException ex) {
-                // snippet method was not found in the file => included method in dependency
+            // if found, it is the source file corresponding to the snippet, otherwise it is an
+            // included method in dependency
+            List<MemberRange> members = new ArrayList<>();
+            MemberRange snippetMethod = fileStructure.findMethod(snippet.getMethod().getName());
+            if (snippetMethod != null) {
+                members.add(snippetMethod);
             }
 
-            if (snippet.getIncludedConstructors().isEmpty()
-                    && snippet.getIncludedMethods().isEmpty()) {
-                // nothing to do
-            } else {
-                // handle included coverage if:
-                // a) method was not found in the file (dependency file)
-                // b) there is included method in the same file as the snippet
-                List<BodyDeclaration> inclDecls = new ArrayList<>();
-
-                // NOTE this might be not working (ctor)
-                for (Constructor<?> ctor : snippet.getIncludedConstructors()) {
-                    if (!ctor.getDeclaringClass().getSimpleName()
-                            .equals(compilationUnit.getTypes().get(0).getName())) {
-                        continue;
-                    }
-
-                    BodyDeclaration decl = getCuConstructorDecl(compilationUnit,
-                            ctor.getName());
+            // handle included coverage if:
+            // a) method was not found in the file (dependency file)
+            // b) there is included method in the same file as the snippet
+            // NOTE this might be not working (ctor)
+            for (Constructor<?> ctor : snippet.getIncludedConstructors()) {
+                if (ctor.getDeclaringClass().getSimpleName()
+                        .equals(fileStructure.getTypeName())) {
                     // maybe default ctor not present in source
-                    if (decl != null) {
-                        inclDecls.add(decl);
+                    MemberRange ctorRange = fileStructure.findConstructor(ctor.getName());
+                    if (ctorRange != null) {
+                        members.add(ctorRange);
                     }
                 }
+            }
 
-                for (Method method : snippet.getIncludedMethods()) {
-                    if (!method.getDeclaringClass().getSimpleName()
-                            .equals(compilationUnit.getTypes().get(0).getName())) {
-                        continue;
-                    }
-
-                    BodyDeclaration decl = getCuMethodDecl(compilationUnit, method.getName());
+            for (Method method : snippet.getIncludedMethods()) {
+                if (method.getDeclaringClass().getSimpleName()
+                        .equals(fileStructure.getTypeName())) {
                     // maybe in superclass
-                    if (decl != null) {
-                        inclDecls.add(decl);
+                    MemberRange methodRange = fileStructure.findMethod(method.getName());
+                    if (methodRange != null) {
+                        members.add(methodRange);
                     }
                 }
+            }
 
-                for (BodyDeclaration methodDecl : inclDecls) {
-                    for (int lineNumber = methodDecl.getBeginLine(); lineNumber <= methodDecl
-                            .getEndLine(); lineNumber++) {
-                        LineStatus s = lines.getStatus(lineNumber);
+            for (MemberRange member : members) {
+                for (int lineNumber = member.getBeginLine(); lineNumber <= member
+                        .getEndLine(); lineNumber++) {
+                    LineStatus s = lines.getStatus(lineNumber);
 
-                        if (s != LineStatus.EMPTY) {
-                            linesToCover++;
-                            if (s.countsForStatementCoverage()) {
-                                linesCovered++;
-                            }
+                    if (s != LineStatus.EMPTY) {
+                        linesToCover++;
+                        if (s.countsForStatementCoverage()) {
+                            linesCovered++;
                         }
                     }
                 }
@@ -360,38 +360,6 @@ final class TestSuiteRunnerHelper {
         }
     }
 
-    private static MethodDeclaration getCuMethodDecl(CompilationUnit compilationUnit, String name) {
-        try {
-            return compilationUnit.getTypes().get(0).getMembers().stream()
-                    .filter(bd -> bd instanceof MethodDeclaration).map(bd -> (MethodDeclaration) bd)
-                    .filter(md -> md.getName().equals(name)).findAny().get();
-        } catch (NoSuchElementException ex) {
-            // NOTE maybe super class, skip now
-            return null;
-        }
-    }
-
-    private static ConstructorDeclaration getCuConstructorDecl(CompilationUnit compilationUnit,
-            String name) {
-        // maybe default ctor not present in source
-        ConstructorDeclaration[] ctorDecls = compilationUnit.getTypes().get(0).getMembers().stream()
-                .filter(bd -> bd instanceof ConstructorDeclaration)
-                .map(bd -> (ConstructorDeclaration) bd).toArray(ConstructorDeclaration[]::new);
-
-        if (ctorDecls.length == 0) {
-            return null;
-        } else {
-            for (ConstructorDeclaration ctorDecl : ctorDecls) {
-                // FIXME test this part
-                if (ctorDecl.getName().equals(name)) {
-                    return ctorDecl;
-                }
-                throw new RuntimeException("SETTE RUNTIME ERROR");
-            }
-            return null;
-        }
-    }
-
     static List<Class<?>> loadTestClasses(JaCoCoClassLoader classLoader,
             String testClassName) {
         List<Class<?>> testClasses = new ArrayList<>();
@@ -448,6 +416,67 @@ final class TestSuiteRunnerHelper {
         return testClasses;
     }
 
+    /**
+     * Analyzes the coverage of the classes of the snippet (the snippet class, the declaring
+     * classes of the included constructors and methods and their anonymous classes) with the
+     * specified execution data. The class bytes are read by the class loader, the execution data
+     * may come from other processes since the class ids only depend on the class bytes.
+     *
+     * @param snippet
+     *            the snippet
+     * @param classLoader
+     *            the class loader used to find the classes
+     * @param executionData
+     *            the execution data of the test cases (merged)
+     * @return the coverage of the snippet
+     * @throws IOException
+     *             if a class cannot be read or analyzed
+     */
+    static CoverageInfo analyzeCoverage(Snippet snippet, JaCoCoClassLoader classLoader,
+            ExecutionDataStore executionData) throws IOException {
+        // get classes to analyse
+        // store string to avoid the mess up between the different class loaders
+        Set<String> javaClasses = new HashSet<>();
+        javaClasses.add(snippet.getContainer().getJavaClass().getName());
+
+        for (Constructor<?> inclConstructor : snippet.getIncludedConstructors()) {
+            javaClasses.add(inclConstructor.getDeclaringClass().getName());
+        }
+
+        for (Method inclMethod : snippet.getIncludedMethods()) {
+            javaClasses.add(inclMethod.getDeclaringClass().getName());
+        }
+
+        // TODO inner classes are not handled well enough
+
+        // TODO anonymous classes can also have anonymous classes -> recursion
+
+        Set<String> toAdd = new HashSet<>();
+        for (String javaClass : javaClasses) {
+            // guess anonymous classes, like ClassName$1, ClassName$2 etc.
+            for (int i = 1; classLoader.findBinaryFile(javaClass + "$" + i) != null; i++) {
+                toAdd.add(javaClass + "$" + i);
+            }
+        }
+        javaClasses.addAll(toAdd);
+
+        // analyse classes
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
+
+        for (String javaClassName : javaClasses) {
+            log.trace("Analysing: {}", javaClassName);
+            analyzer.analyzeClass(classLoader.readBytes(javaClassName), javaClassName);
+        }
+
+        CoverageInfo coverageInfo = new CoverageInfo();
+        for (IClassCoverage cc : coverageBuilder.getClasses()) {
+            coverageInfo.add(cc);
+        }
+
+        return coverageInfo;
+    }
+
     static int[] linesToArray(String lines) {
         return Stream.of(lines.split("\\s+")).filter(line -> !StringUtils.isBlank(line))
                 .mapToInt(line -> Integer.parseInt(line)).sorted().toArray();
@@ -34,19 +34,13 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.lang3.tuple.Triple;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IClassCoverage;
@@ -61,13 +55,8 @@ import org.junit.runner.JUnitCore;
 import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.convert.AnnotationStrategy;
-import org.simpleframework.xml.core.Persister;
-import org.simpleframework.xml.stream.Format;
 
 import hu.bme.mit.sette.core.exceptions.TestSuiteRunner2Exception;
-import hu.bme.mit.sette.core.model.parserxml.FileCoverageElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetCoverageXml;
 import hu.bme.mit.sette.core.model.parserxml.SnippetElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
@@ -75,19 +64,18 @@ import hu.bme.mit.sette.core.model.parserxml.SnippetProjectElement;
 import hu.bme.mit.sette.core.model.parserxml.SnippetResultXml;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore;
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
 import hu.bme.mit.sette.core.tasks.EvaluationTask;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tasks.testsuiterunner.CoverageInfo;
 import hu.bme.mit.sette.core.tasks.testsuiterunner.HtmlGenerator;
 import hu.bme.mit.sette.core.tasks.testsuiterunner.JaCoCoClassLoader;
-import hu.bme.mit.sette.core.tasks.testsuiterunner.LineStatus;
 import hu.bme.mit.sette.core.tool.Tool;
 import hu.bme.mit.sette.core.util.io.PathUtils;
-import hu.bme.mit.sette.core.validator.PathType;
-import hu.bme.mit.sette.core.validator.PathValidator;
 import hu.bme.mit.sette.core.validator.ValidationException;
 import lombok.Getter;
 import lombok.Setter;
@@ -181,12 +169,15 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
             }
         }
 
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(),
-                ANT_BUILD_TEST2_FILENAME);
-
-        //
-        Serializer serializer = new Persister(new AnnotationStrategy());
+        // compile the tests
+        Path baseDir = getRunnerProjectSettings().getBaseDir().toPath();
+        if (evosuiteJar != null) {
+            new RunnerProjectCompiler(getRunnerProjectSettings())
+                    .compileTests(baseDir.resolve("test-original"), evosuiteJar);
+        } else {
+            new RunnerProjectCompiler(getRunnerProjectSettings())
+                    .compileTests(baseDir.resolve("test"), baseDir.resolve("junit.jar"));
+        }
 
         // binary directories for the JaCoCoClassLoader
         File[] binaryDirectories = new File[2];
@@ -206,11 +197,12 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
                     continue;
                 }
 
-                handleSnippet(snippet, serializer, binaryDirectories);
+                handleSnippet(snippet, binaryDirectories);
             }
         }
 
-        // NOTE check whether all inputs and info files are created
+        // NOTE check whether all result records are created
+        RunnerResultStore store = getResultStore();
         // foreach containers
         for (SnippetContainer container : getSnippetProject().getSnippetContainers()) {
             // foreach snippets
@@ -224,10 +216,8 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
                     continue;
                 }
 
-                File resultXmlFile = RunnerProjectUtils
-                        .getSnippetResultFile(getRunnerProjectSettings(), snippet);
-
-                new PathValidator(resultXmlFile.toPath()).type(PathType.REGULAR_FILE).validate();
+                Validate.isTrue(store.contains(snippet.getId(), RecordType.RESULT),
+                        "Missing result record: " + snippet.getId());
             }
         }
 
@@ -235,29 +225,11 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
         System.err.println("=> ANALYZE ENDED");
     }
 
-    private void handleSnippet(Snippet snippet, Serializer serializer, File[] binaryDirectories)
-            throws Exception {
-        File inputsXmlFile = RunnerProjectUtils.getSnippetInputsFile(getRunnerProjectSettings(),
-                snippet);
-
-        if (!inputsXmlFile.exists()) {
-            throw new RuntimeException("Missing inputsXML: " + inputsXmlFile);
-        }
-
-        // it is now tricky, classloader hell
-        SnippetInputsXml inputsXml;
-        {
-            // save current class loader
-            ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-
-            // set snippet project class loader
-            Thread.currentThread().setContextClassLoader(getSnippetProject().getClassLoader());
-
-            // read data
-            inputsXml = serializer.read(SnippetInputsXml.class, inputsXmlFile);
-
-            // set back the original class loader
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
+    private void handleSnippet(Snippet snippet, File[] binaryDirectories) throws Exception {
+        // only the header is needed, the inputs are not materialized
+        SnippetInputsXml inputsXml = readSnippetInputsHeader(snippet);
+        if (inputsXml == null) {
+            throw new RuntimeException("Missing inputs: " + snippet.getId());
         }
 
         // skip N/A, EX, T/M and already done
@@ -278,20 +250,13 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
                     inputsXml.getResultType(), reqCov);
             resultXml.validate();
 
-            // TODO needs more documentation
-            File resultFile = RunnerProjectUtils.getSnippetResultFile(getRunnerProjectSettings(),
-                    snippet);
-
-            Serializer serializerWrite = new Persister(new AnnotationStrategy(),
-                    new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-
-            serializerWrite.write(resultXml, resultFile);
+            writeSnippetXml(snippet, resultXml);
 
             return;
         }
 
         if (inputsXml.getGeneratedInputCount() == 0) {
-            // throw new RuntimeException("No inputs: " + inputsXmlFile);
+            // throw new RuntimeException("No inputs: " + snippet.getId());
         }
 
         // NOTE remove try-catch
@@ -304,14 +269,7 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
                     coverageXml.getResultType(), coverageXml.getAchievedCoverage());
             resultXml.validate();
 
-            // TODO needs more documentation
-            File resultFile = RunnerProjectUtils.getSnippetResultFile(getRunnerProjectSettings(),
-                    snippet);
-
-            Serializer serializerWrite = new Persister(new AnnotationStrategy(),
-                    new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-
-            serializerWrite.write(resultXml, resultFile);
+            writeSnippetXml(snippet, resultXml);
         } catch (ValidationException ex) {
             System.err.println(ex.getMessage());
             throw new RuntimeException("Validation failed");
@@ -491,17 +449,9 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
         // PrintStream out = new PrintStream("D:/SETTE/!DUMP/"
         // + getTool().getName() + "/" + testClassName + ".out");
 
-        Map<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> coverageInfo = new HashMap<>();
+        CoverageInfo coverageInfo = new CoverageInfo();
 
         for (IClassCoverage cc : coverageBuilder.getClasses()) {
-            String file = cc.getPackageName() + '/' + cc.getSourceFileName();
-            file = file.replace('\\', '/');
-
-            if (!coverageInfo.containsKey(file)) {
-                coverageInfo.put(file, Triple.of(new TreeSet<Integer>(), new TreeSet<Integer>(),
-                        new TreeSet<Integer>()));
-            }
-
             // out.printf("Coverage of class %s%n", cc.getName());
             //
             // printCounter(out, "instructions",
@@ -511,29 +461,10 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
             // printCounter(out, "methods", cc.getMethodCounter());
             // printCounter(out, "complexity", cc.getComplexityCounter());
 
-            for (int l = cc.getFirstLine(); l <= cc.getLastLine(); l++) {
-                switch (LineStatus.fromJaCoCo(cc.getLine(l).getStatus())) {
-                    case FULLY_COVERED:
-                        coverageInfo.get(file).getLeft().add(l);
-                        break;
-
-                    case PARTLY_COVERED:
-                        coverageInfo.get(file).getMiddle().add(l);
-                        break;
-
-                    case NOT_COVERED:
-                        coverageInfo.get(file).getRight().add(l);
-                        break;
-
-                    default:
-                        // empty
-                        break;
-                }
-            }
+            coverageInfo.add(cc);
         }
 
-        SnippetCoverageXml coverageXml = createAndWriteCoverageXmlAndHtml(snippet,
-                new CoverageInfo(coverageInfo));
+        SnippetCoverageXml coverageXml = createAndWriteCoverageXmlAndHtml(snippet, coverageInfo);
 
         return coverageXml;
     }
@@ -565,31 +496,13 @@ public final class TestSuiteRunner2 extends EvaluationTask<Tool> {
         coverageXml.setResultType(resultType);
         coverageXml.setAchievedCoverage(coverage);
 
-        for (Entry<String, Triple<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>>> entry : coverageInfo.data
-                .entrySet()) {
-            SortedSet<Integer> full = entry.getValue().getLeft();
-            SortedSet<Integer> partial = entry.getValue().getMiddle();
-            SortedSet<Integer> not = entry.getValue().getRight();
-
-            FileCoverageElement fce = new FileCoverageElement();
-            fce.setName(entry.getKey());
-            fce.setFullyCoveredLines(StringUtils.join(full, ' '));
-            fce.setPartiallyCoveredLines(StringUtils.join(partial, ' '));
-            fce.setNotCoveredLines(StringUtils.join(not, ' '));
-
-            coverageXml.getCoverage().add(fce);
-        }
+        coverageInfo.getFiles().forEach(
+                (file, lineCoverage) -> coverageXml.getCoverage()
+                        .add(lineCoverage.toFileCoverageElement(file)));
 
         coverageXml.validate();
 
-        // TODO needs more documentation
-        File coverageFile = RunnerProjectUtils.getSnippetCoverageFile(getRunnerProjectSettings(),
-                snippet);
-
-        Serializer serializer = new Persister(new AnnotationStrategy(),
-                new Format("<?xml version=\"1.0\" encoding= \"UTF-8\" ?>"));
-
-        serializer.write(coverageXml, coverageFile);
+        writeSnippetXml(snippet, coverageXml);
 
         // generate html
         new HtmlGenerator(this).generate(snippet, coverageXml);
@@ -38,7 +38,7 @@ public final class TestSuiteRunner2Helper {
         int linesCovered = 0;
 
         // iterate through files
-        for (String relJavaFile : coverageInfo.data.keySet()) {
+        for (String relJavaFile : coverageInfo.getFiles().keySet()) {
             // relJavaFile: hu/bme/mit/sette/snippets/_1_basic/B3_loops/B3c_DoWhile.java
             File javaFile = new File(
                     snippet.getContainer().getSnippetProject().getSourceDir().toFile(),
@@ -51,23 +51,13 @@ public final class TestSuiteRunner2Helper {
             int beginLine = compilationUnit.getBeginLine();
             int endLine = compilationUnit.getEndLine();
 
-            // get "line colours" to variables
-            int[] full = coverageInfo.data.get(relJavaFile).getLeft().stream().sorted()
-                    .mapToInt(i -> (int) i).sorted().toArray();
-            int[] partial = coverageInfo.data.get(relJavaFile).getMiddle().stream().sorted()
-                    .mapToInt(i -> (int) i).sorted().toArray();
-            int[] not = coverageInfo.data.get(relJavaFile).getRight().stream().sorted()
-                    .mapToInt(i -> (int) i).sorted().toArray();
-
             // validations
             Preconditions.checkState(beginLine >= 1, relJavaFile + " begin line: " + beginLine);
             Preconditions.checkState(endLine > beginLine, relJavaFile + " end line: " + endLine);
 
-            // lines store, set order is very important!
-            LineStatuses lines = new LineStatuses(beginLine, endLine);
-            lines.setStatus(not, LineStatus.NOT_COVERED);
-            lines.setStatus(partial, LineStatus.PARTLY_COVERED);
-            lines.setStatus(full, LineStatus.FULLY_COVERED);
+            // lines store
+            LineStatuses lines = coverageInfo.get(relJavaFile).toLineStatuses(beginLine,
+                    endLine);
 
             // extract method
             try {
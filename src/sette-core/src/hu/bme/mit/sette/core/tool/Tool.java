@@ -38,11 +38,13 @@ import hu.bme.mit.sette.core.tasks.RunResultParser;
 import hu.bme.mit.sette.core.tasks.RunnerProjectGenerator;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
 import hu.bme.mit.sette.core.util.io.PathUtils;
+import hu.bme.mit.sette.core.util.process.ProcessResourceLimits;
 import hu.bme.mit.sette.core.validator.PathValidator;
 import hu.bme.mit.sette.core.validator.ValidationException;
 import hu.bme.mit.sette.core.validator.Validator;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 /**
  * Represents a tool which can be evaluated by SETTE. When inheriting from this class make sure that
@@ -62,6 +64,12 @@ public abstract class Tool implements Comparable<Tool> {
     @Getter
     private final Path toolDir;
 
+    /** The resource limits of the tool processes. */
+    @Getter
+    @Setter
+    @NonNull
+    private ProcessResourceLimits resourceLimits = ProcessResourceLimits.NONE;
+
     /**
      * Instantiates a new tool and parses its version from the VERSION file.
      * 
@@ -129,8 +137,10 @@ public abstract class Tool implements Comparable<Tool> {
         try {
             Class<?> toolClass = Class.forName(toolConfiguration.getClassName());
             Constructor<?> ctor = toolClass.getConstructor(String.class, Path.class);
-            return (Tool) ctor.newInstance(toolConfiguration.getName(),
+            Tool tool = (Tool) ctor.newInstance(toolConfiguration.getName(),
                     toolConfiguration.getToolDir());
+            tool.setResourceLimits(toolConfiguration.getResourceLimits());
+            return tool;
         } catch (Exception ex) {
             if (ex instanceof InvocationTargetException) {
                 // re-throw probable exceptions caught from the ctor call
@@ -0,0 +1,73 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.compiler;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * The result of a compilation by {@link JavaCompilationService}.
+ */
+@Data
+public final class CompilationResult {
+    /**
+     * <code>true</code> if there were no errors and no failed sources, otherwise <code>false</code>
+     */
+    private final boolean success;
+
+    /** The number of the compiled source files. */
+    private final int compiledSourceCount;
+
+    /** The number of the source files which were up-to-date and were not compiled. */
+    private final int upToDateSourceCount;
+
+    /** The elapsed time in milliseconds. */
+    private final long elapsedTimeInMs;
+
+    /** The diagnostics reported by the compiler. */
+    @NonNull
+    private final ImmutableList<CompilationDiagnostic> diagnostics;
+
+    /**
+     * The source files with errors, including the unchanged ones which have failed earlier (they
+     * are not compiled again until they change, thus there are no diagnostics for them).
+     */
+    @NonNull
+    private final ImmutableList<Path> failedSources;
+
+    /**
+     * Returns the error diagnostics.
+     *
+     * @return the errors
+     */
+    public List<CompilationDiagnostic> getErrors() {
+        return diagnostics.stream().filter(CompilationDiagnostic::isError)
+                .collect(Collectors.toList());
+    }
+}
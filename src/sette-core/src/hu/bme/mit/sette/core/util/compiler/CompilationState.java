@@ -0,0 +1,154 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * The state of the incremental compilation: the hash of each compiled source file, the fingerprint
+ * of the classpath and options it was compiled with, whether it has failed to compile and the class
+ * files generated from it. The state is stored in a text file, each line describes a source file
+ * (tab-separated values: source, hash, fingerprint, status, class files).
+ */
+final class CompilationState {
+    private static final Logger LOG = LoggerFactory.getLogger(CompilationState.class);
+
+    private static final String HEADER = "# SETTE compilation state v2";
+
+    private static final String STATUS_COMPILED = "COMPILED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    /** The entries by the source files. */
+    private final Map<Path, Entry> entries = new TreeMap<>();
+
+    /** The compilation state of a source file. */
+    @Data
+    static final class Entry {
+        /** The hash of the source file. */
+        @NonNull
+        private final String hash;
+
+        /** The fingerprint of the classpath and the options. */
+        @NonNull
+        private final String fingerprint;
+
+        /** The class files generated from the source file. */
+        @NonNull
+        private final ImmutableList<Path> classFiles;
+
+        /** Whether the compiler has reported errors in the source file. */
+        private final boolean failed;
+    }
+
+    /**
+     * Reads the state from a file. If the file does not exist or it cannot be parsed, an empty
+     * state is returned.
+     *
+     * @param file
+     *            the state file
+     * @return the state
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    static CompilationState read(@NonNull Path file) throws IOException {
+        CompilationState state = new CompilationState();
+        if (!PathUtils.exists(file)) {
+            return state;
+        }
+
+        List<String> lines = PathUtils.readAllLines(file);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            LOG.warn("Ignoring the invalid compilation state file: {}", file);
+            return state;
+        }
+
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split("\t");
+            if (parts.length < 4 || !(parts[3].equals(STATUS_COMPILED)
+                    || parts[3].equals(STATUS_FAILED))) {
+                LOG.warn("Ignoring the invalid compilation state file: {}", file);
+                return new CompilationState();
+            }
+
+            ImmutableList<Path> classFiles = ImmutableList.copyOf(Arrays
+                    .stream(parts, 4, parts.length).map(Paths::get).iterator());
+            state.entries.put(Paths.get(parts[0]), new Entry(parts[1], parts[2], classFiles,
+                    parts[3].equals(STATUS_FAILED)));
+        }
+
+        return state;
+    }
+
+    /**
+     * Writes the state into a file.
+     *
+     * @param file
+     *            the state file
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    void write(@NonNull Path file) throws IOException {
+        List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add(HEADER);
+
+        entries.forEach((sourceFile, entry) -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append(sourceFile).append('\t').append(entry.getHash()).append('\t')
+                    .append(entry.getFingerprint()).append('\t')
+                    .append(entry.isFailed() ? STATUS_FAILED : STATUS_COMPILED);
+            entry.getClassFiles().forEach(classFile -> sb.append('\t').append(classFile));
+            lines.add(sb.toString());
+        });
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        PathUtils.write(file, lines);
+    }
+
+    /**
+     * Returns the entries by the source files.
+     *
+     * @return the entries (modifiable)
+     */
+    Map<Path, Entry> getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.compiler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * Compiles Java sources in-process with the system {@link JavaCompiler} (javax.tools).
+ * <p>
+ * In incremental mode a source file is only compiled if its content hash, the fingerprint of its
+ * classpath (the path, size and modification time of each entry) or the compiler options which
+ * affect the class files have changed since the last compilation, or if any class file generated
+ * from it is missing. The sources in which errors were reported are recorded with their hash, thus
+ * they are not compiled again until they change (but they are reported as failed by every
+ * compilation which includes them). The other sources of a failed batch are compiled again by the
+ * next compilation. The class files of the removed and recompiled sources are deleted. The state is stored in a separate file,
+ * thus several compilations (e.g. with different source directories) can share the output
+ * directory.
+ * <p>
+ * The sources are given in two groups. The main sources are compiled together first, then the
+ * batched sources (e.g. the generated tests, which only depend on the main sources and on the
+ * sources in the same directory) are distributed into batches by directory and the batches are
+ * compiled in parallel with an extended classpath. If any main source is stale, all the main
+ * sources are recompiled (the dependencies between the sources are not tracked). The fingerprint of
+ * the batched sources contains the hashes of the main sources, thus they are recompiled too. Only a
+ * selection of the batched sources can also be compiled (e.g. the tests of one snippet).
+ * The sources of the other batches are found on the source path, but their class files are only
+ * generated by their own batch.
+ */
+public final class JavaCompilationService {
+    private static final Logger LOG = LoggerFactory.getLogger(JavaCompilationService.class);
+
+    /** The output directory of the class files. */
+    @Getter
+    private final Path outputDir;
+
+    /** The file in which the state of the incremental compilation is stored. */
+    @Getter
+    private final Path stateFile;
+
+    /**
+     * Whether only the changed sources are compiled (otherwise every source is compiled and the
+     * state is overwritten).
+     */
+    @Getter
+    @Setter
+    private boolean incremental = true;
+
+    /** The maximum number of batches compiled in parallel. */
+    @Getter
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** The Java version of the sources and the class files (-source and -target). */
+    @Getter
+    @Setter
+    @NonNull
+    private String javaVersion = "1.8";
+
+    /** Whether debugging information is generated. */
+    @Getter
+    @Setter
+    private boolean debug = true;
+
+    /**
+     * Creates a compilation service.
+     *
+     * @param outputDir
+     *            the output directory of the class files
+     * @param stateFile
+     *            the file in which the state of the incremental compilation is stored
+     */
+    public JavaCompilationService(@NonNull Path outputDir, @NonNull Path stateFile) {
+        this.outputDir = outputDir.toAbsolutePath().normalize();
+        this.stateFile = stateFile.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Sets the maximum number of batches compiled in parallel.
+     *
+     * @param parallelism
+     *            the parallelism (must be positive)
+     */
+    public void setParallelism(int parallelism) {
+        checkArgument(parallelism >= 1, "The parallelism must be positive: %s", parallelism);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Compiles the sources (all the batched sources are selected, see
+     * {@link #compile(List, List, List, List, List, boolean)}).
+     *
+     * @param sourceDirs
+     *            the directories of the main sources (the missing ones are skipped)
+     * @param classpath
+     *            the classpath (the output directory is always added)
+     * @param batchedSourceDirs
+     *            the directories of the sources which are compiled in parallel batches (the
+     *            missing ones are skipped)
+     * @param batchedClasspath
+     *            the classpath entries which are only added for the batched sources
+     * @param warnings
+     *            whether the warnings are reported (they do not affect the class files, thus
+     *            changing it does not make the sources stale)
+     * @return the result
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public CompilationResult compile(@NonNull List<Path> sourceDirs, @NonNull List<Path> classpath,
+            @NonNull List<Path> batchedSourceDirs, @NonNull List<Path> batchedClasspath,
+            boolean warnings) throws IOException {
+        return compile(sourceDirs, classpath, batchedSourceDirs, batchedSourceDirs,
+                batchedClasspath, warnings);
+    }
+
+    /**
+     * Compiles the main sources and the selected batched sources. The other batched sources are
+     * only on the source path (neither their class files nor their state are changed).
+     *
+     * @param sourceDirs
+     *            the directories of the main sources (the missing ones are skipped)
+     * @param classpath
+     *            the classpath (the output directory is always added)
+     * @param batchedSourceDirs
+     *            the directories of the sources which are compiled in parallel batches (the
+     *            missing ones are skipped)
+     * @param batchedSources
+     *            the source files and directories in the batched source directories which are
+     *            compiled (the missing ones are skipped)
+     * @param batchedClasspath
+     *            the classpath entries which are only added for the batched sources
+     * @param warnings
+     *            whether the warnings are reported (they do not affect the class files, thus
+     *            changing it does not make the sources stale)
+     * @return the result
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public CompilationResult compile(@NonNull List<Path> sourceDirs, @NonNull List<Path> classpath,
+            @NonNull List<Path> batchedSourceDirs, @NonNull List<Path> batchedSources,
+            @NonNull List<Path> batchedClasspath, boolean warnings) throws IOException {
+        long start = System.nanoTime();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException(
+                    "The system Java compiler is not available (SETTE must be run on a JDK)");
+        }
+
+        Files.createDirectories(outputDir);
+        CompilationState state = CompilationState.read(stateFile);
+        Map<Path, CompilationState.Entry> entries = state.getEntries();
+
+        List<Path> mainRoots = normalize(sourceDirs);
+        List<Path> batchedRoots = normalize(batchedSourceDirs);
+        List<Path> batchedSelection = normalize(batchedSources);
+        List<Path> mainClasspath = new ArrayList<>();
+        mainClasspath.add(outputDir);
+        mainClasspath.addAll(normalize(classpath));
+        String mainFingerprint = createFingerprint(mainClasspath);
+
+        Map<Path, String> mainSources = hashSources(mainRoots);
+        Map<Path, String> selectedSources = hashSources(batchedSelection);
+
+        // the batched sources may depend on the main sources
+        List<Path> fullClasspath = new ArrayList<>(mainClasspath);
+        fullClasspath.addAll(normalize(batchedClasspath));
+        String batchedFingerprint = Hashing.sha256().newHasher()
+                .putString(createFingerprint(fullClasspath), StandardCharsets.UTF_8)
+                .putString(mainSources.toString(), StandardCharsets.UTF_8).hash().toString();
+
+        // remove the class files of the deleted sources
+        List<Path> roots = new ArrayList<>(mainRoots);
+        roots.addAll(batchedSelection);
+        for (Path source : new ArrayList<>(entries.keySet())) {
+            if (roots.stream().anyMatch(source::startsWith) && !mainSources.containsKey(source)
+                    && !selectedSources.containsKey(source)) {
+                LOG.debug("Source removed: {}", source);
+                deleteClassFiles(entries.remove(source));
+            }
+        }
+
+        List<Path> staleMainSources = findStaleSources(mainSources, entries, mainFingerprint);
+        if (!staleMainSources.isEmpty()) {
+            // the dependencies are not tracked (e.g. an inlined constant or a changed signature
+            // would not be noticed in the class files of the other sources)
+            staleMainSources = new ArrayList<>(mainSources.keySet());
+        }
+        List<Path> staleBatchedSources = findStaleSources(selectedSources, entries,
+                batchedFingerprint);
+
+        // the batches might report the same errors of the sources on the source path
+        Set<CompilationDiagnostic> diagnostics = new LinkedHashSet<>();
+        boolean success = true;
+
+        // the class files of the stale sources are regenerated (or they are removed on error)
+        for (Path source : staleMainSources) {
+            deleteClassFiles(entries.remove(source));
+        }
+        for (Path source : staleBatchedSources) {
+            deleteClassFiles(entries.remove(source));
+        }
+
+        if (!staleMainSources.isEmpty()) {
+            Batch batch = new Batch(compiler, staleMainSources, mainRoots, mainClasspath,
+                    warnings);
+            success = batch.call();
+            diagnostics.addAll(batch.diagnostics);
+            update(entries, batch, mainSources, mainFingerprint);
+        }
+
+        if (success && !staleBatchedSources.isEmpty()) {
+            List<Batch> batches = createBatches(staleBatchedSources).stream()
+                    .map(sources -> new Batch(compiler, sources, batchedRoots, fullClasspath,
+                            warnings))
+                    .collect(Collectors.toList());
+            runBatches(batches);
+
+            for (Batch batch : batches) {
+                success &= batch.success;
+                diagnostics.addAll(batch.diagnostics);
+                update(entries, batch, selectedSources, batchedFingerprint);
+            }
+        }
+
+        state.write(stateFile);
+
+        List<Path> failedSources = new ArrayList<>();
+        for (Path source : Iterables.concat(mainSources.keySet(), selectedSources.keySet())) {
+            CompilationState.Entry entry = entries.get(source);
+            if (entry != null && entry.isFailed()) {
+                failedSources.add(source);
+            }
+        }
+        success &= failedSources.isEmpty();
+
+        int compiledSourceCount = staleMainSources.size() + staleBatchedSources.size();
+        int upToDateSourceCount = mainSources.size() + selectedSources.size()
+                - compiledSourceCount;
+        long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        CompilationResult result = new CompilationResult(success, compiledSourceCount,
+                upToDateSourceCount, elapsedTime, ImmutableList.copyOf(diagnostics),
+                ImmutableList.copyOf(failedSources));
+        LOG.debug("Compiled {} source(s) in {} ms ({} up-to-date, {} error(s)) into {}",
+                compiledSourceCount, elapsedTime, upToDateSourceCount,
+                result.getErrors().size(), outputDir);
+        return result;
+    }
+
+    private List<Path> findStaleSources(Map<Path, String> sources,
+            Map<Path, CompilationState.Entry> entries, String fingerprint) {
+        return sources.entrySet().stream().filter(source -> {
+            CompilationState.Entry entry = entries.get(source.getKey());
+            return !incremental || entry == null || !entry.getHash().equals(source.getValue())
+                    || !entry.getFingerprint().equals(fingerprint)
+                    || !entry.getClassFiles().stream().allMatch(Files::isRegularFile);
+        }).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    private static void update(Map<Path, CompilationState.Entry> entries, Batch batch,
+            Map<Path, String> hashes, String fingerprint) {
+        // javac generates the class files only if there were no errors
+        if (batch.success) {
+            for (Path source : batch.sources) {
+                List<Path> classFiles = batch.classFiles.getOrDefault(source,
+                        Collections.emptyList());
+                entries.put(source, new CompilationState.Entry(hashes.get(source), fingerprint,
+                        ImmutableList.copyOf(classFiles), false));
+            }
+        } else {
+            // the other sources of the batch are compiled again next time
+            Set<Path> failedSources = batch.diagnostics.stream()
+                    .filter(CompilationDiagnostic::isError)
+                    .map(CompilationDiagnostic::getSourceFile).collect(Collectors.toSet());
+            for (Path source : batch.sources) {
+                if (failedSources.contains(source)) {
+                    entries.put(source, new CompilationState.Entry(hashes.get(source),
+                            fingerprint, ImmutableList.of(), true));
+                }
+            }
+        }
+    }
+
+    private void deleteClassFiles(CompilationState.Entry entry) throws IOException {
+        if (entry != null) {
+            for (Path classFile : entry.getClassFiles()) {
+                if (classFile.startsWith(outputDir)) {
+                    Files.deleteIfExists(classFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Distributes the sources into at most {@link #parallelism} batches, the sources of a
+     * directory are always put into the same batch.
+     */
+    private List<List<Path>> createBatches(List<Path> sources) {
+        Map<Path, List<Path>> sourcesByDir = new TreeMap<>(sources.stream()
+                .collect(Collectors.groupingBy(Path::getParent)));
+
+        List<List<Path>> batches = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, sourcesByDir.size()); i++) {
+            batches.add(new ArrayList<>());
+        }
+
+        // the largest directories first, always into the smallest batch
+        sourcesByDir.values().stream()
+                .sorted(Comparator.comparingInt((List<Path> dir) -> dir.size()).reversed())
+                .forEachOrdered(dir -> batches.stream().min(Comparator.comparingInt(List::size))
+                        .get().addAll(dir));
+        return batches;
+    }
+
+    private void runBatches(List<Batch> batches) throws IOException {
+        if (batches.size() == 1) {
+            batches.get(0).call();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+        try {
+            List<Future<Boolean>> futures = executor.invokeAll(batches);
+            for (Future<Boolean> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The compilation was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new RuntimeException("The compilation has failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> createOptions(boolean warnings) {
+        List<String> options = new ArrayList<>();
+        options.add("-source");
+        options.add(javaVersion);
+        options.add("-target");
+        options.add(javaVersion);
+        options.add("-encoding");
+        options.add(StandardCharsets.UTF_8.name());
+        options.add(debug ? "-g" : "-g:none");
+        // the annotation processors on the classpath of SETTE must not be used
+        options.add("-proc:none");
+        // the other sources on the source path are only used to resolve the types (the class
+        // files of the other batches might be being written), every source is compiled by its
+        // own batch, thus the same class files are generated as by the ant build files
+        options.add("-implicit:none");
+        options.add("-Xprefer:source");
+        if (!warnings) {
+            options.add("-nowarn");
+            options.add("-Xlint:none");
+        }
+        return options;
+    }
+
+    private String createFingerprint(List<Path> classpath) throws IOException {
+        // the warnings do not affect the class files
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(javaVersion, StandardCharsets.UTF_8);
+        hasher.putBoolean(debug);
+        for (Path entry : classpath) {
+            hasher.putString(entry.toString(), StandardCharsets.UTF_8);
+            // the output directory changes during compilation
+            if (!entry.equals(outputDir) && Files.isRegularFile(entry)) {
+                hasher.putLong(Files.size(entry));
+                hasher.putLong(Files.getLastModifiedTime(entry).toMillis());
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static Map<Path, String> hashSources(List<Path> roots) throws IOException {
+        Map<Path, String> hashes = new TreeMap<>();
+        for (Path root : roots) {
+            List<Path> sources;
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> files = PathUtils.walk(root)) {
+                    sources = files.filter(file -> file.toString().endsWith(".java"))
+                            .filter(Files::isRegularFile).collect(Collectors.toList());
+                }
+            } else if (root.toString().endsWith(".java") && Files.isRegularFile(root)) {
+                sources = Collections.singletonList(root);
+            } else {
+                continue;
+            }
+
+            for (Path source : sources) {
+                hashes.put(source, Hashing.sha256().hashBytes(Files.readAllBytes(source))
+                        .toString());
+            }
+        }
+        return hashes;
+    }
+
+    private static List<Path> normalize(Collection<Path> paths) {
+        Set<Path> normalized = new LinkedHashSet<>();
+        paths.forEach(path -> normalized.add(path.toAbsolutePath().normalize()));
+        return new ArrayList<>(normalized);
+    }
+
+    /** A set of sources compiled by one compiler task. */
+    private final class Batch implements Callable<Boolean> {
+        private final JavaCompiler compiler;
+        private final List<Path> sources;
+        private final List<Path> sourcePath;
+        private final List<Path> classpath;
+        private final boolean warnings;
+
+        /** The generated class files by the source files. */
+        private final Map<Path, List<Path>> classFiles = new HashMap<>();
+        private final List<CompilationDiagnostic> diagnostics = new ArrayList<>();
+        private boolean success = false;
+
+        Batch(JavaCompiler compiler, List<Path> sources, List<Path> sourcePath,
+                List<Path> classpath, boolean warnings) {
+            this.compiler = compiler;
+            this.sources = sources;
+            this.sourcePath = sourcePath;
+            this.classpath = classpath;
+            this.warnings = warnings;
+        }
+
+        @Override
+        public Boolean call() throws IOException {
+            LOG.trace("Compiling {}", sources);
+            DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(collector,
+                    null, StandardCharsets.UTF_8)) {
+                fileManager.setLocation(StandardLocation.CLASS_OUTPUT,
+                        Collections.singletonList(outputDir.toFile()));
+                fileManager.setLocation(StandardLocation.CLASS_PATH, toFiles(classpath));
+                fileManager.setLocation(StandardLocation.SOURCE_PATH, toFiles(sourcePath));
+
+                Iterable<? extends JavaFileObject> compilationUnits = fileManager
+                        .getJavaFileObjectsFromFiles(toFiles(sources));
+                success = compiler.getTask(null, new RecordingFileManager(fileManager),
+                        collector, createOptions(warnings), null, compilationUnits).call();
+            }
+
+            for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+                diagnostics.add(new CompilationDiagnostic(diagnostic.getKind(),
+                        toPath(diagnostic.getSource()), diagnostic.getLineNumber(),
+                        diagnostic.getColumnNumber(), diagnostic.getMessage(null)));
+            }
+            return success;
+        }
+
+        /** Records the class files generated from the sources. */
+        private final class RecordingFileManager
+                extends ForwardingJavaFileManager<StandardJavaFileManager> {
+            RecordingFileManager(StandardJavaFileManager fileManager) {
+                super(fileManager);
+            }
+
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className,
+                    JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+                JavaFileObject file = super.getJavaFileForOutput(location, className, kind,
+                        sibling);
+                Path source = toPath(sibling);
+                Path classFile = toPath(file);
+                if (source != null && classFile != null) {
+                    classFiles.computeIfAbsent(source, s -> new ArrayList<>()).add(classFile);
+                }
+                return file;
+            }
+        }
+    }
+
+    private static List<File> toFiles(List<Path> paths) {
+        return paths.stream().map(Path::toFile).collect(Collectors.toList());
+    }
+
+    private static Path toPath(FileObject file) {
+        if (file == null || !"file".equals(file.toUri().getScheme())) {
+            return null;
+        }
+        return Paths.get(file.toUri()).toAbsolutePath().normalize();
+    }
+}
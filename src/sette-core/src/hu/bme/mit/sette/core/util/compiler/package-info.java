@@ -0,0 +1,4 @@
+/**
+ * Provides an in-process, incremental Java compilation service.
+ */
+package hu.bme.mit.sette.core.util.compiler;
@@ -0,0 +1,402 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Read-only source of the lines of a text file (e.g. the output of a tool). Big files are
+ * memory-mapped, thus only the lines which are actually requested are read and decoded: the lines
+ * can be streamed forward, the first few lines can be read without scanning the rest of the file
+ * and the last few lines can be read backwards from the end of the file.
+ * <p>
+ * The lines are split and decoded in the same way as {@link PathUtils#readAllLines(Path)} does
+ * (UTF-8, line terminators: <code>\n</code>, <code>\r</code> and <code>\r\n</code>), except that
+ * malformed input is replaced instead of throwing an exception. The content is captured when the
+ * source is opened.
+ * <p>
+ * The source must be closed to release the mapping: the garbage collector unmaps the file only
+ * when the buffers are collected, which might never happen before the file is deleted or too many
+ * files are mapped. The lines cannot be read after closing, and the source must not be closed
+ * while an other thread reads it.
+ */
+public final class LineSource implements Iterable<String>, Closeable {
+    /** Files smaller than this are read into the heap instead of being mapped. */
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    /** The file. */
+    @Getter
+    private final Path file;
+
+    /** The size of the content in bytes. */
+    @Getter
+    private final long size;
+
+    private final ByteBuffer[] segments;
+
+    private boolean closed = false;
+
+    private LineSource(Path file, long size, ByteBuffer[] segments) {
+        this.file = file;
+        this.size = size;
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the specified file. If the file does not exist, the source will be empty.
+     *
+     * @param file
+     *            the file
+     * @return the line source
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public static LineSource open(@NonNull Path file) throws IOException {
+        if (!PathUtils.exists(file)) {
+            return new LineSource(file, 0, new ByteBuffer[0]);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < MAPPING_THRESHOLD) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read until the end
+                }
+                buffer.flip();
+                return new LineSource(file, buffer.limit(), new ByteBuffer[] { buffer });
+            } else {
+                ByteBuffer[] segments = new ByteBuffer[(int) ((size - 1) / SEGMENT_SIZE + 1)];
+                for (int i = 0; i < segments.length; i++) {
+                    long position = i * SEGMENT_SIZE;
+                    segments[i] = channel.map(MapMode.READ_ONLY, position,
+                            Math.min(SEGMENT_SIZE, size - position));
+                }
+                return new LineSource(file, size, segments);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the source is empty (i.e. the file is empty or it does not exist).
+     *
+     * @return <code>true</code> if the source does not have any line, otherwise
+     *         <code>false</code>
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator over the lines from the first to the last one.
+     *
+     * @return an iterator over the lines
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new ForwardIterator();
+    }
+
+    /**
+     * Returns a lazy stream of the lines from the first to the last one.
+     *
+     * @return a stream of the lines
+     */
+    public Stream<String> lines() {
+        return toStream(new ForwardIterator());
+    }
+
+    /**
+     * Returns a lazy stream of the lines from the last to the first one.
+     *
+     * @return a stream of the lines in reverse order
+     */
+    public Stream<String> reverseLines() {
+        return toStream(new ReverseIterator());
+    }
+
+    /**
+     * Reads the first lines.
+     *
+     * @param maxLines
+     *            the maximum number of lines to read
+     * @return the first lines (at most <code>maxLines</code>)
+     */
+    public List<String> head(int maxLines) {
+        checkArgument(maxLines >= 0, "The maximum number of lines must not be negative");
+        return lines().limit(maxLines).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Reads the last lines without scanning the beginning of the file.
+     *
+     * @param maxLines
+     *            the maximum number of lines to read
+     * @return the last lines (at most <code>maxLines</code>) in their original order
+     */
+    public List<String> tail(int maxLines) {
+        checkArgument(maxLines >= 0, "The maximum number of lines must not be negative");
+        List<String> lines = reverseLines().limit(maxLines)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Collections.reverse(lines);
+        return lines;
+    }
+
+    /**
+     * Reads the first line.
+     *
+     * @return the first line or <code>null</code> if the source is empty
+     */
+    public String firstLine() {
+        Iterator<String> it = new ForwardIterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Reads the last line.
+     *
+     * @return the last line or <code>null</code> if the source is empty
+     */
+    public String lastLine() {
+        Iterator<String> it = new ReverseIterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Reads all the lines. Use it only if random access is needed to the lines.
+     *
+     * @return all the lines
+     */
+    public List<String> readAllLines() {
+        return lines().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Closes the source and unmaps the file if it was mapped.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        for (int i = 0; i < segments.length; i++) {
+            unmap(segments[i]);
+            segments[i] = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LineSource [file=" + file + ", size=" + size + "]";
+    }
+
+    /**
+     * Unmaps a mapped buffer (with <code>Unsafe.invokeCleaner()</code> on Java 9+ and with the
+     * cleaner of the buffer on Java 8). If it is not possible, the mapping is released by the
+     * garbage collector.
+     *
+     * @param buffer
+     *            the buffer
+     */
+    private static void unmap(ByteBuffer buffer) {
+        if (!(buffer instanceof MappedByteBuffer)) {
+            return;
+        }
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // Java 8
+        }
+
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // released by the garbage collector
+        }
+    }
+
+    private void checkOpen() {
+        checkState(!closed, "The line source has been closed: %s", file);
+    }
+
+    private static Stream<String> toStream(Iterator<String> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)]
+                .get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private String decode(long start, long end) {
+        long length = end - start;
+        checkState(length <= Integer.MAX_VALUE, "The line is too long: %s bytes", length);
+
+        byte[] bytes = new byte[(int) length];
+        int copied = 0;
+        while (copied < bytes.length) {
+            long position = start + copied;
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)].duplicate();
+            segment.position((int) (position & (SEGMENT_SIZE - 1)));
+            int count = Math.min(segment.remaining(), bytes.length - copied);
+            segment.get(bytes, copied, count);
+            copied += count;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private final class ForwardIterator implements Iterator<String> {
+        /** The start of the next line. */
+        private long position = 0;
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public String next() {
+            checkOpen();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            long end = position;
+            while (end < size && !isTerminator(byteAt(end))) {
+                end++;
+            }
+
+            String line = decode(position, end);
+            if (end < size) {
+                position = end + 1;
+                if (byteAt(end) == '\r' && position < size && byteAt(position) == '\n') {
+                    position++;
+                }
+            } else {
+                position = end;
+            }
+            return line;
+        }
+    }
+
+    private final class ReverseIterator implements Iterator<String> {
+        /** The end (exclusive) of the next line or <code>-1</code> if there are no more lines. */
+        private long end;
+
+        ReverseIterator() {
+            checkOpen();
+            if (size == 0) {
+                end = -1;
+            } else {
+                // the terminator of the last line does not start a new line
+                end = size;
+                if (byteAt(end - 1) == '\n') {
+                    end--;
+                    if (end > 0 && byteAt(end - 1) == '\r') {
+                        end--;
+                    }
+                } else if (byteAt(end - 1) == '\r') {
+                    end--;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return end >= 0;
+        }
+
+        @Override
+        public String next() {
+            checkOpen();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            long start = end;
+            while (start > 0 && !isTerminator(byteAt(start - 1))) {
+                start--;
+            }
+
+            String line = decode(start, end);
+            if (start == 0) {
+                end = -1;
+            } else {
+                long terminator = start - 1;
+                end = terminator;
+                if (byteAt(terminator) == '\n' && terminator > 0
+                        && byteAt(terminator - 1) == '\r') {
+                    end--;
+                }
+            }
+            return line;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
@@ -146,6 +147,14 @@ public final class PathUtils {
         log.debug("Wrote file: {}", file);
     }
 
+    public static void append(Path file, Iterable<? extends CharSequence> lines)
+            throws IOException {
+        log.debug("Appending to file: {}", file);
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.debug("Appended to file: {}", file);
+    }
+
     private static void checkExists(Path path) throws IOException {
         if (!exists(path)) {
             throw new NoSuchFileException(path.toString());
@@ -0,0 +1,94 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import lombok.Getter;
+
+/**
+ * This listener class captures the raw output from stdout and stderr into
+ * {@link OutputCaptureBuffer} objects, thus the memory usage is bounded even if the process
+ * produces a lot of output. The listener must be closed to delete the temporary files.
+ */
+public final class CapturingProcessExecutorListener
+        implements ProcessExecutorListener, Closeable {
+    /** The default number of bytes kept in memory per stream. */
+    public static final int DEFAULT_MEMORY_LIMIT = 1024 * 1024;
+
+    /** The data read from stdout. */
+    @Getter
+    private final OutputCaptureBuffer stdout;
+
+    /** The data read from stderr. */
+    @Getter
+    private final OutputCaptureBuffer stderr;
+
+    /**
+     * Creates a listener with the default memory limit.
+     */
+    public CapturingProcessExecutorListener() {
+        this(DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Creates a listener.
+     *
+     * @param memoryLimit
+     *            the maximum number of bytes kept in memory per stream
+     */
+    public CapturingProcessExecutorListener(int memoryLimit) {
+        stdout = new OutputCaptureBuffer(memoryLimit);
+        stderr = new OutputCaptureBuffer(memoryLimit);
+    }
+
+    @Override
+    public void onStdoutData(ByteBuffer data) {
+        append(stdout, data);
+    }
+
+    @Override
+    public void onStderrData(ByteBuffer data) {
+        append(stderr, data);
+    }
+
+    private static void append(OutputCaptureBuffer buffer, ByteBuffer data) {
+        try {
+            buffer.append(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stdout.close();
+        } finally {
+            stderr.close();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.common.io.ByteStreams;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Captures bytes (e.g. the output of a process) with bounded memory usage. The bytes are kept in
+ * memory until their size reaches the memory limit, after that all the bytes are moved to a
+ * temporary file and the further bytes are appended to it. The temporary file is deleted when the
+ * buffer is closed.
+ * <p>
+ * The class is thread-safe.
+ */
+public final class OutputCaptureBuffer implements Closeable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The maximum number of bytes kept in memory. */
+    @Getter
+    private final int memoryLimit;
+
+    /** The directory of the temporary file (<code>null</code> means the default one). */
+    private final Path spillDir;
+
+    private byte[] memory = new byte[0];
+    private long size = 0;
+    private Path spillFile = null;
+    private FileChannel spillChannel = null;
+    private boolean closed = false;
+
+    /**
+     * Creates a capture buffer which uses the default temporary directory.
+     *
+     * @param memoryLimit
+     *            the maximum number of bytes kept in memory
+     */
+    public OutputCaptureBuffer(int memoryLimit) {
+        this(memoryLimit, null);
+    }
+
+    /**
+     * Creates a capture buffer.
+     *
+     * @param memoryLimit
+     *            the maximum number of bytes kept in memory
+     * @param spillDir
+     *            the directory of the temporary file (<code>null</code> means the default one)
+     */
+    public OutputCaptureBuffer(int memoryLimit, Path spillDir) {
+        checkArgument(memoryLimit >= 0, "The memory limit must not be negative: %s", memoryLimit);
+        this.memoryLimit = memoryLimit;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer (the position of the buffer is moved to its limit).
+     *
+     * @param data
+     *            the data
+     * @throws IOException
+     *             if the bytes cannot be written to the temporary file
+     */
+    public synchronized void append(@NonNull ByteBuffer data) throws IOException {
+        checkState(!closed, "The buffer is closed");
+        int length = data.remaining();
+
+        if (spillChannel == null && size + length > memoryLimit) {
+            spill();
+        }
+
+        if (spillChannel != null) {
+            while (data.hasRemaining()) {
+                spillChannel.write(data);
+            }
+        } else {
+            if (size + length > memory.length) {
+                long newCapacity = Math.max(Math.max(INITIAL_CAPACITY, 2L * memory.length),
+                        size + length);
+                memory = Arrays.copyOf(memory, (int) Math.min(newCapacity, memoryLimit));
+            }
+            data.get(memory, (int) size, length);
+        }
+
+        size += length;
+    }
+
+    private void spill() throws IOException {
+        spillFile = spillDir == null ? Files.createTempFile("sette-output-", ".tmp")
+                : Files.createTempFile(spillDir, "sette-output-", ".tmp");
+        spillChannel = FileChannel.open(spillFile, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+
+        ByteBuffer inMemory = ByteBuffer.wrap(memory, 0, (int) size);
+        while (inMemory.hasRemaining()) {
+            spillChannel.write(inMemory);
+        }
+        memory = null;
+    }
+
+    /**
+     * Gets the number of captured bytes.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the bytes have been moved to a temporary file.
+     *
+     * @return <code>true</code> if the bytes are in a temporary file, otherwise <code>false</code>
+     */
+    public synchronized boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    /**
+     * Gets the temporary file.
+     *
+     * @return the temporary file or <code>null</code> if the bytes are in memory
+     */
+    public synchronized Path getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Opens a stream which reads the bytes captured so far.
+     *
+     * @return the input stream
+     * @throws IOException
+     *             if the temporary file cannot be opened
+     */
+    public synchronized InputStream openStream() throws IOException {
+        checkState(!closed, "The buffer is closed");
+
+        if (spillChannel == null) {
+            return new ByteArrayInputStream(memory, 0, (int) size);
+        } else {
+            spillChannel.force(false);
+            InputStream in = Files.newInputStream(spillFile);
+            return ByteStreams.limit(in, size);
+        }
+    }
+
+    /**
+     * Writes the captured bytes to an output stream.
+     *
+     * @param out
+     *            the output stream
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void writeTo(@NonNull OutputStream out) throws IOException {
+        try (InputStream in = openStream()) {
+            ByteStreams.copy(in, out);
+        }
+    }
+
+    /**
+     * Gets the captured bytes as an array.
+     *
+     * @return the bytes
+     * @throws IOException
+     *             if the temporary file cannot be read
+     * @throws IllegalStateException
+     *             if the bytes do not fit into an array
+     */
+    public synchronized byte[] toByteArray() throws IOException {
+        checkState(size <= Integer.MAX_VALUE - 8, "Too many bytes for an array: %s", size);
+
+        if (spillChannel == null) {
+            return Arrays.copyOf(memory, (int) size);
+        } else {
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining()
+                    && spillChannel.read(bytes, bytes.position()) >= 0) {
+                // read until the buffer is full
+            }
+            return bytes.array();
+        }
+    }
+
+    /**
+     * Decodes the captured bytes.
+     *
+     * @param charset
+     *            the charset
+     * @return the string
+     * @throws IOException
+     *             if the temporary file cannot be read
+     */
+    public String toString(@NonNull Charset charset) throws IOException {
+        return new String(toByteArray(), charset);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        memory = null;
+
+        try {
+            if (spillChannel != null) {
+                spillChannel.close();
+            }
+        } finally {
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OutputCaptureBuffer [size=" + size + ", memoryLimit=" + memoryLimit + ", spillFile="
+                + spillFile + "]";
+    }
+}
@@ -41,13 +41,77 @@ public final class ProcessExecutionResult {
     @Getter
     private final boolean destroyed;
 
-    /** The elapsed time in milliseconds. */
+    /** The elapsed time in milliseconds (measured with a monotonic clock). */
     @Getter
     private final long elapsedTimeInMs;
 
+    /** The resource usage of the process tree (<code>null</code> if it was not sampled). */
+    @Getter
+    private final ProcessResourceUsage resourceUsage;
+
+    /** The resource limit which was exceeded (<code>null</code> if none). */
+    @Getter
+    private final ProcessResourceLimits.Limit exceededLimit;
+
+    /**
+     * Creates a result without resource usage.
+     *
+     * @param exitValue
+     *            the exit value
+     * @param destroyed
+     *            whether the process was destroyed because of timeout
+     * @param elapsedTimeInMs
+     *            the elapsed time in milliseconds
+     */
+    public ProcessExecutionResult(int exitValue, boolean destroyed, long elapsedTimeInMs) {
+        this(exitValue, destroyed, elapsedTimeInMs, null);
+    }
+
+    /**
+     * Creates a result.
+     *
+     * @param exitValue
+     *            the exit value
+     * @param destroyed
+     *            whether the process was destroyed because of timeout
+     * @param elapsedTimeInMs
+     *            the elapsed time in milliseconds
+     * @param resourceUsage
+     *            the resource usage of the process tree (<code>null</code> if it was not sampled)
+     */
+    public ProcessExecutionResult(int exitValue, boolean destroyed, long elapsedTimeInMs,
+            ProcessResourceUsage resourceUsage) {
+        this(exitValue, destroyed, elapsedTimeInMs, resourceUsage, null);
+    }
+
+    /**
+     * Creates a result.
+     *
+     * @param exitValue
+     *            the exit value
+     * @param destroyed
+     *            whether the process was destroyed because of timeout
+     * @param elapsedTimeInMs
+     *            the elapsed time in milliseconds
+     * @param resourceUsage
+     *            the resource usage of the process tree (<code>null</code> if it was not sampled)
+     * @param exceededLimit
+     *            the resource limit which was exceeded (<code>null</code> if none)
+     */
+    public ProcessExecutionResult(int exitValue, boolean destroyed, long elapsedTimeInMs,
+            ProcessResourceUsage resourceUsage, ProcessResourceLimits.Limit exceededLimit) {
+        this.exitValue = exitValue;
+        this.destroyed = destroyed;
+        this.elapsedTimeInMs = elapsedTimeInMs;
+        this.resourceUsage = resourceUsage;
+        this.exceededLimit = exceededLimit;
+    }
+
     @Override
     public String toString() {
         return "ProcessExecutionResult [exitValue=" + exitValue + ", destroyed=" + destroyed
-                + ", elapsedTimeInMs=" + elapsedTimeInMs + "]";
+                + ", elapsedTimeInMs=" + elapsedTimeInMs
+                + (resourceUsage != null ? ", resourceUsage=" + resourceUsage : "")
+                + (exceededLimit != null ? ", exceededLimit=" + exceededLimit : "") + "]";
     }
 }
@@ -28,18 +28,33 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ProcessBuilder.Redirect;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 /**
  * This class is able to execute a {@link Process} while the caller can specify a timeout for the
  * process run. After the timeout is elapsed, the process will be killed forcibly.
  * <p>
+ * If it is supported by the system, the process tree is tracked by a {@link ProcessTree} (the
+ * process is started in a new session) and exactly that tree is terminated (SIGTERM, then SIGKILL
+ * after the grace period) when the timeout is elapsed or when the process has exited but left
+ * processes behind. The resource usage of the tree is sampled periodically and it is returned in
+ * the {@link ProcessExecutionResult}. The tree is also terminated if it exceeds its
+ * {@link ProcessResourceLimits} or if the JVM shuts down while the process is running.
+ * <p>
+ * The piped output of the process is read by a {@link ProcessOutputPump} (by default the shared
+ * one), thus no threads are started per process. If the pump is set to <code>null</code>, two
+ * dedicated threads read the output.
+ * <p>
  * Please note that this class does not provide any possibility to write to the standard input of
  * the process.
  * 
@@ -47,12 +62,42 @@ import lombok.NonNull;
 public final class ProcessExecutor {
     private final Logger LOG = LoggerFactory.getLogger(getClass());
 
+    /** The maximum time to read the remaining output after the process has been destroyed. */
+    private static final int OUTPUT_DRAIN_TIMEOUT_IN_MS = 2000;
+
     /** The builder used to create the process. */
     private final ProcessBuilder processBuilder;
 
     /** The timeout in ms (zero means no timeout). */
     private final int timeoutInMs;
 
+    /** The pump which reads the output (<code>null</code> means dedicated threads). */
+    @Getter
+    @Setter
+    private ProcessOutputPump outputPump = ProcessOutputPump.getShared();
+
+    /**
+     * Whether the process is started in a new session and its tree is terminated (if it is
+     * supported by the system). The tree is sampled even if it is not terminated.
+     */
+    @Getter
+    @Setter
+    private boolean processTreeKilled = true;
+
+    /** The time to wait between sending SIGTERM and SIGKILL to the process tree. */
+    @Getter
+    private int terminationGracePeriodInMs = 1000;
+
+    /** The interval of refreshing the process tree and sampling its resource usage. */
+    @Getter
+    private int samplingIntervalInMs = 500;
+
+    /** The resource limits of the process tree (see {@link ProcessResourceLimits}). */
+    @Getter
+    @Setter
+    @NonNull
+    private ProcessResourceLimits resourceLimits = ProcessResourceLimits.NONE;
+
     /**
      * Creates a new {@link Process} using the specified {@link ProcessBuilder} and timeout.
      * 
@@ -72,6 +117,30 @@ public final class ProcessExecutor {
                 processBuilder.command(), timeoutInMs);
     }
 
+    /**
+     * Sets the time to wait between sending SIGTERM and SIGKILL to the process tree.
+     *
+     * @param terminationGracePeriodInMs
+     *            the grace period in milliseconds (must not be negative)
+     */
+    public void setTerminationGracePeriodInMs(int terminationGracePeriodInMs) {
+        checkArgument(terminationGracePeriodInMs >= 0,
+                "The grace period must not be negative: %s", terminationGracePeriodInMs);
+        this.terminationGracePeriodInMs = terminationGracePeriodInMs;
+    }
+
+    /**
+     * Sets the interval of refreshing the process tree and sampling its resource usage.
+     *
+     * @param samplingIntervalInMs
+     *            the interval in milliseconds (must be positive)
+     */
+    public void setSamplingIntervalInMs(int samplingIntervalInMs) {
+        checkArgument(samplingIntervalInMs >= 1, "The sampling interval must be positive: %s",
+                samplingIntervalInMs);
+        this.samplingIntervalInMs = samplingIntervalInMs;
+    }
+
     /**
      * Executes the process. This method blocks the caller thread until the process has finished or
      * destroyed.
@@ -79,8 +148,8 @@ public final class ProcessExecutor {
      * @param listener
      *            A listener to notify on the following events: start, stdoutRead, stderrRead,
      *            complete.
-     * @return The result of the execution (exit code, whether the process was destroyed and the
-     *         elapsed time).
+     * @return The result of the execution (exit code, whether the process was destroyed, the
+     *         elapsed time and the resource usage if it was sampled).
      * @throws IOException
      *             If an I/O error occurs.
      */
@@ -95,10 +164,45 @@ public final class ProcessExecutor {
                     processBuilder.redirectInput(), processBuilder.redirectOutput(),
                     processBuilder.redirectError());
 
-            // start process
-            long start = System.currentTimeMillis();
-            Process process = processBuilder.start();
+            // start process (setsid -> prlimit -> cgroup -> command, all of them exec the next)
+            ResourceLimiter limiter = resourceLimits.isUnlimited() ? null
+                    : new ResourceLimiter(resourceLimits);
+            try {
+                return execute(listener, limiter);
+            } finally {
+                if (limiter != null) {
+                    limiter.close();
+                }
+            }
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException("The process execution was interrupted", ex);
+        }
+    }
+
+    private ProcessExecutionResult execute(ProcessExecutorListener listener,
+            ResourceLimiter limiter) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process;
+        List<String> command = processBuilder.command();
+        List<String> limitedCommand = limiter != null ? limiter.wrapCommand(command) : command;
+        List<String> wrappedCommand = processTreeKilled ? ProcessTree.wrapCommand(limitedCommand)
+                : limitedCommand;
+        try {
+            process = processBuilder.command(wrappedCommand).start();
+        } finally {
+            processBuilder.command(command);
+        }
+        boolean wrapped = wrappedCommand != limitedCommand;
+
+        ProcessTree processTree = ProcessTree.track(process, wrapped);
+        LOG.debug("Tracking process tree: {}", processTree);
 
+        if (processTree != null && processTreeKilled) {
+            // the session is not signalled with SETTE, thus it is terminated on shutdown
+            processTree.terminateOnShutdown(terminationGracePeriodInMs);
+        }
+
+        try {
             LOG.debug("notifying listener start()");
             listener.onStart();
             LOG.debug("notified listener start()");
@@ -109,69 +213,227 @@ public final class ProcessExecutor {
             InputStream stderr = processBuilder.redirectError() == Redirect.PIPE
                     ? process.getErrorStream() : null;
 
-            InputStreamGobbler stdoutGobbler = new InputStreamGobbler(stdout) {
-                @Override
-                protected void dataRead(byte[] buffer, int bytesRead) {
-                    LOG.trace("Read {} bytes from stdout", bytesRead);
-                    listener.onStdoutRead(Arrays.copyOf(buffer, bytesRead));
-                }
-            };
-            InputStreamGobbler stderrGobbler = new InputStreamGobbler(stderr) {
-                @Override
-                protected void dataRead(byte[] buffer, int bytesRead) {
-                    LOG.trace("Read {} bytes from stderr", bytesRead);
-                    listener.onStderrRead(Arrays.copyOf(buffer, bytesRead));
-                }
-            };
-
-            LOG.debug("Starting stream gobblers");
-            stdoutGobbler.start();
-            stderrGobbler.start();
-
-            boolean finishedInTime;
-            if (timeoutInMs > 0) {
-                // wait until timeout
-                finishedInTime = process.waitFor(timeoutInMs, TimeUnit.MILLISECONDS);
+            OutputReader outputReader;
+            if (outputPump != null) {
+                LOG.debug("Registering streams to {}", outputPump);
+                outputReader = new PumpOutputReader(outputPump.register(process, stdout,
+                        listener::onStdoutData, stderr, listener::onStderrData));
             } else {
-                // no timeout
-                process.waitFor();
-                finishedInTime = true;
+                LOG.debug("Starting stream gobblers");
+                outputReader = new GobblerOutputReader(stdout, stderr, listener);
             }
-            LOG.debug("Process finished in time: {}", finishedInTime);
+
+            WaitResult waitResult = waitFor(process, processTree, limiter);
+            LOG.debug("Process wait result: {}", waitResult);
 
             // terminate process if needed, stop threads
             int exitValue;
-            if (finishedInTime) {
+            if (processTree != null) {
+                processTree.refresh();
+                processTree.sample();
+            }
+
+            if (waitResult == WaitResult.EXITED) {
+                // the processes left behind might keep the output open
+                if (processTree != null && processTreeKilled) {
+                    List<Integer> pids = processTree.terminate(terminationGracePeriodInMs);
+                    if (!pids.isEmpty()) {
+                        LOG.info("Terminated the processes left behind by {}: {}",
+                                processTree.getRootPid(), pids);
+                    }
+                }
+
                 // shutdown readers
-                LOG.debug("Waiting for gobbler threads to finish");
-                stdoutGobbler.join();
-                stderrGobbler.join();
+                LOG.debug("Waiting for the output to be read");
+                outputReader.awaitEnd();
 
                 exitValue = process.exitValue();
             } else {
-                // timeout, try to stop threads
-                LOG.debug("Interrupting gobbler threads");
-                stdoutGobbler.interrupt();
-                stderrGobbler.interrupt();
+                // timeout or limit exceeded: destroy() closes the streams of the process, thus it
+                // is killed by signals first so that the output written before can be read to the
+                // end
+                if (processTree != null) {
+                    if (processTreeKilled) {
+                        LOG.debug("Terminating process tree {}", processTree);
+                        processTree.terminate(terminationGracePeriodInMs);
+                    } else {
+                        LOG.debug("Killing process {}", processTree.getRootPid());
+                        ProcessUtils.sendSignal("KILL",
+                                Collections.singletonList(processTree.getRootPid()));
+                    }
+                    process.waitFor(OUTPUT_DRAIN_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+                }
 
-                // give a short time for the threads to stop before destroying the process
-                Thread.sleep(200);
+                LOG.debug("Draining the output");
+                if (!outputReader.drain(process.isAlive() ? 0 : OUTPUT_DRAIN_TIMEOUT_IN_MS)) {
+                    LOG.warn("The output of {} has not been read to the end, the rest is dropped",
+                            command);
+                }
 
-                // destroy the process
                 LOG.debug("Destroying process forcibly");
                 exitValue = process.destroyForcibly().waitFor();
             }
 
             // notify listener and return
-            long elapsedTime = System.currentTimeMillis() - start;
-            ProcessExecutionResult result = new ProcessExecutionResult(exitValue, !finishedInTime,
-                    elapsedTime);
+            long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            ProcessResourceLimits.Limit exceededLimit = limiter != null
+                    ? limiter.getExceededLimit(exitValue) : null;
+            if (exceededLimit != null) {
+                LOG.info("The process {} has exceeded the {} limit: {}", wrappedCommand,
+                        exceededLimit, resourceLimits);
+            }
+
+            ProcessExecutionResult result = new ProcessExecutionResult(exitValue,
+                    waitResult == WaitResult.TIMEOUT, elapsedTime,
+                    processTree != null ? processTree.getResourceUsage() : null, exceededLimit);
             listener.onComplete(result);
 
             LOG.debug("execute() result: {}", result);
             return result;
-        } catch (InterruptedException ex) {
-            throw new IllegalStateException("The process execution was interrupted", ex);
+        } finally {
+            if (processTree != null) {
+                processTree.cancelTerminationOnShutdown();
+            }
+        }
+    }
+
+    /**
+     * Waits until the process exits, the timeout elapses or the tree exceeds a limit which is
+     * enforced by sampling. The process tree (if any) is refreshed and sampled periodically so that
+     * the descendants are known even if they are orphaned later.
+     *
+     * @return the reason of returning
+     */
+    private WaitResult waitFor(Process process, ProcessTree processTree, ResourceLimiter limiter)
+            throws InterruptedException {
+        if (processTree == null) {
+            if (timeoutInMs > 0) {
+                return process.waitFor(timeoutInMs, TimeUnit.MILLISECONDS) ? WaitResult.EXITED
+                        : WaitResult.TIMEOUT;
+            } else {
+                process.waitFor();
+                return WaitResult.EXITED;
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMs);
+        while (true) {
+            long waitInNanos = TimeUnit.MILLISECONDS.toNanos(samplingIntervalInMs);
+            if (timeoutInMs > 0) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return process.isAlive() ? WaitResult.TIMEOUT : WaitResult.EXITED;
+                }
+                waitInNanos = Math.min(waitInNanos, remainingNanos);
+            }
+
+            if (process.waitFor(waitInNanos, TimeUnit.NANOSECONDS)) {
+                return WaitResult.EXITED;
+            }
+            processTree.refresh();
+            processTree.sample();
+
+            if (limiter != null && limiter.check(processTree) != null) {
+                return WaitResult.LIMIT_EXCEEDED;
+            }
+        }
+    }
+
+    /** The reason of returning from waiting for the process. */
+    private enum WaitResult {
+        EXITED,
+        TIMEOUT,
+        LIMIT_EXCEEDED
+    }
+
+    /** Reads the output of a process. */
+    private interface OutputReader {
+        /** Waits until all the output has been read. */
+        void awaitEnd() throws IOException, InterruptedException;
+
+        /**
+         * Reads the remaining output until the end of the streams or until the timeout elapses,
+         * then stops reading (a zero timeout stops reading immediately).
+         *
+         * @return <code>true</code> if all the output has been read, otherwise <code>false</code>
+         */
+        boolean drain(long timeoutInMs) throws IOException, InterruptedException;
+    }
+
+    /** Reads the output with a {@link ProcessOutputPump}. */
+    private static final class PumpOutputReader implements OutputReader {
+        private final ProcessOutputPump.Registration registration;
+
+        PumpOutputReader(ProcessOutputPump.Registration registration) {
+            this.registration = registration;
+        }
+
+        @Override
+        public void awaitEnd() throws IOException, InterruptedException {
+            registration.awaitCompletion();
+        }
+
+        @Override
+        public boolean drain(long timeoutInMs) throws IOException, InterruptedException {
+            if (registration.awaitCompletion(timeoutInMs)) {
+                return true;
+            } else {
+                registration.cancel();
+                return false;
+            }
+        }
+    }
+
+    /** Reads the output with two dedicated threads. */
+    private final class GobblerOutputReader implements OutputReader {
+        private final InputStreamGobbler stdoutGobbler;
+        private final InputStreamGobbler stderrGobbler;
+
+        GobblerOutputReader(InputStream stdout, InputStream stderr,
+                ProcessExecutorListener listener) {
+            stdoutGobbler = new InputStreamGobbler(stdout) {
+                @Override
+                protected void dataRead(byte[] buffer, int bytesRead) {
+                    LOG.trace("Read {} bytes from stdout", bytesRead);
+                    listener.onStdoutData(ByteBuffer.wrap(buffer, 0, bytesRead));
+                }
+            };
+            stderrGobbler = new InputStreamGobbler(stderr) {
+                @Override
+                protected void dataRead(byte[] buffer, int bytesRead) {
+                    LOG.trace("Read {} bytes from stderr", bytesRead);
+                    listener.onStderrData(ByteBuffer.wrap(buffer, 0, bytesRead));
+                }
+            };
+
+            stdoutGobbler.start();
+            stderrGobbler.start();
+        }
+
+        @Override
+        public void awaitEnd() throws InterruptedException {
+            stdoutGobbler.join();
+            stderrGobbler.join();
+        }
+
+        @Override
+        public boolean drain(long timeoutInMs) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMs);
+            for (Thread gobbler : new Thread[] { stdoutGobbler, stderrGobbler }) {
+                long remainingInMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingInMs > 0) {
+                    // join(0) would wait forever
+                    gobbler.join(remainingInMs);
+                }
+            }
+
+            if (stdoutGobbler.isAlive() || stderrGobbler.isAlive()) {
+                stdoutGobbler.interrupt();
+                stderrGobbler.interrupt();
+                return false;
+            } else {
+                return true;
+            }
         }
     }
 
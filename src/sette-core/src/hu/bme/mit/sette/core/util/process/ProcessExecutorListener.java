@@ -22,6 +22,8 @@
  */
 package hu.bme.mit.sette.core.util.process;
 
+import java.nio.ByteBuffer;
+
 /**
  * The listener interface for receiving {@link ProcessExecutor} events.
  *
@@ -59,6 +61,35 @@ public interface ProcessExecutorListener {
         // do nothing by default
     }
 
+    /**
+     * Called when data was read from the standard output of the process. The buffer is reused by
+     * the reader thread after the call returns, thus its contents must be consumed or copied
+     * during the call. By default it copies the data and calls {@link #onStdoutRead(byte[])}.
+     *
+     * @param data
+     *            the read bytes (between the position and the limit of the buffer)
+     */
+    default void onStdoutData(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        onStdoutRead(bytes);
+    }
+
+    /**
+     * Called when data was read from the standard error output of the process. The buffer is
+     * reused by the reader thread after the call returns, thus its contents must be consumed or
+     * copied during the call. By default it copies the data and calls
+     * {@link #onStderrRead(byte[])}.
+     *
+     * @param data
+     *            the read bytes (between the position and the limit of the buffer)
+     */
+    default void onStderrData(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        onStderrRead(bytes);
+    }
+
     /**
      * Called when the process has finished.
      *
@@ -0,0 +1,337 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+
+/**
+ * Pumps the standard output and error output of many processes on a few shared threads instead of
+ * starting two threads per process. The pipes of a process cannot be selected with NIO, thus each
+ * pump thread polls the registered streams: it reads the available bytes without blocking and
+ * backs off (up to a few milliseconds) when none of its streams has data.
+ * <p>
+ * Polling is a trade-off: a blocking read per stream would need a thread per stream (which is
+ * exactly what this class avoids when many tools run in parallel), while polling costs some CPU
+ * time when the processes are idle and adds at most {@value #MAX_IDLE_MILLIS}ms latency to the
+ * delivery. Polling {@link InputStream#available()} is reliable for process pipes: when a process
+ * exits, the JDK moves the bytes left in its pipes into memory, thus a stream is known to be at its
+ * end when the process is not alive and no bytes are available.
+ * <p>
+ * The data is delivered in a buffer which is reused by the pump thread, thus the consumers must not
+ * keep a reference to it. Both streams of a process are served by the same thread, thus the
+ * consumers of a process are called one at a time. A stream is finished when the process has
+ * exited and all of its output has been read.
+ */
+public final class ProcessOutputPump {
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessOutputPump.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long MAX_IDLE_MILLIS = 10;
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(MAX_IDLE_MILLIS);
+
+    private static volatile ProcessOutputPump shared;
+
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /**
+     * Creates a pump with the given number of (daemon) threads.
+     *
+     * @param threadCount
+     *            the number of threads (at least 1)
+     */
+    public ProcessOutputPump(int threadCount) {
+        checkArgument(threadCount >= 1, "The thread count must be positive: %s", threadCount);
+
+        workers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Worker("process-output-pump-" + i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Gets the pump which is shared by the whole application (created on first use, its thread
+     * count depends on the number of processors).
+     *
+     * @return the shared pump
+     */
+    public static ProcessOutputPump getShared() {
+        if (shared == null) {
+            synchronized (ProcessOutputPump.class) {
+                if (shared == null) {
+                    int cpus = Runtime.getRuntime().availableProcessors();
+                    shared = new ProcessOutputPump(Math.max(1, Math.min(4, cpus / 2)));
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Registers the output streams of a process.
+     *
+     * @param process
+     *            the process
+     * @param stdout
+     *            the standard output of the process or <code>null</code> if it is not read
+     * @param stdoutConsumer
+     *            the consumer of the standard output data
+     * @param stderr
+     *            the standard error output of the process or <code>null</code> if it is not read
+     * @param stderrConsumer
+     *            the consumer of the standard error output data
+     * @return the registration which can be used to wait for the end of the streams
+     */
+    public Registration register(@NonNull Process process, InputStream stdout,
+            @NonNull Consumer<ByteBuffer> stdoutConsumer, InputStream stderr,
+            @NonNull Consumer<ByteBuffer> stderrConsumer) {
+        List<Stream> streams = new ArrayList<>(2);
+        if (stdout != null) {
+            streams.add(new Stream(stdout, stdoutConsumer));
+        }
+        if (stderr != null) {
+            streams.add(new Stream(stderr, stderrConsumer));
+        }
+
+        Registration registration = new Registration(process, streams);
+        if (streams.isEmpty()) {
+            registration.done.countDown();
+        } else {
+            Worker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+            worker.incoming.add(registration);
+            LockSupport.unpark(worker);
+        }
+        return registration;
+    }
+
+    /** A stream of a process and its consumer. */
+    private static final class Stream {
+        private final InputStream inputStream;
+        private final Consumer<ByteBuffer> consumer;
+        private boolean finished = false;
+
+        Stream(InputStream inputStream, Consumer<ByteBuffer> consumer) {
+            this.inputStream = inputStream;
+            this.consumer = consumer;
+        }
+    }
+
+    /**
+     * The registration of the output streams of a process.
+     */
+    public static final class Registration {
+        private final Process process;
+        private final List<Stream> streams;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean cancelled = false;
+        private volatile Throwable failure = null;
+
+        private Registration(Process process, List<Stream> streams) {
+            this.process = process;
+            this.streams = streams;
+        }
+
+        /**
+         * Stops pumping the streams (the data which has not been read yet is dropped). The streams
+         * are not closed.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Returns whether all the streams have finished (or the pumping was cancelled or failed).
+         *
+         * @return <code>true</code> if finished, otherwise <code>false</code>
+         */
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * Waits until all the streams have finished.
+         *
+         * @throws IOException
+         *             if a stream could not be read
+         * @throws InterruptedException
+         *             if the thread is interrupted
+         */
+        public void awaitCompletion() throws IOException, InterruptedException {
+            done.await();
+            rethrowFailure();
+        }
+
+        /**
+         * Waits until all the streams have finished or the timeout has elapsed.
+         *
+         * @param timeoutInMs
+         *            the timeout in milliseconds
+         * @return <code>true</code> if the streams have finished, otherwise <code>false</code>
+         * @throws IOException
+         *             if a stream could not be read
+         * @throws InterruptedException
+         *             if the thread is interrupted
+         */
+        public boolean awaitCompletion(long timeoutInMs) throws IOException, InterruptedException {
+            if (!done.await(timeoutInMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            rethrowFailure();
+            return true;
+        }
+
+        private void rethrowFailure() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+
+        /**
+         * Reads the available data of the streams.
+         *
+         * @return whether any data was read
+         */
+        private boolean pump(ByteBuffer buffer) throws IOException {
+            // check whether the process is alive before reading, thus when it has exited, all of
+            // its output is already available
+            boolean alive = process.isAlive();
+            boolean progress = false;
+            boolean finished = true;
+
+            for (Stream stream : streams) {
+                if (stream.finished) {
+                    continue;
+                }
+
+                int available = stream.inputStream.available();
+                if (available > 0) {
+                    int bytesRead = stream.inputStream.read(buffer.array(), 0,
+                            Math.min(available, buffer.capacity()));
+                    if (bytesRead > 0) {
+                        buffer.clear();
+                        buffer.limit(bytesRead);
+                        stream.consumer.accept(buffer);
+                        progress = true;
+                    } else if (bytesRead < 0) {
+                        stream.finished = true;
+                    }
+                } else if (!alive) {
+                    stream.finished = true;
+                }
+
+                finished &= stream.finished;
+            }
+
+            if (finished) {
+                done.countDown();
+            }
+            return progress;
+        }
+    }
+
+    /** A pump thread. */
+    private static final class Worker extends Thread {
+        private final ConcurrentLinkedQueue<Registration> incoming = new ConcurrentLinkedQueue<>();
+        private final List<Registration> active = new ArrayList<>();
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long idleNanos = MIN_IDLE_NANOS;
+
+            while (true) {
+                Registration registration;
+                while ((registration = incoming.poll()) != null) {
+                    active.add(registration);
+                }
+
+                if (active.isEmpty()) {
+                    // wait for a registration
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                boolean progress = false;
+                for (Iterator<Registration> it = active.iterator(); it.hasNext();) {
+                    registration = it.next();
+                    try {
+                        if (registration.cancelled) {
+                            registration.done.countDown();
+                        } else {
+                            progress |= registration.pump(buffer);
+                        }
+                    } catch (Throwable t) {
+                        LOG.debug("Failed to pump process output", t);
+                        registration.failure = t;
+                        registration.done.countDown();
+                    }
+
+                    if (registration.isDone()) {
+                        it.remove();
+                    }
+                }
+
+                if (progress) {
+                    idleNanos = MIN_IDLE_NANOS;
+                } else {
+                    LockSupport.parkNanos(this, idleNanos);
+                    idleNanos = Math.min(2 * idleNanos, MAX_IDLE_NANOS);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessOutputPump [threads=" + workers.length + "]";
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import lombok.Data;
+
+/**
+ * Resource limits for a process tree (zero means unlimited). The limits are applied by
+ * {@link ProcessExecutor}:
+ * <ul>
+ * <li>the address space, CPU time and open file limits are set as rlimits of each process (with
+ * <code>prlimit</code>),</li>
+ * <li>the memory (RSS) and process count limits are enforced for the whole tree by a cgroup v2
+ * sub-group if one is available (see the <code>sette.cgroupDir</code> system property), otherwise
+ * by sampling the tree,</li>
+ * <li>the CPU time limit is also enforced for the whole tree by sampling.</li>
+ * </ul>
+ */
+@Data
+public final class ProcessResourceLimits {
+    /** No limits. */
+    public static final ProcessResourceLimits NONE = new ProcessResourceLimits(0, 0, 0, 0, 0);
+
+    /** The limits which can be exceeded. */
+    public enum Limit {
+        /** The memory (RSS) of the tree. */
+        MEMORY,
+        /** The CPU time of a process or the tree. */
+        CPU_TIME,
+        /** The number of processes in the tree. */
+        PROCESSES
+    }
+
+    /** The maximum address space of a process in megabytes. */
+    private final long addressSpaceInMb;
+
+    /** The maximum memory (RSS) of the tree in megabytes. */
+    private final long memoryInMb;
+
+    /** The maximum CPU time in seconds. */
+    private final long cpuTimeInSeconds;
+
+    /** The maximum number of processes in the tree. */
+    private final int maxProcesses;
+
+    /** The maximum number of open files of a process. */
+    private final int maxOpenFiles;
+
+    /**
+     * Creates resource limits (zero means unlimited).
+     *
+     * @param addressSpaceInMb
+     *            the maximum address space of a process in megabytes
+     * @param memoryInMb
+     *            the maximum memory (RSS) of the tree in megabytes
+     * @param cpuTimeInSeconds
+     *            the maximum CPU time in seconds
+     * @param maxProcesses
+     *            the maximum number of processes in the tree
+     * @param maxOpenFiles
+     *            the maximum number of open files of a process
+     */
+    public ProcessResourceLimits(long addressSpaceInMb, long memoryInMb, long cpuTimeInSeconds,
+            int maxProcesses, int maxOpenFiles) {
+        checkArgument(addressSpaceInMb >= 0, "The address space limit must not be negative");
+        checkArgument(memoryInMb >= 0, "The memory limit must not be negative");
+        checkArgument(cpuTimeInSeconds >= 0, "The CPU time limit must not be negative");
+        checkArgument(maxProcesses >= 0, "The process limit must not be negative");
+        checkArgument(maxOpenFiles >= 0, "The open file limit must not be negative");
+
+        this.addressSpaceInMb = addressSpaceInMb;
+        this.memoryInMb = memoryInMb;
+        this.cpuTimeInSeconds = cpuTimeInSeconds;
+        this.maxProcesses = maxProcesses;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Returns whether none of the limits is set.
+     *
+     * @return <code>true</code> if there are no limits, otherwise <code>false</code>
+     */
+    public boolean isUnlimited() {
+        return equals(NONE);
+    }
+}
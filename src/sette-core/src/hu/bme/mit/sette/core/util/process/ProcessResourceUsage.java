@@ -0,0 +1,56 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import lombok.Data;
+
+/**
+ * The resource usage of a process tree, sampled from <code>/proc</code> during the execution. The
+ * CPU time and I/O of a process are accounted up to its last sample.
+ */
+@Data
+public final class ProcessResourceUsage {
+    /** The CPU time spent in user mode in milliseconds. */
+    private final long userCpuTimeInMs;
+
+    /** The CPU time spent in kernel mode in milliseconds. */
+    private final long systemCpuTimeInMs;
+
+    /**
+     * The peak resident set size in kilobytes (the greater of the peak of a single process and the
+     * peak of the sampled sum of the tree).
+     */
+    private final long peakRssInKb;
+
+    /** The number of bytes read by the processes (including reads from pipes and the cache). */
+    private final long readBytes;
+
+    /** The number of bytes written by the processes (including writes to pipes). */
+    private final long writtenBytes;
+
+    /** The peak number of threads in the tree. */
+    private final int peakThreadCount;
+
+    /** The number of samples taken. */
+    private final int sampleCount;
+}
@@ -0,0 +1,760 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Tracks the process tree of a started {@link Process} by reading <code>/proc</code> (Linux only)
+ * and terminates exactly the tracked processes: first SIGTERM is sent, then SIGKILL to the ones
+ * which are still alive after the grace period. The resource usage of the tree can be sampled with
+ * {@link #sample()}.
+ * <p>
+ * A process belongs to the tree if it is a descendant of the root or of an already tracked process
+ * (thus orphans which were reparented after {@link #refresh()} are not lost) or if it is in the
+ * session of the root (if the root is a session leader, see {@link #wrapCommand(List)}, even the
+ * processes which were orphaned between two refreshes are found). The processes are identified by
+ * their PID and start time, thus a reused PID is never signalled.
+ * <p>
+ * Since the processes of a new session do not receive the signals sent to the process group of
+ * SETTE (e.g. when it is interrupted), the trees registered with {@link #terminateOnShutdown(int)}
+ * are terminated by a shutdown hook when the JVM exits.
+ */
+public final class ProcessTree {
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessTree.class);
+
+    private static final Path PROC_DIR = Paths.get("/proc");
+    private static final Path SETSID_EXECUTABLE = findSetsid();
+    private static final long STATE_POLL_INTERVAL_IN_MS = 20;
+
+    /**
+     * The maximum age of the scan of all the processes which is reused by {@link #refresh()}. It is
+     * half of the usual refresh interval, thus the trees of the parallel runs share the scans.
+     */
+    private static final long SHARED_SCAN_MAX_AGE_IN_MS = 250;
+
+    /** Whether <code>/proc/[pid]/task/[tid]/children</code> is available (Linux 3.5+). */
+    private static final boolean CHILDREN_SUPPORTED = isChildrenSupported();
+
+    /** The last scan of all the processes (guarded by the class). */
+    private static Map<Integer, ProcStat> sharedScan = null;
+    private static long sharedScanTime = 0;
+
+    /** The trees to terminate when the JVM shuts down (with their grace periods). */
+    private static final Map<ProcessTree, Integer> SHUTDOWN_TREES = new ConcurrentHashMap<>();
+
+    /** Whether the shutdown hook has been added (guarded by the class). */
+    private static boolean shutdownHookAdded = false;
+
+    /** The unit of the CPU times in <code>/proc/[pid]/stat</code> (USER_HZ, 100 on Linux). */
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    /** The PID of the root process. */
+    @Getter
+    private final int rootPid;
+
+    /** Whether the root is (or will be) the leader of its own session. */
+    @Getter
+    private boolean sessionLeader;
+
+    /** The tracked processes (PID to start time). */
+    private final Map<Integer, Long> trackedProcesses = new LinkedHashMap<>();
+
+    /** The last sample of the tracked processes (by PID). */
+    private final Map<Integer, ProcSample> lastSamples = new HashMap<>();
+
+    private long peakTreeRssInKb = 0;
+    private long peakProcessRssInKb = 0;
+    private int peakThreadCount = 0;
+    private int sampleCount = 0;
+
+    private ProcessTree(int rootPid, long rootStartTime, boolean sessionLeader) {
+        this.rootPid = rootPid;
+        this.sessionLeader = sessionLeader;
+        trackedProcesses.put(rootPid, rootStartTime);
+    }
+
+    /**
+     * Returns whether process trees can be tracked on this system (i.e. <code>/proc</code> is
+     * available).
+     *
+     * @return <code>true</code> if process trees can be tracked, otherwise <code>false</code>
+     */
+    public static boolean isSupported() {
+        return Files.isRegularFile(PROC_DIR.resolve("self").resolve("stat"));
+    }
+
+    /**
+     * Prefixes the command with <code>setsid</code> (if it is available) so that the process is
+     * started in a new session and its whole tree can be found later. The PID does not change
+     * since <code>setsid</code> replaces itself with the command.
+     *
+     * @param command
+     *            the command
+     * @return the wrapped command or the same command if <code>setsid</code> is not available
+     */
+    public static List<String> wrapCommand(@NonNull List<String> command) {
+        if (SETSID_EXECUTABLE == null || !isSupported() || command.isEmpty()) {
+            return command;
+        }
+
+        List<String> wrapped = new ArrayList<>(command.size() + 1);
+        wrapped.add(SETSID_EXECUTABLE.toString());
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * Starts tracking the tree of the given process.
+     *
+     * @param process
+     *            the process
+     * @param wrapped
+     *            whether the command of the process was wrapped by {@link #wrapCommand(List)}
+     *            (i.e. the process creates a new session)
+     * @return the process tree or <code>null</code> if it cannot be tracked (e.g. not supported by
+     *         the system or the process has already exited and it was not wrapped)
+     */
+    public static ProcessTree track(@NonNull Process process, boolean wrapped) {
+        if (!isSupported()) {
+            return null;
+        }
+
+        int pid = getPid(process);
+        if (pid <= 0) {
+            LOG.debug("Cannot determine the PID of {}", process);
+            return null;
+        }
+
+        ProcStat stat = readStat(pid);
+        if (stat == null && !wrapped) {
+            LOG.debug("The process {} has already exited", pid);
+            return null;
+        }
+
+        // if a session leader has already exited, its session can still be found (the root itself
+        // is never signalled since its start time is unknown)
+        ProcessTree tree = new ProcessTree(pid, stat != null ? stat.startTime : -1,
+                wrapped || stat.sessionId == pid);
+        tree.refresh();
+        return tree;
+    }
+
+    /**
+     * Adds the current descendants of the tracked processes (and the members of the session of the
+     * root) to the tracked processes. The descendants are read from the
+     * <code>/proc/[pid]/task/[tid]/children</code> files of the tracked processes. All the
+     * processes are only scanned to find the members of the session (orphans are reparented out of
+     * the tree) or if the <code>children</code> files are not available, and the scan is shared by
+     * the trees refreshed within {@link #SHARED_SCAN_MAX_AGE_IN_MS}.
+     */
+    public synchronized void refresh() {
+        refresh(SHARED_SCAN_MAX_AGE_IN_MS);
+    }
+
+    /**
+     * Refreshes the tracked processes (see {@link #refresh()}).
+     *
+     * @param maxScanAgeInMs
+     *            the maximum age of the shared scan of all the processes if it is needed (0 to
+     *            scan the processes again)
+     */
+    private void refresh(long maxScanAgeInMs) {
+        long rootStartTime = trackedProcesses.get(rootPid);
+        ProcStat rootStat = readStat(rootPid);
+        if (rootStat != null && rootStat.startTime == rootStartTime
+                && rootStat.sessionId == rootPid) {
+            sessionLeader = true;
+        }
+
+        // the PID of the session leader is not reused while the session has members
+        boolean findSessionMembers = sessionLeader
+                && (rootStat == null || rootStat.startTime == rootStartTime);
+
+        Map<Integer, ProcStat> scan = null;
+        if (findSessionMembers || !CHILDREN_SUPPORTED) {
+            scan = scanProcesses(maxScanAgeInMs);
+            if (scan == null) {
+                return;
+            }
+        }
+
+        Map<Integer, List<Integer>> scannedChildren = null;
+        if (!CHILDREN_SUPPORTED) {
+            scannedChildren = new HashMap<>();
+            for (Map.Entry<Integer, ProcStat> entry : scan.entrySet()) {
+                scannedChildren.computeIfAbsent(entry.getValue().ppid, k -> new ArrayList<>())
+                        .add(entry.getKey());
+            }
+        }
+
+        // the stats are always read again since the scan might be outdated
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Integer, Long> entry : trackedProcesses.entrySet()) {
+            ProcStat stat = readStat(entry.getKey());
+            if (stat != null && stat.startTime == entry.getValue()) {
+                queue.add(entry.getKey());
+            }
+        }
+
+        if (findSessionMembers) {
+            scan.forEach((pid, stat) -> {
+                if (stat.sessionId == rootPid && !trackedProcesses.containsKey(pid)) {
+                    ProcStat current = readStat(pid);
+                    if (current != null && current.sessionId == rootPid) {
+                        trackPid(pid, current);
+                        queue.add(pid);
+                    }
+                }
+            });
+        }
+
+        Set<Integer> visited = new HashSet<>();
+        while (!queue.isEmpty()) {
+            int pid = queue.poll();
+            if (!visited.add(pid)) {
+                continue;
+            }
+
+            List<Integer> children = CHILDREN_SUPPORTED ? readChildren(pid)
+                    : scannedChildren.getOrDefault(pid, Collections.emptyList());
+            for (int child : children) {
+                if (trackedProcesses.containsKey(child)) {
+                    // already in the queue if it is still the tracked process
+                    continue;
+                }
+
+                // the process might have exited (and its PID reused) since it was listed
+                ProcStat stat = readStat(child);
+                if (stat != null && stat.ppid == pid) {
+                    trackPid(child, stat);
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private void trackPid(int pid, ProcStat stat) {
+        LOG.trace("Tracking process {} in the tree of {}", pid, rootPid);
+        trackedProcesses.put(pid, stat.startTime);
+    }
+
+    /**
+     * Gets the PIDs of the tracked processes which are still alive (zombies are not alive).
+     *
+     * @return the PIDs of the alive processes (the root is the first if it is alive)
+     */
+    public synchronized List<Integer> getAlivePids() {
+        List<Integer> pids = new ArrayList<>();
+        trackedProcesses.forEach((pid, startTime) -> {
+            ProcStat stat = readStat(pid);
+            if (stat != null && stat.startTime == startTime && stat.state != 'Z') {
+                pids.add(pid);
+            }
+        });
+        return pids;
+    }
+
+    /**
+     * Samples the resource usage of the alive processes of the tree (call {@link #refresh()} before
+     * to include the new descendants).
+     */
+    public synchronized void sample() {
+        long treeRssInKb = 0;
+        int threadCount = 0;
+
+        for (Map.Entry<Integer, Long> entry : trackedProcesses.entrySet()) {
+            int pid = entry.getKey();
+            ProcStat stat = readStat(pid);
+            if (stat == null || stat.startTime != entry.getValue() || stat.state == 'Z') {
+                continue;
+            }
+
+            Path procDir = PROC_DIR.resolve(String.valueOf(pid));
+            Map<String, Long> status = readKeyValues(procDir.resolve("status"));
+            Map<String, Long> io = readKeyValues(procDir.resolve("io"));
+
+            ProcSample sample = new ProcSample(stat.userTime, stat.systemTime,
+                    io.getOrDefault("rchar", 0L), io.getOrDefault("wchar", 0L));
+            lastSamples.merge(pid, sample, ProcSample::max);
+
+            treeRssInKb += status.getOrDefault("VmRSS", 0L);
+            threadCount += status.getOrDefault("Threads", 1L);
+            peakProcessRssInKb = Math.max(peakProcessRssInKb, status.getOrDefault("VmHWM", 0L));
+        }
+
+        peakTreeRssInKb = Math.max(peakTreeRssInKb, treeRssInKb);
+        peakThreadCount = Math.max(peakThreadCount, threadCount);
+        sampleCount++;
+    }
+
+    /**
+     * Gets the resource usage of the tree according to the samples taken so far.
+     *
+     * @return the resource usage
+     */
+    public synchronized ProcessResourceUsage getResourceUsage() {
+        long userTime = 0;
+        long systemTime = 0;
+        long readBytes = 0;
+        long writtenBytes = 0;
+        for (ProcSample sample : lastSamples.values()) {
+            userTime += sample.userTime;
+            systemTime += sample.systemTime;
+            readBytes += sample.readBytes;
+            writtenBytes += sample.writtenBytes;
+        }
+
+        return new ProcessResourceUsage(ticksToMs(userTime), ticksToMs(systemTime),
+                Math.max(peakTreeRssInKb, peakProcessRssInKb), readBytes, writtenBytes,
+                peakThreadCount, sampleCount);
+    }
+
+    /**
+     * Terminates the alive processes of the tree: sends SIGTERM, waits at most the grace period
+     * for the processes to exit and sends SIGKILL to the remaining ones.
+     *
+     * @param gracePeriodInMs
+     *            the time to wait between SIGTERM and SIGKILL
+     * @return the PIDs of the processes which were signalled
+     * @throws IOException
+     *             if the signal cannot be sent
+     */
+    public List<Integer> terminate(int gracePeriodInMs) throws IOException {
+        return terminate(Collections.singletonList(this), gracePeriodInMs);
+    }
+
+    /**
+     * Terminates the alive processes of the trees together (see {@link #terminate(int)}), thus the
+     * grace period elapses only once.
+     *
+     * @param trees
+     *            the process trees
+     * @param gracePeriodInMs
+     *            the time to wait between SIGTERM and SIGKILL
+     * @return the PIDs of the processes which were signalled
+     * @throws IOException
+     *             if the signal cannot be sent
+     */
+    static List<Integer> terminate(@NonNull Collection<ProcessTree> trees, int gracePeriodInMs)
+            throws IOException {
+        List<Integer> pids = refreshAlivePids(trees);
+        if (pids.isEmpty()) {
+            return pids;
+        }
+
+        LOG.debug("Sending SIGTERM to {}: {}", trees, pids);
+        ProcessUtils.sendSignal("TERM", pids);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(gracePeriodInMs);
+        List<Integer> alive = getAlivePids(trees);
+        while (!alive.isEmpty() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(STATE_POLL_INTERVAL_IN_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            // the processes might have spawned new ones while handling the signal
+            alive = refreshAlivePids(trees);
+        }
+
+        if (!alive.isEmpty()) {
+            LOG.debug("Sending SIGKILL to {}: {}", trees, alive);
+            ProcessUtils.sendSignal("KILL", alive);
+        }
+
+        return pids;
+    }
+
+    private static List<Integer> refreshAlivePids(Collection<ProcessTree> trees) {
+        for (ProcessTree tree : trees) {
+            synchronized (tree) {
+                tree.refresh(0);
+            }
+        }
+        return getAlivePids(trees);
+    }
+
+    private static List<Integer> getAlivePids(Collection<ProcessTree> trees) {
+        List<Integer> pids = new ArrayList<>();
+        for (ProcessTree tree : trees) {
+            pids.addAll(tree.getAlivePids());
+        }
+        return pids;
+    }
+
+    /**
+     * Registers the tree to be terminated when the JVM shuts down (e.g. SETTE is interrupted)
+     * until {@link #cancelTerminationOnShutdown()} is called.
+     *
+     * @param gracePeriodInMs
+     *            the time to wait between SIGTERM and SIGKILL (the longest one of the registered
+     *            trees is used)
+     */
+    public void terminateOnShutdown(int gracePeriodInMs) {
+        checkArgument(gracePeriodInMs >= 0, "The grace period must not be negative: %s",
+                gracePeriodInMs);
+        addShutdownHook();
+        SHUTDOWN_TREES.put(this, gracePeriodInMs);
+    }
+
+    /**
+     * Removes the tree from the ones which are terminated when the JVM shuts down.
+     */
+    public void cancelTerminationOnShutdown() {
+        SHUTDOWN_TREES.remove(this);
+    }
+
+    /**
+     * Gets whether the tree is registered to be terminated when the JVM shuts down.
+     *
+     * @return <code>true</code> if the tree is registered, otherwise <code>false</code>
+     */
+    public boolean isTerminatedOnShutdown() {
+        return SHUTDOWN_TREES.containsKey(this);
+    }
+
+    /**
+     * Terminates the registered trees (called by the shutdown hook).
+     */
+    static void terminateShutdownTrees() {
+        Map<ProcessTree, Integer> trees = new HashMap<>(SHUTDOWN_TREES);
+        if (trees.isEmpty()) {
+            return;
+        }
+
+        int gracePeriodInMs = Collections.max(trees.values());
+        try {
+            List<Integer> pids = terminate(trees.keySet(), gracePeriodInMs);
+            LOG.info("Terminated the process trees on shutdown: {}", pids);
+        } catch (IOException ex) {
+            LOG.warn("Cannot terminate the process trees on shutdown: " + trees.keySet(), ex);
+        }
+        SHUTDOWN_TREES.keySet().removeAll(trees.keySet());
+    }
+
+    private static synchronized void addShutdownHook() {
+        if (shutdownHookAdded) {
+            return;
+        }
+
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(ProcessTree::terminateShutdownTrees,
+                    "process-tree-shutdown"));
+            shutdownHookAdded = true;
+        } catch (IllegalStateException ex) {
+            LOG.warn("Cannot add the shutdown hook, the JVM is shutting down", ex);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProcessTree [rootPid=" + rootPid + ", trackedPids=" + trackedProcesses.keySet()
+                + "]";
+    }
+
+    /**
+     * Gets the PID of a process (with the <code>pid()</code> method on Java 9+ and with the
+     * <code>pid</code> field of the implementation on Java 8).
+     *
+     * @param process
+     *            the process
+     * @return the PID or -1 if it cannot be determined
+     */
+    static int getPid(@NonNull Process process) {
+        try {
+            Method method = Process.class.getMethod("pid");
+            return (int) (long) method.invoke(process);
+        } catch (ReflectiveOperationException ex) {
+            // Java 8
+        }
+
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the content of a <code>/proc/[pid]/stat</code> file.
+     *
+     * @param content
+     *            the content of the file
+     * @return the parsed fields or <code>null</code> if the content is invalid
+     */
+    static ProcStat parseStat(@NonNull String content) {
+        // the process name is between parentheses and may contain spaces and parentheses
+        int nameEnd = content.lastIndexOf(')');
+        if (nameEnd < 0 || nameEnd + 2 > content.length()) {
+            return null;
+        }
+
+        // fields from the 3rd one (state)
+        String[] fields = content.substring(nameEnd + 2).trim().split(" ");
+        if (fields.length < 20 || fields[0].length() != 1) {
+            return null;
+        }
+
+        try {
+            return new ProcStat(fields[0].charAt(0), Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[3]), Long.parseLong(fields[11]),
+                    Long.parseLong(fields[12]), Long.parseLong(fields[19]));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the stats of all the processes or reuses the last scan if it is not older than the
+     * given age.
+     *
+     * @param maxAgeInMs
+     *            the maximum age of the reused scan
+     * @return the stats by PIDs or <code>null</code> if the processes cannot be listed
+     */
+    private static synchronized Map<Integer, ProcStat> scanProcesses(long maxAgeInMs) {
+        long now = System.nanoTime();
+        if (sharedScan != null
+                && now - sharedScanTime <= TimeUnit.MILLISECONDS.toNanos(maxAgeInMs)) {
+            return sharedScan;
+        }
+
+        Map<Integer, ProcStat> stats = new HashMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(PROC_DIR)) {
+            for (Path dir : ds) {
+                int pid = parsePid(dir.getFileName().toString());
+                if (pid <= 0) {
+                    continue;
+                }
+
+                ProcStat stat = readStat(pid);
+                if (stat != null) {
+                    stats.put(pid, stat);
+                }
+            }
+        } catch (IOException ex) {
+            LOG.warn("Cannot list the processes", ex);
+            return null;
+        }
+
+        sharedScan = Collections.unmodifiableMap(stats);
+        sharedScanTime = now;
+        return sharedScan;
+    }
+
+    /**
+     * Reads the children of a process from the <code>children</code> files of its threads.
+     *
+     * @param pid
+     *            the PID of the process
+     * @return the PIDs of the children (empty if the process has exited)
+     */
+    static List<Integer> readChildren(int pid) {
+        List<Integer> children = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files
+                .newDirectoryStream(PROC_DIR.resolve(String.valueOf(pid)).resolve("task"))) {
+            for (Path taskDir : ds) {
+                String content;
+                try {
+                    content = new String(Files.readAllBytes(taskDir.resolve("children")),
+                            StandardCharsets.US_ASCII);
+                } catch (IOException ex) {
+                    // the thread has exited
+                    continue;
+                }
+
+                for (String child : content.trim().split("\\s+")) {
+                    int childPid = parsePid(child);
+                    if (childPid > 0) {
+                        children.add(childPid);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            // the process has exited
+        }
+        return children;
+    }
+
+    static boolean isChildrenSupported() {
+        Path taskDir = PROC_DIR.resolve("self").resolve("task");
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(taskDir)) {
+            for (Path dir : ds) {
+                return Files.isReadable(dir.resolve("children"));
+            }
+        } catch (IOException ex) {
+            // not supported
+        }
+        return false;
+    }
+
+    private static ProcStat readStat(int pid) {
+        try {
+            Path statFile = PROC_DIR.resolve(String.valueOf(pid)).resolve("stat");
+            byte[] content = Files.readAllBytes(statFile);
+            return parseStat(new String(content, StandardCharsets.US_ASCII));
+        } catch (IOException ex) {
+            // the process has exited
+            return null;
+        }
+    }
+
+    /**
+     * Parses the <code>key: value [unit]</code> lines of a file (e.g.
+     * <code>/proc/[pid]/status</code> or <code>/proc/[pid]/io</code>), the lines without a numeric
+     * value are skipped.
+     *
+     * @param lines
+     *            the lines
+     * @return the values by keys
+     */
+    static Map<String, Long> parseKeyValues(@NonNull List<String> lines) {
+        Map<String, Long> values = new HashMap<>();
+        for (String line : lines) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+
+            String[] valueAndUnit = line.substring(colon + 1).trim().split("\\s+");
+            try {
+                values.put(line.substring(0, colon), Long.parseLong(valueAndUnit[0]));
+            } catch (NumberFormatException ex) {
+                // not numeric
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, Long> readKeyValues(Path file) {
+        try {
+            return parseKeyValues(Files.readAllLines(file, StandardCharsets.US_ASCII));
+        } catch (IOException ex) {
+            // the process has exited or the file is not readable
+            return Collections.emptyMap();
+        }
+    }
+
+    private static long ticksToMs(long ticks) {
+        return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+    }
+
+    private static int parsePid(String fileName) {
+        for (int i = 0; i < fileName.length(); i++) {
+            if (!Character.isDigit(fileName.charAt(i))) {
+                return -1;
+            }
+        }
+
+        try {
+            return Integer.parseInt(fileName);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static Path findSetsid() {
+        for (String dir : new String[] { "/usr/bin", "/bin" }) {
+            Path path = Paths.get(dir, "setsid");
+            if (Files.isExecutable(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /** The fields of <code>/proc/[pid]/stat</code> which are used for tracking. */
+    static final class ProcStat {
+        final char state;
+        final int ppid;
+        final int sessionId;
+        final long userTime;
+        final long systemTime;
+        final long startTime;
+
+        ProcStat(char state, int ppid, int sessionId, long userTime, long systemTime,
+                long startTime) {
+            this.state = state;
+            this.ppid = ppid;
+            this.sessionId = sessionId;
+            this.userTime = userTime;
+            this.systemTime = systemTime;
+            this.startTime = startTime;
+        }
+    }
+
+    /** The cumulative counters of a process (CPU times in clock ticks). */
+    private static final class ProcSample {
+        final long userTime;
+        final long systemTime;
+        final long readBytes;
+        final long writtenBytes;
+
+        ProcSample(long userTime, long systemTime, long readBytes, long writtenBytes) {
+            this.userTime = userTime;
+            this.systemTime = systemTime;
+            this.readBytes = readBytes;
+            this.writtenBytes = writtenBytes;
+        }
+
+        ProcSample max(ProcSample other) {
+            // the io file might not be readable at every sample
+            return new ProcSample(Math.max(userTime, other.userTime),
+                    Math.max(systemTime, other.systemTime), Math.max(readBytes, other.readBytes),
+                    Math.max(writtenBytes, other.writtenBytes));
+        }
+    }
+}
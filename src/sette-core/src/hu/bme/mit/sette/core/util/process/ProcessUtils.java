@@ -26,6 +26,7 @@ package hu.bme.mit.sette.core.util.process;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -91,6 +92,42 @@ public final class ProcessUtils {
         }
     }
 
+    /**
+     * Sends a signal to the given processes with one <code>kill</code> call. Please note that this
+     * method only calls the command and does not parse its output (the processes which have already
+     * exited are ignored).
+     *
+     * @param signal
+     *            the name of the signal (e.g. <code>TERM</code> or <code>KILL</code>)
+     * @param pids
+     *            the PIDs of the processes
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public static void sendSignal(@NonNull String signal, @NonNull Collection<Integer> pids)
+            throws IOException {
+        failIfWindows();
+        Preconditions.checkArgument(!signal.trim().isEmpty());
+
+        if (pids.isEmpty()) {
+            return;
+        }
+
+        // example: kill -TERM 12345 12346
+        List<String> command = new ArrayList<>(pids.size() + 2);
+        command.add("kill");
+        command.add("-" + signal);
+        pids.forEach(pid -> command.add(String.valueOf(pid)));
+
+        LOG.debug("Sending signal {} to processes {}", signal, pids);
+
+        try {
+            new ProcessBuilder(command).redirectErrorStream(true).start().waitFor();
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException("The process execution was interrupted", ex);
+        }
+    }
+
     /**
      * Searches the running processes. It calls <code>ps aux</code> and performs partial string
      * search ({@link String#contains(CharSequence)} in the COMMAND column.
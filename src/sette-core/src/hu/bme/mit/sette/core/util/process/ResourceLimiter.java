@@ -0,0 +1,296 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.bme.mit.sette.core.util.process.ProcessResourceLimits.Limit;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Applies {@link ProcessResourceLimits} to one process execution. The command is wrapped with
+ * <code>prlimit</code> (rlimits) and with a shell which moves itself into a cgroup v2 sub-group
+ * before executing the command (the PID does not change).
+ * <p>
+ * The cgroup is only used if the <code>sette.cgroupDir</code> system property points to a cgroup
+ * v2 directory which is writable by SETTE and has the <code>memory</code> and <code>pids</code>
+ * controllers enabled in its <code>cgroup.subtree_control</code> (e.g. a delegated systemd scope).
+ * Otherwise the memory and process count limits are enforced by sampling the process tree.
+ */
+final class ResourceLimiter implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceLimiter.class);
+
+    /** The system property which specifies the parent cgroup v2 directory. */
+    static final String CGROUP_DIR_PROPERTY = "sette.cgroupDir";
+
+    private static final Path PRLIMIT_EXECUTABLE = findPrlimit();
+    private static final int SIGXCPU = 24;
+    private static final AtomicInteger CGROUP_COUNTER = new AtomicInteger();
+
+    /** The limits to apply. */
+    @Getter
+    private final ProcessResourceLimits limits;
+
+    /** The cgroup of the process (<code>null</code> if not used). */
+    @Getter
+    private final Path cgroupDir;
+
+    /** The limit which was exceeded according to the samples. */
+    private Limit sampledExceededLimit = null;
+
+    /**
+     * Creates a limiter (and the cgroup if it is needed and available).
+     *
+     * @param limits
+     *            the limits to apply
+     */
+    ResourceLimiter(@NonNull ProcessResourceLimits limits) {
+        this.limits = limits;
+
+        if (limits.getMemoryInMb() > 0 || limits.getMaxProcesses() > 0) {
+            cgroupDir = createCgroup(limits);
+        } else {
+            cgroupDir = null;
+        }
+    }
+
+    /**
+     * Wraps the command so that the rlimits are set and the process is started in the cgroup.
+     *
+     * @param command
+     *            the command
+     * @return the wrapped command
+     */
+    List<String> wrapCommand(@NonNull List<String> command) {
+        List<String> wrapped = new ArrayList<>();
+
+        List<String> rlimits = new ArrayList<>();
+        if (limits.getAddressSpaceInMb() > 0) {
+            rlimits.add("--as=" + limits.getAddressSpaceInMb() * 1024 * 1024);
+        }
+        if (limits.getCpuTimeInSeconds() > 0) {
+            // SIGXCPU at the soft limit, SIGKILL at the hard limit
+            rlimits.add("--cpu=" + limits.getCpuTimeInSeconds() + ":"
+                    + (limits.getCpuTimeInSeconds() + 1));
+        }
+        if (limits.getMaxOpenFiles() > 0) {
+            rlimits.add("--nofile=" + limits.getMaxOpenFiles());
+        }
+
+        if (!rlimits.isEmpty()) {
+            if (PRLIMIT_EXECUTABLE != null) {
+                wrapped.add(PRLIMIT_EXECUTABLE.toString());
+                wrapped.addAll(rlimits);
+                wrapped.add("--");
+            } else {
+                LOG.warn("prlimit is not available, the rlimits are not set: {}", rlimits);
+            }
+        }
+
+        if (cgroupDir != null) {
+            wrapped.add("/bin/sh");
+            wrapped.add("-c");
+            wrapped.add("echo $$ > \"$0\" && exec \"$@\"");
+            wrapped.add(cgroupDir.resolve("cgroup.procs").toString());
+        }
+
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * Checks the sampled resource usage of the tree against the limits which are not enforced by
+     * the kernel (the CPU time of the whole tree and the memory and process count if there is no
+     * cgroup).
+     *
+     * @param processTree
+     *            the process tree (sampled)
+     * @return the exceeded limit or <code>null</code> if none
+     */
+    Limit check(@NonNull ProcessTree processTree) {
+        ProcessResourceUsage usage = processTree.getResourceUsage();
+
+        if (limits.getCpuTimeInSeconds() > 0 && usage.getUserCpuTimeInMs()
+                + usage.getSystemCpuTimeInMs() > limits.getCpuTimeInSeconds() * 1000) {
+            sampledExceededLimit = Limit.CPU_TIME;
+        } else if (cgroupDir == null && limits.getMemoryInMb() > 0
+                && usage.getPeakRssInKb() > limits.getMemoryInMb() * 1024) {
+            sampledExceededLimit = Limit.MEMORY;
+        } else if (cgroupDir == null && limits.getMaxProcesses() > 0
+                && processTree.getAlivePids().size() > limits.getMaxProcesses()) {
+            sampledExceededLimit = Limit.PROCESSES;
+        }
+
+        return sampledExceededLimit;
+    }
+
+    /**
+     * Gets the limit which was exceeded during the execution (according to the samples, the cgroup
+     * events or the exit value).
+     *
+     * @param exitValue
+     *            the exit value of the process
+     * @return the exceeded limit or <code>null</code> if none
+     */
+    Limit getExceededLimit(int exitValue) {
+        if (sampledExceededLimit != null) {
+            return sampledExceededLimit;
+        }
+
+        if (cgroupDir != null) {
+            if (readEventCount("memory.events", "oom_kill") > 0) {
+                return Limit.MEMORY;
+            } else if (readEventCount("pids.events", "max") > 0) {
+                return Limit.PROCESSES;
+            }
+        }
+
+        if (limits.getCpuTimeInSeconds() > 0 && exitValue == 128 + SIGXCPU) {
+            return Limit.CPU_TIME;
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the cgroup (the processes which are still in it are killed).
+     */
+    @Override
+    public void close() {
+        if (cgroupDir == null) {
+            return;
+        }
+
+        try {
+            Path killFile = cgroupDir.resolve("cgroup.kill");
+            if (Files.exists(killFile)) {
+                write(killFile, "1");
+            }
+
+            // the killed processes leave the cgroup asynchronously
+            for (int i = 0; ; i++) {
+                try {
+                    Files.delete(cgroupDir);
+                    break;
+                } catch (IOException ex) {
+                    if (i >= 50) {
+                        throw ex;
+                    }
+                    Thread.sleep(20);
+                }
+            }
+        } catch (IOException ex) {
+            LOG.warn("Cannot remove the cgroup: " + cgroupDir, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long readEventCount(String fileName, String key) {
+        try {
+            return ProcessTree.parseKeyValues(
+                    Files.readAllLines(cgroupDir.resolve(fileName), StandardCharsets.US_ASCII))
+                    .getOrDefault(key, 0L);
+        } catch (IOException ex) {
+            LOG.debug("Cannot read the cgroup events: " + fileName, ex);
+            return 0;
+        }
+    }
+
+    private static Path createCgroup(ProcessResourceLimits limits) {
+        String parentPath = System.getProperty(CGROUP_DIR_PROPERTY);
+        if (parentPath == null || parentPath.trim().isEmpty()) {
+            return null;
+        }
+
+        Path parent = Paths.get(parentPath);
+        if (!Files.isRegularFile(parent.resolve("cgroup.subtree_control"))) {
+            LOG.warn("Not a cgroup v2 directory (the limits will be enforced by sampling): {}",
+                    parent);
+            return null;
+        }
+
+        Path cgroupDir = parent.resolve(String.format("sette-%s-%d", getOwnPid(),
+                CGROUP_COUNTER.incrementAndGet()));
+        try {
+            Files.createDirectory(cgroupDir);
+
+            if (limits.getMemoryInMb() > 0) {
+                write(cgroupDir.resolve("memory.max"),
+                        String.valueOf(limits.getMemoryInMb() * 1024 * 1024));
+                if (Files.exists(cgroupDir.resolve("memory.swap.max"))) {
+                    write(cgroupDir.resolve("memory.swap.max"), "0");
+                }
+            }
+            if (limits.getMaxProcesses() > 0) {
+                write(cgroupDir.resolve("pids.max"), String.valueOf(limits.getMaxProcesses()));
+            }
+
+            LOG.debug("Created cgroup {} for {}", cgroupDir, limits);
+            return cgroupDir;
+        } catch (IOException ex) {
+            LOG.warn("Cannot set up the cgroup (the limits will be enforced by sampling): "
+                    + cgroupDir, ex);
+            try {
+                Files.deleteIfExists(cgroupDir);
+            } catch (IOException ex2) {
+                LOG.debug("Cannot remove the cgroup: " + cgroupDir, ex2);
+            }
+            return null;
+        }
+    }
+
+    private static void write(Path file, String value) throws IOException {
+        Files.write(file, value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String getOwnPid() {
+        try {
+            return Files.readSymbolicLink(Paths.get("/proc/self")).toString();
+        } catch (IOException | UnsupportedOperationException ex) {
+            return String.valueOf(System.nanoTime());
+        }
+    }
+
+    private static Path findPrlimit() {
+        for (String dir : new String[] { "/usr/bin", "/bin" }) {
+            Path path = Paths.get(dir, "prlimit");
+            if (Files.isExecutable(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+}
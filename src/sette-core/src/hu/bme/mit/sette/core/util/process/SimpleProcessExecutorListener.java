@@ -22,10 +22,21 @@
  */
 package hu.bme.mit.sette.core.util.process;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
 import lombok.Getter;
+import lombok.NonNull;
 
 /**
- * This listener class collects the output from stdout and stderr into {@link StringBuffer} objects.
+ * This listener class collects the output from stdout and stderr into {@link StringBuilder}
+ * objects. The bytes are decoded incrementally, thus multi-byte characters split between reads are
+ * decoded properly. The collected output is not limited, use {@link CapturingProcessExecutorListener}
+ * if the output might be big.
  */
 public class SimpleProcessExecutorListener implements ProcessExecutorListener {
     /** The data read from stdout. */
@@ -36,13 +47,102 @@ public class SimpleProcessExecutorListener implements ProcessExecutorListener {
     @Getter
     private final StringBuilder stderrData = new StringBuilder();
 
+    private final StreamDecoder stdoutDecoder;
+    private final StreamDecoder stderrDecoder;
+
+    /**
+     * Creates a listener which decodes the output with the platform charset.
+     */
+    public SimpleProcessExecutorListener() {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a listener which decodes the output with the given charset.
+     *
+     * @param charset
+     *            the charset of the output
+     */
+    public SimpleProcessExecutorListener(@NonNull Charset charset) {
+        stdoutDecoder = new StreamDecoder(charset, stdoutData);
+        stderrDecoder = new StreamDecoder(charset, stderrData);
+    }
+
+    @Override
+    public void onStdoutData(ByteBuffer data) {
+        stdoutDecoder.decode(data, false);
+    }
+
+    @Override
+    public void onStderrData(ByteBuffer data) {
+        stderrDecoder.decode(data, false);
+    }
+
     @Override
     public void onStdoutRead(byte[] bytes) {
-        stdoutData.append(new String(bytes));
+        onStdoutData(ByteBuffer.wrap(bytes));
     }
 
     @Override
     public void onStderrRead(byte[] bytes) {
-        stderrData.append(new String(bytes));
+        onStderrData(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public void onComplete(ProcessExecutionResult result) {
+        // flush incomplete characters
+        stdoutDecoder.decode(ByteBuffer.allocate(0), true);
+        stderrDecoder.decode(ByteBuffer.allocate(0), true);
+    }
+
+    /**
+     * Decodes a byte stream chunk by chunk and keeps the bytes of an incomplete character until
+     * the next chunk.
+     */
+    private static final class StreamDecoder {
+        private final CharsetDecoder decoder;
+        private final StringBuilder target;
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+        private ByteBuffer leftover = ByteBuffer.allocate(16);
+
+        StreamDecoder(Charset charset, StringBuilder target) {
+            this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.target = target;
+        }
+
+        synchronized void decode(ByteBuffer data, boolean endOfInput) {
+            ByteBuffer input = data;
+            if (leftover.position() > 0) {
+                // prepend the incomplete character of the previous chunk
+                ByteBuffer joined = ByteBuffer.allocate(leftover.position() + data.remaining());
+                leftover.flip();
+                joined.put(leftover).put(data).flip();
+                leftover.clear();
+                input = joined;
+            }
+
+            CoderResult result;
+            do {
+                // overflow: the char buffer is full, append and continue
+                result = decoder.decode(input, chars, endOfInput);
+                chars.flip();
+                target.append(chars);
+                chars.clear();
+            } while (result.isOverflow());
+
+            if (endOfInput) {
+                decoder.flush(chars);
+                chars.flip();
+                target.append(chars);
+                chars.clear();
+                decoder.reset();
+            } else if (input.hasRemaining()) {
+                if (leftover.capacity() < input.remaining()) {
+                    leftover = ByteBuffer.allocate(input.remaining());
+                }
+                leftover.put(input);
+            }
+        }
     }
-}
\ No newline at end of file
+}
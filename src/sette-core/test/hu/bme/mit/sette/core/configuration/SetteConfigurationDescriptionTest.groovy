@@ -26,6 +26,8 @@ import groovy.transform.TypeChecked
 
 import org.junit.Test
 
+import hu.bme.mit.sette.core.util.process.ProcessResourceLimits
+
 /**
  * Tests for {@link SetteConfiguration}.
  */
@@ -83,6 +85,84 @@ class SetteConfigurationDescriptionTest {
         }
     }
 
+    @Test
+    void testParseWithLimits() {
+        String json = '''
+{
+  "baseDirs":["~/sette"],
+  "outputDir":"sette-results",
+  "runnerTimeoutInMs":30000,
+  "snippetProjectDirs":["snippets"],
+  "tools":[
+    {
+      "className":"com.example.MyTool",
+      "name":"My Tool",
+      "toolDir":"my-tool",
+      "limits":{
+        "memoryInMb":2048,
+        "cpuTimeInSeconds":60,
+        "maxProcesses":64
+      }
+    },
+    {
+      "className":"com.example.OtherTool",
+      "name":"Other Tool",
+      "toolDir":"other-tool"
+    }
+  ]
+}'''
+
+        SetteConfigurationDescription.parse(json).with {
+            assert toolConfigurations[0].resourceLimits == new ProcessResourceLimits(0, 2048, 60,
+                    64, 0)
+            assert toolConfigurations[1].resourceLimits.unlimited
+        }
+    }
+
+    @Test(expected = SetteConfigurationException)
+    void testParseThrowsExceptionIfLimitIsUnknown() {
+        String json = '''
+{
+  "baseDirs":["~/sette"],
+  "outputDir":"sette-results",
+  "runnerTimeoutInMs":30000,
+  "snippetProjectDirs":["snippets"],
+  "tools":[
+    {
+      "className":"com.example.MyTool",
+      "name":"My Tool",
+      "toolDir":"my-tool",
+      "limits":{
+        "memory":2048
+      }
+    }
+  ]
+}'''
+        SetteConfigurationDescription.parse(json)
+    }
+
+    @Test(expected = SetteConfigurationException)
+    void testParseThrowsExceptionIfLimitIsNegative() {
+        String json = '''
+{
+  "baseDirs":["~/sette"],
+  "outputDir":"sette-results",
+  "runnerTimeoutInMs":30000,
+  "snippetProjectDirs":["snippets"],
+  "tools":[
+    {
+      "className":"com.example.MyTool",
+      "name":"My Tool",
+      "toolDir":"my-tool",
+      "limits":{
+        "cpuTimeInSeconds":-1
+      }
+    }
+  ]
+}'''
+        SetteConfigurationDescription.parse(json)
+    }
+
     @Test(expected = SetteConfigurationException)
     void testParseThrowsExceptionIfTimeoutIsString() {
         String json = '''
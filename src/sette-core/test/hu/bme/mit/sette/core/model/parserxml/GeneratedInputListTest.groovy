@@ -0,0 +1,150 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.parserxml
+
+import groovy.transform.TypeChecked
+
+import org.junit.Test
+
+import hu.bme.mit.sette.core.model.runner.ParameterType
+
+/**
+ * Tests for {@link GeneratedInputList}.
+ */
+@TypeChecked
+class GeneratedInputListTest {
+    private static InputElement input(String heap, String expected,
+            List<AbstractParameterElement> parameters) {
+        InputElement input = new InputElement()
+        input.heap = heap
+        input.expected = expected
+        input.parameters.addAll(parameters)
+        return input
+    }
+
+    private static List<String> describe(InputElement input) {
+        List<String> ret = [input.heap, input.expected]
+        input.parameters.each { AbstractParameterElement p ->
+            if (p instanceof ArrayParameterElement) {
+                ret << "${p.type}[]${(p as ArrayParameterElement).elements}".toString()
+            } else {
+                ret << "${p.type}:${(p as ParameterElement).value}".toString()
+            }
+        }
+        return ret
+    }
+
+    @Test
+    void testAddGet_preservesValues() {
+        List<List<String>> values = [
+            ['BYTE', '-128'], ['SHORT', '300'], ['INT', '2147483647'],
+            ['LONG', '-9223372036854775808'], ['FLOAT', '1.5'], ['FLOAT', 'NaN'],
+            ['DOUBLE', '-0.0'], ['DOUBLE', '1.0E10'], ['BOOLEAN', 'true'], ['CHAR', 'x'],
+            // not canonical or invalid values are stored as strings
+            ['INT', '01'], ['INT', '+1'], ['DOUBLE', '1'], ['FLOAT', '1.0f'], ['BOOLEAN', 'yes'],
+            ['CHAR', 'ab'], ['EXPRESSION', 'null'], ['INT', null]
+        ]
+        List<AbstractParameterElement> parameters = values.collect { List<String> v ->
+            new ParameterElement(ParameterType.valueOf(v[0] as String), v[1] as String) as
+            AbstractParameterElement
+        }
+        ArrayParameterElement array = new ArrayParameterElement(ParameterType.INT)
+        array.elements.addAll(['1', null, 'x'])
+        parameters << (array as AbstractParameterElement)
+        parameters << (new ParameterElement(null, '5') as AbstractParameterElement)
+
+        InputElement original = input('int[] heap_1 = new int[1];', 'java.lang.Exception',
+                parameters)
+        GeneratedInputList list = new GeneratedInputList()
+        list.add(original)
+
+        assert list.size() == 1
+        assert describe(list[0]) == describe(original)
+        assert list.getHeap(0) == 'int[] heap_1 = new int[1];'
+        assert list.getExpected(0) == 'java.lang.Exception'
+        assert list.getParameterCount(0) == parameters.size()
+    }
+
+    @Test
+    void testAdd_differentParameterCountsAndGrowth() {
+        GeneratedInputList list = new GeneratedInputList(1)
+        List<InputElement> inputs = (0..<1000).collect { int i ->
+            List<AbstractParameterElement> parameters = (0..<(i % 4)).collect { int j ->
+                new ParameterElement(ParameterType.INT, String.valueOf(i * j)) as
+                AbstractParameterElement
+            }
+            input(i % 3 == 0 ? null : "heap ${i % 7}".toString(),
+                    i % 5 == 0 ? 'java.lang.RuntimeException' : null, parameters)
+        }
+        list.addAll(inputs)
+
+        assert list.size() == 1000
+        inputs.eachWithIndex { InputElement input, int i ->
+            assert describe(list[i]) == describe(input)
+            assert list.getParameterCount(i) == i % 4
+        }
+        assert list.collect { InputElement ie -> describe(ie) } ==
+                inputs.collect { InputElement ie -> describe(ie) }
+    }
+
+    @Test
+    void testAdd_copiesInput() {
+        InputElement input = input(null, null,
+                [new ParameterElement(ParameterType.INT, '1') as AbstractParameterElement])
+        GeneratedInputList list = new GeneratedInputList()
+        list.add(input)
+
+        input.parameters.clear()
+        list[0].parameters.clear()
+        assert list[0].parameters.size() == 1
+    }
+
+    @Test
+    void testAdd_emptyInput() {
+        GeneratedInputList list = new GeneratedInputList(0)
+        list.add(new InputElement())
+
+        assert list[0].heap == null
+        assert list[0].expected == null
+        assert list[0].parameters.isEmpty()
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testAdd_throwsExceptionIfParameterIsNull() {
+        InputElement input = new InputElement()
+        input.parameters.add(null)
+        new GeneratedInputList().add(input)
+    }
+
+    @Test(expected = IndexOutOfBoundsException)
+    void testGet_throwsExceptionIfIndexIsOutOfBounds() {
+        new GeneratedInputList().get(0)
+    }
+
+    @Test(expected = UnsupportedOperationException)
+    void testRemove_isNotSupported() {
+        GeneratedInputList list = new GeneratedInputList()
+        list.add(new InputElement())
+        list.remove(0)
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.parserxml
+
+import groovy.transform.TypeChecked
+
+import org.junit.Test
+import org.simpleframework.xml.convert.AnnotationStrategy
+import org.simpleframework.xml.core.Persister
+
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec.InputIterator
+import hu.bme.mit.sette.core.model.runner.ParameterType
+import hu.bme.mit.sette.core.model.runner.ResultType
+
+/**
+ * Tests for {@link SnippetInputsXmlCodec}.
+ */
+@TypeChecked
+class SnippetInputsXmlCodecTest {
+    private static SnippetInputsXml createHeader() {
+        SnippetInputsXml inputsXml = new SnippetInputsXml()
+        inputsXml.toolName = 'Tool'
+        inputsXml.snippetProjectElement = new SnippetProjectElement('/snippets')
+        inputsXml.snippetElement = new SnippetElement('pkg.Cls', 'snippet')
+        inputsXml.resultType = ResultType.S
+        return inputsXml
+    }
+
+    private static SnippetInputsXml createInputsXml() {
+        InputElement first = new InputElement()
+        first.heap = 'a < b && c > d'
+        first.parameters.add(new ParameterElement(ParameterType.INT, '1'))
+        ArrayParameterElement array = new ArrayParameterElement(ParameterType.INT)
+        array.elements.addAll(['1', '2'])
+        first.parameters.add(array)
+        first.expected = 'java.lang.IllegalArgumentException'
+
+        InputElement second = new InputElement()
+        second.parameters.add(new ParameterElement(ParameterType.EXPRESSION, 'null'))
+
+        SnippetInputsXml inputsXml = createHeader()
+        inputsXml.generatedInputs = [first, second, new InputElement()]
+        return inputsXml
+    }
+
+    private static String writeWithSimple(SnippetInputsXml inputsXml) {
+        StringWriter writer = new StringWriter()
+        new Persister(new AnnotationStrategy()).write(inputsXml, writer)
+        return writer.toString()
+    }
+
+    private static String writeWithCodec(SnippetInputsXml inputsXml) {
+        StringWriter writer = new StringWriter()
+        SnippetInputsXmlCodec.write(inputsXml, writer)
+        return writer.toString()
+    }
+
+    @Test
+    void testWrite_isReadableWithSimple() {
+        SnippetInputsXml inputsXml = createInputsXml()
+        SnippetInputsXml read = new Persister(new AnnotationStrategy())
+                .read(SnippetInputsXml, writeWithCodec(inputsXml))
+
+        assert writeWithSimple(read) == writeWithSimple(inputsXml)
+    }
+
+    @Test
+    void testRead_readsSimpleOutput() {
+        SnippetInputsXml inputsXml = createInputsXml()
+        SnippetInputsXml read = SnippetInputsXmlCodec.read(
+                new StringReader(writeWithSimple(inputsXml)))
+
+        read.validate()
+        assert read.generatedInputs instanceof GeneratedInputList
+        assert writeWithCodec(read) == writeWithCodec(inputsXml)
+        assert read.generatedInputs[0].heap == 'a < b && c > d'
+        assert (read.generatedInputs[0].parameters[1] as ArrayParameterElement).elements ==
+                ['1', '2']
+    }
+
+    @Test
+    void testWriteRead_splitsCdataEnd() {
+        SnippetInputsXml inputsXml = createInputsXml()
+        inputsXml.generatedInputs[0].heap = 'x ]]> y ]]]]>'
+
+        SnippetInputsXml read = SnippetInputsXmlCodec.read(
+                new StringReader(writeWithCodec(inputsXml)))
+        assert read.generatedInputs[0].heap == 'x ]]> y ]]]]>'
+    }
+
+    @Test
+    void testReadHeader_countsInputs() {
+        SnippetInputsXml header = SnippetInputsXmlCodec.readHeader(
+                new StringReader(writeWithCodec(createInputsXml())))
+
+        assert header.generatedInputs == null
+        assert header.generatedInputCount == 3
+        assert header.toolName == 'Tool'
+        assert header.snippetProjectElement.baseDirPath == '/snippets'
+        assert header.snippetElement.containerName == 'pkg.Cls'
+        assert header.snippetElement.name == 'snippet'
+        assert header.resultType == ResultType.S
+    }
+
+    @Test
+    void testReadHeader_stopsBeforeInputsIfCountIsKnown() {
+        String xml = writeWithCodec(createInputsXml())
+        // the inputs are not read at all
+        String truncated = xml.substring(0, xml.indexOf('<input>') + 3)
+
+        SnippetInputsXml header = SnippetInputsXmlCodec.readHeader(new StringReader(truncated), 3)
+        assert header.generatedInputCount == 3
+        assert header.resultType == ResultType.S
+    }
+
+    @Test
+    void testInputCountOnly() {
+        SnippetInputsXml inputsXml = createHeader()
+        inputsXml.generatedInputCount = 42
+        String xml = writeWithCodec(inputsXml)
+
+        assert SnippetInputsXmlCodec.readHeader(new StringReader(xml)).generatedInputCount == 42
+        assert SnippetInputsXmlCodec.read(new StringReader(xml)).generatedInputs == null
+        assert new Persister(new AnnotationStrategy()).read(SnippetInputsXml, xml)
+                .generatedInputCount == 42
+    }
+
+    @Test
+    void testDroppedInputCount() {
+        SnippetInputsXml inputsXml = createInputsXml()
+        inputsXml.droppedInputCount = 4
+        String xml = writeWithCodec(inputsXml)
+
+        assert new Persister(new AnnotationStrategy()).read(SnippetInputsXml, xml)
+                .droppedInputCount == 4
+        assert SnippetInputsXmlCodec.read(new StringReader(writeWithSimple(inputsXml)))
+                .droppedInputCount == 4
+        assert SnippetInputsXmlCodec.readHeader(new StringReader(xml), 3).droppedInputCount == 4
+
+        // omitted if no input was dropped
+        assert !writeWithCodec(createInputsXml()).contains('droppedInputCount')
+        assert SnippetInputsXmlCodec.readHeader(new StringReader(writeWithCodec(
+                createInputsXml()))).droppedInputCount == 0
+    }
+
+    @Test
+    void testOpenInputs() {
+        InputIterator it = SnippetInputsXmlCodec.openInputs(
+                new StringReader(writeWithCodec(createInputsXml())))
+        try {
+            assert it.header.snippetElement.name == 'snippet'
+            assert it.hasNext()
+            assert it.next().expected == 'java.lang.IllegalArgumentException'
+            assert (it.next().parameters[0] as ParameterElement).value == 'null'
+            assert it.next().parameters.isEmpty()
+            assert !it.hasNext()
+        } finally {
+            it.close()
+        }
+    }
+
+    @Test(expected = IOException)
+    void testReadHeader_malformed() {
+        SnippetInputsXmlCodec.readHeader(new StringReader('<setteSnippetInputs><unknown/>'))
+    }
+}
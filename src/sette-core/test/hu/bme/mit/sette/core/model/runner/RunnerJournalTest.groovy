@@ -0,0 +1,93 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.runner
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Path
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import hu.bme.mit.sette.core.model.runner.RunnerJournal.Entry
+import hu.bme.mit.sette.core.model.runner.RunnerJournal.Status
+
+@TypeChecked
+class RunnerJournalTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    Path file
+    RunnerJournal journal
+
+    @Before
+    void setUp() {
+        file = tmpFolder.root.toPath().resolve('runner-out/runner.journal')
+        journal = new RunnerJournal(file)
+    }
+
+    @Test
+    void testReadMissingFile() {
+        assert journal.read().isEmpty()
+    }
+
+    @Test
+    void testEntryLine() {
+        Entry entry = new Entry('pkg.Cls_snippet', Status.COMPLETED, 0, 1234)
+        assert entry.toLine() == 'pkg.Cls_snippet\tCOMPLETED\t0\t1234'
+        assert Entry.parse(entry.toLine()) == entry
+
+        Entry failed = new Entry('pkg.Cls_snippet', Status.FAILED, null, 5)
+        assert failed.toLine() == 'pkg.Cls_snippet\tFAILED\t-\t5'
+        assert Entry.parse(failed.toLine()) == failed
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testParseMalformedLine() {
+        Entry.parse('pkg.Cls_snippet\tCOMPLE')
+    }
+
+    @Test
+    void testAppendAndRead() {
+        journal.append(new Entry('a', Status.FAILED, 1, 10))
+        journal.append(new Entry('b', Status.COMPLETED, 0, 20))
+        journal.append(new Entry('a', Status.COMPLETED, 0, 30))
+
+        Map<String, Entry> entries = journal.read()
+        assert entries.keySet().toList() == ['a', 'b']
+        assert entries['a'] == new Entry('a', Status.COMPLETED, 0, 30)
+        assert entries['b'] == new Entry('b', Status.COMPLETED, 0, 20)
+    }
+
+    @Test
+    void testReadSkipsPartialLine() {
+        journal.append(new Entry('a', Status.COMPLETED, 0, 10))
+        // simulate a crash while writing
+        file.toFile() << 'b\tCOMPL'
+
+        Map<String, Entry> entries = journal.read()
+        assert entries.keySet().toList() == ['a']
+    }
+}
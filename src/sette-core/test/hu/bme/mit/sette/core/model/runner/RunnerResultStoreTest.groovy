@@ -0,0 +1,247 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.model.runner
+
+import groovy.transform.TypeChecked
+
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import hu.bme.mit.sette.core.model.parserxml.InputElement
+import hu.bme.mit.sette.core.model.parserxml.SnippetBaseXml
+import hu.bme.mit.sette.core.model.parserxml.SnippetElement
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXmlCodec
+import hu.bme.mit.sette.core.model.parserxml.SnippetProjectElement
+import hu.bme.mit.sette.core.model.parserxml.SnippetResultXml
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.Record
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType
+
+@TypeChecked
+class RunnerResultStoreTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    Path file
+    RunnerResultStore store
+
+    @Before
+    void setUp() {
+        file = tmpFolder.root.toPath().resolve('runner-out/results.store')
+        store = RunnerResultStore.open(file)
+    }
+
+    @After
+    void tearDown() {
+        store.close()
+    }
+
+    private static <T extends SnippetBaseXml> T init(T xml, ResultType resultType) {
+        xml.toolName = 'Tool'
+        xml.snippetProjectElement = new SnippetProjectElement('/snippets')
+        xml.snippetElement = new SnippetElement('pkg.Cls', 'snippet')
+        xml.resultType = resultType
+        return xml
+    }
+
+    private static SnippetInputsXml createInputsXml(int inputCount) {
+        SnippetInputsXml inputsXml = init(new SnippetInputsXml(), ResultType.S)
+        inputsXml.generatedInputs = (1..inputCount).collect { new InputElement() }
+        return inputsXml
+    }
+
+    private static SnippetResultXml createResultXml(ResultType resultType, Double coverage) {
+        SnippetResultXml resultXml = init(new SnippetResultXml(), resultType)
+        resultXml.setAchievedCoverage(coverage)
+        return resultXml
+    }
+
+    @Test
+    void testPutAndGet() {
+        store.put('pkg.Cls_snippet', createInputsXml(2))
+        store.put('pkg.Cls_snippet', createResultXml(ResultType.NC, 50.623d))
+
+        Record inputsRecord = store.getRecord('pkg.Cls_snippet', RecordType.INPUTS)
+        assert inputsRecord.resultType == ResultType.S
+        assert inputsRecord.generatedInputCount == 2
+        assert inputsRecord.achievedCoverage == null
+
+        Record resultRecord = store.getRecord('pkg.Cls_snippet', RecordType.RESULT)
+        assert resultRecord.resultType == ResultType.NC
+        assert resultRecord.generatedInputCount == null
+        assert resultRecord.achievedCoverage == '50.62%'
+
+        SnippetInputsXml inputsXml = store.get('pkg.Cls_snippet', SnippetInputsXml)
+        assert inputsXml.generatedInputCount == 2
+        assert inputsXml.snippetElement.name == 'snippet'
+
+        assert store.get('pkg.Cls_snippet', SnippetResultXml).achievedCoverage == '50.62%'
+        assert !store.contains('pkg.Cls_snippet', RecordType.COVERAGE)
+        assert store.get('pkg.Cls_other', SnippetInputsXml) == null
+    }
+
+    @Test
+    void testLastRecordWins() {
+        store.put('a', createResultXml(ResultType.EX, null))
+        store.put('b', createResultXml(ResultType.C, 100.0d))
+        store.put('a', createResultXml(ResultType.NC, 10.0d))
+
+        assert store.getRecord('a', RecordType.RESULT).resultType == ResultType.NC
+        assert store.getRecord('b', RecordType.RESULT).resultType == ResultType.C
+    }
+
+    @Test
+    void testReopen() {
+        store.put('a', createInputsXml(3))
+        store.put('a', createResultXml(ResultType.C, 100.0d))
+        store.close()
+
+        store = RunnerResultStore.open(file)
+        assert store.getRecord('a', RecordType.INPUTS).generatedInputCount == 3
+        assert store.get('a', SnippetResultXml).resultType == ResultType.C
+    }
+
+    @Test
+    void testOpenReturnsSharedInstance() {
+        assert RunnerResultStore.open(file).is(store)
+    }
+
+    @Test
+    void testOpenAfterDeleted() {
+        store.put('a', createInputsXml(1))
+        Files.delete(file)
+
+        RunnerResultStore newStore = RunnerResultStore.open(file)
+        assert !newStore.is(store)
+        assert !newStore.contains('a', RecordType.INPUTS)
+        store = newStore
+    }
+
+    @Test
+    void testPartialRecordIsDiscarded() {
+        store.put('a', createInputsXml(1))
+        long size = Files.size(file)
+        store.put('b', createInputsXml(1))
+        store.close()
+
+        FileChannel.open(file, StandardOpenOption.WRITE).withCloseable { FileChannel ch ->
+            ch.truncate(Files.size(file) - 5)
+        }
+
+        store = RunnerResultStore.open(file)
+        assert store.contains('a', RecordType.INPUTS)
+        assert !store.contains('b', RecordType.INPUTS)
+        assert Files.size(file) == size
+
+        store.put('c', createInputsXml(1))
+        assert store.get('c', SnippetInputsXml).generatedInputCount == 1
+    }
+
+    @Test
+    void testDroppedInputCount() {
+        SnippetInputsXml inputsXml = createInputsXml(2)
+        inputsXml.droppedInputCount = 3
+        store.put('a', inputsXml)
+        store.put('a', createResultXml(ResultType.S, 50.0d))
+        store.close()
+
+        store = RunnerResultStore.open(file)
+        Record record = store.getRecord('a', RecordType.INPUTS)
+        assert record.generatedInputCount == 2
+        assert record.droppedInputCount == 3
+        assert store.getRecord('a', RecordType.RESULT).droppedInputCount == null
+        assert store.getInputsHeader('a').droppedInputCount == 3
+        assert store.get('a', SnippetInputsXml).droppedInputCount == 3
+    }
+
+    @Test
+    void testVersion1Store() {
+        StringWriter payload = new StringWriter()
+        SnippetInputsXmlCodec.write(createInputsXml(1), payload)
+        byte[] payloadBytes = payload.toString().getBytes('UTF-8')
+
+        // a store written by the first version (no dropped input count in the record header)
+        Path oldFile = tmpFolder.root.toPath().resolve('old.store')
+        ByteArrayOutputStream record = new ByteArrayOutputStream()
+        new DataOutputStream(record).withCloseable { DataOutputStream out ->
+            out.writeByte(1) // inputs
+            out.writeUTF('a')
+            out.writeByte(ResultType.S.ordinal())
+            out.writeInt(1)
+            out.writeUTF('')
+            out.writeInt(payloadBytes.length)
+            out.write(payloadBytes)
+        }
+        new DataOutputStream(Files.newOutputStream(oldFile)).withCloseable { DataOutputStream out ->
+            out.writeInt(0x53525331)
+            out.writeInt(1)
+            out.writeInt(record.size())
+            out.write(record.toByteArray())
+        }
+
+        RunnerResultStore oldStore = RunnerResultStore.open(oldFile)
+        try {
+            assert oldStore.getRecord('a', RecordType.INPUTS).generatedInputCount == 1
+            assert oldStore.getRecord('a', RecordType.INPUTS).droppedInputCount == null
+
+            // the appended records keep the format of the file
+            SnippetInputsXml inputsXml = createInputsXml(2)
+            inputsXml.droppedInputCount = 3
+            oldStore.put('b', inputsXml)
+            oldStore.close()
+
+            oldStore = RunnerResultStore.open(oldFile)
+            assert oldStore.get('a', SnippetInputsXml).generatedInputCount == 1
+            assert oldStore.getRecord('b', RecordType.INPUTS).generatedInputCount == 2
+            assert oldStore.getRecord('b', RecordType.INPUTS).droppedInputCount == null
+            assert oldStore.getInputsHeader('b').droppedInputCount == 3
+        } finally {
+            oldStore.close()
+        }
+    }
+
+    @Test(expected = IOException)
+    void testOpenInvalidFile() {
+        Path other = tmpFolder.newFile('other.store').toPath()
+        other.text = 'not a result store'
+        RunnerResultStore.open(other)
+    }
+
+    @Test
+    void testExportXml() {
+        store.put('a', createResultXml(ResultType.C, 100.0d))
+
+        Path xmlFile = tmpFolder.root.toPath().resolve('export/a.result.xml')
+        assert store.exportXml('a', RecordType.RESULT, xmlFile)
+        assert xmlFile.text.contains('<achievedCoverage>100.00%</achievedCoverage>')
+        assert !store.exportXml('a', RecordType.INPUTS, xmlFile)
+    }
+}
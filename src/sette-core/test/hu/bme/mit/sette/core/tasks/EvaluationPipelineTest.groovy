@@ -0,0 +1,295 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml
+import hu.bme.mit.sette.core.model.runner.ResultType
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.Record
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType
+import hu.bme.mit.sette.core.model.snippet.Snippet
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+
+/**
+ * Tests for {@link EvaluationPipeline}. The tool is run by a {@link TestRunner} and its results are
+ * parsed as covered by a stub parser, thus the test suites are not run. The runner and the parser
+ * record the stages into a common event list.
+ */
+@TypeChecked
+class EvaluationPipelineTest {
+    private static final int SNIPPET_COUNT = 4
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    @Rule
+    public Timeout timeout = Timeout.seconds(120)
+
+    SnippetProject snippetProject
+    TestTool tool
+    Path outputDir
+    RunnerProjectSettings<TestTool> settings
+    List<String> snippetIds
+
+    final List<String> events = Collections.synchronizedList(new ArrayList<String>())
+    final ByteArrayOutputStream logger = new ByteArrayOutputStream()
+
+    TestRunner runner
+    EventParser parser
+    String parserFailingSnippetId = null
+    int parserMaxInputCount = 0
+
+    @Before
+    void setUp() {
+        Path root = tmpFolder.root.toPath()
+        snippetProject = TestSnippetProjects.create(root.resolve('snippets'), SNIPPET_COUNT)
+        tool = new TestTool(Files.createDirectories(root.resolve('tool')))
+        outputDir = root.resolve('results')
+        settings = new RunnerProjectSettings<>(snippetProject, outputDir, tool, 'test')
+        TestSnippetProjects.createRunnerProject(settings)
+        snippetIds = snippetProject.snippetContainers.collectMany {
+            it.snippets.values()*.id
+        } as List<String>
+
+        tool.runnerFactory = { SnippetProject sp, Path dir, String tag ->
+            runner = new TestRunner(sp, dir, tool, tag)
+            runner.parallelExecutionSupported = true
+            runner.onRun = { Snippet snippet -> events << "run:${snippet.id}".toString() }
+            return runner
+        }
+        tool.parserFactory = { SnippetProject sp, Path dir, String tag ->
+            parser = new EventParser(sp, dir, tool, tag, events)
+            parser.failingSnippetId = parserFailingSnippetId
+            parser.maxInputCount = parserMaxInputCount
+            return parser
+        }
+    }
+
+    private EvaluationPipeline evaluate() {
+        EvaluationPipeline pipeline = new EvaluationPipeline(snippetProject, outputDir, tool,
+                'test')
+        pipeline.evaluate(new PrintStream(logger, true))
+        return pipeline
+    }
+
+    private List<String> readCsvRows() {
+        List<String> lines = settings.baseDir.toPath().resolve('sette-evaluation.csv').readLines()
+        return lines.subList(1, lines.size())
+    }
+
+    @Test
+    void testEvaluate_callsParserHooksAroundTheSnippets() {
+        evaluate()
+
+        assert events.count('beforeParse') == 1
+        assert events.count('afterParse') == 1
+        assert events.first() == 'beforeParse'
+        assert events.last() == 'afterParse'
+        assert events.findAll { it.startsWith('parse:') }.size() == SNIPPET_COUNT
+    }
+
+    @Test
+    void testEvaluate_parsesSnippetsAfterTheirRun() {
+        evaluate()
+
+        snippetIds.each { String id ->
+            assert events.indexOf("run:${id}".toString()) >= 0
+            assert events.indexOf("run:${id}".toString()) < events.indexOf("parse:${id}".toString())
+        }
+
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        snippetIds.each { String id ->
+            assert store.getRecord(id, RecordType.RESULT).resultType == ResultType.C
+        }
+        assert readCsvRows().size() == SNIPPET_COUNT
+        assert !logger.toString().contains('The evaluation has failed')
+    }
+
+    @Test
+    void testEvaluate_savesDroppedInputCount() {
+        parserMaxInputCount = EventParser.TOOL_INPUT_COUNT - 1
+
+        evaluate()
+
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        snippetIds.each { String id ->
+            Record record = store.getRecord(id, RecordType.INPUTS)
+            assert record.generatedInputCount == EventParser.TOOL_INPUT_COUNT - 1
+            assert record.droppedInputCount == 1
+            assert store.getInputsHeader(id).droppedInputCount == 1
+        }
+
+        List<String> lines = settings.baseDir.toPath().resolve('sette-evaluation.csv').readLines()
+        int column = lines[0].split(',').toList().indexOf('DroppedInputs')
+        assert column >= 0
+        assert lines.subList(1, lines.size()).collect { String line ->
+            line.split(',', -1)[column]
+        } == ['1'] * SNIPPET_COUNT
+    }
+
+    @Test
+    void testEvaluate_postProcessesAfterTheRunIfNotPipelined() {
+        tool.runnerFactory = { SnippetProject sp, Path dir, String tag ->
+            runner = new TestRunner(sp, dir, tool, tag)
+            runner.onRun = { Snippet snippet -> events << "run:${snippet.id}".toString() }
+            return runner
+        }
+
+        evaluate()
+
+        List<String> stages = events.collect { it.split(':')[0] }
+        assert stages == ['beforeParse'] + ['run'] * SNIPPET_COUNT + ['parse'] * SNIPPET_COUNT +
+                ['afterParse']
+        assert readCsvRows().size() == SNIPPET_COUNT
+    }
+
+    @Test
+    void testEvaluate_continuesAfterFailedPostProcessing() {
+        parserFailingSnippetId = snippetIds[1]
+
+        evaluate()
+
+        assert logger.toString().contains('The evaluation has failed for 1 snippet(s)')
+        assert events.last() == 'afterParse'
+
+        // the other snippets are evaluated and written into the CSV
+        List<String> rows = readCsvRows()
+        assert rows.size() == SNIPPET_COUNT - 1
+        assert !rows.any { it.contains(snippetIds[1]) }
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        assert !store.contains(snippetIds[1], RecordType.RESULT)
+        assert store.contains(snippetIds[2], RecordType.RESULT)
+    }
+
+    @Test
+    void testEvaluate_continuesAfterTestCompilationError() {
+        String brokenSnippetId = snippetIds[1]
+        tool.runnerFactory = { SnippetProject sp, Path dir, String tag ->
+            runner = new TestRunner(sp, dir, tool, tag)
+            runner.parallelExecutionSupported = true
+            runner.onRun = { Snippet snippet ->
+                // the tool generates a test which does not compile for one of the snippets
+                String className = "T1_Snippets_${snippet.name}_Test"
+                String body = snippet.id == brokenSnippetId ? 'int x = "not an int";' : ''
+                Path testFile = settings.testDirectory.toPath()
+                        .resolve(TestSnippetProjects.PACKAGE_NAME.replace('.', '/'))
+                        .resolve(className + '.java')
+                Files.createDirectories(testFile.parent)
+                testFile.toFile().text = "package ${TestSnippetProjects.PACKAGE_NAME};\n" +
+                        "public class ${className} { void test() { ${body} } }\n"
+            }
+            return runner
+        }
+
+        evaluate()
+
+        assert logger.toString().contains('The evaluation has failed for 1 snippet(s)')
+
+        // only the snippet of the broken test has failed, the later ones are evaluated
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        snippetIds.each { String id ->
+            assert store.contains(id, RecordType.RESULT) == (id != brokenSnippetId)
+        }
+        assert readCsvRows().size() == SNIPPET_COUNT - 1
+
+        Path binaryDir = settings.binaryDirectory.toPath()
+                .resolve(TestSnippetProjects.PACKAGE_NAME.replace('.', '/'))
+        String lastTestClassFile = "T1_Snippets_snippet${SNIPPET_COUNT - 1}_Test.class"
+        assert Files.isRegularFile(binaryDir.resolve(lastTestClassFile))
+        assert !Files.exists(binaryDir.resolve('T1_Snippets_snippet1_Test.class'))
+    }
+
+    @Test
+    void testEvaluate_evaluatesFailedRunAsNA() {
+        tool.runnerFactory = { SnippetProject sp, Path dir, String tag ->
+            runner = new TestRunner(sp, dir, tool, tag)
+            runner.parallelExecutionSupported = true
+            runner.failingSnippetIds = [snippetIds[2]] as Set
+            return runner
+        }
+
+        evaluate()
+
+        // the snippet without info file is not passed to the parser
+        assert !events.contains("parse:${snippetIds[2]}".toString())
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        assert store.getRecord(snippetIds[2], RecordType.RESULT).resultType == ResultType.NA
+        assert store.getRecord(snippetIds[1], RecordType.RESULT).resultType == ResultType.C
+        assert readCsvRows().size() == SNIPPET_COUNT
+    }
+
+    /**
+     * Parser which records the hooks and the parsed snippets and parses every snippet as covered.
+     */
+    static class EventParser extends RunResultParser<TestTool> {
+        /** The number of the inputs generated by the tool for each snippet. */
+        static final int TOOL_INPUT_COUNT = 3
+
+        private final List<String> events
+        String failingSnippetId = null
+
+        EventParser(SnippetProject snippetProject, Path outputDir, TestTool tool,
+                String runnerProjectTag, List<String> events) {
+            super(snippetProject, outputDir, tool, runnerProjectTag)
+            this.events = events
+        }
+
+        @Override
+        protected void beforeParse() {
+            events << 'beforeParse'
+        }
+
+        @Override
+        protected void afterParse() {
+            events << 'afterParse'
+        }
+
+        @Override
+        protected void parseSnippet(Snippet snippet, RunResultParser.SnippetOutFiles outFiles,
+                SnippetInputsXml inputsXml) throws Exception {
+            events << "parse:${snippet.id}".toString()
+            if (snippet.id == failingSnippetId) {
+                throw new IllegalStateException("Failed: ${snippet.id}")
+            }
+            inputsXml.resultType = ResultType.C
+
+            // the inputs above the maximum are dropped and counted like by the real parsers
+            int keptInputCount = maxInputCount > 0 ? Math.min(maxInputCount, TOOL_INPUT_COUNT)
+                    : TOOL_INPUT_COUNT
+            inputsXml.generatedInputCount = keptInputCount
+            inputsXml.droppedInputCount = TOOL_INPUT_COUNT - keptInputCount
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.transform.TypeChecked
+
+import org.junit.Test
+
+import hu.bme.mit.sette.core.model.runner.ResultType
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Category
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.MatchKind
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Rule
+
+/**
+ * Tests for {@link OutputLineClassifier}.
+ */
+@TypeChecked
+class OutputLineClassifierTest {
+    private static final String RULES = '''\
+        # comment
+
+        fail    contains    ERROR Executor
+        TM      contains    OutOfMemoryError
+        ex      prefix      Exception in thread
+        skip    regex       ^WARNING: \\d+ warnings?$
+        na      regex       not supported
+        skip    contains    ERROR
+        '''.stripIndent()
+
+    @Test
+    void testParse() {
+        OutputLineClassifier classifier = OutputLineClassifier.parse('test.rules', RULES)
+
+        assert classifier.rules.size() == 6
+        Rule rule = classifier.rules[2]
+        assert rule.index == 2
+        assert rule.category == Category.EX
+        assert rule.category.resultType == ResultType.EX
+        assert rule.matchKind == MatchKind.PREFIX
+        assert rule.text == 'Exception in thread'
+        assert rule.location == 'test.rules:5'
+    }
+
+    @Test
+    void testClassify() {
+        OutputLineClassifier classifier = OutputLineClassifier.parse('test.rules', RULES)
+
+        assert classifier.classify('  ERROR Executor failed ').index == 0
+        assert classifier.classify('java.lang.OutOfMemoryError: Java heap space').index == 1
+        assert classifier.classify('Exception in thread "main" java.lang.Error').index == 2
+        assert classifier.classify('WARNING: 2 warnings').index == 3
+        assert classifier.classify('WARNING: 2 warnings!') == null
+        assert classifier.classify('this is not supported').index == 4
+        assert classifier.classify('ERROR something').index == 5
+        assert classifier.classify('nothing special') == null
+        assert classifier.classify('') == null
+    }
+
+    @Test
+    void testClassify_firstRuleWins() {
+        OutputLineClassifier classifier = OutputLineClassifier.parse('test.rules', RULES)
+
+        // matches rules 1 (contains), 2 (prefix), 4 (regex) and 5 (contains)
+        assert classifier.classify('Exception in thread: ERROR OutOfMemoryError not supported')
+                .index == 1
+        // matches rules 2 and 5
+        assert classifier.classify('Exception in thread: ERROR').index == 2
+        // the later regex matches earlier in the line
+        OutputLineClassifier regexClassifier = OutputLineClassifier.parse('regex.rules', '''\
+            ex      regex   b+$
+            skip    regex   a
+            '''.stripIndent())
+        assert regexClassifier.classify('a bb').category == Category.EX
+    }
+
+    @Test
+    void testClassify_overlappingLiterals() {
+        OutputLineClassifier classifier = OutputLineClassifier.parse('test.rules', '''\
+            ex      contains    hers
+            skip    contains    she
+            na      contains    he
+            tm      contains    his
+            fail    prefix      ushe
+            '''.stripIndent())
+
+        assert classifier.classify('ushers').category == Category.EX
+        assert classifier.classify('ushe').category == Category.SKIP
+        assert classifier.classify('ahe').category == Category.NA
+        assert classifier.classify('this').category == Category.TM
+        assert classifier.classify('hi s') == null
+    }
+
+    @Test
+    void testClassify_agreesWithNaiveMatching() {
+        List<String> literals = ['ab', 'abab', 'ba', 'bab', 'aab', 'b', 'aaa']
+        String rules = literals.withIndex().collect { String literal, int i ->
+            "skip ${i % 2 == 0 ? 'contains' : 'prefix'} ${literal}"
+        }.join('\n')
+        OutputLineClassifier classifier = OutputLineClassifier.parse('test.rules', rules)
+
+        Random random = new Random(42)
+        1000.times {
+            StringBuilder sb = new StringBuilder()
+            random.nextInt(10).times { sb.append(random.nextBoolean() ? 'a' : 'b') }
+            String line = sb.toString()
+
+            int expected = literals.findIndexOf { String literal ->
+                int i = literals.indexOf(literal)
+                i % 2 == 0 ? line.contains(literal) : line.startsWith(literal)
+            }
+            Rule rule = classifier.classify(line)
+            assert (rule == null ? -1 : rule.index) == expected : line
+        }
+    }
+
+    @Test
+    void testHitCounts() {
+        OutputLineClassifier classifier = OutputLineClassifier.parse('test.rules', RULES)
+        ['ERROR', 'ERROR Executor', 'ERROR', 'none'].each { classifier.classify(it as String) }
+
+        assert classifier.getHitCount(classifier.rules[5]) == 2
+        assert classifier.hitCounts.values().toList() == [1L, 0L, 0L, 0L, 0L, 2L]
+        assert classifier.unmatchedCount == 1
+        assert classifier.formatHitCounts().contains('test.rules:8: SKIP contains ERROR')
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testParse_invalidCategory() {
+        OutputLineClassifier.parse('test.rules', 'unknown contains text')
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testParse_invalidMatchKind() {
+        OutputLineClassifier.parse('test.rules', 'skip suffix text')
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testParse_missingText() {
+        OutputLineClassifier.parse('test.rules', 'skip contains')
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testParse_invalidRegex() {
+        OutputLineClassifier.parse('test.rules', 'skip regex (unclosed')
+    }
+}
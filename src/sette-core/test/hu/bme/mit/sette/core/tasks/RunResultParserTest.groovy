@@ -0,0 +1,240 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.transform.TypeChecked
+import groovy.transform.TypeCheckingMode
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+
+import hu.bme.mit.sette.core.exceptions.RunResultParserException
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml
+import hu.bme.mit.sette.core.model.runner.ResultType
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.Record
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType
+import hu.bme.mit.sette.core.model.snippet.Snippet
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+
+/**
+ * Tests for {@link RunResultParser}, mainly for parsing the snippets in parallel. The stub parser
+ * finishes the snippets in the reverse order and fails on the configured ones.
+ */
+@TypeChecked
+class RunResultParserTest {
+    private static final int SNIPPET_COUNT = 8
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    @Rule
+    public Timeout timeout = Timeout.seconds(60)
+
+    SnippetProject snippetProject
+    TestTool tool
+    Path outputDir
+
+    @Before
+    void setUp() {
+        Path root = tmpFolder.root.toPath()
+        snippetProject = TestSnippetProjects.create(root.resolve('snippets'), SNIPPET_COUNT)
+        tool = new TestTool(Files.createDirectories(root.resolve('tool')))
+        outputDir = root.resolve('results')
+
+        // the runner has been run on all the snippets
+        RunnerProjectSettings<TestTool> settings = new RunnerProjectSettings<>(snippetProject,
+                outputDir, tool, 'test')
+        File runnerLogFile = RunnerProjectUtils.getRunnerLogFile(settings)
+        runnerLogFile.parentFile.mkdirs()
+        runnerLogFile.text = ''
+        getSnippets().each { Snippet snippet ->
+            File infoFile = RunnerProjectUtils.getSnippetInfoFile(settings, snippet)
+            infoFile.parentFile.mkdirs()
+            infoFile.text = 'Exit value: 0\n'
+        }
+    }
+
+    private List<Snippet> getSnippets() {
+        return snippetProject.snippetContainers.collectMany { it.snippets.values() } as List
+    }
+
+    @Test
+    void testParse_sequentialByDefault() {
+        DefaultParser parser = new DefaultParser(snippetProject, outputDir, tool)
+        parser.parallelism = 3
+        parser.parse()
+
+        assert parser.threads == [Thread.currentThread()] as Set
+        assertRecordsWrittenInOrder(parser, getSnippets())
+    }
+
+    @Test
+    void testParse_parallelWritesInSnippetOrder() {
+        StubParser parser = new StubParser(snippetProject, outputDir, tool)
+        parser.parallelism = 3
+        parser.parse()
+
+        // the snippets have been finished in a different order than they are written
+        assert parser.finished as List != getSnippets().collect { it.id }
+        assert parser.threads.size() > 1
+        assert parser.beforeParseCalls == 1
+        assert parser.afterParseCalls == 1
+        assertRecordsWrittenInOrder(parser, getSnippets())
+    }
+
+    @Test
+    void testParse_parallelLimitsPendingSnippets() {
+        StubParser parser = new StubParser(snippetProject, outputDir, tool)
+        parser.parallelism = 3
+        // the first snippet is slow, the others may only be started up to the pending limit
+        parser.slowSnippetId = getSnippets()[0].id
+        parser.parse()
+
+        assert parser.startedWhenSlowFinished == 2 * parser.parallelism
+        assertRecordsWrittenInOrder(parser, getSnippets())
+    }
+
+    @Test
+    void testParse_parallelReportsAllFailures() {
+        List<Snippet> snippets = getSnippets()
+        StubParser parser = new StubParser(snippetProject, outputDir, tool)
+        parser.parallelism = 3
+        parser.failingSnippetIds = [snippets[2].id, snippets[5].id] as Set
+
+        try {
+            parser.parse()
+            assert false : 'Exception expected'
+        } catch (RunResultParserException ex) {
+            assert ex.message.contains("2 snippet(s): ${snippets[2].id}, ${snippets[5].id}")
+            assert ex.cause.message == "Failed: ${snippets[2].id}"
+            assert ex.suppressed*.message == ["Failed: ${snippets[5].id}".toString()]
+        }
+
+        // the other snippets have been parsed and written
+        assert parser.beforeParseCalls == 1
+        assert parser.afterParseCalls == 1
+        RunnerResultStore store = parser.resultStore
+        snippets.eachWithIndex { Snippet snippet, int i ->
+            assert store.contains(snippet.id, RecordType.INPUTS) == !(i in [2, 5])
+        }
+    }
+
+    private static void assertRecordsWrittenInOrder(RunResultParser<?> parser,
+            List<Snippet> snippets) {
+        RunnerResultStore store = parser.resultStore
+        List<Long> offsets = snippets.collect { Snippet snippet ->
+            Record record = store.getRecord(snippet.id, RecordType.INPUTS)
+            assert record.resultType == ResultType.S
+            assert record.generatedInputCount == 1
+            return getPayloadOffset(record)
+        }
+        assert offsets == offsets.toSorted()
+    }
+
+    @TypeChecked(TypeCheckingMode.SKIP)
+    private static long getPayloadOffset(Record record) {
+        return record.@payloadOffset
+    }
+
+    /**
+     * Parser which does not declare parallel parsing support.
+     */
+    static class DefaultParser extends RunResultParser<TestTool> {
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>())
+
+        DefaultParser(SnippetProject snippetProject, Path outputDir, TestTool tool) {
+            super(snippetProject, outputDir, tool, 'test')
+        }
+
+        @Override
+        protected void parseSnippet(Snippet snippet, RunResultParser.SnippetOutFiles outFiles,
+                SnippetInputsXml inputsXml) throws Exception {
+            threads << Thread.currentThread()
+            inputsXml.resultType = ResultType.S
+            inputsXml.generatedInputCount = 1
+        }
+    }
+
+    /**
+     * Parser which supports parallel parsing. The later a snippet is, the faster it is parsed.
+     */
+    static class StubParser extends DefaultParser {
+        final AtomicInteger started = new AtomicInteger()
+        final Queue<String> finished = new ConcurrentLinkedQueue<>()
+        Set<String> failingSnippetIds = [] as Set
+        String slowSnippetId = null
+        volatile int startedWhenSlowFinished = -1
+        int beforeParseCalls = 0
+        int afterParseCalls = 0
+
+        StubParser(SnippetProject snippetProject, Path outputDir, TestTool tool) {
+            super(snippetProject, outputDir, tool)
+        }
+
+        @Override
+        protected boolean supportsParallelParsing() {
+            return true
+        }
+
+        @Override
+        protected void beforeParse() {
+            beforeParseCalls++
+        }
+
+        @Override
+        protected void afterParse() {
+            afterParseCalls++
+        }
+
+        @Override
+        protected void parseSnippet(Snippet snippet, RunResultParser.SnippetOutFiles outFiles,
+                SnippetInputsXml inputsXml) throws Exception {
+            started.incrementAndGet()
+            int index = snippet.method.name.substring('snippet'.length()) as int
+
+            if (snippet.id == slowSnippetId) {
+                Thread.sleep(300)
+                startedWhenSlowFinished = started.get()
+            } else {
+                Thread.sleep(10 * (SNIPPET_COUNT - index))
+            }
+
+            finished << snippet.id
+            if (snippet.id in failingSnippetIds) {
+                throw new IllegalStateException("Failed: ${snippet.id}")
+            }
+            super.parseSnippet(snippet, outFiles, inputsXml)
+        }
+    }
+}
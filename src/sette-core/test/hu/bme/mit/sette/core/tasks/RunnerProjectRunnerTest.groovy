@@ -0,0 +1,173 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+
+import hu.bme.mit.sette.core.model.runner.RunnerJournal
+import hu.bme.mit.sette.core.model.runner.RunnerJournal.Entry
+import hu.bme.mit.sette.core.model.runner.RunnerJournal.Status
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils
+import hu.bme.mit.sette.core.model.snippet.Snippet
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+
+/**
+ * Tests for {@link RunnerProjectRunner} (the tool is replaced by a {@link TestRunner}).
+ */
+@TypeChecked
+class RunnerProjectRunnerTest {
+    private static final int SNIPPET_COUNT = 5
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    @Rule
+    public Timeout timeout = Timeout.seconds(120)
+
+    SnippetProject snippetProject
+    TestTool tool
+    Path outputDir
+    RunnerProjectSettings<TestTool> settings
+    List<Snippet> snippets
+    List<String> snippetIds
+
+    @Before
+    void setUp() {
+        Path root = tmpFolder.root.toPath()
+        snippetProject = TestSnippetProjects.create(root.resolve('snippets'), SNIPPET_COUNT)
+        tool = new TestTool(Files.createDirectories(root.resolve('tool')))
+        outputDir = root.resolve('results')
+        settings = new RunnerProjectSettings<>(snippetProject, outputDir, tool, 'test')
+        TestSnippetProjects.createRunnerProject(settings)
+        snippets = snippetProject.snippetContainers.collectMany {
+            it.snippets.values()
+        } as List<Snippet>
+        snippetIds = snippets*.id
+    }
+
+    private TestRunner run(boolean resume, int parallelism, Collection<String> failingIds) {
+        TestRunner runner = new TestRunner(snippetProject, outputDir, tool, 'test')
+        runner.resume = resume
+        runner.parallelExecutionSupported = true
+        runner.parallelism = parallelism
+        runner.failingSnippetIds = failingIds as Set<String>
+        runner.run(null)
+        return runner
+    }
+
+    private Map<String, Status> readJournal() {
+        return RunnerJournal.of(settings).read().collectEntries { String id, Entry entry ->
+            [(id): entry.status]
+        } as Map<String, Status>
+    }
+
+    private String readRunnerLog() {
+        return RunnerProjectUtils.getRunnerLogFile(settings).text
+    }
+
+    private void assertRunContinuesAfterFailedSnippet(int parallelism) {
+        TestRunner runner = run(false, parallelism, [snippetIds[1]])
+
+        // the tool has been run on all the snippets
+        assert runner.runSnippetIds.sort() == snippetIds
+
+        Map<String, Status> journal = readJournal()
+        assert journal.keySet() == snippetIds as Set
+        snippetIds.each { String id ->
+            assert journal[id] == (id == snippetIds[1] ? Status.FAILED : Status.COMPLETED)
+        }
+
+        snippets.each { Snippet snippet ->
+            assert RunnerProjectUtils.getSnippetInfoFile(settings, snippet).exists() ==
+                    (snippet.id != snippetIds[1])
+        }
+
+        String log = readRunnerLog()
+        assert log.contains("Exception: Failed: ${snippetIds[1]}")
+        assert log.contains('The run has failed for 1 snippet(s)')
+    }
+
+    @Test
+    void testRun_continuesAfterFailedSnippet() {
+        assertRunContinuesAfterFailedSnippet(1)
+    }
+
+    @Test
+    void testRun_continuesAfterFailedSnippet_parallel() {
+        assertRunContinuesAfterFailedSnippet(3)
+    }
+
+    @Test
+    void testRun_resumeSkipsCompletedSnippets() {
+        run(false, 1, [snippetIds[1], snippetIds[3]])
+
+        TestRunner runner = run(true, 1, [])
+
+        // only the failed snippets are run again
+        assert runner.runSnippetIds.toList() == [snippetIds[1], snippetIds[3]]
+        assert readJournal().values().every { it == Status.COMPLETED }
+        snippets.each { Snippet snippet ->
+            assert RunnerProjectUtils.getSnippetInfoFile(settings, snippet).exists()
+        }
+
+        // the log of the previous run is kept
+        String log = readRunnerLog()
+        assert log.contains('The run has failed for 2 snippet(s)')
+        assert log.contains("Skipping ${snippetIds[0]} (already completed)")
+        assert !log.contains("Skipping ${snippetIds[1]} (already completed)")
+    }
+
+    @Test
+    void testRun_resumeRunsSnippetsWithMissingOutputs() {
+        run(false, 1, [])
+
+        // e.g. the previous run has been interrupted while the tool was running
+        Files.delete(RunnerProjectUtils.getSnippetInfoFile(settings, snippets[2]).toPath())
+
+        TestRunner runner = run(true, 1, [])
+
+        assert runner.runSnippetIds.toList() == [snippetIds[2]]
+        assert RunnerProjectUtils.getSnippetInfoFile(settings, snippets[2]).exists()
+    }
+
+    @Test
+    void testRun_withoutResumeRunsAllSnippets() {
+        run(false, 1, [snippetIds[1]])
+
+        TestRunner runner = run(false, 1, [])
+
+        assert runner.runSnippetIds.toList() == snippetIds
+        assert readJournal().values().every { it == Status.COMPLETED }
+        assert !readRunnerLog().contains('The run has failed')
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import hu.bme.mit.sette.core.model.snippet.Snippet
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+
+/**
+ * Runner stub for the tests of the tasks. Instead of running a tool, it writes the info, output
+ * and error files of the snippet (or fails on the configured snippets) and records the snippets
+ * it has been run on.
+ */
+@TypeChecked
+class TestRunner extends RunnerProjectRunner<TestTool> {
+    /** The IDs of the snippets on which the tool has been run (in the order of the runs). */
+    final Queue<String> runSnippetIds = new ConcurrentLinkedQueue<>()
+
+    /** The IDs of the snippets on which the run fails with an exception. */
+    Set<String> failingSnippetIds = [] as Set
+
+    boolean parallelExecutionSupported = false
+
+    /** Called with the snippet before its files are written (e.g. to record events). */
+    Closure<?> onRun = null
+
+    TestRunner(SnippetProject snippetProject, Path outputDir, TestTool tool,
+            String runnerProjectTag) {
+        super(snippetProject, outputDir, tool, runnerProjectTag)
+    }
+
+    @Override
+    protected void runOne(Snippet snippet, File infoFile, File outputFile, File errorFile)
+            throws Exception {
+        runSnippetIds << snippet.id
+        onRun?.call(snippet)
+
+        if (snippet.id in failingSnippetIds) {
+            throw new IllegalStateException("Failed: ${snippet.id}")
+        }
+
+        infoFile.parentFile.mkdirs()
+        outputFile.text = "Output of ${snippet.id}\n"
+        errorFile.text = ''
+        infoFile.text = 'Exit value: 0\nElapsed time: 1 ms\n'
+    }
+
+    @Override
+    boolean supportsParallelExecution() {
+        return parallelExecutionSupported
+    }
+
+    @Override
+    boolean shouldKillAfterTimeout() {
+        return false
+    }
+}
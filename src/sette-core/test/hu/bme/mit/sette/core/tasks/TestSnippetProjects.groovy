@@ -0,0 +1,169 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.io.FileType
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+import javax.tools.ToolProvider
+
+import org.junit.Test
+
+import hu.bme.mit.sette.common.snippets.JavaVersion
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+import hu.bme.mit.sette.core.util.io.PathUtils
+
+/**
+ * Creates small snippet projects for the tests of the tasks. The project contains the container
+ * <code>hu.bme.mit.sette.test.T1_Snippets</code> whose snippets are named <code>snippet0</code>,
+ * <code>snippet1</code>, etc. Every snippet takes an <code>int</code> and has two branches (thus
+ * both a positive and a non-positive input is needed to cover it).
+ */
+@TypeChecked
+final class TestSnippetProjects {
+    static final String PACKAGE_NAME = 'hu.bme.mit.sette.test'
+    static final String CONTAINER_CLASS_NAME = PACKAGE_NAME + '.T1_Snippets'
+
+    private TestSnippetProjects() {
+        throw new UnsupportedOperationException('Static class')
+    }
+
+    /**
+     * Creates and compiles the snippet project.
+     *
+     * @param baseDir the base directory of the project (it is created if needed)
+     * @param snippetCount the number of snippets (at most 10, so that they are sorted by number)
+     * @return the parsed snippet project
+     */
+    static SnippetProject create(Path baseDir, int snippetCount) {
+        assert snippetCount in 1..10
+
+        StringBuilder source = new StringBuilder()
+        source << "package ${PACKAGE_NAME};\n\n"
+        source << 'import hu.bme.mit.sette.common.annotations.SetteRequiredStatementCoverage;\n'
+        source << 'import hu.bme.mit.sette.common.annotations.SetteSnippetContainer;\n\n'
+        source << '@SetteSnippetContainer(category = "T1", goal = "Test snippets")\n'
+        source << 'public final class T1_Snippets {\n'
+        source << '    private T1_Snippets() {\n'
+        source << '        throw new UnsupportedOperationException("Static class");\n'
+        source << '    }\n'
+        for (int i = 0; i < snippetCount; i++) {
+            source << '\n'
+            source << '    @SetteRequiredStatementCoverage(value = 100)\n'
+            source << "    public static int snippet${i}(int x) {\n"
+            source << '        if (x > 0) {\n'
+            source << "            return ${i};\n"
+            source << '        } else {\n'
+            source << '            return -1;\n'
+            source << '        }\n'
+            source << '    }\n'
+        }
+        source << '}\n'
+
+        Path sourceFile = baseDir.resolve('snippet-src').resolve(
+                CONTAINER_CLASS_NAME.replace('.', '/') + '.java')
+        Files.createDirectories(sourceFile.parent)
+        sourceFile.toFile().text = source.toString()
+
+        // the snippets depend on sette-common like in the real snippet projects
+        Path libDir = Files.createDirectories(baseDir.resolve('snippet-lib'))
+        Path setteCommonJar = libDir.resolve('sette-common.jar')
+        createJar(Paths.get(getSetteCommonLocation()), setteCommonJar)
+
+        Path buildDir = Files.createDirectories(baseDir.resolve('build'))
+        compile(buildDir, setteCommonJar.toString(), sourceFile)
+
+        return SnippetProject.parse(baseDir)
+    }
+
+    /**
+     * Creates the directories and files of a runner project which are needed by the tasks after
+     * the generation: the snippet sources and the <code>junit.jar</code> of the tests.
+     *
+     * @param settings the settings of the runner project
+     */
+    static void createRunnerProject(RunnerProjectSettings<?> settings) {
+        PathUtils.copy(settings.snippetProject.sourceDir,
+                settings.snippetSourceDirectory.toPath())
+        PathUtils.copy(settings.snippetProject.libDir,
+                settings.snippetLibraryDirectory.toPath())
+
+        Path junitJar = Paths.get(Test.protectionDomain.codeSource.location.toURI())
+        Files.copy(junitJar, settings.baseDir.toPath().resolve('junit.jar'))
+    }
+
+    /**
+     * Compiles Java sources.
+     *
+     * @param outputDir the output directory
+     * @param classpath the classpath
+     * @param sourceFiles the source files
+     */
+    static void compile(Path outputDir, String classpath, Path... sourceFiles) {
+        List<String> args = ['-nowarn', '-proc:none', '-d', outputDir.toString(), '-cp', classpath]
+        args.addAll(sourceFiles.collect { Path f -> f.toString() })
+
+        ByteArrayOutputStream errors = new ByteArrayOutputStream()
+        int exitValue = ToolProvider.systemJavaCompiler.run(null, null, errors,
+                args as String[])
+        assert exitValue == 0 : errors.toString()
+    }
+
+    /**
+     * Packs the classes into a JAR file (or copies the JAR if they are already packed).
+     *
+     * @param classes the directory or JAR of the classes
+     * @param jarFile the JAR file to create
+     */
+    static void createJar(Path classes, Path jarFile) {
+        if (!Files.isDirectory(classes)) {
+            Files.copy(classes, jarFile)
+            return
+        }
+
+        jarFile.withOutputStream { OutputStream out ->
+            JarOutputStream jar = new JarOutputStream(out)
+            classes.toFile().eachFileRecurse(FileType.FILES) { File f ->
+                String name = classes.relativize(f.toPath()).toString().replace('\\', '/')
+                jar.putNextEntry(new JarEntry(name))
+                jar.write(f.bytes)
+                jar.closeEntry()
+            }
+            jar.finish()
+        }
+    }
+
+    /**
+     * @return the location of the sette-common classes (directory or JAR)
+     */
+    static String getSetteCommonLocation() {
+        return Paths.get(JavaVersion.protectionDomain.codeSource.location.toURI()).toString()
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Path
+
+import hu.bme.mit.sette.common.snippets.JavaVersion
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+import hu.bme.mit.sette.core.tool.Tool
+import hu.bme.mit.sette.core.tool.ToolOutputType
+
+/**
+ * Tool stub for the tests of the tasks. The runner and the parser are created by the closures set
+ * by the test (they receive the snippet project, the output directory and the runner project tag).
+ */
+@TypeChecked
+class TestTool extends Tool {
+    ToolOutputType outputType = ToolOutputType.JUNIT4_TEST_CASES
+
+    Closure<?> runnerFactory = null
+
+    Closure<?> parserFactory = null
+
+    TestTool(Path toolDir) {
+        super('TestTool', toolDir)
+    }
+
+    @Override
+    ToolOutputType getOutputType() {
+        return outputType
+    }
+
+    @Override
+    JavaVersion getSupportedJavaVersion() {
+        return JavaVersion.JAVA_8
+    }
+
+    @Override
+    RunnerProjectGenerator<?> createRunnerProjectGenerator(SnippetProject snippetProject,
+            Path outputDir, String runnerProjectTag) {
+        throw new UnsupportedOperationException()
+    }
+
+    @Override
+    RunnerProjectRunner<?> createRunnerProjectRunner(SnippetProject snippetProject,
+            Path outputDir, String runnerProjectTag) {
+        return (RunnerProjectRunner<?>) runnerFactory?.call(snippetProject, outputDir,
+                runnerProjectTag)
+    }
+
+    @Override
+    RunResultParser<?> createRunResultParser(SnippetProject snippetProject, Path outputDir,
+            String runnerProjectTag) {
+        return (RunResultParser<?>) parserFactory?.call(snippetProject, outputDir,
+                runnerProjectTag)
+    }
+}
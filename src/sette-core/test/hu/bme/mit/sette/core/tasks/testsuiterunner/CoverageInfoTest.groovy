@@ -0,0 +1,116 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import org.junit.Test
+
+import hu.bme.mit.sette.core.model.parserxml.FileCoverageElement
+
+/**
+ * Tests for {@link CoverageInfo} and {@link LineCoverage}.
+ */
+@TypeChecked
+class CoverageInfoTest {
+    @Test
+    void testLineCoverage_add_precedence() {
+        LineCoverage lc = new LineCoverage()
+        lc.add(1, LineStatus.NOT_COVERED)
+        lc.add(1, LineStatus.FULLY_COVERED)
+        lc.add(2, LineStatus.PARTLY_COVERED)
+        lc.add(2, LineStatus.NOT_COVERED)
+        lc.add(3, LineStatus.NOT_COVERED)
+        lc.add(4, LineStatus.EMPTY)
+
+        assert lc.fullyCoveredLines == [1] as int[]
+        assert lc.partiallyCoveredLines == [2] as int[]
+        assert lc.notCoveredLines == [3] as int[]
+        assert lc.getStatus(4) == LineStatus.EMPTY
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testLineCoverage_add_throwsExceptionIfLineIsNotPositive() {
+        new LineCoverage().add(0, LineStatus.FULLY_COVERED)
+    }
+
+    @Test
+    void testLineCoverage_constructor_resolvesPrecedence() {
+        LineCoverage lc = new LineCoverage([1, 2] as int[], [2, 3] as int[], [1, 3, 4] as int[])
+
+        assert lc.fullyCoveredLines == [1, 2] as int[]
+        assert lc.partiallyCoveredLines == [3] as int[]
+        assert lc.notCoveredLines == [4] as int[]
+    }
+
+    @Test
+    void testLineCoverage_merge() {
+        LineCoverage lc1 = new LineCoverage([1] as int[], [2] as int[], [3, 4] as int[])
+        LineCoverage lc2 = new LineCoverage([3] as int[], [4] as int[], [1, 2, 5] as int[])
+        lc1.merge(lc2)
+
+        assert lc1.fullyCoveredLines == [1, 3] as int[]
+        assert lc1.partiallyCoveredLines == [2, 4] as int[]
+        assert lc1.notCoveredLines == [5] as int[]
+    }
+
+    @Test
+    void testLineCoverage_toLineStatuses() {
+        LineStatuses lines = new LineCoverage([2] as int[], [3] as int[], [4] as int[])
+                .toLineStatuses(1, 5)
+
+        assert lines.getStatus(1) == LineStatus.EMPTY
+        assert lines.getStatus(2) == LineStatus.FULLY_COVERED
+        assert lines.getStatus(3) == LineStatus.PARTLY_COVERED
+        assert lines.getStatus(4) == LineStatus.NOT_COVERED
+        assert lines.getStatus(5) == LineStatus.EMPTY
+    }
+
+    @Test
+    void testLineCoverage_toFileCoverageElement() {
+        FileCoverageElement fce = new LineCoverage([10, 2] as int[], [] as int[], [7] as int[])
+                .toFileCoverageElement('a/B.java')
+
+        assert fce.name == 'a/B.java'
+        assert fce.fullyCoveredLines == '2 10'
+        assert fce.partiallyCoveredLines == ''
+        assert fce.notCoveredLines == '7'
+    }
+
+    @Test
+    void testCoverageInfo_merge() {
+        CoverageInfo ci1 = new CoverageInfo()
+        ci1.getOrCreate('b/C.java').add(1, LineStatus.NOT_COVERED)
+
+        CoverageInfo ci2 = new CoverageInfo()
+        ci2.getOrCreate('b/C.java').add(1, LineStatus.FULLY_COVERED)
+        ci2.getOrCreate('a/B.java').add(5, LineStatus.PARTLY_COVERED)
+
+        ci1.merge(ci2)
+
+        assert ci1.files.keySet() as List == ['a/B.java', 'b/C.java']
+        assert ci1.get('a/B.java').partiallyCoveredLines == [5] as int[]
+        assert ci1.get('b/C.java').fullyCoveredLines == [1] as int[]
+        assert ci1.get('b/C.java').notCoveredLines.length == 0
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.regex.Matcher
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import hu.bme.mit.sette.core.model.parserxml.FileCoverageElement
+import hu.bme.mit.sette.core.model.parserxml.SnippetCoverageXml
+import hu.bme.mit.sette.core.model.runner.ResultType
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils
+import hu.bme.mit.sette.core.model.snippet.Snippet
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+import hu.bme.mit.sette.core.tasks.TestSnippetProjects
+import hu.bme.mit.sette.core.tasks.TestTool
+
+/**
+ * Tests for {@link HtmlGenerator}.
+ */
+@TypeChecked
+class HtmlGeneratorTest {
+    private static final String SOURCE_FILE =
+            TestSnippetProjects.CONTAINER_CLASS_NAME.replace('.', '/') + '.java'
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    RunnerProjectSettings<TestTool> settings
+    List<Snippet> snippets
+    HtmlGenerator generator
+
+    @Before
+    void setUp() {
+        Path root = tmpFolder.root.toPath()
+        SnippetProject snippetProject = TestSnippetProjects.create(root.resolve('snippets'), 4)
+        TestTool tool = new TestTool(Files.createDirectories(root.resolve('tool')))
+        Path outputDir = root.resolve('results')
+        settings = new RunnerProjectSettings<>(snippetProject, outputDir, tool, 'test')
+        snippets = snippetProject.snippetContainers.collectMany {
+            it.snippets.values()
+        } as List<Snippet>
+
+        generator = new HtmlGenerator(new TestSuiteRunner(snippetProject, outputDir, tool, 'test'))
+    }
+
+    private static SnippetCoverageXml createCoverageXml(ResultType resultType, double coverage,
+            String fullyCoveredLines, String notCoveredLines) {
+        FileCoverageElement fce = new FileCoverageElement()
+        fce.name = SOURCE_FILE
+        fce.fullyCoveredLines = fullyCoveredLines
+        fce.partiallyCoveredLines = ''
+        fce.notCoveredLines = notCoveredLines
+
+        SnippetCoverageXml coverageXml = new SnippetCoverageXml()
+        coverageXml.resultType = resultType
+        coverageXml.achievedCoverage = coverage
+        coverageXml.coverage = [fce]
+        return coverageXml
+    }
+
+    private void generateCoveredAndNotCovered() {
+        // added in reverse order, the index is sorted anyway
+        generator.addToIndex(snippets[2], ResultType.NA)
+        generator.generate(snippets[1], createCoverageXml(ResultType.NC, 75, '22 23 24', '26'))
+        generator.generate(snippets[0], createCoverageXml(ResultType.C, 100, '13 14 15 17', ''))
+        generator.generateIndex()
+    }
+
+    private String readIndex() {
+        return RunnerProjectUtils.getCoverageIndexFile(settings).text
+    }
+
+    /**
+     * @return the linked pages of the index by the snippet names
+     */
+    private Map<String, File> readIndexLinks() {
+        File indexDir = RunnerProjectUtils.getCoverageIndexFile(settings).parentFile
+        Map<String, File> links = [:]
+        Matcher m = readIndex() =~ /<a href="([^"]*)">([^<]*)<\/a>/
+        while (m.find()) {
+            links[m.group(2)] = new File(indexDir, m.group(1))
+        }
+        return links
+    }
+
+    @Test
+    void testGenerateIndex() {
+        generateCoveredAndNotCovered()
+
+        String index = readIndex()
+        assert index.contains('N/A: 1; EX: 0; T/M: 0; S: 0; NC: 1; C: 1; total: 3')
+
+        // one row for every added snippet, sorted by the snippets
+        List<String> rows = index.readLines().findAll { it.contains('<tr class=') }
+        assert rows.size() == 3
+        assert rows[0].contains('<tr class="C">') && rows[0].contains('>snippet0<')
+        assert rows[0].contains('>100.00%<')
+        assert rows[1].contains('<tr class="NC">') && rows[1].contains('>snippet1<')
+        assert rows[1].contains('>75.00%<')
+        assert rows[2].contains('<tr class="NA">') && rows[2].contains('>snippet2<')
+        assert !index.contains('snippet3')
+
+        // the measured snippets are linked to their pages
+        Map<String, File> links = readIndexLinks()
+        assert links.keySet() == ['snippet0', 'snippet1'] as Set
+        assert links['snippet0'].canonicalFile ==
+                RunnerProjectUtils.getSnippetHtmlFile(settings, snippets[0]).canonicalFile
+        assert links['snippet1'].canonicalFile ==
+                RunnerProjectUtils.getSnippetHtmlFile(settings, snippets[1]).canonicalFile
+        assert links.values().every { File page -> page.text.contains('class="line green"') }
+        assert links['snippet1'].text.contains('class="line red"')
+    }
+
+    @Test
+    void testGenerateIndex_ncMode() {
+        // a page left behind by a previous evaluation
+        File coveredPage = RunnerProjectUtils.getSnippetHtmlFile(settings, snippets[0])
+        coveredPage.parentFile.mkdirs()
+        coveredPage.text = 'previous'
+
+        generator.mode = HtmlReportMode.NC
+        generateCoveredAndNotCovered()
+
+        // the covered snippet is listed but its page is skipped
+        assert !coveredPage.exists()
+        assert RunnerProjectUtils.getSnippetHtmlFile(settings, snippets[1]).exists()
+
+        String index = readIndex()
+        assert index.contains('total: 3')
+        assert index.contains('<td data-value="snippet0">snippet0</td>')
+        assert readIndexLinks().keySet() == ['snippet1'] as Set
+    }
+
+    @Test
+    void testGenerateIndex_noneMode() {
+        generator.mode = HtmlReportMode.NONE
+        generateCoveredAndNotCovered()
+
+        assert !RunnerProjectUtils.getCoverageIndexFile(settings).exists()
+        assert !RunnerProjectUtils.getSnippetHtmlFile(settings, snippets[0]).exists()
+        assert !RunnerProjectUtils.getSnippetHtmlFile(settings, snippets[1]).exists()
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Arrays
+
+import org.jacoco.core.instr.Instrumenter
+import org.jacoco.core.runtime.LoggerRuntime
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for {@link InstrumentedClassCache}.
+ */
+@TypeChecked
+class InstrumentedClassCacheTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private Instrumenter instrumenter
+    private byte[] bytes
+    private String className
+
+    @Before
+    void setUp() {
+        instrumenter = new Instrumenter(new LoggerRuntime())
+        className = LineStatus.name
+        bytes = LineStatus.getResourceAsStream(LineStatus.simpleName + '.class').bytes
+    }
+
+    @Test
+    void testInstrument_instrumentsOnlyOnce() {
+        InstrumentedClassCache cache = new InstrumentedClassCache(instrumenter)
+
+        byte[] first = cache.instrument(bytes, className)
+        byte[] second = cache.instrument(Arrays.copyOf(bytes, bytes.length), className)
+
+        assert first.is(second)
+        assert first != bytes
+        assert cache.missCount == 1
+        assert cache.hitCount == 1
+        assert cache.size() == 1
+    }
+
+    @Test
+    void testInstrument_usesContentAsKey() {
+        InstrumentedClassCache cache = new InstrumentedClassCache(instrumenter)
+        byte[] otherBytes = LineStatuses.getResourceAsStream(LineStatuses.simpleName + '.class').bytes
+
+        cache.instrument(bytes, className)
+        cache.instrument(otherBytes, LineStatuses.name)
+
+        assert cache.missCount == 2
+        assert cache.hitCount == 0
+        assert cache.size() == 2
+    }
+
+    @Test
+    void testInstrument_persistsInstrumentedClasses() {
+        Path dir = tmpFolder.root.toPath().resolve('cache')
+
+        InstrumentedClassCache cache = new InstrumentedClassCache(instrumenter, dir)
+        byte[] instrumented = cache.instrument(bytes, className)
+
+        assert cache.missCount == 1
+        assert Files.list(dir).count() == 1
+
+        InstrumentedClassCache otherCache = new InstrumentedClassCache(instrumenter, dir)
+        assert otherCache.instrument(bytes, className) == instrumented
+        assert otherCache.missCount == 0
+        assert otherCache.hitCount == 1
+    }
+}
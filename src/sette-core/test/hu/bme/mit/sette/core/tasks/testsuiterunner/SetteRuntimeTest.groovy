@@ -0,0 +1,121 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import javax.tools.JavaCompiler
+import javax.tools.ToolProvider
+
+import org.jacoco.core.data.ExecutionData
+import org.jacoco.core.data.ExecutionDataStore
+import org.jacoco.core.data.SessionInfoStore
+import org.jacoco.core.instr.Instrumenter
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for {@link SetteRuntime}.
+ */
+@TypeChecked
+class SetteRuntimeTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private File binaryDir
+    private InstrumentedClassCache cache
+
+    @Before
+    void setUp() {
+        binaryDir = tmpFolder.newFolder('bin')
+        File sourceFile = new File(tmpFolder.root, 'Sample.java')
+        sourceFile.text = '''
+            public class Sample {
+                public static int abs(int x) {
+                    if (x < 0) {
+                        return -x;
+                    } else {
+                        return x;
+                    }
+                }
+            }
+            '''
+
+        JavaCompiler compiler = ToolProvider.systemJavaCompiler
+        assert compiler.run(null, null, null, '-d', binaryDir.path, sourceFile.path) == 0
+
+        cache = new InstrumentedClassCache(new Instrumenter(new SetteRuntime()))
+    }
+
+    @Test
+    void testProbesAreStoredPerClassLoader() {
+        JaCoCoClassLoader loader1 = createClassLoader()
+        JaCoCoClassLoader loader2 = createClassLoader()
+
+        invokeAbs(loader1, -1)
+        invokeAbs(loader2, 1)
+        invokeAbs(loader2, 2)
+
+        boolean[] probes1 = collect(loader1)
+        boolean[] probes2 = collect(loader2)
+
+        assert probes1 != probes2
+        assert probes1.findAll { it }.size() == probes2.findAll { it }.size()
+
+        // instrumented once, used by both class loaders
+        assert cache.missCount == 1
+        assert cache.hitCount == 1
+    }
+
+    @Test
+    void testProbesAreNotCollectedWithoutInvocation() {
+        JaCoCoClassLoader loader = createClassLoader()
+        loader.loadClass('Sample')
+
+        ExecutionDataStore executionData = new ExecutionDataStore()
+        loader.runtimeData.collect(executionData, new SessionInfoStore(), false)
+
+        // the class has not been initialized
+        assert executionData.contents.isEmpty()
+    }
+
+    private JaCoCoClassLoader createClassLoader() {
+        return new JaCoCoClassLoader([binaryDir] as File[], cache, getClass().classLoader)
+    }
+
+    private static void invokeAbs(ClassLoader loader, int x) {
+        Class<?> cls = loader.loadClass('Sample')
+        assert cls.getMethod('abs', int).invoke(null, x) == Math.abs(x)
+    }
+
+    private static boolean[] collect(JaCoCoClassLoader loader) {
+        ExecutionDataStore executionData = new ExecutionDataStore()
+        loader.runtimeData.collect(executionData, new SessionInfoStore(), false)
+
+        ExecutionData data = executionData.contents.find { it.name == 'Sample' }
+        assert data
+        return data.probes
+    }
+}
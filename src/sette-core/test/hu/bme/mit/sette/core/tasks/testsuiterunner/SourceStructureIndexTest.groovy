@@ -0,0 +1,133 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import hu.bme.mit.sette.core.tasks.testsuiterunner.SourceStructureIndex.FileStructure
+
+/**
+ * Tests for {@link SourceStructureIndex}.
+ */
+@TypeChecked
+class SourceStructureIndexTest {
+    private static final String SOURCE = '''\
+        package pkg;
+
+        public class Sample {
+            public Sample() {
+            }
+
+            public static int first(int x) {
+                return x + 1;
+            }
+
+            public static int second(int x) {
+                if (x > 0) {
+                    return 1;
+                }
+                return 0;
+            }
+        }
+        '''.stripIndent()
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private Path sourceDir
+    private Path indexFile
+    private Path sampleFile
+
+    @Before
+    void setUp() {
+        sourceDir = tmpFolder.newFolder('snippet-src').toPath()
+        indexFile = tmpFolder.root.toPath().resolve(SourceStructureIndex.INDEX_FILENAME)
+        sampleFile = sourceDir.resolve('pkg/Sample.java')
+        Files.createDirectories(sampleFile.parent)
+        sampleFile.text = SOURCE
+    }
+
+    @Test
+    void testGet() {
+        SourceStructureIndex index = new SourceStructureIndex(sourceDir, null)
+        FileStructure fs = index.get('pkg/Sample.java')
+
+        assert fs.beginLine == 1
+        assert fs.endLine == 17
+        assert fs.typeName == 'Sample'
+        assert fs.methods*.name == ['first', 'second']
+        assert fs.findMethod('second').beginLine == 11
+        assert fs.findMethod('second').endLine == 16
+        assert fs.findMethod('third') == null
+        assert fs.findConstructor('Sample').beginLine == 4
+        assert index.size() == 1
+    }
+
+    @Test
+    void testLoad_persistsIndex() {
+        SourceStructureIndex index = SourceStructureIndex.load(sourceDir, indexFile, [sampleFile],
+                2)
+        assert index.size() == 1
+        assert Files.exists(indexFile)
+
+        // the source is not parsed again (an unparseable file is not touched)
+        FileTime lastModified = Files.getLastModifiedTime(sampleFile)
+        sampleFile.text = SOURCE.replace('first', 'fir$t')
+        Files.setLastModifiedTime(sampleFile, lastModified)
+
+        FileStructure fs = SourceStructureIndex.load(sourceDir, indexFile, [sampleFile], 2)
+                .get('pkg/Sample.java')
+        assert fs.methods*.name == ['first', 'second']
+    }
+
+    @Test
+    void testLoad_parsesModifiedFile() {
+        SourceStructureIndex.load(sourceDir, indexFile, [sampleFile], 1)
+
+        sampleFile.text = SOURCE.replace('first', 'renamed')
+        Files.setLastModifiedTime(sampleFile,
+                FileTime.fromMillis(Files.getLastModifiedTime(sampleFile).toMillis() + 2000))
+
+        FileStructure fs = SourceStructureIndex.load(sourceDir, indexFile, [sampleFile], 1)
+                .get('pkg/Sample.java')
+        assert fs.methods*.name == ['renamed', 'second']
+    }
+
+    @Test
+    void testLoad_ignoresCorruptIndex() {
+        indexFile.text = '{ not json'
+
+        SourceStructureIndex index = SourceStructureIndex.load(sourceDir, indexFile, [sampleFile],
+                1)
+        assert index.get('pkg/Sample.java').typeName == 'Sample'
+    }
+}
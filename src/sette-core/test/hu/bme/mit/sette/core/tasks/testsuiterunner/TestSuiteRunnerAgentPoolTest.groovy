@@ -0,0 +1,185 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import org.jacoco.core.data.ExecutionData
+import org.jacoco.core.data.ExecutionDataStore
+import org.jacoco.core.data.ExecutionDataWriter
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+
+/**
+ * Integration tests for {@link TestSuiteRunnerAgentPool}. The agent is replaced by a shell script
+ * which speaks the protocol of {@link TestSuiteRunnerForkAgent} and copies the prepared exec file of
+ * the requested snippet ({@code <snippetId>.exec}) to the exec file of the request.
+ */
+@TypeChecked
+class TestSuiteRunnerAgentPoolTest {
+    // the tests must finish end even if the class is buggy and execute() never returns
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000)
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private TestSuiteRunnerAgentPool pool
+
+    @Before
+    void setUp() {
+        String script = """\
+            echo 'starting'
+            echo '${TestSuiteRunnerForkAgent.AGENT_READY_INDICATOR}'
+            while IFS=\$'\\t' read -r id cls method exec; do
+                case "\$method" in
+                    fail)
+                        echo '${TestSuiteRunnerForkAgent.AGENT_ERROR_INDICATOR}'
+                        echo 'java.lang.RuntimeException: failed'
+                        ;;
+                    hang)
+                        sleep 10
+                        ;;
+                    *)
+                        cp "\$id.exec" "\$exec"
+                        echo '${TestSuiteRunnerForkAgent.AGENT_EXEC_INDICATOR}'
+                        ;;
+                esac
+                if [ "\$method" = 'leak' ]; then
+                    echo '${TestSuiteRunnerForkAgent.AGENT_RECYCLE_INDICATOR}'
+                fi
+                echo '${TestSuiteRunnerForkAgent.AGENT_END_INDICATOR}'
+                if [ "\$method" = 'leak' ]; then
+                    exit 0
+                fi
+            done
+            """.stripIndent()
+
+        pool = new TestSuiteRunnerAgentPool(['bash', '-c', script], tmpFolder.root, 1, 1000)
+    }
+
+    @After
+    void tearDown() {
+        pool.close()
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testConstructor_invalidMaxSize() {
+        new TestSuiteRunnerAgentPool(['bash'], tmpFolder.root, 0, 1000)
+    }
+
+    private void writeExecFile(String snippetId, long classId, boolean[] probes) {
+        new File(tmpFolder.root, snippetId + '.exec').withOutputStream { OutputStream out ->
+            ExecutionDataWriter writer = new ExecutionDataWriter(out)
+            writer.visitClassExecution(new ExecutionData(classId, 'pkg/C' + classId, probes))
+            writer.flush()
+        }
+    }
+
+    @Test
+    void testExecute_reusesAgent() {
+        ExecutionDataStore executionData = new ExecutionDataStore()
+
+        (1..3).each { int i ->
+            writeExecFile("S$i", i, [true, false] as boolean[])
+            pool.execute("S$i", 'T', 'test', executionData)
+        }
+
+        assert executionData.contents*.name.sort() == ['pkg/C1', 'pkg/C2', 'pkg/C3']
+        assert pool.startedAgentCount == 1
+        assert pool.executedTestCaseCount == 3
+    }
+
+    @Test
+    void testExecute_mergesExecutionData() {
+        writeExecFile('S1', 1, [true, false, false] as boolean[])
+        writeExecFile('S2', 1, [false, true, false] as boolean[])
+
+        ExecutionDataStore executionData = new ExecutionDataStore()
+        pool.execute('S1', 'T', 'test', executionData)
+        pool.execute('S2', 'T', 'test', executionData)
+
+        assert executionData.get(1).probes == [true, true, false] as boolean[]
+    }
+
+    @Test
+    void testExecute_deletesExecFile() {
+        writeExecFile('S', 1, [true] as boolean[])
+        File tmpDir = new File(System.getProperty('java.io.tmpdir'))
+        Set<String> before = tmpDir.list().findAll { String f -> f.startsWith('sette-agent-') } as Set
+
+        pool.execute('S', 'T', 'test', new ExecutionDataStore())
+
+        Set<String> after = tmpDir.list().findAll { String f -> f.startsWith('sette-agent-') } as Set
+        assert after == before
+    }
+
+    @Test
+    void testExecute_recyclesAgentIfRequested() {
+        writeExecFile('S', 1, [true] as boolean[])
+        pool.execute('S', 'T', 'leak', new ExecutionDataStore())
+        pool.execute('S', 'T', 'test', new ExecutionDataStore())
+
+        assert pool.startedAgentCount == 2
+    }
+
+    @Test
+    void testExecute_keepsAgentAfterTestFailure() {
+        try {
+            pool.execute('S', 'T', 'fail', new ExecutionDataStore())
+            assert false
+        } catch (RuntimeException ex) {
+            assert ex.message.startsWith('FAILURE')
+        }
+
+        writeExecFile('S', 1, [true] as boolean[])
+        pool.execute('S', 'T', 'test', new ExecutionDataStore())
+
+        assert pool.startedAgentCount == 1
+    }
+
+    @Test
+    void testExecute_replacesAgentAfterTimeout() {
+        try {
+            pool.execute('S', 'T', 'hang', new ExecutionDataStore())
+            assert false
+        } catch (RuntimeException ex) {
+            assert ex.message.startsWith('TIMEOUT')
+        }
+
+        writeExecFile('S', 1, [true] as boolean[])
+        pool.execute('S', 'T', 'test', new ExecutionDataStore())
+
+        assert pool.startedAgentCount == 2
+    }
+
+    @Test(expected = IllegalStateException)
+    void testExecute_failsIfClosed() {
+        pool.close()
+        pool.execute('S', 'T', 'test', new ExecutionDataStore())
+    }
+}
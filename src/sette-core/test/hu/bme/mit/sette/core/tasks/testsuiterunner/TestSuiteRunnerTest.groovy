@@ -0,0 +1,229 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.tasks.testsuiterunner
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+
+import hu.bme.mit.sette.core.model.parserxml.SnippetElement
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml
+import hu.bme.mit.sette.core.model.parserxml.SnippetProjectElement
+import hu.bme.mit.sette.core.model.runner.ResultType
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.Record
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore.RecordType
+import hu.bme.mit.sette.core.model.snippet.Snippet
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+import hu.bme.mit.sette.core.tasks.TestSnippetProjects
+import hu.bme.mit.sette.core.tasks.TestTool
+
+/**
+ * Tests for {@link TestSuiteRunner}. The runner projects contain hand-written test suites: the
+ * tests of the even snippets cover both branches (C), the tests of the odd snippets cover only one
+ * branch (NC) and the tool has not generated anything for the last snippet (N/A).
+ */
+@TypeChecked
+class TestSuiteRunnerTest {
+    private static final int SNIPPET_COUNT = 6
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    @Rule
+    public Timeout timeout = Timeout.seconds(300)
+
+    SnippetProject snippetProject
+    TestTool tool
+    Path outputDir
+    List<Snippet> snippets
+
+    @Before
+    void setUp() {
+        Path root = tmpFolder.root.toPath()
+        snippetProject = TestSnippetProjects.create(root.resolve('snippets'), SNIPPET_COUNT)
+        tool = new TestTool(Files.createDirectories(root.resolve('tool')))
+        outputDir = root.resolve('results')
+        snippets = snippetProject.snippetContainers.collectMany {
+            it.snippets.values()
+        } as List<Snippet>
+    }
+
+    /**
+     * Creates a runner project as if the tool had been run, its output parsed and the tests
+     * generated.
+     */
+    private RunnerProjectSettings<TestTool> createRunnerProject(String tag) {
+        RunnerProjectSettings<TestTool> settings = new RunnerProjectSettings<>(snippetProject,
+                outputDir, tool, tag)
+        TestSnippetProjects.createRunnerProject(settings)
+        File runnerLogFile = RunnerProjectUtils.getRunnerLogFile(settings)
+        runnerLogFile.parentFile.mkdirs()
+        runnerLogFile.text = ''
+
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        try {
+            snippets.eachWithIndex { Snippet snippet, int i ->
+                List<Integer> inputs = getInputs(i)
+
+                SnippetInputsXml inputsXml = new SnippetInputsXml()
+                inputsXml.toolName = tool.name
+                inputsXml.snippetProjectElement = new SnippetProjectElement(
+                        snippetProject.baseDir.toFile().canonicalPath)
+                inputsXml.snippetElement = new SnippetElement(
+                        snippet.container.javaClass.name, snippet.method.name)
+                inputsXml.resultType = inputs.empty ? ResultType.NA : ResultType.S
+                inputsXml.generatedInputCount = inputs.size()
+                inputsXml.validate()
+                store.put(snippet.id, inputsXml)
+
+                if (!inputs.empty) {
+                    writeTestClass(settings, snippet, inputs)
+                }
+            }
+        } finally {
+            store.close()
+        }
+
+        return settings
+    }
+
+    private static List<Integer> getInputs(int snippetIndex) {
+        if (snippetIndex == SNIPPET_COUNT - 1) {
+            return []
+        } else if (snippetIndex % 2 == 0) {
+            return [1, -1]
+        } else {
+            return [1]
+        }
+    }
+
+    private static ResultType getExpectedResultType(int snippetIndex) {
+        if (snippetIndex == SNIPPET_COUNT - 1) {
+            return ResultType.NA
+        } else if (snippetIndex % 2 == 0) {
+            return ResultType.C
+        } else {
+            return ResultType.NC
+        }
+    }
+
+    private static void writeTestClass(RunnerProjectSettings<?> settings, Snippet snippet,
+            List<Integer> inputs) {
+        String className = "${snippet.container.javaClass.simpleName}_${snippet.method.name}_Test"
+
+        StringBuilder source = new StringBuilder()
+        source << "package ${TestSnippetProjects.PACKAGE_NAME};\n\n"
+        source << 'import org.junit.Test;\n\n'
+        source << "public final class ${className} {\n"
+        inputs.eachWithIndex { Integer input, int i ->
+            source << '    @Test\n'
+            source << "    public void test${i}() {\n"
+            source << "        ${snippet.container.javaClass.simpleName}.${snippet.method.name}"
+            source << "(${input});\n"
+            source << '    }\n'
+        }
+        source << '}\n'
+
+        Path sourceFile = settings.testDirectory.toPath().resolve(
+                TestSnippetProjects.PACKAGE_NAME.replace('.', '/')).resolve(className + '.java')
+        Files.createDirectories(sourceFile.parent)
+        sourceFile.toFile().text = source.toString()
+    }
+
+    private RunnerProjectSettings<TestTool> analyze(String tag, int parallelism) {
+        RunnerProjectSettings<TestTool> settings = createRunnerProject(tag)
+
+        TestSuiteRunner testSuiteRunner = new TestSuiteRunner(snippetProject, outputDir, tool, tag)
+        testSuiteRunner.parallelism = parallelism
+        testSuiteRunner.analyze()
+
+        return settings
+    }
+
+    /**
+     * Gets the result, the achieved coverage and the coverage XML of every snippet (the N/A
+     * snippets have no coverage).
+     */
+    private Map<String, List<String>> readResults(RunnerProjectSettings<?> settings) {
+        Path xmlFile = tmpFolder.newFile().toPath()
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        try {
+            Map<String, List<String>> results = [:]
+            snippets.each { Snippet snippet ->
+                Record record = store.getRecord(snippet.id, RecordType.RESULT)
+                List<String> result = [record.resultType.toString(), record.achievedCoverage]
+                if (store.exportXml(snippet.id, RecordType.COVERAGE, xmlFile)) {
+                    result << xmlFile.toFile().text
+                }
+
+                results[snippet.id] = result
+            }
+            return results
+        } finally {
+            store.close()
+        }
+    }
+
+    @Test
+    void testAnalyze() {
+        RunnerProjectSettings<TestTool> settings = analyze('test', 1)
+
+        Map<String, List<String>> results = readResults(settings)
+        snippets.eachWithIndex { Snippet snippet, int i ->
+            assert results[snippet.id][0] == getExpectedResultType(i).toString()
+        }
+        assert results[snippets[0].id][1] == '100.00%'
+        assert results[snippets[1].id][1] != '100.00%'
+        assert results[snippets[SNIPPET_COUNT - 1].id] == ['N/A', null]
+    }
+
+    @Test
+    void testAnalyze_parallelIsDeterministic() {
+        RunnerProjectSettings<TestTool> sequential = analyze('sequential', 1)
+        Map<String, List<String>> expected = readResults(sequential)
+
+        for (int i = 0; i < 3; i++) {
+            RunnerProjectSettings<TestTool> settings = analyze("parallel${i}", 3)
+
+            assert readResults(settings) == expected
+
+            // the pages of the snippets are the same too
+            snippets.eachWithIndex { Snippet snippet, int j ->
+                if (getExpectedResultType(j) != ResultType.NA) {
+                    assert RunnerProjectUtils.getSnippetHtmlFile(settings, snippet).text ==
+                            RunnerProjectUtils.getSnippetHtmlFile(sequential, snippet).text
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.compiler
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import javax.tools.Diagnostic
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for {@link JavaCompilationService}.
+ */
+@TypeChecked
+class JavaCompilationServiceTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    Path srcDir
+    Path testDir
+    Path outputDir
+    JavaCompilationService service
+
+    @Before
+    void setUp() {
+        Path baseDir = tmpFolder.root.toPath()
+        srcDir = baseDir.resolve('src')
+        testDir = baseDir.resolve('test')
+        outputDir = baseDir.resolve('build')
+        service = new JavaCompilationService(outputDir, baseDir.resolve('state'))
+        service.parallelism = 2
+
+        write(srcDir, 'a/A.java', 'package a; public class A { public static int f() { return 1; } }')
+        write(testDir, 'a/ATest.java',
+                'package a; public class ATest { int t() { return A.f() + b.BTest.g(); } }')
+        write(testDir, 'b/BTest.java',
+                'package b; public class BTest { public static int g() { return 2; } }')
+    }
+
+    @Test
+    void testCompile() {
+        CompilationResult result = compile()
+
+        assert result.success
+        assert result.compiledSourceCount == 3
+        assert result.upToDateSourceCount == 0
+        assert result.errors.isEmpty()
+        assert Files.isRegularFile(outputDir.resolve('a/A.class'))
+        assert Files.isRegularFile(outputDir.resolve('a/ATest.class'))
+        assert Files.isRegularFile(outputDir.resolve('b/BTest.class'))
+    }
+
+    @Test
+    void testCompileIsIncremental() {
+        assert compile().compiledSourceCount == 3
+
+        // nothing has changed
+        compile().with {
+            assert success
+            assert compiledSourceCount == 0
+            assert upToDateSourceCount == 3
+        }
+
+        // only the changed test
+        write(testDir, 'b/BTest.java',
+                'package b; public class BTest { public static int g() { return 3; } }')
+        assert compile().compiledSourceCount == 1
+
+        // the tests depend on the main sources
+        write(srcDir, 'a/A.java', 'package a; public class A { public static int f() { return 2; } }')
+        assert compile().compiledSourceCount == 3
+
+        // missing class file
+        Files.delete(outputDir.resolve('a/ATest.class'))
+        assert compile().compiledSourceCount == 1
+        assert Files.isRegularFile(outputDir.resolve('a/ATest.class'))
+    }
+
+    @Test
+    void testCompileRecompilesDependentMainSources() {
+        write(srcDir, 'a/Constants.java', 'package a; public class Constants { '
+                + 'public static final int VALUE = 1; }')
+        write(srcDir, 'a/User.java', 'package a; public class User { '
+                + 'public static int get() { return Constants.VALUE; } }')
+        compile()
+        assert callUserGet() == 1
+
+        // the constant is inlined into the class file of the user
+        write(srcDir, 'a/Constants.java', 'package a; public class Constants { '
+                + 'public static final int VALUE = 2; }')
+        assert compile().compiledSourceCount == 5
+        assert callUserGet() == 2
+    }
+
+    private int callUserGet() {
+        URLClassLoader classLoader = new URLClassLoader([outputDir.toUri().toURL()] as URL[],
+                (ClassLoader) null)
+        try {
+            return (int) classLoader.loadClass('a.User').getMethod('get').invoke(null)
+        } finally {
+            classLoader.close()
+        }
+    }
+
+    @Test
+    void testCompileIsNotIncrementalIfDisabled() {
+        compile()
+        service.incremental = false
+        assert compile().compiledSourceCount == 3
+    }
+
+    @Test
+    void testCompileRecompilesIfClasspathChanges() {
+        compile()
+
+        Path lib = tmpFolder.newFolder('lib').toPath()
+        CompilationResult result = service.compile([srcDir], [lib], [testDir], [], true)
+        assert result.compiledSourceCount == 3
+    }
+
+    @Test
+    void testCompileRemovesClassFilesOfDeletedSources() {
+        write(srcDir, 'a/Other.java', 'package a; class Other { class Inner {} }')
+        compile()
+        assert Files.isRegularFile(outputDir.resolve('a/Other$Inner.class'))
+
+        Files.delete(srcDir.resolve('a/Other.java'))
+        compile()
+        assert !Files.exists(outputDir.resolve('a/Other.class'))
+        assert !Files.exists(outputDir.resolve('a/Other$Inner.class'))
+    }
+
+    @Test
+    void testCompileReportsErrors() {
+        write(testDir, 'b/BTest.java',
+                'package b;\npublic class BTest {\n    public static int g() { return x; }\n}')
+
+        CompilationResult result = compile()
+        assert !result.success
+        assert result.errors.size() == 1
+
+        result.errors[0].with {
+            assert kind == Diagnostic.Kind.ERROR
+            assert sourceFile.fileName.toString() == 'BTest.java'
+            assert lineNumber == 3
+            assert format().startsWith(sourceFile.toString() + ':3: error: ')
+        }
+
+        // the failed sources are compiled again
+        write(testDir, 'b/BTest.java',
+                'package b; public class BTest { public static int g() { return 2; } }')
+        compile().with {
+            assert success
+            assert compiledSourceCount >= 1
+        }
+        assert Files.isRegularFile(outputDir.resolve('b/BTest.class'))
+    }
+
+    @Test
+    void testCompileDoesNotRetryUnchangedFailedSources() {
+        write(testDir, 'c/CTest.java', 'package c; public class CTest { int x = "y"; }')
+
+        compile().with {
+            assert !success
+            assert errors.size() == 1
+            assert failedSources == [testDir.resolve('c/CTest.java').toAbsolutePath().normalize()]
+        }
+
+        // the other sources of the failed batch (if any) are compiled again, the failed one is not
+        compile()
+        compile().with {
+            assert !success
+            assert compiledSourceCount == 0
+            assert errors.isEmpty()
+            assert failedSources.size() == 1
+        }
+
+        // the selections without the failed source are not affected by it
+        CompilationResult result = service.compile([srcDir], [], [testDir],
+                [testDir.resolve('a'), testDir.resolve('b/BTest.java')], [], true)
+        assert result.success
+        assert result.failedSources.isEmpty()
+        assert Files.isRegularFile(outputDir.resolve('a/ATest.class'))
+
+        // the changed source is compiled again
+        write(testDir, 'c/CTest.java', 'package c; public class CTest { int x = 1; }')
+        compile().with {
+            assert success
+            assert compiledSourceCount == 1
+            assert failedSources.isEmpty()
+        }
+        assert Files.isRegularFile(outputDir.resolve('c/CTest.class'))
+    }
+
+    @Test
+    void testCompileSelectedBatchedSources() {
+        compile()
+        write(testDir, 'b/BTest.java',
+                'package b; public class BTest { public static int g() { return 3; } }')
+        write(testDir, 'b/Other.java', 'package b; class Other {}')
+
+        // only the selected source is compiled, the state of the others is kept
+        CompilationResult result = service.compile([srcDir], [], [testDir],
+                [testDir.resolve('b/Other.java')], [], true)
+        assert result.success
+        assert result.compiledSourceCount == 1
+        assert result.upToDateSourceCount == 1
+        assert Files.isRegularFile(outputDir.resolve('a/ATest.class'))
+        assert Files.isRegularFile(outputDir.resolve('b/Other.class'))
+
+        assert compile().compiledSourceCount == 1
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testSetParallelism_notPositive() {
+        service.parallelism = 0
+    }
+
+    private CompilationResult compile() {
+        return service.compile([srcDir], [], [testDir], [], true)
+    }
+
+    private static void write(Path root, String path, String content) {
+        Path file = root.resolve(path)
+        Files.createDirectories(file.parent)
+        file.toFile().text = content
+    }
+}
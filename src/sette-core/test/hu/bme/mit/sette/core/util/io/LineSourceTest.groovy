@@ -0,0 +1,155 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.io
+
+import groovy.transform.TypeChecked
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.stream.Collectors
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for {@link LineSource}.
+ */
+@TypeChecked
+class LineSourceTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private Path write(String content) {
+        Path file = tmpFolder.newFile().toPath()
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8))
+        return file
+    }
+
+    private static List<String> reversed(LineSource source) {
+        return source.reverseLines().collect(Collectors.toList())
+    }
+
+    @Test
+    void testLineTerminators() {
+        Path file = write('a\nb\r\nc\rd\n\n\r\ne')
+        LineSource source = LineSource.open(file)
+
+        List<String> expected = ['a', 'b', 'c', 'd', '', '', 'e']
+        assert Files.readAllLines(file) == expected
+        assert source.readAllLines() == expected
+        assert reversed(source) == expected.reverse()
+        assert source.firstLine() == 'a'
+        assert source.lastLine() == 'e'
+        assert source.head(2) == ['a', 'b']
+        assert source.tail(3) == ['', '', 'e']
+    }
+
+    @Test
+    void testTrailingTerminator() {
+        LineSource source = LineSource.open(write('a\r\nb\r\n'))
+
+        assert source.readAllLines() == ['a', 'b']
+        assert reversed(source) == ['b', 'a']
+        assert source.lastLine() == 'b'
+        assert source.tail(10) == ['a', 'b']
+    }
+
+    @Test
+    void testEmptyAndMissingFile() {
+        for (LineSource source : [LineSource.open(write('')),
+                LineSource.open(tmpFolder.root.toPath().resolve('missing.txt'))]) {
+            assert source.isEmpty()
+            assert source.readAllLines().isEmpty()
+            assert reversed(source).isEmpty()
+            assert source.firstLine() == null
+            assert source.lastLine() == null
+            assert source.tail(1).isEmpty()
+        }
+    }
+
+    @Test
+    void testMultiByteCharacters() {
+        Path file = write('árvíztűrő\ntükörfúrógép\n€')
+        LineSource source = LineSource.open(file)
+
+        assert source.readAllLines() == Files.readAllLines(file)
+        assert reversed(source) == ['€', 'tükörfúrógép', 'árvíztűrő']
+    }
+
+    @Test
+    void testMappedFile() {
+        StringBuilder sb = new StringBuilder()
+        for (int i = 0; i < 20000; i++) {
+            sb.append('line ').append(i).append(i % 3 == 0 ? '\r\n' : '\n')
+        }
+        Path file = write(sb.toString())
+        LineSource source = LineSource.open(file)
+
+        assert source.size > 64 * 1024
+        assert source.readAllLines() == Files.readAllLines(file)
+        assert source.firstLine() == 'line 0'
+        assert source.tail(2) == ['line 19998', 'line 19999']
+        assert source.reverseLines().count() == 20000
+        assert source.lines().filter { String line -> line.endsWith('99') }.count() == 200
+        source.close()
+    }
+
+    @Test
+    void testClose() {
+        StringBuilder sb = new StringBuilder()
+        for (int i = 0; i < 20000; i++) {
+            sb.append('line ').append(i).append('\n')
+        }
+        Path file = write(sb.toString())
+        LineSource source = LineSource.open(file)
+        Iterator<String> lines = source.iterator()
+        assert lines.next() == 'line 0'
+
+        Path maps = Paths.get('/proc/self/maps')
+        boolean mapsReadable = Files.isReadable(maps)
+        if (mapsReadable) {
+            assert Files.readAllLines(maps).any { String line -> line.endsWith(file.toString()) }
+        }
+
+        source.close()
+        source.close()
+        if (mapsReadable) {
+            assert !Files.readAllLines(maps).any { String line -> line.endsWith(file.toString()) }
+        }
+        Files.delete(file)
+
+        assert source.size > 64 * 1024
+        for (Closure<?> read : [{ lines.next() }, { source.firstLine() }, { source.lastLine() },
+                { source.readAllLines() }]) {
+            try {
+                read.call()
+                assert false
+            } catch (IllegalStateException ex) {
+                assert ex.message.contains('closed')
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process
+
+import groovy.transform.TypeChecked
+
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for {@link OutputCaptureBuffer}.
+ */
+@TypeChecked
+class OutputCaptureBufferTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private static ByteBuffer bytes(String str) {
+        return ByteBuffer.wrap(str.getBytes(StandardCharsets.UTF_8))
+    }
+
+    @Test
+    void testAppend_inMemory() {
+        OutputCaptureBuffer buffer = new OutputCaptureBuffer(10)
+        ByteBuffer data = bytes('hello')
+        buffer.append(data)
+        buffer.append(bytes('world'))
+
+        assert !data.hasRemaining()
+        assert !buffer.spilled
+        assert buffer.size() == 10
+        assert buffer.toString(StandardCharsets.UTF_8) == 'helloworld'
+        buffer.close()
+    }
+
+    @Test
+    void testAppend_spillsToFile() {
+        Path spillDir = tmpFolder.root.toPath()
+        OutputCaptureBuffer buffer = new OutputCaptureBuffer(8, spillDir)
+        buffer.append(bytes('hello'))
+        buffer.append(bytes('world'))
+        buffer.append(bytes('!'))
+
+        assert buffer.spilled
+        assert buffer.spillFile.parent == spillDir
+        assert buffer.size() == 11
+        assert buffer.toString(StandardCharsets.UTF_8) == 'helloworld!'
+        assert buffer.openStream().text == 'helloworld!'
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream()
+        buffer.writeTo(out)
+        assert out.toString('UTF-8') == 'helloworld!'
+
+        Path spillFile = buffer.spillFile
+        buffer.close()
+        assert !Files.exists(spillFile)
+    }
+
+    @Test
+    void testAppend_zeroMemoryLimit() {
+        OutputCaptureBuffer buffer = new OutputCaptureBuffer(0, tmpFolder.root.toPath())
+        buffer.append(bytes(''))
+        assert !buffer.spilled
+
+        buffer.append(bytes('x'))
+        assert buffer.spilled
+        assert buffer.toByteArray() == 'x'.bytes
+        buffer.close()
+    }
+
+    @Test(expected = IllegalStateException)
+    void testAppend_closed() {
+        OutputCaptureBuffer buffer = new OutputCaptureBuffer(10)
+        buffer.close()
+        buffer.append(bytes('x'))
+    }
+}
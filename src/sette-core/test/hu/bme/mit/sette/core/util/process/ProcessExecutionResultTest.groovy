@@ -56,4 +56,35 @@ class ProcessExecutionResultTest {
         
         assert per1.toString() == 'ProcessExecutionResult [exitValue=0, destroyed=false, elapsedTimeInMs=100]'
     }
+
+    @Test
+    void testWithResourceUsage() {
+        def usage = new ProcessResourceUsage(1200, 300, 524288, 4096, 1024, 12, 5)
+        def per1 = new ProcessExecutionResult(0, false, 100, usage)
+        def per2 = new ProcessExecutionResult(0, false, 100)
+
+        assert per1.resourceUsage.is(usage)
+        assert per2.resourceUsage == null
+        assert per1 != per2
+        assert per1 == new ProcessExecutionResult(0, false, 100,
+                new ProcessResourceUsage(1200, 300, 524288, 4096, 1024, 12, 5))
+
+        assert per1.toString() == 'ProcessExecutionResult [exitValue=0, destroyed=false, ' +
+                'elapsedTimeInMs=100, resourceUsage=ProcessResourceUsage(userCpuTimeInMs=1200, ' +
+                'systemCpuTimeInMs=300, peakRssInKb=524288, readBytes=4096, writtenBytes=1024, ' +
+                'peakThreadCount=12, sampleCount=5)]'
+    }
+
+    @Test
+    void testWithExceededLimit() {
+        def per1 = new ProcessExecutionResult(152, false, 100, null,
+                ProcessResourceLimits.Limit.CPU_TIME)
+
+        assert per1.exceededLimit == ProcessResourceLimits.Limit.CPU_TIME
+        assert new ProcessExecutionResult(152, false, 100).exceededLimit == null
+        assert per1 != new ProcessExecutionResult(152, false, 100)
+
+        assert per1.toString() == 'ProcessExecutionResult [exitValue=152, destroyed=false, ' +
+                'elapsedTimeInMs=100, exceededLimit=CPU_TIME]'
+    }
 }
@@ -25,9 +25,13 @@ package hu.bme.mit.sette.core.util.process
 import groovy.transform.TypeChecked
 import hu.bme.mit.sette.core.util.io.PathUtils;
 
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
 import java.nio.file.Files
 import java.nio.file.Path
+import java.nio.file.Paths
 
+import org.junit.Assume
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.Timeout
@@ -76,12 +80,14 @@ class ProcessExecutorTest {
 
     @Test
     void testExecute_destroysProcessIfTimeoutIsReached() {
-        ProcessExecutor executor = createProcessExecutor(50, 50, 200)
+        // the timeout includes the startup of the JVM, the process is killed as soon as it is
+        // reached
+        ProcessExecutor executor = createProcessExecutor(50, 50, 350)
         SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener()
         ProcessExecutionResult result = executor.execute(listener)
 
         assert result.destroyed
-        assert result.elapsedTimeInMs >= 200
+        assert result.elapsedTimeInMs >= 350
         // hopefully it will be enough
         assert result.elapsedTimeInMs <= 2500
 
@@ -89,6 +95,27 @@ class ProcessExecutorTest {
         assert listener.stderrData.tokenize('\n').size() in 1..3
     }
 
+    @Test
+    void testExecute_readsRemainingOutputIfTimeoutIsReached() {
+        // the output fits into the pipe, but the listener is blocked by the first byte, thus the
+        // rest is still in the pipe when the timeout is reached
+        ProcessExecutor executor = createShellExecutor(
+                'printf x; sleep 0.1; head -c 60000 /dev/zero; sleep 30', 200)
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener() {
+                    @Override
+                    void onStdoutData(ByteBuffer data) {
+                        if (stdoutData.length() == 0) {
+                            Thread.sleep(400)
+                        }
+                        super.onStdoutData(data)
+                    }
+                }
+        ProcessExecutionResult result = executor.execute(listener)
+
+        assert result.destroyed
+        assert listener.stdoutData.length() == 60001
+    }
+
     @Test
     void testExecute_handlesIORedirectionToFile() {
         Path outFile = Files.createTempFile('ProcessExecutorTest', '.tmp')
@@ -153,6 +180,184 @@ class ProcessExecutorTest {
         assert events[1..-2] == ['read']* (events.size()-2)
     }
 
+    @Test
+    void testExecute_withDedicatedThreads() {
+        ProcessExecutor executor = createProcessExecutor(3, 5, 0)
+        executor.outputPump = null
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener()
+        ProcessExecutionResult result = executor.execute(listener)
+
+        assert result.exitValue == 8
+        assert listener.stdoutData.tokenize('\n').size() == 3
+        assert listener.stderrData.tokenize('\n').size() == 5
+    }
+
+    @Test
+    void testExecute_parallelProcessesOnOnePump() {
+        ProcessOutputPump pump = new ProcessOutputPump(1)
+        List<SimpleProcessExecutorListener> listeners = (0..<4).collect {
+            new SimpleProcessExecutorListener()
+        }
+        List<Thread> threads = listeners.withIndex().collect {
+            SimpleProcessExecutorListener listener, int i ->
+            Thread.start {
+                ProcessExecutor executor = createProcessExecutor(i + 1, 2, 0)
+                executor.outputPump = pump
+                assert executor.execute(listener).exitValue == i + 3
+            }
+        }
+        threads*.join()
+
+        listeners.eachWithIndex { SimpleProcessExecutorListener listener, int i ->
+            assert listener.stdoutData.tokenize('\n') == (0..i).collect { it.toString() }
+            assert listener.stderrData.tokenize('\n') == ['0', '1']
+        }
+    }
+
+    @Test
+    void testExecute_capturesOutput() {
+        ProcessExecutor executor = createProcessExecutor(3, 2, 0)
+        CapturingProcessExecutorListener listener = new CapturingProcessExecutorListener(2)
+        try {
+            assert executor.execute(listener).exitValue == 5
+
+            // three lines do not fit into 2 bytes
+            assert listener.stdout.spilled
+            assert listener.stdout.toString(StandardCharsets.US_ASCII).tokenize() == ['0', '1', '2']
+            assert listener.stderr.toString(StandardCharsets.US_ASCII).tokenize() == ['0', '1']
+        } finally {
+            listener.close()
+        }
+    }
+
+    @Test
+    void testExecute_terminatesProcessesLeftBehind() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        ProcessExecutor executor = createShellExecutor('sleep 30 & echo $!', 0)
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener()
+        ProcessExecutionResult result = executor.execute(listener)
+
+        assert result.exitValue == 0
+        assert !result.destroyed
+        assert !isAlive(listener.stdoutData.toString().trim() as int)
+    }
+
+    @Test
+    void testExecute_terminatesProcessTreeIfTimeoutIsReached() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        ProcessExecutor executor = createShellExecutor('sleep 30 & echo $!; sleep 30', 300)
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener()
+        ProcessExecutionResult result = executor.execute(listener)
+
+        assert result.destroyed
+        assert result.elapsedTimeInMs <= 2500
+        assert !isAlive(listener.stdoutData.toString().trim() as int)
+    }
+
+    @Test
+    void testExecute_doesNotTerminateProcessesLeftBehindIfDisabled() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        ProcessExecutor executor = createShellExecutor('sleep 30 & echo $!', 0)
+        executor.processTreeKilled = false
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener()
+        executor.execute(listener)
+
+        int pid = listener.stdoutData.toString().trim() as int
+        try {
+            assert isAlive(pid)
+        } finally {
+            ProcessUtils.sendSignal('KILL', [pid])
+        }
+    }
+
+    @Test
+    void testExecute_samplesResourceUsage() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        ProcessExecutor executor = createProcessExecutor(3, 5, 0)
+        executor.samplingIntervalInMs = 50
+        ProcessExecutionResult result = executor.execute(new SimpleProcessExecutorListener())
+
+        ProcessResourceUsage usage = result.resourceUsage
+        assert usage != null
+        assert usage.sampleCount >= 2
+        assert usage.peakRssInKb > 0
+        // the JVM starts several threads
+        assert usage.peakThreadCount > 1
+        assert usage.userCpuTimeInMs + usage.systemCpuTimeInMs > 0
+        // the output is written to the pipes
+        assert usage.writtenBytes > 0
+    }
+
+    @Test
+    void testExecute_terminatesProcessTreeIfCpuTimeLimitIsExceeded() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        ProcessExecutor executor = createShellExecutor('while :; do :; done', 0)
+        executor.samplingIntervalInMs = 50
+        executor.terminationGracePeriodInMs = 100
+        executor.resourceLimits = new ProcessResourceLimits(0, 0, 1, 0, 0)
+        ProcessExecutionResult result = executor.execute(new SimpleProcessExecutorListener())
+
+        assert result.exceededLimit == ProcessResourceLimits.Limit.CPU_TIME
+        assert !result.destroyed
+        assert result.exitValue != 0
+    }
+
+    @Test
+    void testExecute_terminatesProcessTreeIfProcessLimitIsExceeded() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        ProcessExecutor executor = createShellExecutor(
+                'for i in 1 2 3 4; do sleep 30 & done; echo $!; sleep 30', 0)
+        executor.samplingIntervalInMs = 50
+        executor.terminationGracePeriodInMs = 100
+        executor.resourceLimits = new ProcessResourceLimits(0, 0, 0, 3, 0)
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener()
+        ProcessExecutionResult result = executor.execute(listener)
+
+        assert result.exceededLimit == ProcessResourceLimits.Limit.PROCESSES
+        assert !result.destroyed
+        assert !isAlive(listener.stdoutData.toString().trim() as int)
+    }
+
+    @Test
+    void testExecute_doesNotReportLimitIfNotExceeded() {
+        ProcessExecutor executor = createShellExecutor('echo ok', 0)
+        executor.resourceLimits = new ProcessResourceLimits(1024, 0, 10, 0, 256)
+        ProcessExecutionResult result = executor.execute(new SimpleProcessExecutorListener())
+
+        assert result.exitValue == 0
+        assert result.exceededLimit == null
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testSetSamplingIntervalInMs_notPositive() {
+        createShellExecutor('true', 0).samplingIntervalInMs = 0
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testSetTerminationGracePeriodInMs_negative() {
+        createShellExecutor('true', 0).terminationGracePeriodInMs = -1
+    }
+
+    private static boolean isAlive(int pid) {
+        Path statFile = Paths.get('/proc', String.valueOf(pid), 'stat')
+        if (!Files.exists(statFile)) {
+            return false
+        }
+        ProcessTree.ProcStat stat = ProcessTree.parseStat(new String(Files.readAllBytes(statFile),
+                StandardCharsets.US_ASCII))
+        return stat != null && stat.state != ('Z' as char)
+    }
+
+    private ProcessExecutor createShellExecutor(String script, int timeoutInMs) {
+        return new ProcessExecutor(new ProcessBuilder('/bin/sh', '-c', script), timeoutInMs)
+    }
+
     private ProcessExecutor createProcessExecutor(int stdoutMax, int stdinMax, int timeoutInMs) {
         List<String> command = [
             'java',
@@ -0,0 +1,91 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process
+
+import java.nio.file.Files
+import java.nio.file.Paths
+
+import org.junit.Assume
+import org.junit.Test
+
+import groovy.transform.TypeChecked
+
+/**
+ * Tests for {@link ProcessResourceLimits} and {@link ResourceLimiter}.
+ */
+@TypeChecked
+class ProcessResourceLimitsTest {
+    @Test
+    void test() {
+        def limits = new ProcessResourceLimits(4096, 2048, 60, 64, 1024)
+
+        limits.with {
+            assert addressSpaceInMb == 4096
+            assert memoryInMb == 2048
+            assert cpuTimeInSeconds == 60
+            assert maxProcesses == 64
+            assert maxOpenFiles == 1024
+        }
+
+        assert !limits.unlimited
+        assert ProcessResourceLimits.NONE.unlimited
+        assert new ProcessResourceLimits(0, 0, 0, 0, 0).unlimited
+        assert limits == new ProcessResourceLimits(4096, 2048, 60, 64, 1024)
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testThrowsExceptionIfLimitIsNegative() {
+        new ProcessResourceLimits(0, -1, 0, 0, 0)
+    }
+
+    @Test
+    void testWrapCommand() {
+        Assume.assumeTrue(Files.isExecutable(Paths.get('/usr/bin/prlimit'))
+                || Files.isExecutable(Paths.get('/bin/prlimit')))
+
+        def limiter = new ResourceLimiter(new ProcessResourceLimits(1024, 0, 60, 0, 256))
+        try {
+            List<String> command = limiter.wrapCommand(['java', '-version'])
+
+            assert command[0].endsWith('/prlimit')
+            assert command[1..-1] == ['--as=1073741824', '--cpu=60:61', '--nofile=256', '--',
+                'java', '-version']
+        } finally {
+            limiter.close()
+        }
+    }
+
+    @Test
+    void testGetExceededLimit() {
+        def limiter = new ResourceLimiter(new ProcessResourceLimits(0, 0, 60, 0, 0))
+        try {
+            // killed by SIGXCPU
+            assert limiter.getExceededLimit(152) == ProcessResourceLimits.Limit.CPU_TIME
+            assert limiter.getExceededLimit(0) == null
+        } finally {
+            limiter.close()
+        }
+
+        assert new ResourceLimiter(ProcessResourceLimits.NONE).getExceededLimit(152) == null
+    }
+}
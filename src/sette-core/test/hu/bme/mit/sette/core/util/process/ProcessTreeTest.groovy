@@ -0,0 +1,219 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process
+
+import groovy.transform.TypeChecked
+
+import org.junit.Assume
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.Timeout
+
+/**
+ * Tests for {@link ProcessTree}.
+ */
+@TypeChecked
+class ProcessTreeTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(5000)
+
+    @Test
+    void testParseStat() {
+        String content = '12345 (java) S 1000 12345 12345 0 -1 4194560 1 0 0 0 250 30 0 0 20 0 ' +
+                '20 0 987654 12345678 100 18446744073709551615 1 1 0 0 0 0 0 0 0 0 0 0 17 0 0 0'
+        ProcessTree.ProcStat stat = ProcessTree.parseStat(content)
+
+        assert stat.state == 'S' as char
+        assert stat.ppid == 1000
+        assert stat.sessionId == 12345
+        assert stat.userTime == 250L
+        assert stat.systemTime == 30L
+        assert stat.startTime == 987654L
+    }
+
+    @Test
+    void testParseStat_nameWithSpacesAndParentheses() {
+        String content = '42 (a) (b c) R 1 42 7 0 -1 0 0 0 0 0 0 0 0 0 20 0 1 0 555 0 0'
+        ProcessTree.ProcStat stat = ProcessTree.parseStat(content)
+
+        assert stat.state == 'R' as char
+        assert stat.ppid == 1
+        assert stat.sessionId == 7
+        assert stat.startTime == 555L
+    }
+
+    @Test
+    void testParseStat_invalid() {
+        assert ProcessTree.parseStat('') == null
+        assert ProcessTree.parseStat('42 (name) S 1 2 3') == null
+        assert ProcessTree.parseStat('42 (name) S x 42 7 0 -1 0 0 0 0 0 0 0 0 0 20 0 1 0 5 0') == null
+    }
+
+    @Test
+    void testParseKeyValues() {
+        List<String> lines = ['Name:\tjava', 'Threads:\t12', 'VmRSS:\t  524288 kB', 'rchar: 1024',
+                              'no colon', ': 5']
+        Map<String, Long> values = ProcessTree.parseKeyValues(lines)
+
+        assert values == [Threads: 12L, VmRSS: 524288L, rchar: 1024L]
+    }
+
+    @Test
+    void testSample() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        Process process = new ProcessBuilder('/bin/sh', '-c', 'sleep 30').start()
+        try {
+            ProcessTree tree = ProcessTree.track(process, false)
+            assert tree.resourceUsage.sampleCount == 0
+
+            tree.sample()
+            tree.sample()
+            ProcessResourceUsage usage = tree.resourceUsage
+
+            assert usage.sampleCount == 2
+            assert usage.peakRssInKb > 0
+            assert usage.peakThreadCount >= 1
+            assert usage.userCpuTimeInMs >= 0 && usage.systemCpuTimeInMs >= 0
+        } finally {
+            process.destroyForcibly().waitFor()
+        }
+    }
+
+    @Test
+    void testWrapCommand() {
+        List<String> command = ['java', '-version']
+        List<String> wrapped = ProcessTree.wrapCommand(command)
+
+        assert wrapped == command || (wrapped.size() == 3 && wrapped[0].endsWith('setsid')
+                && wrapped[1..2] == command)
+    }
+
+    @Test
+    void testTerminate() {
+        Assume.assumeTrue(ProcessTree.isSupported())
+
+        Process process = new ProcessBuilder('/bin/sh', '-c', 'sleep 30 & sleep 30').start()
+        ProcessTree tree = ProcessTree.track(process, false)
+        assert tree.rootPid == ProcessTree.getPid(process)
+
+        // wait for the children to start
+        long deadline = System.currentTimeMillis() + 2000
+        while (tree.alivePids.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20)
+            tree.refresh()
+        }
+
+        List<Integer> pids = tree.alivePids
+        assert pids.size() == 3
+        assert pids[0] == tree.rootPid
+
+        assert tree.terminate(1000) == pids
+        process.waitFor()
+        assert tree.alivePids.empty
+    }
+
+    @Test
+    void testReadChildren() {
+        Assume.assumeTrue(ProcessTree.isSupported() && ProcessTree.isChildrenSupported())
+
+        Process process = new ProcessBuilder('/bin/sh', '-c', 'sleep 30 & sleep 30').start()
+        try {
+            int pid = ProcessTree.getPid(process)
+
+            long deadline = System.currentTimeMillis() + 2000
+            while (ProcessTree.readChildren(pid).size() < 2
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20)
+            }
+
+            assert ProcessTree.readChildren(pid).size() == 2
+        } finally {
+            process.destroyForcibly().waitFor()
+        }
+
+        assert ProcessTree.readChildren(ProcessTree.getPid(process)).empty
+    }
+
+    @Test
+    void testTerminate_orphanedSessionMember() {
+        List<String> command = ['/bin/sh', '-c', '(sleep 30 &); sleep 30']
+        List<String> wrapped = ProcessTree.wrapCommand(command)
+        Assume.assumeTrue(wrapped != command)
+
+        // the first sleep is orphaned immediately, it can only be found by its session
+        Process process = new ProcessBuilder(wrapped).start()
+        ProcessTree tree = ProcessTree.track(process, true)
+
+        long deadline = System.currentTimeMillis() + 2000
+        while (tree.alivePids.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20)
+            tree.refresh()
+        }
+
+        List<Integer> pids = tree.alivePids
+        assert pids.size() == 3
+
+        assert tree.terminate(1000) == pids
+        process.waitFor()
+        assert tree.alivePids.empty
+    }
+
+    @Test
+    void testTerminateShutdownTrees() {
+        List<String> command = ['/bin/sh', '-c', '(sleep 30 &); sleep 30']
+        List<String> wrapped = ProcessTree.wrapCommand(command)
+        Assume.assumeTrue(wrapped != command)
+
+        Process process = new ProcessBuilder(wrapped).start()
+        ProcessTree tree = ProcessTree.track(process, true)
+        Process other = new ProcessBuilder('/bin/sh', '-c', 'sleep 30').start()
+        ProcessTree otherTree = ProcessTree.track(other, false)
+        try {
+            tree.terminateOnShutdown(1000)
+            otherTree.terminateOnShutdown(1000)
+            otherTree.cancelTerminationOnShutdown()
+            assert tree.terminatedOnShutdown
+            assert !otherTree.terminatedOnShutdown
+
+            long deadline = System.currentTimeMillis() + 2000
+            while (tree.alivePids.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20)
+                tree.refresh()
+            }
+            assert tree.alivePids.size() == 3
+
+            // what the shutdown hook does
+            ProcessTree.terminateShutdownTrees()
+            process.waitFor()
+
+            assert tree.alivePids.empty
+            assert !tree.terminatedOnShutdown
+            assert other.alive
+        } finally {
+            tree.cancelTerminationOnShutdown()
+            process.destroyForcibly().waitFor()
+            other.destroyForcibly().waitFor()
+        }
+    }
+}
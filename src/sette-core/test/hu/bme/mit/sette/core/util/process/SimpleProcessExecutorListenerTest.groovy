@@ -0,0 +1,66 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.core.util.process
+
+import groovy.transform.TypeChecked
+
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+
+import org.junit.Test
+
+/**
+ * Tests for {@link SimpleProcessExecutorListener}.
+ */
+@TypeChecked
+class SimpleProcessExecutorListenerTest {
+    @Test
+    void testDecodesCharactersSplitBetweenReads() {
+        byte[] bytes = 'aőb€c'.getBytes(StandardCharsets.UTF_8)
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener(
+                StandardCharsets.UTF_8)
+
+        // one byte at a time
+        for (int i = 0; i < bytes.length; i++) {
+            listener.onStdoutData(ByteBuffer.wrap(bytes, i, 1))
+        }
+        listener.onStderrRead(bytes)
+        listener.onComplete(new ProcessExecutionResult(0, false, 0))
+
+        assert listener.stdoutData.toString() == 'aőb€c'
+        assert listener.stderrData.toString() == 'aőb€c'
+    }
+
+    @Test
+    void testReplacesIncompleteCharacterAtEnd() {
+        byte[] bytes = 'aő'.getBytes(StandardCharsets.UTF_8)
+        SimpleProcessExecutorListener listener = new SimpleProcessExecutorListener(
+                StandardCharsets.UTF_8)
+
+        listener.onStdoutData(ByteBuffer.wrap(bytes, 0, bytes.length - 1))
+        assert listener.stdoutData.toString() == 'a'
+
+        listener.onComplete(new ProcessExecutionResult(0, false, 0))
+        assert listener.stdoutData.toString() == 'a�'
+    }
+}
@@ -34,6 +34,7 @@ public enum ApplicationTask {
     TEST_RUNNER(true, true, true),
     SNIPPET_BROWSER(true, false, false),
     EXPORT_CSV(true, true, true),
+    EVALUATE(true, true, true), // runner, parser, test-generator, test-runner and export-csv
     EXPORT_CSV_BATCH(true, false, true), // tag is a comma-separated list for this task
     RUNNER_PROJECT_BROWSER(false, false, false),
     PARSER_EVOSUITE_MUTATION(true, true, true);
@@ -33,6 +33,7 @@ import org.kohsuke.args4j.ParserProperties;
 
 import hu.bme.mit.sette.core.configuration.SetteConfiguration;
 import hu.bme.mit.sette.core.configuration.SetteToolConfiguration;
+import hu.bme.mit.sette.core.tasks.testsuiterunner.HtmlReportMode;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -71,11 +72,41 @@ public class ArgumentParser {
                     + "specified in the configuration will be used")
     private int runnerTimeoutInMs;
 
+    @Getter
+    @Option(name = "--parallelism", metaVar = "[N]",
+            usage = "The number of snippets on which the tool is executed in parallel by the "
+                    + "runner and evaluate tasks (tools which do not support parallel execution "
+                    + "ignore it), the number of snippets parsed in parallel by the parser tasks "
+                    + "and the number of snippets analyzed in parallel by the test-runner task")
+    private int runnerParallelism = 1;
+
+    @Getter
+    @Option(name = "--resume", usage = "Continue the previous run of the runner or evaluate "
+            + "task (the snippets which have already been completed will be skipped)")
+    private boolean runnerResume = false;
+
+    @Getter
+    @Option(name = "--html-report", usage = "Set which HTML coverage pages are generated by the "
+            + "test-runner and evaluate tasks (NC: only for the not covered snippets)")
+    private HtmlReportMode htmlReportMode = HtmlReportMode.ALL;
+
+    @Getter
+    @Option(name = "--xml-export", usage = "Also write the inputs, result and coverage XML files "
+            + "of the snippets besides the result store of the runner project")
+    private boolean xmlExport = false;
+
+    @Getter
+    @Option(name = "--max-inputs", metaVar = "[N]",
+            usage = "The maximum number of generated inputs kept for a snippet by the parser and "
+                    + "evaluate tasks, the further inputs are dropped and counted (0: no limit, "
+                    + "parsers which do not stream the inputs of the tool ignore it)")
+    private int maxInputCount = 0;
+
     @Getter
     @Option(name = "--snippet-selector", metaVar = "[PATTERN]",
             usage = "Regular expression to filter a subset of the snippets (the pattern will be "
-                    + "matched against snippet IDs and it will only be used by the runner and "
-                    + "test-runner tasks)")
+                    + "matched against snippet IDs and it will only be used by the runner, "
+                    + "test-runner and evaluate tasks)")
     private Pattern snippetSelector = null;
 
     @Getter
@@ -130,6 +161,15 @@ public class ArgumentParser {
             if (help) {
                 printHelp(parser);
                 return false;
+            } else if (runnerParallelism < 1) {
+                errorOutput.println("The parallelism must be positive: " + runnerParallelism);
+                printHelp(parser);
+                return false;
+            } else if (maxInputCount < 0) {
+                errorOutput.println("The maximum input count must not be negative: "
+                        + maxInputCount);
+                printHelp(parser);
+                return false;
             } else {
                 return true;
             }
@@ -0,0 +1,71 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input 
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except 
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the 
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either 
+ * express or implied. See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.application;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.bme.mit.sette.core.tasks.EvaluationPipeline;
+import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
+
+public final class EvaluationUI implements BaseUI {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void execute(ExecutionContext context) throws Exception {
+        EvaluationPipeline pipeline = new EvaluationPipeline(context.getSnippetProject(),
+                context.getOutputDir(), context.getTool(), context.getRunnerProjectTag());
+        pipeline.setSnippetSelector(context.getSnippetSelector());
+        pipeline.setXmlExport(context.isXmlExport());
+
+        RunnerProjectRunner<?> runner = pipeline.getRunner();
+        runner.setTimeoutInMs(context.getRunnerTimeoutInMs());
+        runner.setParallelism(context.getRunnerParallelism());
+        runner.setResume(context.isRunnerResume());
+        pipeline.getTestSuiteRunner().setHtmlReportMode(context.getHtmlReportMode());
+        pipeline.getRunResultParser().setMaxInputCount(context.getMaxInputCount());
+        log.info("Created {} for {} @ {} ms timeout", runner.getClass().getSimpleName(),
+                runner.getRunnerProjectSettings().getProjectName(), runner.getTimeoutInMs());
+
+        // directories
+        File snippetProjectDir = pipeline.getSnippetProject().getBaseDir().toFile();
+        File runnerProjectDir = pipeline.getRunnerProjectSettings().getBaseDir();
+
+        context.getOutput().println("Snippet project: " + snippetProjectDir);
+        context.getOutput().println("Runner project: " + runnerProjectDir);
+
+        try {
+            context.getOutput().println("Clean up");
+            runner.cleanUp();
+
+            context.getOutput().println("Starting evaluation");
+            pipeline.evaluate(context.getOutput());
+            context.getOutput().println("Evaluation finished");
+        } catch (Exception ex) {
+            context.getOutput().println("Evaluation failed: " + ex.getMessage());
+            throw ex;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.nio.file.Path;
 import java.util.regex.Pattern;
 
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.tasks.testsuiterunner.HtmlReportMode;
 import hu.bme.mit.sette.core.tool.Tool;
 import lombok.Data;
 
@@ -42,6 +43,11 @@ public final class ExecutionContext {
     private final Tool tool;
     private final String runnerProjectTag;
     private final int runnerTimeoutInMs;
+    private final int runnerParallelism;
+    private final boolean runnerResume;
+    private final HtmlReportMode htmlReportMode;
+    private final boolean xmlExport;
+    private final int maxInputCount;
     private final Pattern snippetSelector;
     private final BackupPolicy backupPolicy;
     private final Path outputDir;
@@ -34,6 +34,9 @@ public final class ParserUI implements BaseUI {
     public void execute(ExecutionContext context) throws Exception {
         RunResultParser<?> parser = context.getTool().createRunResultParser(
                 context.getSnippetProject(), context.getOutputDir(), context.getRunnerProjectTag());
+        parser.setXmlExport(context.isXmlExport());
+        parser.setParallelism(context.getRunnerParallelism());
+        parser.setMaxInputCount(context.getMaxInputCount());
 
         // directories
         File snippetProjectDir = parser.getSnippetProject().getBaseDir().toFile();
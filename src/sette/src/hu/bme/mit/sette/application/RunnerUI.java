@@ -42,6 +42,8 @@ public final class RunnerUI implements BaseUI {
                 context.getRunnerProjectTag());
         runner.setTimeoutInMs(context.getRunnerTimeoutInMs());
         runner.setSnippetSelector(context.getSnippetSelector());
+        runner.setParallelism(context.getRunnerParallelism());
+        runner.setResume(context.isRunnerResume());
         log.info("Created {} for {} @ {} ms timeout", runner.getClass().getSimpleName(),
                 runner.getRunnerProjectSettings().getProjectName(), runner.getTimeoutInMs());
 
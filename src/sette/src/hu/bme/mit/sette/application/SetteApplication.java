@@ -46,6 +46,7 @@ import hu.bme.mit.sette.core.model.snippet.SnippetProject;
 import hu.bme.mit.sette.core.tasks.CsvBatchGenerator;
 import hu.bme.mit.sette.core.tasks.CsvGenerator;
 import hu.bme.mit.sette.core.tasks.TestSuiteGenerator;
+import hu.bme.mit.sette.core.tasks.testsuiterunner.HtmlReportMode;
 import hu.bme.mit.sette.core.tasks.testsuiterunner.TestSuiteRunner;
 import hu.bme.mit.sette.core.tool.Tool;
 import hu.bme.mit.sette.runnerprojectbrowser.RunnerProjectBrowser;
@@ -100,6 +101,11 @@ public final class SetteApplication {
             String runnerProjectTag = argParser.getRunnerProjectTag();
 
             int runnerTimeoutInMs = argParser.getRunnerTimeoutInMs();
+            int runnerParallelism = argParser.getRunnerParallelism();
+            boolean runnerResume = argParser.isRunnerResume();
+            HtmlReportMode htmlReportMode = argParser.getHtmlReportMode();
+            boolean xmlExport = argParser.isXmlExport();
+            int maxInputCount = argParser.getMaxInputCount();
             BackupPolicy backupPolicy = argParser.getBackupPolicy();
 
             // Determine the snippet project if needed
@@ -161,6 +167,11 @@ public final class SetteApplication {
             output.println("Runner project tag: " + runnerProjectTag);
             output.println("Snippet selector: " + argParser.getSnippetSelector());
             output.println(String.format("Runner timeout: %d ms", runnerTimeoutInMs));
+            output.println("Parallelism: " + runnerParallelism);
+            output.println("Runner resume: " + runnerResume);
+            output.println("HTML report: " + htmlReportMode);
+            output.println("XML export: " + xmlExport);
+            output.println("Max inputs: " + maxInputCount);
             output.println("Backup policy: " + backupPolicy);
 
             //
@@ -172,7 +183,9 @@ public final class SetteApplication {
                 snippetProject = SnippetProject.parse(snippetProjectDir);
                 context = new ExecutionContext(input, output, errorOutput,
                         snippetProject, tool, runnerProjectTag, runnerTimeoutInMs,
-                        argParser.getSnippetSelector(), backupPolicy, configuration.getOutputDir());
+                        runnerParallelism, runnerResume, htmlReportMode, xmlExport,
+                        maxInputCount, argParser.getSnippetSelector(), backupPolicy,
+                        configuration.getOutputDir());
             } else {
                 snippetProject = null;
                 context = null;
@@ -196,9 +209,11 @@ public final class SetteApplication {
 
                 case PARSER_EVOSUITE_MUTATION:
                     Objects.requireNonNull(context);
-                    new EvoSuiteParserMutation(context.getSnippetProject(), context.getOutputDir(),
-                            (EvoSuiteTool) context.getTool(), context.getRunnerProjectTag())
-                                    .parse();
+                    EvoSuiteParserMutation mutationParser = new EvoSuiteParserMutation(
+                            context.getSnippetProject(), context.getOutputDir(),
+                            (EvoSuiteTool) context.getTool(), context.getRunnerProjectTag());
+                    mutationParser.setParallelism(context.getRunnerParallelism());
+                    mutationParser.parse();
                     break;
 
                 case TEST_GENERATOR:
@@ -229,6 +244,9 @@ public final class SetteApplication {
                             configuration.getOutputDir(), tool, runnerProjectTag);
                     if (context != null) {
                         testSuiteRunner.setSnippetSelector(context.getSnippetSelector());
+                        testSuiteRunner.setParallelism(context.getRunnerParallelism());
+                        testSuiteRunner.setHtmlReportMode(context.getHtmlReportMode());
+                        testSuiteRunner.setXmlExport(context.isXmlExport());
                     }
                     testSuiteRunner.analyze();
                     // }
@@ -253,6 +271,10 @@ public final class SetteApplication {
                             runnerProjectTag).generate();
                     break;
 
+                case EVALUATE:
+                    new EvaluationUI().execute(context);
+                    break;
+
                 case EXPORT_CSV_BATCH:
                     // FIXME runnerProjectTag is a list of tags separated by ','
                     String toolNames = configuration.getToolConfigurations()
@@ -30,7 +30,6 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -41,39 +40,54 @@ import hu.bme.mit.sette.core.model.runner.ParameterType;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Category;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Rule;
 import hu.bme.mit.sette.core.tasks.RunResultParser;
+import hu.bme.mit.sette.core.util.io.LineSource;
+import lombok.Getter;
 
 public class CatgParser extends RunResultParser<CatgTool> {
-    private static final Pattern EXCEPTION_LINE_PATTERN;
-    private static final Pattern[] ACCEPTED_ERROR_LINE_PATTERNS;
-
-    static {
-        EXCEPTION_LINE_PATTERN = Pattern
-                .compile("Exception in thread \"main\" ([0-9A-Za-z\\._]+).*");
-
-        Stream<String> patterns = Stream.of(
-                "^WARNING: [!]{17} Prediction failed [!]{17} index \\d+ history\\.size\\(\\) \\d+$",
-                "^WARNING: At old iid \\d+ at iid \\d+ constraint .* at iid \\d+ and index \\d+$");
-        ACCEPTED_ERROR_LINE_PATTERNS = patterns.map(p -> Pattern.compile(p))
-                .toArray(Pattern[]::new);
-    }
+    private static final Pattern EXCEPTION_LINE_PATTERN = Pattern
+            .compile("Exception in thread \"main\" ([0-9A-Za-z\\._]+).*");
+
+    /** The classifier of the error output lines (accepted warnings). */
+    @Getter
+    private final OutputLineClassifier errorLineClassifier = OutputLineClassifier
+            .fromResource("catg-error-output.rules");
 
     public CatgParser(SnippetProject snippetProject, Path outputDir, CatgTool tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
+    @Override
+    protected boolean supportsParallelParsing() {
+        // the output files of the snippets are only read (the classifier is thread-safe)
+        return true;
+    }
+
+    @Override
+    protected void afterParse() {
+        log.debug(errorLineClassifier.formatHitCounts());
+    }
+
     @Override
     protected void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
             SnippetInputsXml inputsXml) throws Exception {
-        List<String> outputLines = outFiles.readOutputLines();
-        List<String> errorLines = outFiles.readErrorOutputLines();
+        try (LineSource errorLines = outFiles.openErrorOutput()) {
+            parseSnippet(snippet, outFiles, inputsXml, errorLines);
+        }
+    }
+
+    private void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
+            SnippetInputsXml inputsXml, LineSource errorLines) throws Exception {
 
         if (!errorLines.isEmpty()) {
             // error / warning from CATG
 
             // check whether there was any exception and get result possibilities according to them
-            Set<ResultType> resTypes = errorLines.stream()
+            Set<ResultType> resTypes = errorLines.lines()
                     .filter(line -> line.startsWith("Exception in thread \"main\"")).map(line -> {
                         // exceptions
                         Matcher m = EXCEPTION_LINE_PATTERN.matcher(line);
@@ -117,7 +131,7 @@ public class CatgParser extends RunResultParser<CatgTool> {
                         "java.io.OptionalDataException");
 
                 if (acceptIfFirstLineStartsWith.stream()
-                        .anyMatch(prefix -> errorLines.get(0).startsWith(prefix))) {
+                        .anyMatch(prefix -> errorLines.firstLine().startsWith(prefix))) {
                     // skip
                 } else {
                     // no exception lines
@@ -125,10 +139,7 @@ public class CatgParser extends RunResultParser<CatgTool> {
                     for (String errorLine : errorLines) {
                         if (StringUtils.isBlank(errorLine)) {
                             // skip blank lines
-                        } else if (!Stream.of(ACCEPTED_ERROR_LINE_PATTERNS)
-                                .anyMatch(p -> p.matcher(errorLine.trim()).matches())) {
-                            System.err.println(
-                                    ACCEPTED_ERROR_LINE_PATTERNS[0].matcher(errorLine).matches());
+                        } else if (!isAcceptedErrorLine(errorLine)) {
                             System.err.println(String.join("\n", errorLines));
                             System.err.println("Unknown line: " + errorLine);
                             throw new RuntimeException("SETTE parser problem: " + snippet.getId()
@@ -152,7 +163,11 @@ public class CatgParser extends RunResultParser<CatgTool> {
         // collect inputs if S
         if (inputsXml.getResultType() == ResultType.S
                 || inputsXml.getResultType() == ResultType.C) {
-            // collect inputs
+            // collect inputs (random access is needed to the lines)
+            List<String> outputLines;
+            try (LineSource output = outFiles.openOutput()) {
+                outputLines = output.readAllLines();
+            }
             if (!outputLines.get(0).startsWith("Now testing ")) {
                 throw new RuntimeException("File beginning problem: " + outFiles.outputFile);
             }
@@ -229,4 +244,9 @@ public class CatgParser extends RunResultParser<CatgTool> {
             }
         }
     }
+
+    private boolean isAcceptedErrorLine(String errorLine) {
+        Rule rule = errorLineClassifier.classify(errorLine);
+        return rule != null && rule.getCategory() == Category.SKIP;
+    }
 }
@@ -28,12 +28,10 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 
-import hu.bme.mit.sette.core.SetteException;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
 import hu.bme.mit.sette.core.tasks.AntExecutor;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
-import hu.bme.mit.sette.core.util.process.ProcessUtils;
 import hu.bme.mit.sette.core.validator.PathType;
 import hu.bme.mit.sette.core.validator.PathValidator;
 import hu.bme.mit.sette.core.validator.ValidationException;
@@ -100,11 +98,4 @@ public final class CatgRunner extends RunnerProjectRunner<CatgTool> {
         executeToolProcess(Arrays.asList(cmd.toString().split("\\s+")), infoFile, outputFile,
                 errorFile);
     }
-
-    @Override
-    public void cleanUp() throws IOException, SetteException {
-        // TODO better search expression!
-        ProcessUtils.searchAndTerminateProcesses("Djanala.conf");
-        System.gc();
-    }
 }
@@ -26,6 +26,7 @@ package hu.bme.mit.sette.tools.evosuite;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -52,61 +53,110 @@ import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Category;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Rule;
 import hu.bme.mit.sette.core.tasks.RunResultParser;
 import hu.bme.mit.sette.core.util.EscapeSpecialCharactersVisitor;
+import hu.bme.mit.sette.core.util.io.LineSource;
 import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
 
 public class EvoSuiteParser extends RunResultParser<EvoSuiteTool> {
+    /** The classifier of the error output lines. */
+    @Getter
+    private final OutputLineClassifier errorLineClassifier = OutputLineClassifier
+            .fromResource("evosuite-error-output.rules");
+
     public EvoSuiteParser(SnippetProject snippetProject, Path outputDir, EvoSuiteTool tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
     @Override
-    protected void beforeParse() {
+    protected void afterParse() {
+        log.debug(errorLineClassifier.formatHitCounts());
+    }
+
+    @Override
+    protected void beforeParseSnippet(Snippet snippet) throws IOException {
+        // the parser modifies the test files, thus keep the original ones and restore them if the
+        // snippet is parsed again (it is done by snippet, since the snippets can also be parsed
+        // right after the tool has finished on them)
         Path testDir = getRunnerProjectSettings().getTestDirectory().toPath();
+        Path testDirBackup = getRunnerProjectSettings().getBaseDir().toPath()
+                .resolve("test-original");
 
-        if (!PathUtils.exists(testDir)) {
-            return;
+        List<Path> testFiles = new ArrayList<>();
+        for (String testFileBasePath : getTestFileBasePaths(snippet)) {
+            testFiles.add(Paths.get(testFileBasePath + ".java"));
+            testFiles.add(Paths.get(testFileBasePath + "_scaffolding.java"));
         }
 
-        Path testDirBackup = getRunnerProjectSettings().getBaseDir().toPath()
-                .resolve("test-original");
+        boolean hasBackup = testFiles.stream()
+                .anyMatch(f -> PathUtils.exists(testDirBackup.resolve(f)));
 
-        try {
-            if (PathUtils.exists(testDirBackup)) {
-                PathUtils.deleteIfExists(testDir);
-                PathUtils.copy(testDirBackup, testDir);
-            } else {
-                PathUtils.copy(testDir, testDirBackup);
+        for (Path testFile : testFiles) {
+            Path current = testDir.resolve(testFile);
+            Path backup = testDirBackup.resolve(testFile);
+
+            if (hasBackup) {
+                // restore
+                PathUtils.deleteIfExists(current);
+                if (PathUtils.exists(backup)) {
+                    PathUtils.createDir(current.getParent());
+                    PathUtils.copy(backup, current);
+                }
+            } else if (PathUtils.exists(current)) {
+                // save
+                PathUtils.createDir(backup.getParent());
+                PathUtils.copy(current, backup);
             }
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Gets the base paths of the test files (relative to the test directory and without
+     * extension) which might be generated by EvoSuite for the snippet.
+     *
+     * @param snippet
+     *            the snippet
+     * @return the base path used by EvoSuite and the one expected by SETTE
+     */
+    private static List<String> getTestFileBasePaths(Snippet snippet) {
+        String classNameWithSlashes = snippet.getContainer().getJavaClass().getName()
+                .replace('.', '/');
+        String snippetName = snippet.getName();
+
+        // evo: my/snippet/MySnippet_method_method
+        // normal: my/snippet/MySnippet_method
+        return Arrays.asList(
+                String.format("%s_%s_%s_Test", classNameWithSlashes, snippetName, snippetName),
+                String.format("%s_%s_Test", classNameWithSlashes, snippetName));
+    }
+
     @Override
     protected void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
             SnippetInputsXml inputsXml) throws Exception {
+        try (LineSource outputLines = outFiles.openOutput();
+                LineSource errorLines = outFiles.openErrorOutput()) {
+            parseSnippet(snippet, outFiles, inputsXml, outputLines, errorLines);
+        }
+    }
+
+    private void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
+            SnippetInputsXml inputsXml, LineSource outputLines, LineSource errorLines)
+            throws Exception {
         // do not parse inputs
         inputsXml.setGeneratedInputs(null);
 
-        // out files
-        List<String> outputLines = outFiles.readOutputLines();
-        List<String> errorLines = outFiles.readErrorOutputLines();
-
         // test files
         File testDir = getRunnerProjectSettings().getTestDirectory();
-        String classNameWithSlashes = snippet.getContainer().getJavaClass().getName()
-                .replace('.', '/');
         String snippetName = snippet.getName();
 
-        // evo: my/snippet/MySnippet_method_method
-        // normal: my/snippet/MySnippet_method
-        String testFileBasePathEvo = String.format("%s_%s_%s_Test", classNameWithSlashes,
-                snippetName, snippetName);
-        String testFileBasePathNormal = String.format("%s_%s_Test", classNameWithSlashes,
-                snippetName);
+        List<String> testFileBasePaths = getTestFileBasePaths(snippet);
+        String testFileBasePathEvo = testFileBasePaths.get(0);
+        String testFileBasePathNormal = testFileBasePaths.get(1);
         File testCasesFileEvo = new File(testDir, testFileBasePathEvo + ".java");
         File testScaffoldingFile = new File(testDir, testFileBasePathEvo + "_scaffolding.java");
         File testCasesFile = new File(testDir, testFileBasePathNormal + ".java");
@@ -122,27 +172,6 @@ public class EvoSuiteParser extends RunResultParser<EvoSuiteTool> {
                             + snippet.getId());
         } else {
             // parse error output
-            List<String> skipLines = Arrays.asList(
-                    "ClientNode",
-                    "ERROR JUnitAnalyzer - 1 test cases failed",
-                    "ERROR ExternalProcessHandler - Class",
-                    // internal timeouts:
-                    "ERROR SearchStatistics",
-                    "ClientNode: MINIMIZATION",
-                    "ClientNode: WRITING_TESTS",
-                    "ERROR JUnitAnalyzer - Ran out of time while checking tests");
-
-            List<String> failLines = Arrays.asList(
-                    "ERROR TestCaseExecutor - ExecutionException"
-
-            );
-
-            List<String> exLines = Arrays.asList(
-                    "ERROR ClientNodeImpl - Error when connecting to master via RMI");
-
-            List<String> tmLines = Arrays.asList(
-                    "java.lang.OutOfMemoryError: Java heap space");
-
             for (String line : errorLines) {
                 if (inputsXml.getResultType() == null) {
                     break;
@@ -150,23 +179,8 @@ public class EvoSuiteParser extends RunResultParser<EvoSuiteTool> {
                     continue;
                 }
 
-                if (containsAny(line, failLines)) {
-                    System.out.println("==========================================");
-                    System.out.println(outFiles.errorOutputFile);
-                    System.out.println(line);
-                    System.out.println("==========================================");
-                    System.out.println(
-                            new String(PathUtils.readAllBytes(outFiles.errorOutputFile)));
-                    System.out.println("==========================================");
-                    System.out.println("==========================================");
-                    throw new RuntimeException("Problematic line: " + line);
-                } else if (containsAny(line, tmLines)) {
-                    inputsXml.setResultType(ResultType.TM);
-                } else if (containsAny(line, exLines)) {
-                    inputsXml.setResultType(ResultType.EX);
-                } else if (containsAny(line, skipLines)) {
-                    // skip
-                } else {
+                Rule rule = errorLineClassifier.classify(line);
+                if (rule == null || rule.getCategory() == Category.FAIL) {
                     System.out.println("==========================================");
                     System.out.println(outFiles.errorOutputFile);
                     System.out.println(line);
@@ -176,6 +190,8 @@ public class EvoSuiteParser extends RunResultParser<EvoSuiteTool> {
                     System.out.println("==========================================");
                     System.out.println("==========================================");
                     throw new RuntimeException("Problematic line: " + line);
+                } else if (rule.getCategory() != Category.SKIP) {
+                    inputsXml.setResultType(rule.getCategory().getResultType());
                 }
             }
         }
@@ -434,16 +450,8 @@ public class EvoSuiteParser extends RunResultParser<EvoSuiteTool> {
         }
     }
 
-    private static boolean containsAny(String line, List<String> search) {
-        return search.stream().anyMatch(s -> line.contains(s));
-    }
-
-    private static boolean isComputationFinished(List<String> outLines) {
-        for (int i = outLines.size() - 1; i >= 0; i--) {
-            if (outLines.contains("* Computation finished")) {
-                return true;
-            }
-        }
-        return false;
+    private static boolean isComputationFinished(LineSource outLines) {
+        // the line is near the end of the output
+        return outLines.reverseLines().anyMatch(line -> line.equals("* Computation finished"));
     }
 }
@@ -23,44 +23,51 @@
 // NOTE revise this file
 package hu.bme.mit.sette.tools.evosuite;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.stream.Collectors.toList;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.simpleframework.xml.Serializer;
-import org.simpleframework.xml.convert.AnnotationStrategy;
-import org.simpleframework.xml.core.Persister;
-
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.stmt.ExpressionStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
 import hu.bme.mit.sette.core.model.runner.ParameterType;
 import hu.bme.mit.sette.core.model.runner.ResultType;
-import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
@@ -69,66 +76,145 @@ import hu.bme.mit.sette.core.tasks.RunResultParser;
 import hu.bme.mit.sette.core.util.EscapeSpecialCharactersVisitor;
 import hu.bme.mit.sette.core.util.io.PathUtils;
 import hu.bme.mit.sette.core.validator.PathValidator;
-import hu.bme.mit.sette.core.validator.ValidationException;
 
 public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
+    /** The number of test files which are transformed in parallel. */
+    private int parallelism = 1;
+
+    /** Snippet methods are invoked one at a time (they might have static state). */
+    private final Object invocationLock = new Object();
+
     public EvoSuiteParserMutation(SnippetProject snippetProject, Path outputDir, EvoSuiteTool tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
+    /**
+     * Gets the number of test files which are transformed in parallel.
+     *
+     * @return the parallelism
+     */
+    public final int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of test files which are transformed in parallel.
+     *
+     * @param parallelism
+     *            the parallelism (at least 1)
+     */
+    public final void setParallelism(int parallelism) {
+        checkArgument(parallelism >= 1, "The parallelism must be positive: %s", parallelism);
+        this.parallelism = parallelism;
+    }
+
     public void parse() throws Exception {
-        beforeParse();
+        Path testDir = getRunnerProjectSettings().getTestDirectory().toPath();
+        Path testDirBackup = getRunnerProjectSettings().getBaseDir().toPath()
+                .resolve("test-original");
+        Path testDirMutation = getRunnerProjectSettings().getBaseDir().toPath()
+                .resolve("test-mutation");
+
+        // require both test and test-original (test-mutation generated from formerly parsed tests)
+        PathValidator.forDirectory(testDir, true, true, true).validate();
+        PathValidator.forDirectory(testDirBackup, true, true, true).validate();
 
+        List<Snippet> snippets = new ArrayList<>();
         for (SnippetContainer snippetContainer : getSnippetProject().getSnippetContainers()) {
             for (Snippet snippet : snippetContainer.getSnippets().values()) {
-                File inputsXmlFile = RunnerProjectUtils.getSnippetInputsFile(
-                        getRunnerProjectSettings(),
-                        snippet);
-
-                Serializer serializer = new Persister(new AnnotationStrategy());
-                SnippetInputsXml inputsXml = serializer.read(SnippetInputsXml.class, inputsXmlFile);
+                SnippetInputsXml inputsXml = readSnippetXml(snippet, SnippetInputsXml.class);
+                if (inputsXml == null) {
+                    throw new RuntimeException("Missing inputs: " + snippet.getId());
+                }
                 inputsXml.validate();
 
                 if (inputsXml.getResultType() == ResultType.NA
                         || inputsXml.getResultType() == ResultType.EX
                         || inputsXml.getResultType() == ResultType.TM) {
                     log.info("Skipping {}: {}", snippet.getId(), inputsXml.getResultType());
-                    return;
+                    continue;
                 }
 
-                parseOne(snippet);
+                snippets.add(snippet);
             }
         }
-    }
 
-    private void beforeParse() throws ValidationException {
-        Path testDir = getRunnerProjectSettings().getTestDirectory().toPath();
-        Path testDirBackup = getRunnerProjectSettings().getBaseDir().toPath()
-                .resolve("test-original");
+        // the transformed test files are written directly, the others are copied
+        PathUtils.deleteIfExists(testDirMutation);
+        PathUtils.createDir(testDirMutation);
 
-        // require both test and test-original (test-mutation generated from formerly parsed tests)
-        PathValidator.forDirectory(testDir, true, true, true).validate();
-        PathValidator.forDirectory(testDirBackup, true, true, true).validate();
+        Set<Path> transformedFiles = snippets.stream()
+                .map(snippet -> Paths.get(getTestFileBasePathNormal(snippet) + ".java"))
+                .collect(Collectors.toSet());
+        copyOtherFiles(testDir, testDirMutation, transformedFiles);
 
+        log.info("Transforming {} test files on {} threads", snippets.size(), parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
         try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Snippet snippet : snippets) {
+                futures.add(executor.submit(() -> {
+                    parseOne(snippet, testDir, testDirMutation);
+                    return null;
+                }));
+            }
 
-            Path testDirMutation = getRunnerProjectSettings().getBaseDir().toPath()
-                    .resolve("test-mutation");
+            Exception firstFailure = null;
+            int failureCount = 0;
+            for (int i = 0; i < snippets.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    Exception cause = ex.getCause() instanceof Exception
+                            ? (Exception) ex.getCause() : ex;
+                    log.error("Transformation failed: " + snippets.get(i).getId(), cause);
+                    failureCount++;
+                    if (firstFailure == null) {
+                        firstFailure = cause;
+                    }
+                }
+            }
 
-            if (PathUtils.exists(testDirMutation)) {
-                PathUtils.delete(testDirMutation);
+            if (firstFailure != null) {
+                throw new RuntimeException(String.format(
+                        "Transformation failed for %d snippet(s)", failureCount), firstFailure);
             }
-            PathUtils.copy(testDir, testDirMutation);
-        } catch (IOException ex) {
-            throw new UncheckedIOException(ex);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private void parseOne(Snippet snippet) throws Exception {
+    private static void copyOtherFiles(Path testDir, Path testDirMutation,
+            Set<Path> transformedFiles) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = PathUtils.walk(testDir)) {
+            files = stream.filter(Files::isRegularFile).collect(toList());
+        }
+
+        for (Path file : files) {
+            Path relativePath = testDir.relativize(file);
+            if (!transformedFiles.contains(relativePath)) {
+                Path target = testDirMutation.resolve(relativePath);
+                PathUtils.createDir(target.getParent());
+                PathUtils.copy(file, target);
+            }
+        }
+    }
+
+    /**
+     * Gets the base path of the parsed test file of the snippet (relative to the test directory and
+     * without extension).
+     */
+    private static String getTestFileBasePathNormal(Snippet snippet) {
+        // normal: my/snippet/MySnippet_method
+        return String.format("%s_%s_Test",
+                snippet.getContainer().getJavaClass().getName().replace('.', '/'),
+                snippet.getName());
+    }
+
+    private void parseOne(Snippet snippet, Path testDir, Path testDirMutation) throws Exception {
         // test files
-        File testDirMutation = getRunnerProjectSettings().getBaseDir().toPath()
-                .resolve("test-mutation").toFile();
         String classNameWithSlashes = snippet.getContainer().getJavaClass().getName()
                 .replace('.', '/');
         String snippetName = snippet.getName();
@@ -137,28 +223,25 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
             // evo: my/snippet/MySnippet_method_method
             String testFileBasePathEvo = String.format("%s_%s_%s_Test", classNameWithSlashes,
                     snippetName, snippetName);
-            File testCasesFileEvo = new File(testDirMutation, testFileBasePathEvo + ".java");
-            File testScaffoldingFile = new File(testDirMutation,
-                    testFileBasePathEvo + "_scaffolding.java");
-            if (testCasesFileEvo.exists()) {
+            Path testCasesFileEvo = testDir.resolve(testFileBasePathEvo + ".java");
+            Path testScaffoldingFile = testDir.resolve(testFileBasePathEvo + "_scaffolding.java");
+            if (PathUtils.exists(testCasesFileEvo)) {
                 throw new RuntimeException(
                         "Original test case file should not exist: " + testScaffoldingFile);
             }
-            if (testScaffoldingFile.exists()) {
+            if (PathUtils.exists(testScaffoldingFile)) {
                 throw new RuntimeException(
                         "Scaffolding file should not exist: " + testScaffoldingFile);
             }
         }
 
-        // normal: my/snippet/MySnippet_method
-        String testFileBasePathNormal = String.format("%s_%s_Test", classNameWithSlashes,
-                snippetName);
-        File testCasesFile = new File(testDirMutation, testFileBasePathNormal + ".java");
+        String testFileBasePathNormal = getTestFileBasePathNormal(snippet);
+        File testCasesFile = testDir.resolve(testFileBasePathNormal + ".java").toFile();
         if (!testCasesFile.exists()) {
             throw new RuntimeException("Missing parsed test case file: " + testCasesFile);
         }
 
-        // what to do:
+        // what to do (in one pass over the AST):
         // - remove extra imports, e.g.,
         // import hu.bme.mit.sette.snippets._1_basic.B5_functions.B5a2_CallPrivate_conditionalCall
         // - replace calls (only for public calledFunction), e.g.,
@@ -184,30 +267,12 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
                 return false;
             }
         });
-        compilationUnit.accept(new EscapeSpecialCharactersVisitor(), null);
-        String testCasesFileString = compilationUnit.toString();
 
         // FIXME: public calledFunction calls
-        String badCall = String.format("%s_%s.%s",
-                snippet.getContainer().getJavaClass().getSimpleName(),
-                snippetName, "calledFunction");
-
-        String goodCall = String.format("%s.%s",
-                snippet.getContainer().getJavaClass().getSimpleName(),
-                "calledFunction");
-        testCasesFileString = testCasesFileString.replace(badCall, goodCall);
-
-        // save file
-        PathUtils.write(testCasesFile.toPath(), testCasesFileString.getBytes());
-
-        // read again
-        try {
-            log.debug("Parsing with JavaParser: {}", testCasesFile);
-            compilationUnit = JavaParser.parse(testCasesFile);
-            log.debug("Parsed with JavaParser: {}", testCasesFile);
-        } catch (Throwable t) {
-            throw new RuntimeException("Cannot parse: " + testCasesFile, t);
-        }
+        String badScope = String.format("%s_%s",
+                snippet.getContainer().getJavaClass().getSimpleName(), snippetName);
+        String goodScope = snippet.getContainer().getJavaClass().getSimpleName();
+        compilationUnit.accept(new CallScopeRenamer("calledFunction", badScope, goodScope), null);
 
         // generate assert
         List<MethodDeclaration> methodDecls = compilationUnit.getTypes().get(0).getMembers()
@@ -222,10 +287,41 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
         }
 
         compilationUnit.accept(new EscapeSpecialCharactersVisitor(), null);
-        testCasesFileString = compilationUnit.toString();
 
         // save file
-        PathUtils.write(testCasesFile.toPath(), testCasesFileString.getBytes());
+        PathUtils.write(testDirMutation.resolve(testFileBasePathNormal + ".java"),
+                compilationUnit.toString().getBytes());
+    }
+
+    /**
+     * Renames the scope of the calls of a method (e.g., <code>Cls_snippet.method()</code> to
+     * <code>Cls.method()</code>).
+     */
+    private static final class CallScopeRenamer extends VoidVisitorAdapter<Void> {
+        private final String methodName;
+        private final String oldScope;
+        private final String newScope;
+
+        CallScopeRenamer(String methodName, String oldScope, String newScope) {
+            this.methodName = methodName;
+            this.oldScope = oldScope;
+            this.newScope = newScope;
+        }
+
+        @Override
+        public void visit(MethodCallExpr n, Void arg) {
+            super.visit(n, arg);
+
+            if (n.getName().equals(methodName)) {
+                Expression scope = n.getScope();
+                if (scope instanceof NameExpr && ((NameExpr) scope).getName().equals(oldScope)) {
+                    ((NameExpr) scope).setName(newScope);
+                } else if (scope instanceof FieldAccessExpr
+                        && ((FieldAccessExpr) scope).getField().equals(oldScope)) {
+                    ((FieldAccessExpr) scope).setField(newScope);
+                }
+            }
+        }
     }
 
     private static final String EXPR_PATTERN_STRING = "^"
@@ -242,9 +338,6 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
             + "$";
     private static final Pattern EXPR_PATTERN = Pattern.compile(EXPR_PATTERN_STRING);
 
-    // used within one test case to store, e.g., variable declarations
-    private List<ExpressionStmt> otherExprStatements;
-
     private void addAssert(Snippet snippet, List<Statement> statements) throws Exception {
         if (snippet.getMethod().getReturnType() == Void.class
                 || snippet.getMethod().getReturnType() == void.class) {
@@ -252,14 +345,15 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
             return;
         }
 
-        otherExprStatements = new ArrayList<>();
+        // used within one test case to store, e.g., variable declarations
+        List<ExpressionStmt> otherExprStatements = new ArrayList<>();
         List<Statement> originalStatements = new ArrayList<>(statements);
 
         // interate on originalStatements, edit statements
         for (int idx = 0; idx < originalStatements.size(); idx++) {
             Statement stmt = originalStatements.get(idx);
             if (stmt instanceof ExpressionStmt) {
-                addAssertForExpressionLine(snippet, statements, idx);
+                addAssertForExpressionLine(snippet, statements, idx, otherExprStatements);
             } else if (stmt instanceof TryStmt) {
                 // skip
             } else {
@@ -281,8 +375,8 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
 
     }
 
-    private void addAssertForExpressionLine(Snippet snippet, List<Statement> statements, int idx)
-            throws Exception {
+    private void addAssertForExpressionLine(Snippet snippet, List<Statement> statements, int idx,
+            List<ExpressionStmt> otherExprStatements) throws Exception {
         ExpressionStmt stmtLine = (ExpressionStmt) statements.get(idx);
         String expr = stmtLine.getExpression().toString().trim();
 
@@ -338,7 +432,7 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
         for (int i = 0; i < paramTypes.length; i++) {
             Class<?> cls = paramTypes[i];
             String str = paramsStr.get(i);
-            paramValues[i] = stringToObject(cls, str);
+            paramValues[i] = stringToObject(cls, str, otherExprStatements);
             if (cls.isPrimitive() && paramValues[i] == null) {
                 paramValues[i] = RunResultParser.getDefaultParameterValue(cls);
             }
@@ -348,7 +442,9 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
         Object expectedReturnValue = null;
         Throwable expectedThrownException = null;
         try {
-            expectedReturnValue = method.invoke(null, paramValues);
+            synchronized (invocationLock) {
+                expectedReturnValue = method.invoke(null, paramValues);
+            }
         } catch (InvocationTargetException ex) {
             expectedThrownException = ex.getTargetException();
         } catch (IllegalAccessException | IllegalArgumentException ex) {
@@ -472,7 +568,8 @@ public class EvoSuiteParserMutation extends EvaluationTask<EvoSuiteTool> {
 
     // FIXME see ParameterElement too
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private Object stringToObject(Class<?> cls, String value) throws Exception {
+    private Object stringToObject(Class<?> cls, String value,
+            List<ExpressionStmt> otherExprStatements) throws Exception {
         String originalValue = value;
         try {
             // primitives
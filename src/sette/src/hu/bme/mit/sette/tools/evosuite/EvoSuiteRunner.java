@@ -35,7 +35,7 @@ import org.apache.commons.lang3.SystemUtils;
 import hu.bme.mit.sette.core.configuration.SetteConfigurationException;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
 
 public final class EvoSuiteRunner extends RunnerProjectRunner<EvoSuiteTool> {
@@ -49,10 +49,16 @@ public final class EvoSuiteRunner extends RunnerProjectRunner<EvoSuiteTool> {
         return false;
     }
 
+    @Override
+    public boolean supportsParallelExecution() {
+        // EvoSuite writes the tests into the test dir relative to its working directory
+        return true;
+    }
+
     @Override
     protected void afterPrepare() throws IOException {
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(), null);
+        // compile the snippets
+        new RunnerProjectCompiler(getRunnerProjectSettings()).compileSnippets();
     }
 
     @Override
@@ -73,7 +79,8 @@ public final class EvoSuiteRunner extends RunnerProjectRunner<EvoSuiteTool> {
         File evosuiteJar = getTool().getToolJar().toFile();
 
         // create command
-        String classpath = "build";
+        // NOTE absolute path because the working directory may be different for each snippet
+        String classpath = getRunnerProjectSettings().getBinaryDirectory().getAbsolutePath();
         for (Path lib : getSnippetProject().getJavaLibFiles()) {
             if (SystemUtils.IS_OS_WINDOWS) {
                 classpath += ";" + lib.toString();
@@ -112,13 +119,7 @@ public final class EvoSuiteRunner extends RunnerProjectRunner<EvoSuiteTool> {
         System.out.println("  command: " + StringUtils.join(cmd, ' '));
 
         // run process
-        executeToolProcess(cmd, infoFile, outputFile, errorFile);
-    }
-
-    @Override
-    public void cleanUp() throws IOException {
-        // NOTE not needed to handle processes, only try gc
-        System.gc();
+        executeToolProcess(cmd, getWorkingDirectory(snippet), infoFile, outputFile, errorFile);
     }
 
     // NOTE was not used, revise and move/delete
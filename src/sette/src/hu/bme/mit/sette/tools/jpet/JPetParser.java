@@ -29,20 +29,25 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Rule;
 import hu.bme.mit.sette.core.tasks.RunResultParser;
+import hu.bme.mit.sette.core.util.io.LineSource;
 import hu.bme.mit.sette.core.validator.PathType;
 import hu.bme.mit.sette.core.validator.PathValidator;
-import hu.bme.mit.sette.tools.jpet.xmlparser.JPetTestCaseXmlParser;
 import hu.bme.mit.sette.tools.jpet.xmlparser.JPetTestCasesConverter;
+import lombok.Getter;
 
 public class JPetParser extends RunResultParser<JPetTool> {
+    /** The classifier of the first line of the error output. */
+    @Getter
+    private final OutputLineClassifier errorLineClassifier = OutputLineClassifier
+            .fromResource("jpet-error-output.rules");
+
     public JPetParser(SnippetProject snippetProject, Path outputDir, JPetTool tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
@@ -53,26 +58,33 @@ public class JPetParser extends RunResultParser<JPetTool> {
     private static final Pattern PATTERN_TOP_CODE = Pattern
             .compile("^Top Code Coverage of '.*': (\\d+(.\\d+)?)% \\(.*\\)$");
 
+    @Override
+    protected boolean supportsParallelParsing() {
+        // the output files of the snippets are only read (the classifier is thread-safe)
+        return true;
+    }
+
+    @Override
+    protected void afterParse() {
+        log.debug(errorLineClassifier.formatHitCounts());
+    }
+
     @Override
     protected void parseSnippet(Snippet snippet,SnippetOutFiles outFiles, SnippetInputsXml inputsXml) throws Exception {
-        List<String> outputLines = outFiles.readOutputLines();
-        List<String> errorLines = outFiles.readErrorOutputLines();
+        try (LineSource errorLines = outFiles.openErrorOutput()) {
+            parseSnippet(snippet, outFiles, inputsXml, errorLines);
+        }
+    }
+
+    private void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
+            SnippetInputsXml inputsXml, LineSource errorLines) throws Exception {
 
         if (!errorLines.isEmpty()) {
             // TODO enhance this section and make it clear
-            String firstLine = errorLines.get(0);
+            Rule rule = errorLineClassifier.classify(errorLines.firstLine());
 
-            if (firstLine
-                    .startsWith("ERROR: test_data_generator:unfold_bck/6: Undefined procedure:")) {
-                inputsXml.setResultType(ResultType.NA);
-            } else if (firstLine
-                    .startsWith("ERROR: Domain error: `clpfd_expression' expected, found")) {
-                inputsXml.setResultType(ResultType.NA);
-            } else if (firstLine.startsWith("ERROR: Unknown message: error(resolve_classfile/")) {
-                inputsXml.setResultType(ResultType.NA);
-            } else
-                if (firstLine.startsWith("ERROR: local_control:unfold/3: Undefined procedure:")) {
-                inputsXml.setResultType(ResultType.NA);
+            if (rule != null && rule.getCategory().getResultType() != null) {
+                inputsXml.setResultType(rule.getCategory().getResultType());
             } else {
                 // TODO enhance error handling
 
@@ -90,6 +102,12 @@ public class JPetParser extends RunResultParser<JPetTool> {
                 throw new RuntimeException("PARSER PROBLEM, UNHANDLED ERROR");
             }
         } else {
+            // only the end of the output is needed
+            List<String> outputLines;
+            try (LineSource output = outFiles.openOutput()) {
+                outputLines = output.tail(8);
+            }
+
             // TODO enhance
             if (outputLines.get(outputLines.size() - 1).startsWith("Error loading bytecode program")) {
                 // System.err.println(snippet.getMethod().getName());
@@ -164,22 +182,18 @@ public class JPetParser extends RunResultParser<JPetTool> {
                         snippet);
                 new PathValidator(testCasesFile.toPath()).type(PathType.REGULAR_FILE).validate();
 
-                if (testCasesFile.length() / 1000.0 / 1000.0 > 10) {
-                    // just to not kill the XML parser with extremely big files
-                    // TODO enhance this section
-                    System.err.println(String.format("Filesize is bigger than 10 MB (%.2f MB): %s",
-                            testCasesFile.length() / 1000.0 / 1000.0, testCasesFile.getName()));
-                }
                 // TODO it was used to dump the cases where jpet cannot decide coverage
 
-                SAXParserFactory factory = SAXParserFactory.newInstance();
-                SAXParser saxParser = factory.newSAXParser();
-
-                JPetTestCaseXmlParser testCasesParser = new JPetTestCaseXmlParser();
+                // the test cases are converted one by one while the file is parsed, thus even
+                // extremely big files do not have to fit into the memory
+                int droppedInputCount = JPetTestCasesConverter.convert(snippet, testCasesFile,
+                        inputsXml.getGeneratedInputs(), getMaxInputCount());
+                inputsXml.setDroppedInputCount(droppedInputCount);
 
-                saxParser.parse(testCasesFile, testCasesParser);
-
-                JPetTestCasesConverter.convert(snippet, testCasesParser.getTestCases(), inputsXml);
+                if (droppedInputCount > 0) {
+                    log.warn("Dropped {} inputs of {} (maximum input count: {})",
+                            droppedInputCount, snippet.getId(), getMaxInputCount());
+                }
             }
 
             // NOTE old code, revise and act
@@ -34,10 +34,9 @@ import org.apache.commons.lang3.StringUtils;
 import hu.bme.mit.sette.core.configuration.SetteConfigurationException;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
 import hu.bme.mit.sette.core.util.io.PathUtils;
-import hu.bme.mit.sette.core.util.process.ProcessUtils;
 
 public final class JPetRunner extends RunnerProjectRunner<JPetTool> {
 
@@ -51,15 +50,21 @@ public final class JPetRunner extends RunnerProjectRunner<JPetTool> {
         return true;
     }
 
+    @Override
+    public boolean supportsParallelExecution() {
+        // the test case XML is snippet-specific, other files go into the working directory
+        return true;
+    }
+
     @Override
     protected void afterPrepare() throws IOException {
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(), null);
+        // compile the snippets
+        new RunnerProjectCompiler(getRunnerProjectSettings()).compileSnippets();
 
         getTool();
-        // delete test cases directory
+        // delete test cases directory (keep them if the previous run is resumed)
         File testCasesDirectory = JPetTool.getTestCasesDirectory(getRunnerProjectSettings());
-        if (testCasesDirectory.exists()) {
+        if (!isResume() && testCasesDirectory.exists()) {
             Path dir = new File(getRunnerProjectSettings().getBaseDir(),
                     JPetTool.TESTCASES_DIRNAME).toPath();
             PathUtils.delete(dir);
@@ -106,7 +111,8 @@ public final class JPetRunner extends RunnerProjectRunner<JPetTool> {
         cmd.add(jPetName.toString());
 
         cmd.add("-cp");
-        cmd.add("build");
+        // NOTE absolute path because the working directory may be different for each snippet
+        cmd.add(getRunnerProjectSettings().getBinaryDirectory().getAbsolutePath());
 
         cmd.add("-c");
         cmd.add("bck");
@@ -138,13 +144,6 @@ public final class JPetRunner extends RunnerProjectRunner<JPetTool> {
         System.out.println("  command: " + StringUtils.join(cmd, ' '));
 
         // run process
-        executeToolProcess(cmd, infoFile, outputFile, errorFile);
-    }
-
-    @Override
-    public void cleanUp() throws IOException {
-        // TODO better search
-        ProcessUtils.searchAndTerminateProcesses("jpet/pet");
-        System.gc();
+        executeToolProcess(cmd, getWorkingDirectory(snippet), infoFile, outputFile, errorFile);
     }
 }
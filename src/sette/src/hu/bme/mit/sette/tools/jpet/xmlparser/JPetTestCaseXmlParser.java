@@ -24,10 +24,9 @@
 package hu.bme.mit.sette.tools.jpet.xmlparser;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Deque;
-import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.xml.sax.Attributes;
@@ -38,9 +37,26 @@ import hu.bme.mit.sette.tools.jpet.xmlparser.DataOrRef.Ref;
 import hu.bme.mit.sette.tools.jpet.xmlparser.HeapElement.HeapArray;
 import hu.bme.mit.sette.tools.jpet.xmlparser.HeapElement.HeapObject;
 import hu.bme.mit.sette.tools.jpet.xmlparser.HeapElement.HeapObject.HeapObjectField;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * SAX handler for the test case XML files of jPET. The test cases are not collected, each one is
+ * passed to the sink as soon as its <code>&lt;test_case></code> element is closed, thus the memory
+ * usage does not depend on the size of the file. If a maximum number of test cases is specified,
+ * the further test cases are skipped without building them and only their number is counted.
+ */
+final class JPetTestCaseXmlParser extends DefaultHandler {
+    private final Consumer<TestCase> sink;
+    private final int maxTestCaseCount;
+
+    /** The number of test cases passed to the sink. */
+    @Getter
+    private int testCaseCount = 0;
+    /** The number of test cases skipped because of the maximum number of test cases. */
+    @Getter
+    private int skippedTestCaseCount = 0;
 
-public final class JPetTestCaseXmlParser extends DefaultHandler {
-    private List<TestCase> testCases = null;
     private TestCase testCase = null;
     private Map<String, HeapElement> heap = null;
     private HeapArray heapArray = null;
@@ -48,15 +64,39 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
     private HeapObjectField heapObjectField = null;
     private String elemNum = null;
 
-    private List<XmlTag> xmlTagHistory = new ArrayList<>();
+    /** The depth inside a skipped <code>&lt;test_case></code> element (0 if not skipping). */
+    private int skipDepth = 0;
+    /** The text of the current element (<code>null</code> if it has no text). */
+    private StringBuilder text = null;
     private Deque<XmlTag> xmlTagStack = new ArrayDeque<>();
 
-    public JPetTestCaseXmlParser() {
+    /**
+     * Creates a handler which passes every test case to the sink.
+     *
+     * @param sink
+     *            the sink of the test cases
+     */
+    public JPetTestCaseXmlParser(@NonNull Consumer<TestCase> sink) {
+        this(sink, 0);
+    }
+
+    /**
+     * Creates a handler.
+     *
+     * @param sink
+     *            the sink of the test cases
+     * @param maxTestCaseCount
+     *            the maximum number of test cases passed to the sink (0 means no limit)
+     */
+    public JPetTestCaseXmlParser(@NonNull Consumer<TestCase> sink, int maxTestCaseCount) {
+        this.sink = sink;
+        this.maxTestCaseCount = maxTestCaseCount;
     }
 
     @Override
     public void startDocument() {
-        testCases = new ArrayList<>();
+        testCaseCount = 0;
+        skippedTestCaseCount = 0;
         testCase = null;
         heap = null;
         heapArray = null;
@@ -64,16 +104,20 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
         heapObjectField = null;
         elemNum = null;
 
-        xmlTagHistory = new ArrayList<>();
+        skipDepth = 0;
+        text = null;
         xmlTagStack = new ArrayDeque<>();
     }
 
-    public List<TestCase> getTestCases() {
-        return testCases;
-    }
-
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        text = null;
+
+        if (skipDepth > 0) {
+            skipDepth++;
+            return;
+        }
+
         XmlTag parentTag = xmlTagStack.peek();
 
         if (parentTag != null && parentTag.getType() == XmlTagType.TRACE) {
@@ -89,8 +133,12 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
         // handle opening tag
         switch (tag.getType()) {
             case TEST_CASE:
+                if (maxTestCaseCount > 0 && testCaseCount >= maxTestCaseCount) {
+                    skippedTestCaseCount++;
+                    skipDepth = 1;
+                    return;
+                }
                 testCase = new TestCase();
-                testCases.add(testCase);
                 break;
 
             case HEAP_IN:
@@ -121,22 +169,26 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
                 break;
         }
 
-        xmlTagHistory.add(tag);
         xmlTagStack.push(tag);
     }
 
     @Override
     public void endElement(String uri, String localName, String qName) {
+        if (skipDepth > 0) {
+            skipDepth--;
+            return;
+        }
+
         XmlTag openingTag = xmlTagStack.peek();
 
-        if (openingTag.getType() == XmlTagType.TRACE && !XmlTagType.TRACE.getTagName().equals(qName)) {
+        if (openingTag.getType() == XmlTagType.TRACE
+                && !XmlTagType.TRACE.getTagName().equals(qName)) {
             // parent tag is <trace> (or child) and current tag is not
             // </trace>, simply skip
             return;
         }
 
         XmlTag tag = XmlTag.createClosingTag(qName);
-        xmlTagHistory.add(tag);
         xmlTagStack.pop();
 
         if (openingTag.getType() != tag.getType() || openingTag.isClosing()) {
@@ -144,9 +196,17 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
             throw new RuntimeException("Cannot close " + openingTag + " with " + tag);
         }
 
+        // the text may be split into several characters() calls, thus it is handled here
+        if (text != null) {
+            handleText(tag, StringUtils.trimToNull(text.toString()));
+            text = null;
+        }
+
         // handle closing tag
         switch (tag.getType()) {
             case TEST_CASE:
+                testCaseCount++;
+                sink.accept(testCase);
                 testCase = null;
                 break;
 
@@ -175,16 +235,19 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
 
     @Override
     public void characters(char ch[], int start, int length) {
-        XmlTag parentTag = xmlTagStack.peek();
-        if (parentTag == null) {
+        if (skipDepth > 0 || xmlTagStack.isEmpty()
+                || xmlTagStack.peek().getType() == XmlTagType.TRACE) {
             return;
         }
 
-        // handle CDATA
-        String cdata = StringUtils.trimToNull(new String(ch, start, length));
+        if (text == null) {
+            text = new StringBuilder(length);
+        }
+        text.append(ch, start, length);
+    }
 
-        // handle closing tag
-        switch (parentTag.getType()) {
+    private void handleText(XmlTag tag, String cdata) {
+        switch (tag.getType()) {
             case EXCEPTION_FLAG:
                 testCase.setExceptionFlag(cdata);
                 break;
@@ -240,4 +303,4 @@ public final class JPetTestCaseXmlParser extends DefaultHandler {
                 break;
         }
     }
-}
\ No newline at end of file
+}
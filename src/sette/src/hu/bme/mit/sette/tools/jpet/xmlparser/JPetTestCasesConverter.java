@@ -23,17 +23,22 @@
 // NOTE revise this file
 package hu.bme.mit.sette.tools.jpet.xmlparser;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
 import org.apache.commons.lang3.StringUtils;
+import org.xml.sax.SAXException;
 
 import hu.bme.mit.sette.core.model.parserxml.AbstractParameterElement;
 import hu.bme.mit.sette.core.model.parserxml.InputElement;
 import hu.bme.mit.sette.core.model.parserxml.ParameterElement;
-import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
 import hu.bme.mit.sette.core.model.runner.ParameterType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.validator.ValidationException;
@@ -41,25 +46,80 @@ import hu.bme.mit.sette.tools.jpet.JPetTypeConverter;
 import hu.bme.mit.sette.tools.jpet.xmlparser.HeapElement.HeapArray;
 import hu.bme.mit.sette.tools.jpet.xmlparser.HeapElement.HeapObject;
 import hu.bme.mit.sette.tools.jpet.xmlparser.HeapElement.HeapObject.HeapObjectField;
+import lombok.NonNull;
 
 public final class JPetTestCasesConverter {
     private static final Pattern exceptionFlagPattern = Pattern.compile("exception\\((.*)\\)");
 
-    public static void convert(Snippet snippet, List<TestCase> testCases,
-            SnippetInputsXml inputsXml) throws ValidationException {
-        // TODO Auto-generated method stub
-
-        for (TestCase testCase : testCases) {
-            InputElement inputElement = createInputElement(snippet, testCase);
+    private JPetTestCasesConverter() {
+        throw new UnsupportedOperationException("Static class");
+    }
 
-            if (inputElement != null) {
-                inputsXml.getGeneratedInputs().add(inputElement);
-            } else {
-                System.err.println("Invalid input, skip");
-                throw new RuntimeException("Invalid input, skip");
+    /**
+     * Parses a jPET test case XML file and converts the test cases to inputs. The test cases are
+     * converted and added to the list one by one while the file is being parsed, thus the file is
+     * never loaded into the memory as a whole.
+     *
+     * @param snippet
+     *            the snippet
+     * @param testCasesFile
+     *            the test case XML file
+     * @param inputs
+     *            the list to which the inputs are added
+     * @param maxInputCount
+     *            the maximum number of inputs to add (0 means no limit), the further test cases
+     *            are skipped
+     * @return the number of skipped test cases
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws SAXException
+     *             if the file cannot be parsed
+     * @throws ValidationException
+     *             if a converted input is invalid
+     */
+    public static int convert(@NonNull Snippet snippet, @NonNull File testCasesFile,
+            @NonNull List<InputElement> inputs, int maxInputCount)
+            throws IOException, SAXException, ValidationException {
+        JPetTestCaseXmlParser handler = new JPetTestCaseXmlParser(testCase -> {
+            try {
+                InputElement inputElement = createInputElement(snippet, testCase);
+
+                if (inputElement != null) {
+                    inputs.add(inputElement);
+                } else {
+                    System.err.println("Invalid input, skip");
+                    throw new RuntimeException("Invalid input, skip");
+                }
+            } catch (ValidationException ex) {
+                throw new ConversionException(ex);
             }
+        }, maxInputCount);
+
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(testCasesFile, handler);
+        } catch (ParserConfigurationException ex) {
+            throw new RuntimeException(ex);
+        } catch (ConversionException ex) {
+            throw ex.getCause();
         }
 
+        return handler.getSkippedTestCaseCount();
+    }
+
+    /**
+     * Wraps a {@link ValidationException} to pass it through the SAX parser.
+     */
+    private static final class ConversionException extends RuntimeException {
+        private static final long serialVersionUID = 4373061226520329514L;
+
+        ConversionException(ValidationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ValidationException getCause() {
+            return (ValidationException) super.getCause();
+        }
     }
 
     private static InputElement createInputElement(Snippet snippet, TestCase testCase)
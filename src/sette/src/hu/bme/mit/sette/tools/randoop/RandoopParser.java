@@ -32,13 +32,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.Validate;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ParseException;
 
 import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml;
 import hu.bme.mit.sette.core.model.runner.ResultType;
@@ -46,11 +44,23 @@ import hu.bme.mit.sette.core.model.runner.RunnerProjectUtils;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
 import hu.bme.mit.sette.core.tasks.RunResultParser;
+import hu.bme.mit.sette.core.util.io.LineSource;
 import hu.bme.mit.sette.core.util.io.PathUtils;
+import lombok.Getter;
+import lombok.Setter;
 
 public class RandoopParser extends RunResultParser<RandoopTool> {
     private final static Pattern TEST_COUNT_LINE_PATTERN = Pattern
             .compile("^Writing (-?\\d+) junit tests$");
+    private static final String OLD_SUITE_METHOD_DECLARATION = "public static Test suite() {";
+
+    /**
+     * Whether the generated test files are parsed with JavaParser instead of the lightweight
+     * scanner when the tests have to be counted.
+     */
+    @Getter
+    @Setter
+    private boolean useJavaParser = false;
 
     public RandoopParser(SnippetProject snippetProject, Path outputDir, RandoopTool tool,
             String runnerProjectTag) {
@@ -60,8 +70,15 @@ public class RandoopParser extends RunResultParser<RandoopTool> {
     @Override
     protected void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
             SnippetInputsXml inputsXml) throws Exception {
-        List<String> outputLines = outFiles.readOutputLines();
-        List<String> errorLines = outFiles.readErrorOutputLines();
+        try (LineSource outputLines = outFiles.openOutput();
+                LineSource errorLines = outFiles.openErrorOutput()) {
+            parseSnippet(snippet, outFiles, inputsXml, outputLines, errorLines);
+        }
+    }
+
+    private void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
+            SnippetInputsXml inputsXml, LineSource outputLines, LineSource errorLines)
+            throws Exception {
         File lookUpDir = new File(getRunnerProjectSettings().getBaseDir(),
                 "test/" + RunnerProjectUtils.getSnippetBaseFilename(snippet) + "_Test");
 
@@ -73,15 +90,17 @@ public class RandoopParser extends RunResultParser<RandoopTool> {
             throw new RuntimeException("output file empty: " + outFiles.outputFile);
         }
 
-        for (String infoLine : outFiles.readInfoLines()) {
-            if (infoLine.contains("Exit value: 1")) {
-                inputsXml.setResultType(ResultType.EX);
-                break;
+        try (LineSource infoLines = outFiles.openInfo()) {
+            for (String infoLine : infoLines) {
+                if (infoLine.contains("Exit value: 1")) {
+                    inputsXml.setResultType(ResultType.EX);
+                    break;
+                }
             }
         }
 
         if (inputsXml.getResultType() == null && !lookUpDir.exists() && !errorLines.isEmpty()) {
-            String firstLine = errorLines.get(0);
+            String firstLine = errorLines.firstLine();
 
             if (firstLine.startsWith("java.io.FileNotFoundException:")
                     && firstLine.endsWith("_Test/Test.java (No such file or directory)")) {
@@ -134,21 +153,7 @@ public class RandoopParser extends RunResultParser<RandoopTool> {
 
                     int cnt = 0;
                     for (File file : testFiles) {
-                        log.debug("Parsing with JavaParser: {}", file);
-                        CompilationUnit cu = JavaParser.parse(file);
-                        log.debug("Parsed with JavaParser: {}", file);
-                        ClassOrInterfaceDeclaration cls = (ClassOrInterfaceDeclaration) cu
-                                .getTypes().get(0);
-                        cnt += cls.getMembers().stream()
-                                .filter(bd -> bd instanceof MethodDeclaration).mapToInt(bd -> {
-                                    MethodDeclaration md = (MethodDeclaration) bd;
-                                    if (md.getName().startsWith("test")
-                                            && md.getName().length() >= 5) {
-                                        return 1;
-                                    } else {
-                                        return 0;
-                                    }
-                                }).sum();
+                        cnt += countTestMethods(file.toPath());
                     }
 
                     System.err.println("Test case count: " + cnt);
@@ -162,11 +167,40 @@ public class RandoopParser extends RunResultParser<RandoopTool> {
         inputsXml.validate();
     }
 
+    /**
+     * Counts the test methods in a generated test file. The file is scanned by a lightweight
+     * token scanner, JavaParser is only used if requested or if the scanner cannot recognise the
+     * structure of the file.
+     *
+     * @param testFile
+     *            the test file
+     * @return the number of test methods
+     */
+    private int countTestMethods(Path testFile) throws IOException, ParseException {
+        if (!useJavaParser) {
+            try {
+                return RandoopTestCounter.count(testFile);
+            } catch (IllegalArgumentException ex) {
+                log.warn("Falling back to JavaParser: " + ex.getMessage());
+            }
+        }
+
+        log.debug("Parsing with JavaParser: {}", testFile);
+        int count = RandoopTestCounter.countWithJavaParser(testFile);
+        log.debug("Parsed with JavaParser: {}", testFile);
+        return count;
+    }
+
     @Override
-    protected void afterParse() {
+    protected void afterParseSnippet(Snippet snippet) {
         // fix compilation error in test suite files
         try {
-            File testDir = getRunnerProjectSettings().getTestDirectory();
+            File testDir = new File(getRunnerProjectSettings().getTestDirectory(),
+                    RunnerProjectUtils.getSnippetBaseFilename(snippet) + "_Test");
+
+            if (!testDir.exists()) {
+                return;
+            }
 
             Iterator<File> it = PathUtils.walk(testDir.toPath()).filter(Files::isRegularFile)
                     .filter(p -> p.toString().endsWith(".java")).map(Path::toFile).sorted()
@@ -178,9 +212,17 @@ public class RandoopParser extends RunResultParser<RandoopTool> {
                     continue;
                 }
 
+                // only the suite file has to be rewritten, the others may be huge
+                try (LineSource testLines = LineSource.open(testFile.toPath())) {
+                    if (testLines.lines()
+                            .noneMatch(line -> line.contains(OLD_SUITE_METHOD_DECLARATION))) {
+                        continue;
+                    }
+                }
+
                 List<String> lines = PathUtils.readAllLines(testFile.toPath());
                 for (int i = 0; i < lines.size(); i++) {
-                    String line = lines.get(i).replace("public static Test suite() {",
+                    String line = lines.get(i).replace(OLD_SUITE_METHOD_DECLARATION,
                             "public static TestSuite suite() {");
                     lines.set(i, line);
                 }
@@ -194,8 +236,8 @@ public class RandoopParser extends RunResultParser<RandoopTool> {
     /**
      * @return a number >= 0 if it is present in the output file, otherwise -1
      */
-    private static int getGeneratedInputCountFromOutputLines(List<String> outputLines) {
-        IntSummaryStatistics ints = outputLines.stream()
+    private static int getGeneratedInputCountFromOutputLines(Iterable<String> outputLines) {
+        IntSummaryStatistics ints = StreamSupport.stream(outputLines.spliterator(), false)
                 .map(line -> TEST_COUNT_LINE_PATTERN.matcher(line.trim()))
                 .filter(m -> m.matches())
                 .mapToInt(m -> Integer.parseInt(m.group(1)))
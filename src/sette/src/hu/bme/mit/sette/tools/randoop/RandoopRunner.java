@@ -44,10 +44,9 @@ import org.apache.commons.lang3.SystemUtils;
 import hu.bme.mit.sette.core.configuration.SetteConfigurationException;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
 import hu.bme.mit.sette.core.util.io.PathUtils;
-import hu.bme.mit.sette.core.util.process.ProcessUtils;
 
 public final class RandoopRunner extends RunnerProjectRunner<RandoopTool> {
     private final Random seedGenerator;
@@ -63,10 +62,16 @@ public final class RandoopRunner extends RunnerProjectRunner<RandoopTool> {
         return false;
     }
 
+    @Override
+    public boolean supportsParallelExecution() {
+        // the method list file and the tests are created in the working directory
+        return true;
+    }
+
     @Override
     protected void afterPrepare() throws IOException {
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(), null);
+        // compile the snippets
+        new RunnerProjectCompiler(getRunnerProjectSettings()).compileSnippets();
     }
 
     @Override
@@ -97,12 +102,15 @@ public final class RandoopRunner extends RunnerProjectRunner<RandoopTool> {
         // + "_" + snippet.getMethod().getName();
 
         // create command
-        String classpath = randoopJar.getCanonicalPath() + SystemUtils.PATH_SEPARATOR + "build";
+        // NOTE absolute paths because the working directory may be different for each snippet
+        File workingDirectory = getWorkingDirectory(snippet);
+        String classpath = randoopJar.getCanonicalPath() + SystemUtils.PATH_SEPARATOR
+                + getRunnerProjectSettings().getBinaryDirectory().getAbsolutePath();
 
         for (Path libraryFile : getSnippetProject().getJavaLibFiles()) {
             classpath += SystemUtils.PATH_SEPARATOR
-                    + getRunnerProjectSettings().getSnippetLibraryDirectory().getName()
-                    + SystemUtils.FILE_SEPARATOR + libraryFile.toFile().getName();
+                    + new File(getRunnerProjectSettings().getSnippetLibraryDirectory(),
+                            libraryFile.toFile().getName()).getAbsolutePath();
         }
 
         int timelimit = (getTimeoutInMs() + 500) / 1000; // ceil
@@ -110,7 +118,7 @@ public final class RandoopRunner extends RunnerProjectRunner<RandoopTool> {
                 + snippet.getMethod().getName() + "_Test";
 
         // create method list file
-        File methodList = new File(getRunnerProjectSettings().getBaseDir(),
+        File methodList = new File(workingDirectory,
                 "methodlist_" + junitPackageName + ".tmp"); // TODO better file name
 
         PathUtils.write(methodList.toPath(), createMethodListLines(snippet));
@@ -149,22 +157,13 @@ public final class RandoopRunner extends RunnerProjectRunner<RandoopTool> {
         // run process
         // Randoop will stop generation at the given time limit (however, it
         // needs extra time for dumping test cases)
-        executeToolProcess(cmd, infoFile, outputFile, errorFile);
+        executeToolProcess(cmd, workingDirectory, infoFile, outputFile, errorFile);
 
         // TODO preserve for reproduction
         // delete method list file
         // PathUtils.deleteIfExists(methodList.toPath());
     }
 
-    @Override
-    public void cleanUp() throws IOException {
-        if (!SystemUtils.IS_OS_WINDOWS) {
-            // TODO better search
-            ProcessUtils.searchAndTerminateProcesses("randoop.main.Main");
-        }
-        System.gc();
-    }
-
     /**
      * Gets the method name and parameter types string.
      *
@@ -0,0 +1,343 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.tools.randoop;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+/**
+ * Counts the test methods in the test classes generated by Randoop. A test method is a method of
+ * the first top-level class whose name starts with <code>test</code> and is at least 5 characters
+ * long (Randoop generates JUnit 3 style <code>test1()</code>, <code>test2()</code>, ... methods).
+ * <p>
+ * The generated files may be tens of megabytes, thus by default they are processed by a streaming
+ * token scanner which skips comments and literals, tracks the nesting of the braces and only
+ * recognises method declarations in the body of the class. The full JavaParser AST can be used
+ * instead with {@link #countWithJavaParser(Path)}.
+ */
+final class RandoopTestCounter {
+    private static final int EOF = -1;
+
+    /** The states of the scanner. */
+    private enum State {
+        /** Before the body of the first top-level type. */
+        BEFORE_TYPE,
+        /** In the body of the first top-level type. */
+        IN_TYPE,
+        /** After the body of the first top-level type. */
+        AFTER_TYPE
+    }
+
+    private final Reader reader;
+    private final char[] buffer = new char[16 * 1024];
+    private int bufferPos = 0;
+    private int bufferLen = 0;
+    private int pushedBack = EOF;
+
+    private State state = State.BEFORE_TYPE;
+    private int braceDepth = 0;
+    private int parenDepth = 0;
+    private boolean typeKeywordSeen = false;
+    /** The previous token is a type (or type-like), so an identifier may be a method name. */
+    private boolean previousIsType = false;
+    /** The last identifier if it directly precedes the current token, otherwise null. */
+    private String pendingName = null;
+    /** A field initializer (or enum constant arguments) is being scanned at class body level. */
+    private boolean inInitializer = false;
+    private int testMethodCount = 0;
+
+    private RandoopTestCounter(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Counts the test methods with the token scanner.
+     *
+     * @param javaFile
+     *            the Java source file
+     * @return the number of test methods
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws IllegalArgumentException
+     *             if the structure of the file cannot be recognised (e.g. unbalanced braces)
+     */
+    static int count(Path javaFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(javaFile, StandardCharsets.UTF_8)) {
+            return count(reader, javaFile.toString());
+        }
+    }
+
+    /**
+     * Counts the test methods with the token scanner.
+     *
+     * @param reader
+     *            the reader of the Java source
+     * @param sourceName
+     *            the name of the source (for messages)
+     * @return the number of test methods
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws IllegalArgumentException
+     *             if the structure of the source cannot be recognised (e.g. unbalanced braces)
+     */
+    static int count(Reader reader, String sourceName) throws IOException {
+        RandoopTestCounter counter = new RandoopTestCounter(reader);
+        counter.scan();
+
+        if (counter.state == State.BEFORE_TYPE || counter.braceDepth != 0) {
+            throw new IllegalArgumentException("Cannot recognise the structure of " + sourceName);
+        }
+        return counter.testMethodCount;
+    }
+
+    /**
+     * Counts the test methods by parsing the file with JavaParser.
+     *
+     * @param javaFile
+     *            the Java source file
+     * @return the number of test methods
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws ParseException
+     *             if the file cannot be parsed
+     */
+    static int countWithJavaParser(Path javaFile) throws IOException, ParseException {
+        CompilationUnit cu = JavaParser.parse(javaFile.toFile());
+        ClassOrInterfaceDeclaration cls = (ClassOrInterfaceDeclaration) cu.getTypes().get(0);
+
+        return (int) cls.getMembers().stream()
+                .filter(bd -> bd instanceof MethodDeclaration)
+                .filter(bd -> isTestMethodName(((MethodDeclaration) bd).getName()))
+                .count();
+    }
+
+    static boolean isTestMethodName(String name) {
+        return name.startsWith("test") && name.length() >= 5;
+    }
+
+    private void scan() throws IOException {
+        int ch;
+        while (state != State.AFTER_TYPE && (ch = read()) != EOF) {
+            if (Character.isWhitespace(ch)) {
+                continue;
+            } else if (Character.isJavaIdentifierStart(ch)) {
+                onIdentifier(readIdentifier((char) ch));
+            } else if (ch >= '0' && ch <= '9') {
+                skipNumber();
+                onOtherToken();
+            } else if (ch == '"' || ch == '\'') {
+                skipLiteral((char) ch);
+                onOtherToken();
+            } else if (ch == '/') {
+                int next = read();
+                if (next == '/') {
+                    skipLineComment();
+                } else if (next == '*') {
+                    skipBlockComment();
+                } else {
+                    unread(next);
+                    onOtherToken();
+                }
+            } else {
+                onSymbol((char) ch);
+            }
+        }
+    }
+
+    private void onIdentifier(String identifier) {
+        if (state == State.BEFORE_TYPE) {
+            if (identifier.equals("class") || identifier.equals("interface")
+                    || identifier.equals("enum")) {
+                typeKeywordSeen = true;
+            }
+            return;
+        }
+
+        if (isClassBodyLevel()) {
+            pendingName = previousIsType ? identifier : null;
+            // keywords like "new" are never followed by a method name
+            previousIsType = !identifier.equals("new") && !identifier.equals("return")
+                    && !identifier.equals("throw");
+        }
+    }
+
+    private void onOtherToken() {
+        pendingName = null;
+        previousIsType = false;
+    }
+
+    private void onSymbol(char ch) {
+        String name = pendingName;
+        pendingName = null;
+
+        switch (ch) {
+            case '{':
+                if (state == State.BEFORE_TYPE) {
+                    if (typeKeywordSeen) {
+                        state = State.IN_TYPE;
+                        braceDepth = 1;
+                    }
+                } else {
+                    braceDepth++;
+                }
+                previousIsType = false;
+                break;
+
+            case '}':
+                if (state == State.IN_TYPE) {
+                    braceDepth--;
+                    if (braceDepth == 0) {
+                        state = State.AFTER_TYPE;
+                    } else if (braceDepth == 1) {
+                        // end of a method, initializer block or nested type
+                        inInitializer = false;
+                    }
+                }
+                previousIsType = false;
+                break;
+
+            case '(':
+                if (isClassBodyLevel()) {
+                    if (parenDepth == 0 && !inInitializer && name != null
+                            && isTestMethodName(name)) {
+                        testMethodCount++;
+                    }
+                    parenDepth++;
+                }
+                previousIsType = false;
+                break;
+
+            case ')':
+                if (isClassBodyLevel() && parenDepth > 0) {
+                    parenDepth--;
+                }
+                previousIsType = false;
+                break;
+
+            case '=':
+                if (isClassBodyLevel() && parenDepth == 0) {
+                    inInitializer = true;
+                }
+                previousIsType = false;
+                break;
+
+            case ';':
+                if (isClassBodyLevel()) {
+                    inInitializer = false;
+                    parenDepth = 0;
+                }
+                previousIsType = false;
+                break;
+
+            case '>':
+            case ']':
+                // end of a generic or array type
+                previousIsType = true;
+                break;
+
+            default:
+                // '@' (annotation names), '.', ',', '<', etc.
+                previousIsType = false;
+                break;
+        }
+    }
+
+    private boolean isClassBodyLevel() {
+        return state == State.IN_TYPE && braceDepth == 1;
+    }
+
+    private String readIdentifier(char first) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(first);
+
+        int ch;
+        while ((ch = read()) != EOF && Character.isJavaIdentifierPart(ch)) {
+            sb.append((char) ch);
+        }
+        unread(ch);
+        return sb.toString();
+    }
+
+    private void skipNumber() throws IOException {
+        int ch;
+        while ((ch = read()) != EOF && (Character.isLetterOrDigit(ch) || ch == '_')) {
+            // skip digits, suffixes, hex digits, etc.
+        }
+        unread(ch);
+    }
+
+    private void skipLiteral(char quote) throws IOException {
+        int ch;
+        while ((ch = read()) != EOF && ch != quote && ch != '\n') {
+            if (ch == '\\') {
+                read();
+            }
+        }
+    }
+
+    private void skipLineComment() throws IOException {
+        int ch;
+        while ((ch = read()) != EOF && ch != '\n' && ch != '\r') {
+            // skip
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int prev = EOF;
+        int ch;
+        while ((ch = read()) != EOF && !(prev == '*' && ch == '/')) {
+            prev = ch;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != EOF) {
+            int ch = pushedBack;
+            pushedBack = EOF;
+            return ch;
+        }
+
+        if (bufferPos == bufferLen) {
+            bufferLen = reader.read(buffer, 0, buffer.length);
+            bufferPos = 0;
+            if (bufferLen <= 0) {
+                bufferLen = 0;
+                return EOF;
+            }
+        }
+        return buffer[bufferPos++];
+    }
+
+    private void unread(int ch) {
+        pushedBack = ch;
+    }
+}
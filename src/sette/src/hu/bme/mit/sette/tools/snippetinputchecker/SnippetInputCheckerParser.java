@@ -37,6 +37,12 @@ public class SnippetInputCheckerParser extends RunResultParser<SnippetInputCheck
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
+    @Override
+    protected boolean supportsParallelParsing() {
+        // the snippets are only read
+        return true;
+    }
+
     @Override
     protected void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
             SnippetInputsXml inputsXml) throws Exception {
@@ -49,7 +49,7 @@ import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetInputFactoryContainer;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
 import hu.bme.mit.sette.core.util.io.PathUtils;
 
@@ -81,11 +81,17 @@ public final class SnippetInputCheckerRunner extends RunnerProjectRunner<Snippet
 
     @Override
     protected void afterPrepare() throws IOException {
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(), null);
-
-        // delete test dir if exists
-        PathUtils.deleteIfExists(getRunnerProjectSettings().getTestDirectory().toPath());
+        // compile the snippets and the snippet inputs
+        Path inputSourceDir = getRunnerProjectSettings().getBaseDir().toPath()
+                .resolve(getSnippetProject().getInputSourceDir().getFileName().toString());
+        new RunnerProjectCompiler(getRunnerProjectSettings()).compileSnippets(
+                Arrays.asList(inputSourceDir),
+                Arrays.asList(RunnerProjectCompiler.getSetteCommonLocation()));
+
+        // delete test dir if exists (keep it if the previous run is resumed)
+        if (!isResume()) {
+            PathUtils.deleteIfExists(getRunnerProjectSettings().getTestDirectory().toPath());
+        }
     }
 
     @Override
@@ -172,9 +178,4 @@ public final class SnippetInputCheckerRunner extends RunnerProjectRunner<Snippet
 
         return testSource;
     }
-
-    @Override
-    public void cleanUp() throws IOException, SetteException {
-        // nothing to do
-    }
 }
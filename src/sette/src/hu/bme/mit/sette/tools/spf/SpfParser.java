@@ -42,61 +42,63 @@ import hu.bme.mit.sette.core.model.runner.ParameterType;
 import hu.bme.mit.sette.core.model.runner.ResultType;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Category;
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Rule;
 import hu.bme.mit.sette.core.tasks.RunResultParser;
+import hu.bme.mit.sette.core.util.io.LineSource;
+import lombok.Getter;
 
 public class SpfParser extends RunResultParser<SpfTool> {
+    /** The classifier of the first line of the error output. */
+    @Getter
+    private final OutputLineClassifier errorLineClassifier = OutputLineClassifier
+            .fromResource("spf-error-output.rules");
+
     public SpfParser(SnippetProject snippetProject, Path outputDir, SpfTool tool,
             String runnerProjectTag) {
         super(snippetProject, outputDir, tool, runnerProjectTag);
     }
 
+    @Override
+    protected boolean supportsParallelParsing() {
+        // the output files of the snippets are only read (the classifier is thread-safe)
+        return true;
+    }
+
+    @Override
+    protected void afterParse() {
+        log.debug(errorLineClassifier.formatHitCounts());
+    }
+
     @Override
     protected void parseSnippet(Snippet snippet, SnippetOutFiles outFiles,
             SnippetInputsXml inputsXml) throws Exception {
-        List<String> outputLines = outFiles.readOutputLines();
-        List<String> errorLines = outFiles.readErrorOutputLines();
-
-        if (!errorLines.isEmpty()) {
-            // TODO make this section simple and clear
-            String firstLine = errorLines.get(0);
-
-            if (firstLine
-                    .startsWith("java.lang.RuntimeException: ## Error: Operation not supported!")) {
-                inputsXml.setResultType(ResultType.NA);
-            } else if (firstLine.startsWith("java.lang.NullPointerException")) {
-                inputsXml.setResultType(ResultType.EX);
-            } else if (firstLine.startsWith(
-                    "java.lang.RuntimeException: ## Error: symbolic log10 not implemented")) {
-                inputsXml.setResultType(ResultType.NA);
-            } else if (firstLine.startsWith("***********Warning: everything false")) {
-                // TODO enhance
-                // now skip
-            } else if (firstLine.startsWith(
-                    "java.lang.RuntimeException: ERROR: you need to turn debug option on")) {
-                // TODO JPF/SPF compilation differences between javac and ecj:
-                // https://groups.google.com/forum/#!topic/java-pathfinder/jhOkvLx-SKE
-                // now just accept
-
-                // constant() and always() exception snippets (void return value and no parameters
-                // -> useless methods)
-            } else if (firstLine
-                    .startsWith("java.lang.RuntimeException: Arrays: symbolic index not handled")) {
-                inputsXml.setResultType(ResultType.NA);
-            } else {
-                // TODO error handling
+        try (LineSource errorLines = outFiles.openErrorOutput()) {
+            if (!errorLines.isEmpty()) {
+                // TODO make this section simple and clear
+                Rule rule = errorLineClassifier.classify(errorLines.firstLine());
+
+                if (rule != null && rule.getCategory().getResultType() != null) {
+                    inputsXml.setResultType(rule.getCategory().getResultType());
+                } else if (rule != null && rule.getCategory() == Category.SKIP) {
+                    // known harmless error output (see the rule file)
+                } else {
+                    // TODO error handling
 
-                // this is debug (only if unhandled error)
-                System.err.println("=============================");
-                System.err.println(snippet.getMethod());
-                System.err.println("== ERROR OUTPUT =============");
+                    // this is debug (only if unhandled error)
+                    System.err.println("=============================");
+                    System.err.println(snippet.getMethod());
+                    System.err.println("== ERROR OUTPUT =============");
 
-                for (String line : errorLines) {
-                    System.err.println(line);
-                }
-                System.err.println("=============================");
+                    for (String line : errorLines) {
+                        System.err.println(line);
+                    }
+                    System.err.println("=============================");
 
-                // TODO error handling
-                throw new RuntimeException("PARSER PROBLEM, UNHANDLED ERROR");
+                    // TODO error handling
+                    throw new RuntimeException("PARSER PROBLEM, UNHANDLED ERROR");
+                }
             }
         }
 
@@ -117,25 +119,26 @@ public class SpfParser extends RunResultParser<SpfTool> {
             // // no inputs for constant tests, just call them once
             // inputsXml.getGeneratedInputs().add(new InputElement());
             // } else {
-            Iterator<String> lines = outputLines.iterator();
-
             // find input lines
-
             List<String> inputLines = new ArrayList<>();
-            boolean shouldCollect = false;
-            while (lines.hasNext()) {
-                String line = lines.next();
-                if (line.trim().equals(
-                        "====================================================== Method Summaries")) {
-                    shouldCollect = true;
-                } else if (shouldCollect) {
-                    if (line.startsWith("======================================================")) {
-                        // start of next section
-                        shouldCollect = false;
-                        break;
-                    } else {
-                        if (!StringUtils.isBlank(line)) {
-                            inputLines.add(line.trim());
+            try (LineSource output = outFiles.openOutput()) {
+                Iterator<String> lines = output.iterator();
+                boolean shouldCollect = false;
+                while (lines.hasNext()) {
+                    String line = lines.next();
+                    if (line.trim().equals("======================================================"
+                            + " Method Summaries")) {
+                        shouldCollect = true;
+                    } else if (shouldCollect) {
+                        if (line.startsWith(
+                                "======================================================")) {
+                            // start of next section
+                            shouldCollect = false;
+                            break;
+                        } else {
+                            if (!StringUtils.isBlank(line)) {
+                                inputLines.add(line.trim());
+                            }
                         }
                     }
                 }
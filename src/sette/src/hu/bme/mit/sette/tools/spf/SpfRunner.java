@@ -27,13 +27,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 
 import hu.bme.mit.sette.core.configuration.SetteConfigurationException;
 import hu.bme.mit.sette.core.model.snippet.Snippet;
 import hu.bme.mit.sette.core.model.snippet.SnippetProject;
-import hu.bme.mit.sette.core.tasks.AntExecutor;
+import hu.bme.mit.sette.core.tasks.RunnerProjectCompiler;
 import hu.bme.mit.sette.core.tasks.RunnerProjectRunner;
-import hu.bme.mit.sette.core.util.process.ProcessUtils;
 
 public final class SpfRunner extends RunnerProjectRunner<SpfTool> {
     public SpfRunner(SnippetProject snippetProject, Path outputDir, SpfTool tool,
@@ -48,8 +48,10 @@ public final class SpfRunner extends RunnerProjectRunner<SpfTool> {
 
     @Override
     protected void afterPrepare() throws IOException {
-        // ant build
-        AntExecutor.executeAnt(getRunnerProjectSettings().getBaseDir(), null);
+        // compile the snippets and the generated sources
+        new RunnerProjectCompiler(getRunnerProjectSettings()).compileSnippets(
+                Arrays.asList(getRunnerProjectSettings().getGeneratedDirectory().toPath()),
+                Collections.emptyList());
     }
 
     @Override
@@ -88,11 +90,4 @@ public final class SpfRunner extends RunnerProjectRunner<SpfTool> {
         executeToolProcess(Arrays.asList(cmd.toString().split("\\s+")), infoFile, outputFile,
                 errorFile);
     }
-
-    @Override
-    public void cleanUp() throws IOException {
-        // TODO better search expression!
-        ProcessUtils.searchAndTerminateProcesses("RunJPF.jar");
-        System.gc();
-    }
 }
@@ -100,6 +100,8 @@ class ArgumentParserTest {
             assert backupPolicy == BackupPolicy.ASK
             assert runnerProjectTag == null
             assert runnerTimeoutInMs == 30000
+            assert runnerParallelism == 1
+            assert !runnerResume
             assert snippetProjectDir == null
             assert applicationTask == null
             assert toolConfiguration == null
@@ -120,6 +122,30 @@ Usage:
                                           projects (used when the runner
                                           project already exists before
                                           generation) (default: ASK)
+ --html-report [ALL | NC | NONE]        : Set which HTML coverage pages are
+                                          generated by the test-runner and
+                                          evaluate tasks (NC: only for the not
+                                          covered snippets) (default: ALL)
+ --max-inputs [N]                       : The maximum number of generated
+                                          inputs kept for a snippet by the
+                                          parser and evaluate tasks, the
+                                          further inputs are dropped and
+                                          counted (0: no limit, parsers which
+                                          do not stream the inputs of the tool
+                                          ignore it) (default: 0)
+ --parallelism [N]                      : The number of snippets on which the
+                                          tool is executed in parallel by the
+                                          runner and evaluate tasks (tools
+                                          which do not support parallel
+                                          execution ignore it), the number of
+                                          snippets parsed in parallel by the
+                                          parser tasks and the number of
+                                          snippets analyzed in parallel by the
+                                          test-runner task (default: 1)
+ --resume                               : Continue the previous run of the
+                                          runner or evaluate task (the snippets
+                                          which have already been completed
+                                          will be skipped) (default: false)
  --runner-project-tag [TAG]             : The tag of the desired runner project
  --runner-timeout [ 30000ms | 30s ]     : Timeout for execution of a tool on
                                           one snippet - if missing, then the
@@ -134,15 +160,20 @@ Usage:
  --snippet-selector [PATTERN]           : Regular expression to filter a subset
                                           of the snippets (the pattern will be
                                           matched against snippet IDs and it
-                                          will only be used by the runner and
-                                          test-runner tasks)
+                                          will only be used by the runner,
+                                          test-runner and evaluate tasks)
  --task [exit | generator | runner |    : The task to execute
  parser | test-generator | test-runner
  | snippet-browser | export-csv |
- export-csv-batch | runner-project-brow
-ser]
+ evaluate | export-csv-batch |
+ runner-project-browser |
+ parser-evosuite-mutation]
  --tool [CATG | EvoSuite | Randoop |    : The tool to use
- SPF | jPET]'''.trim().replace('\r\n', '\n').split('\n')*.trim()
+ SPF | jPET]
+ --xml-export                           : Also write the inputs, result and
+                                          coverage XML files of the snippets
+                                          besides the result store of the
+                                          runner project (default: false)'''.trim().replace('\r\n', '\n').split('\n')*.trim()
 
             if (actualLines != expectedLines) {
                 println '== ACTUAL HELP BEGIN'
@@ -160,11 +191,13 @@ ser]
             assert parse('--backup', 'skip', '--runner-project-tag', 'my tag',
             '--runner-timeout', '5000ms', '--snippet-project-dir', '../snippet-project',
             '--task', 'test-runner', '--tool', 'spf',
-            '--snippet-selector', 'pat{2}ern') : errorOutput.lines
+            '--snippet-selector', 'pat{2}ern', '--parallelism', '4', '--resume') : errorOutput.lines
 
             assert backupPolicy == BackupPolicy.SKIP
             assert runnerProjectTag == 'my tag'
             assert runnerTimeoutInMs == 5000
+            assert runnerParallelism == 4
+            assert runnerResume
             assert snippetProjectDir == '../snippet-project'
             assert applicationTask == ApplicationTask.TEST_RUNNER
             assert toolConfiguration.name == 'SPF'
@@ -172,6 +205,14 @@ ser]
         }
     }
 
+    @Test
+    void testParseNonPositiveParallelism() {
+        argParser.with{
+            assert !parse('--parallelism', '0')
+            assert errorOutput.lines[0] == 'The parallelism must be positive: 0'
+        }
+    }
+
     @Test
     void testParseIgnoreCaseEnum() {
         argParser.with{
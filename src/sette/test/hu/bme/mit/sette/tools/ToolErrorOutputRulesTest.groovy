@@ -0,0 +1,80 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.tools
+
+import groovy.transform.TypeChecked
+
+import org.junit.Test
+
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier
+import hu.bme.mit.sette.core.tasks.OutputLineClassifier.Category
+
+/**
+ * Tests for the rule files of the error output classifiers of the tools.
+ */
+@TypeChecked
+class ToolErrorOutputRulesTest {
+    private static Category classify(String resourceName, String line) {
+        return OutputLineClassifier.fromResource(resourceName).classify(line)?.category
+    }
+
+    @Test
+    void testCatg() {
+        assert classify('catg-error-output.rules',
+                'WARNING: !!!!!!!!!!!!!!!!! Prediction failed !!!!!!!!!!!!!!!!! index 3 '
+                + 'history.size() 2') == Category.SKIP
+        assert classify('catg-error-output.rules',
+                '  WARNING: At old iid 1 at iid 2 constraint x > 0 at iid 3 and index 4  ') ==
+                Category.SKIP
+        assert classify('catg-error-output.rules', 'WARNING: something else') == null
+    }
+
+    @Test
+    void testEvoSuite() {
+        String rules = 'evosuite-error-output.rules'
+        assert classify(rules, '[MASTER] ERROR TestCaseExecutor - ExecutionException: x') ==
+                Category.FAIL
+        assert classify(rules, 'java.lang.OutOfMemoryError: Java heap space') == Category.TM
+        assert classify(rules,
+                'ERROR ClientNodeImpl - Error when connecting to master via RMI') == Category.EX
+        assert classify(rules, '* ClientNode: MINIMIZATION') == Category.SKIP
+        assert classify(rules, 'ERROR Unknown') == null
+    }
+
+    @Test
+    void testJPet() {
+        assert classify('jpet-error-output.rules',
+                'ERROR: Unknown message: error(resolve_classfile/1)') == Category.NA
+        assert classify('jpet-error-output.rules', 'ERROR: other') == null
+    }
+
+    @Test
+    void testSpf() {
+        String rules = 'spf-error-output.rules'
+        assert classify(rules, 'java.lang.NullPointerException') == Category.EX
+        assert classify(rules, '***********Warning: everything false') == Category.SKIP
+        assert classify(rules,
+                'java.lang.RuntimeException: Arrays: symbolic index not handled') == Category.NA
+        assert classify(rules, 'java.lang.IllegalStateException') == null
+    }
+}
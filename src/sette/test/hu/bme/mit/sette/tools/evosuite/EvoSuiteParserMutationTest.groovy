@@ -0,0 +1,412 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.tools.evosuite
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import javax.tools.ToolProvider
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import hu.bme.mit.sette.common.snippets.JavaVersion
+import hu.bme.mit.sette.core.model.parserxml.SnippetElement
+import hu.bme.mit.sette.core.model.parserxml.SnippetInputsXml
+import hu.bme.mit.sette.core.model.parserxml.SnippetProjectElement
+import hu.bme.mit.sette.core.model.runner.ResultType
+import hu.bme.mit.sette.core.model.runner.RunnerProjectSettings
+import hu.bme.mit.sette.core.model.runner.RunnerResultStore
+import hu.bme.mit.sette.core.model.snippet.SnippetProject
+
+/**
+ * Tests for {@link EvoSuiteParserMutation}. The test files of a small runner project are
+ * transformed and compared to the output of the previous implementation (which transformed the
+ * files one by one and wrote them twice). The snippets with N/A, EX and T/M results are skipped and
+ * their test files are copied like the other files which are not transformed.
+ */
+@TypeChecked
+class EvoSuiteParserMutationTest {
+    private static final String PACKAGE_DIR = 'hu/bme/mit/sette/test'
+
+    private static final String SNIPPETS = '''\
+        package hu.bme.mit.sette.test;
+
+        import hu.bme.mit.sette.common.annotations.SetteNotSnippet;
+        import hu.bme.mit.sette.common.annotations.SetteRequiredStatementCoverage;
+        import hu.bme.mit.sette.common.annotations.SetteSnippetContainer;
+
+        @SetteSnippetContainer(category = "T1", goal = "Test snippets")
+        public final class T1_Snippets {
+            private T1_Snippets() {
+                throw new UnsupportedOperationException("Static class");
+            }
+
+            @SetteNotSnippet
+            public static int calledFunction(int x) {
+                return x * 3;
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static int snippet0(int x) {
+                if (x > 0) {
+                    return x * 2;
+                } else {
+                    return -1;
+                }
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static int snippet1(int x) {
+                return x;
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static String snippet2(String s) {
+                if (s == null) {
+                    throw new IllegalArgumentException();
+                }
+                return s + "\\u0151";
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static int snippet3(int x) {
+                return x;
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static int snippet4(int x) {
+                return calledFunction(x) + 1;
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static void snippet5(int x) {
+                // nothing to do
+            }
+
+            @SetteRequiredStatementCoverage(value = 100)
+            public static int snippet6(int x) {
+                return x;
+            }
+        }
+        '''.stripIndent()
+
+    /** The result types of the snippets (the skipped ones are between the transformed ones). */
+    private static final Map<String, ResultType> RESULT_TYPES = [
+        snippet0: ResultType.S,
+        snippet1: ResultType.NA,
+        snippet2: ResultType.NC,
+        snippet3: ResultType.EX,
+        snippet4: ResultType.C,
+        snippet5: ResultType.S,
+        snippet6: ResultType.TM
+    ]
+
+    /** The test files (relative to the package directory) and their contents. */
+    private static final Map<String, String> TEST_FILES = [
+        'T1_Snippets_snippet0_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import hu.bme.mit.sette.test.T1_Snippets_snippet0;
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet0_Test extends TestCase {
+                public void test0() throws Throwable {
+                    int int0 = T1_Snippets.snippet0(3);
+                }
+
+                public void test1() throws Throwable {
+                    int int0 = T1_Snippets.snippet0((-5));
+                }
+            }
+            ''',
+        'T1_Snippets_snippet1_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            public class T1_Snippets_snippet1_Test {
+                // not transformed
+            }
+            ''',
+        'T1_Snippets_snippet2_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet2_Test extends TestCase {
+                public void test0() throws Throwable {
+                    String string0 = T1_Snippets.snippet2("Ao\\u0151");
+                }
+
+                public void test1() throws Throwable {
+                    String string0 = T1_Snippets.snippet2((String) null);
+                }
+            }
+            ''',
+        'T1_Snippets_snippet3_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            public class T1_Snippets_snippet3_Test {
+                // not transformed
+            }
+            ''',
+        'T1_Snippets_snippet4_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import hu.bme.mit.sette.test.T1_Snippets_snippet4;
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet4_Test extends TestCase {
+                public void test0() throws Throwable {
+                    int int0 = T1_Snippets.snippet4(2);
+                    int int1 = T1_Snippets_snippet4.calledFunction(1);
+                    assertEquals(7, int0);
+                }
+            }
+            ''',
+        'T1_Snippets_snippet5_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import hu.bme.mit.sette.test.T1_Snippets_snippet5;
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet5_Test extends TestCase {
+                public void test0() throws Throwable {
+                    T1_Snippets.snippet5(1);
+                }
+            }
+            ''',
+        'T1_Snippets_snippet6_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            public class T1_Snippets_snippet6_Test {
+                // not transformed
+            }
+            ''',
+        'helper/TestHelper.java': '''\
+            package hu.bme.mit.sette.test.helper;
+
+            public class TestHelper {
+                // not transformed
+            }
+            ''',
+        'readme.txt': 'Not a Java file\n'
+    ]
+
+    /**
+     * The expected contents of the transformed test files (the output of the previous
+     * implementation).
+     */
+    private static final Map<String, String> TRANSFORMED_TEST_FILES = [
+        'T1_Snippets_snippet0_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet0_Test extends TestCase {
+
+                public void test0() throws Throwable {
+                    int int0 = T1_Snippets.snippet0(3);
+                    junit.framework.Assert.assertEquals(6, int0);
+                }
+
+                public void test1() throws Throwable {
+                    int int0 = T1_Snippets.snippet0((-5));
+                    junit.framework.Assert.assertEquals(-1, int0);
+                }
+            }
+            ''',
+        'T1_Snippets_snippet2_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet2_Test extends TestCase {
+
+                public void test0() throws Throwable {
+                    String string0 = T1_Snippets.snippet2("Ao\\u0151");
+                    junit.framework.Assert.assertEquals("Ao\\u0151\\u0151", string0);
+                }
+
+                public void test1() throws Throwable {
+                    try {
+                        String string0 = T1_Snippets.snippet2((String) null);
+                        junit.framework.Assert.fail();
+                    } catch (java.lang.IllegalArgumentException ex) {
+                    } catch (Throwable ex) {
+                        junit.framework.Assert.fail();
+                    }
+                }
+            }
+            ''',
+        'T1_Snippets_snippet4_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet4_Test extends TestCase {
+
+                public void test0() throws Throwable {
+                    int int0 = T1_Snippets.snippet4(2);
+                    int int1 = T1_Snippets.calledFunction(1);
+                    assertEquals(7, int0);
+                    junit.framework.Assert.assertEquals(7, int0);
+                    junit.framework.Assert.assertEquals(3, int1);
+                }
+            }
+            ''',
+        'T1_Snippets_snippet5_Test.java': '''\
+            package hu.bme.mit.sette.test;
+
+            import junit.framework.TestCase;
+
+            public class T1_Snippets_snippet5_Test extends TestCase {
+
+                public void test0() throws Throwable {
+                    T1_Snippets.snippet5(1);
+                }
+            }
+            '''
+    ]
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    EvoSuiteParserMutation mutation
+    Path baseDir
+
+    @Before
+    void setUp() {
+        Path root = tmpFolder.root.toPath()
+        SnippetProject snippetProject = createSnippetProject(root.resolve('snippets'))
+
+        Path toolDir = Files.createDirectories(root.resolve('evosuite'))
+        Files.createFile(toolDir.resolve('evosuite.jar'))
+        Files.createFile(toolDir.resolve('sette-build.xml.default'))
+        EvoSuiteTool tool = new EvoSuiteTool('EvoSuite', toolDir)
+
+        Path outputDir = root.resolve('results')
+        RunnerProjectSettings<EvoSuiteTool> settings = new RunnerProjectSettings<>(
+                snippetProject, outputDir, tool, 'test')
+        baseDir = settings.baseDir.toPath()
+
+        // the test directory (created by the parser) and its backup
+        Path testDir = baseDir.resolve('test')
+        TEST_FILES.each { String file, String content ->
+            Path path = testDir.resolve(PACKAGE_DIR).resolve(file)
+            Files.createDirectories(path.parent)
+            path.toFile().setText(content.stripIndent(), 'UTF-8')
+        }
+        Files.createDirectories(baseDir.resolve('test-original'))
+
+        RunnerResultStore store = RunnerResultStore.of(settings)
+        RESULT_TYPES.each { String method, ResultType resultType ->
+            SnippetInputsXml inputsXml = new SnippetInputsXml()
+            inputsXml.toolName = tool.name
+            inputsXml.snippetProjectElement = new SnippetProjectElement(
+                    snippetProject.baseDir.toString())
+            inputsXml.snippetElement = new SnippetElement('hu.bme.mit.sette.test.T1_Snippets',
+                    method)
+            inputsXml.resultType = resultType
+            inputsXml.generatedInputCount = resultType in [ResultType.S, ResultType.NC,
+                    ResultType.C] ? 1 : 0
+            store.put("T1_${method}".toString(), inputsXml)
+        }
+
+        mutation = new EvoSuiteParserMutation(snippetProject, outputDir, tool, 'test')
+    }
+
+    private static SnippetProject createSnippetProject(Path baseDir) {
+        Path sourceFile = baseDir.resolve("snippet-src/${PACKAGE_DIR}/T1_Snippets.java")
+        Files.createDirectories(sourceFile.parent)
+        sourceFile.toFile().setText(SNIPPETS, 'UTF-8')
+
+        Path buildDir = Files.createDirectories(baseDir.resolve('build'))
+        String setteCommon = Paths.get(
+                JavaVersion.protectionDomain.codeSource.location.toURI()).toString()
+        ByteArrayOutputStream errors = new ByteArrayOutputStream()
+        int exitValue = ToolProvider.systemJavaCompiler.run(null, null, errors, '-nowarn',
+                '-proc:none', '-encoding', 'UTF-8', '-d', buildDir.toString(), '-cp', setteCommon,
+                sourceFile.toString())
+        assert exitValue == 0 : errors.toString()
+
+        return SnippetProject.parse(baseDir)
+    }
+
+    private Map<String, String> readMutationFiles() {
+        Path dir = baseDir.resolve('test-mutation').resolve(PACKAGE_DIR)
+        Map<String, String> files = new TreeMap<>()
+        dir.toFile().eachFileRecurse { File file ->
+            if (file.isFile()) {
+                String name = dir.relativize(file.toPath()).toString().replace('\\', '/')
+                files[name] = file.getText('UTF-8')
+            }
+        }
+        return files
+    }
+
+    private void assertMutationFiles() {
+        Map<String, String> expected = new TreeMap<>()
+        TEST_FILES.each { String file, String content ->
+            // the snippets with N/A, EX and T/M results and the other files are only copied
+            String transformed = TRANSFORMED_TEST_FILES[file]
+            expected[file] = transformed != null ? transformed.stripIndent() : content.stripIndent()
+        }
+
+        Map<String, String> actual = readMutationFiles()
+        assert actual.keySet() == expected.keySet()
+        expected.each { String file, String content ->
+            assert actual[file] == content
+        }
+    }
+
+    @Test
+    void testParse() {
+        mutation.parse()
+
+        assertMutationFiles()
+    }
+
+    @Test
+    void testParse_parallel() {
+        mutation.parallelism = 3
+        mutation.parse()
+
+        assertMutationFiles()
+    }
+
+    @Test
+    void testParse_replacesPreviousOutput() {
+        Path staleFile = baseDir.resolve('test-mutation').resolve(PACKAGE_DIR).resolve('Stale.java')
+        Files.createDirectories(staleFile.parent)
+        staleFile.toFile().text = 'stale'
+
+        mutation.parse()
+
+        assertMutationFiles()
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.tools.jpet.xmlparser
+
+import groovy.transform.TypeChecked
+
+import javax.xml.parsers.SAXParserFactory
+
+import org.junit.Test
+import org.xml.sax.helpers.AttributesImpl
+
+/**
+ * Tests for {@link JPetTestCaseXmlParser}.
+ */
+@TypeChecked
+class JPetTestCaseXmlParserTest {
+    private static String testCase(int arg) {
+        return """\
+            <test_case>
+              <method>m</method>
+              <args_in><data>${arg}</data><ref>1</ref></args_in>
+              <heap_in>
+                <elem><num>1</num><array><type>int</type><num_elems>1</num_elems>
+                  <args><arg>${arg}</arg></args></array></elem>
+              </heap_in>
+              <heap_out></heap_out>
+              <exception_flag>ok</exception_flag>
+              <trace><call>ignored</call></trace>
+            </test_case>
+            """
+    }
+
+    private static String document(int testCaseCount) {
+        return '<pet>' + (1..testCaseCount).collect { int i -> testCase(i) }.join('') + '</pet>'
+    }
+
+    private static JPetTestCaseXmlParser parse(String xml, List<TestCase> sink,
+            int maxTestCaseCount) {
+        JPetTestCaseXmlParser handler = new JPetTestCaseXmlParser(
+                { TestCase tc -> sink.add(tc) }, maxTestCaseCount)
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new ByteArrayInputStream(xml.getBytes('UTF-8')), handler)
+        return handler
+    }
+
+    @Test
+    void testParse_passesTestCasesToSink() {
+        List<TestCase> testCases = []
+        JPetTestCaseXmlParser handler = parse(document(3), testCases, 0)
+
+        assert handler.testCaseCount == 3
+        assert handler.skippedTestCaseCount == 0
+        assert testCases*.exceptionFlag == ['ok', 'ok', 'ok']
+        assert testCases.collect { TestCase tc -> tc.argsIn()*.text } ==
+                [['1', '1'], ['2', '1'], ['3', '1']]
+        assert testCases.collect { TestCase tc ->
+            tc.heapIn().get('1').asHeapArray().args()*.text
+        } == [['1'], ['2'], ['3']]
+    }
+
+    @Test
+    void testParse_skipsTestCasesAboveMaximum() {
+        List<TestCase> testCases = []
+        JPetTestCaseXmlParser handler = parse(document(5), testCases, 2)
+
+        assert handler.testCaseCount == 2
+        assert handler.skippedTestCaseCount == 3
+        assert testCases.collect { TestCase tc -> tc.argsIn()[0].text } == ['1', '2']
+    }
+
+    @Test
+    void testCharacters_joinsSplitText() {
+        List<TestCase> testCases = []
+        JPetTestCaseXmlParser handler = new JPetTestCaseXmlParser({ TestCase tc ->
+            testCases.add(tc)
+        })
+        AttributesImpl attrs = new AttributesImpl()
+
+        handler.startDocument()
+        handler.startElement('', '', 'pet', attrs)
+        handler.startElement('', '', 'test_case', attrs)
+        handler.startElement('', '', 'args_in', attrs)
+        handler.startElement('', '', 'data', attrs)
+        handler.characters(' 12'.toCharArray(), 0, 3)
+        handler.characters('34 '.toCharArray(), 0, 3)
+        handler.endElement('', '', 'data')
+        handler.endElement('', '', 'args_in')
+        handler.endElement('', '', 'test_case')
+        handler.endElement('', '', 'pet')
+
+        assert testCases.size() == 1
+        assert testCases[0].argsIn()*.text == ['1234']
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.tools.randoop
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Compares the speed of the token scanner and JavaParser on a generated Randoop-like test class.
+ * It is not run by the tests, run it manually:
+ *
+ * <pre>
+ * RandoopTestCounterBenchmark [testMethodCount] [repeatCount]
+ * </pre>
+ */
+@TypeChecked
+class RandoopTestCounterBenchmark {
+    /**
+     * Generates a test class similar to the ones generated by Randoop.
+     *
+     * @param className
+     *            the name of the class
+     * @param testMethodCount
+     *            the number of test methods
+     * @return the source code
+     */
+    static String generateTestClass(String className, int testMethodCount) {
+        StringBuilder sb = new StringBuilder()
+        sb << 'import junit.framework.*;\n\n'
+        sb << "public class ${className} extends TestCase {\n\n"
+        sb << '  public static boolean debug = false;\n\n'
+        sb << '  public void assertBooleanArrayEquals(boolean[] expectedArray, boolean[] array) {\n'
+        sb << '    if (expectedArray.length != array.length) {\n'
+        sb << '      throw new AssertionFailedError("Array lengths differ: " + array.length);\n'
+        sb << '    }\n'
+        sb << '  }\n\n'
+
+        for (int i = 1; i <= testMethodCount; i++) {
+            sb << "  public void test${i}() throws Throwable {\n\n"
+            sb << "    if (debug) { System.out.format(\"%n%s%n\",\"${className}.test${i}\"); }\n\n"
+            sb << "    java.lang.Integer i0 = new java.lang.Integer(${i});\n"
+            sb << "    int i1 = hu.bme.mit.sette.Snippet.method(i0, '}', \"test(\");\n"
+            sb << '    // Regression assertion (captures the current behavior of the code)\n'
+            sb << "    assertTrue(\"'\" + i1 + \"' != '\" + ${i} + \"'\", i1 == ${i});\n"
+            sb << '  }\n\n'
+        }
+
+        sb << '}\n'
+        return sb.toString()
+    }
+
+    static void main(String[] args) {
+        int testMethodCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000
+        int repeatCount = args.length > 1 ? Integer.parseInt(args[1]) : 5
+
+        Path file = Files.createTempFile('RegressionTest0', '.java')
+        try {
+            file.text = generateTestClass(file.fileName.toString() - '.java', testMethodCount)
+            println "File size: ${Files.size(file) >> 10} KiB, test methods: ${testMethodCount}"
+
+            for (int i = 0; i < repeatCount; i++) {
+                long start = System.nanoTime()
+                int scanned = RandoopTestCounter.count(file)
+                long scannerTime = System.nanoTime() - start
+
+                start = System.nanoTime()
+                int parsed = RandoopTestCounter.countWithJavaParser(file)
+                long parserTime = System.nanoTime() - start
+
+                assert scanned == testMethodCount && parsed == testMethodCount
+                printf('#%d scanner: %6d ms, JavaParser: %6d ms%n', i + 1,
+                        scannerTime.intdiv(1000000L), parserTime.intdiv(1000000L))
+            }
+        } finally {
+            Files.delete(file)
+        }
+    }
+}
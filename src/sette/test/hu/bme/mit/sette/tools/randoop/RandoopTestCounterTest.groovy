@@ -0,0 +1,120 @@
+/*
+ * SETTE - Symbolic Execution based Test Tool Evaluator
+ *
+ * SETTE is a tool to help the evaluation and comparison of symbolic execution based test input
+ * generator tools.
+ *
+ * Budapest University of Technology and Economics (BME)
+ *
+ * Authors: Lajos Cseppentő <lajos.cseppento@inf.mit.bme.hu>, Zoltán Micskei <micskeiz@mit.bme.hu>
+ *
+ * Copyright 2014-2016
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package hu.bme.mit.sette.tools.randoop
+
+import groovy.transform.TypeChecked
+
+import java.nio.file.Path
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for {@link RandoopTestCounter}.
+ */
+@TypeChecked
+class RandoopTestCounterTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder()
+
+    private Path write(String source) {
+        Path file = tmpFolder.newFile('Test.java').toPath()
+        file.text = source
+        return file
+    }
+
+    @Test
+    void testCount_generatedClass() {
+        Path file = write(RandoopTestCounterBenchmark.generateTestClass('Test', 50))
+
+        assert RandoopTestCounter.count(file) == 50
+        assert RandoopTestCounter.countWithJavaParser(file) == 50
+    }
+
+    @Test
+    void testCount_agreesWithJavaParser() {
+        Path file = write('''\
+            package pkg;
+
+            /* class Comment { public void testInComment() {} } */
+            @SuppressWarnings({"unchecked"})
+            public class Test extends junit.framework.TestCase {
+                // public void testInLineComment() {
+                private static final String S = "public void testInString() {";
+                private static final char C = '{';
+                private static final Runnable R = new Runnable() {
+                    public void run() {
+                        testCalled();
+                    }
+                };
+                private final int[] testField = { 1, 2 };
+                private final Object testInit = testFactory(1);
+
+                public Test() {
+                    testCalled();
+                }
+
+                @Deprecated
+                @SuppressWarnings(value = "x")
+                public void test1() throws Throwable {
+                    if (true) { testCalled(); }
+                }
+
+                public static <T> java.util.List<T> testGeneric(T value) {
+                    return null;
+                }
+
+                int[] testArray() { return null; }
+
+                void test() {
+                }
+
+                static void testCalled() {
+                }
+
+                static Object testFactory(int i) {
+                    return null;
+                }
+
+                static class Nested {
+                    public void testNested() {
+                    }
+                }
+            }
+
+            class Other {
+                public void testOther() {
+                }
+            }
+            '''.stripIndent())
+
+        assert RandoopTestCounter.countWithJavaParser(file) == 5
+        assert RandoopTestCounter.count(file) == 5
+    }
+
+    @Test(expected = IllegalArgumentException)
+    void testCount_unbalanced() {
+        RandoopTestCounter.count(write('public class Test { public void test1() {'))
+    }
+}